@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.here.account.oauth2.AccessTokenResponse;
+import com.here.account.oauth2.StreamingTokenSerializer;
+import com.here.account.util.CachedJacksonSerializer;
+import com.here.account.util.JacksonSerializer;
+import com.here.account.util.Serializer;
+
+/**
+ * Compares parsing a token endpoint response into an {@link AccessTokenResponse}
+ * through {@link JacksonSerializer}, which asks the shared ObjectMapper for the
+ * deserializer on every call, {@link CachedJacksonSerializer}, which keeps an
+ * ObjectReader per class, and {@link StreamingTokenSerializer}, which decodes
+ * without data binding.
+ *
+ * <p>
+ * Run with {@code -prof gc} to also compare the bytes allocated per response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccessTokenResponseParsingBenchmark {
+
+    private static final byte[] RESPONSE_BODY = ("{\"access_token\":\"eyJhbGciOiJSUzUxMiIsImN0eSI6IkpXVCIsImlzcyI6IkhFUkUi"
+            + "LCJhaWQiOiJteUFwcElkIiwidHlwIjoiSldUIiwidmVyIjoiMS4wIn0.eyJhaWQiOiJteUFwcElkIiwiaWF0IjoxNTc3ODM2ODAw"
+            + "LCJleHAiOjE1Nzc5MjMyMDAsImNpZCI6Im15Q2xpZW50SWQifQ.c2lnbmF0dXJlLXBsYWNlaG9sZGVy\","
+            + "\"token_type\":\"bearer\",\"expires_in\":86399,"
+            + "\"scope\":\"hrn:here:authorization::rlm0000:project/my-project-0000\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private Serializer jacksonSerializer;
+    private Serializer cachedJacksonSerializer;
+    private Serializer streamingTokenSerializer;
+
+    @Setup
+    public void setUp() {
+        jacksonSerializer = new JacksonSerializer();
+        cachedJacksonSerializer = CachedJacksonSerializer.builder()
+                .addClass(AccessTokenResponse.class)
+                .build();
+        streamingTokenSerializer = new StreamingTokenSerializer();
+    }
+
+    @Benchmark
+    public AccessTokenResponse parse_jacksonSerializer() {
+        return jacksonSerializer.jsonToPojo(new ByteArrayInputStream(RESPONSE_BODY), AccessTokenResponse.class);
+    }
+
+    @Benchmark
+    public AccessTokenResponse parse_cachedJacksonSerializer() {
+        return cachedJacksonSerializer.jsonToPojo(new ByteArrayInputStream(RESPONSE_BODY), AccessTokenResponse.class);
+    }
+
+    @Benchmark
+    public AccessTokenResponse parse_streamingTokenSerializer() {
+        return streamingTokenSerializer.jsonToPojo(new ByteArrayInputStream(RESPONSE_BODY), AccessTokenResponse.class);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.here.account.auth.SignatureCalculator;
+import com.here.account.auth.SignatureMethod;
+
+/**
+ * Compares ES512 signing and verification through {@link SignatureCalculator},
+ * which parses each key once and reuses Signature instances, against parsing
+ * the key and looking up the Signature on every call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ES512SignatureBenchmark {
+
+    private static final String CONSUMER_KEY = "benchmarkKey";
+    private static final String METHOD = "POST";
+    private static final String URL = "https://account.api.here.com/oauth2/token";
+    private static final String NONCE = "ab1Xo3";
+    private static final long TIMESTAMP = 1577836800L;
+    private static final String TEXT = "POST&https%3A%2F%2Faccount.api.here.com%2Foauth2%2Ftoken&oauth_consumer_key%3D"
+            + CONSUMER_KEY;
+
+    private String privateKeyBase64;
+    private String publicKeyBase64;
+    private SignatureCalculator signatureCalculator;
+    private String signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance(SignatureCalculator.ELLIPTIC_CURVE_ALGORITHM);
+        kpg.initialize(new ECGenParameterSpec("secp521r1"));
+        KeyPair pair = kpg.generateKeyPair();
+        privateKeyBase64 = Base64.getEncoder().encodeToString(pair.getPrivate().getEncoded());
+        publicKeyBase64 = Base64.getEncoder().encodeToString(pair.getPublic().getEncoded());
+        signatureCalculator = new SignatureCalculator(CONSUMER_KEY, privateKeyBase64);
+        signature = signatureCalculator.calculateSignature(METHOD, URL, TIMESTAMP, NONCE,
+                SignatureMethod.ES512, null, null);
+    }
+
+    @Benchmark
+    public String sign_cachedKey() {
+        return signatureCalculator.calculateSignature(METHOD, URL, TIMESTAMP, NONCE,
+                SignatureMethod.ES512, null, null);
+    }
+
+    @Benchmark
+    public String sign_parseKeyEachTime() throws Exception {
+        // the per-signature work before keys were cached; the base string work is omitted
+        byte[] keyBytes = Base64.getDecoder().decode(privateKeyBase64);
+        KeyFactory kf = KeyFactory.getInstance(SignatureCalculator.ELLIPTIC_CURVE_ALGORITHM);
+        Signature s = Signature.getInstance(SignatureMethod.ES512.getAlgorithm());
+        s.initSign(kf.generatePrivate(new PKCS8EncodedKeySpec(keyBytes)));
+        s.update(TEXT.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(s.sign());
+    }
+
+    @Benchmark
+    public boolean verify_cachedKey() {
+        return SignatureCalculator.verifySignature(CONSUMER_KEY, METHOD, URL, TIMESTAMP, NONCE,
+                SignatureMethod.ES512, null, null, signature, publicKeyBase64);
+    }
+
+    @Benchmark
+    public boolean verify_parseKeyEachTime() throws Exception {
+        byte[] keyBytes = Base64.getDecoder().decode(publicKeyBase64);
+        KeyFactory kf = KeyFactory.getInstance(SignatureCalculator.ELLIPTIC_CURVE_ALGORITHM);
+        Signature s = Signature.getInstance(SignatureMethod.ES512.getAlgorithm());
+        s.initVerify(kf.generatePublic(new X509EncodedKeySpec(keyBytes)));
+        s.update(TEXT.getBytes(StandardCharsets.UTF_8));
+        // not the signature of TEXT, but verification does the same work either way
+        return s.verify(Base64.getDecoder().decode(signature));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.here.account.auth.SignatureCalculator;
+import com.here.account.auth.SignatureMethod;
+
+/**
+ * Compares HMAC-SHA256 signing of a client_credentials token request through a reused
+ * {@link SignatureCalculator}, which keeps a compiled base string template, against the
+ * previous implementation, which rebuilt and re-encoded every parameter on each call.
+ *
+ * <p>
+ * Run with {@code -prof gc} to also compare the bytes allocated per signature.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignatureBaseStringBenchmark {
+
+    private static final String CONSUMER_KEY = "aBcDeFgHiJkLmNoPqRsT";
+    private static final String CONSUMER_SECRET = "aBcDeFgHiJkLmNoPqRsTuVwXyZ0123456789-_aBcDeFgHiJkLmNoPqRsTuVwXyZ01";
+    private static final String METHOD = "POST";
+    private static final String URL = "https://account.api.here.com/oauth2/token";
+    private static final String NONCE = "ab1Xo3";
+    private static final long TIMESTAMP = 1577836800L;
+
+    private Map<String, List<String>> formParams;
+    private SignatureCalculator signatureCalculator;
+
+    @Setup
+    public void setUp() {
+        formParams = new HashMap<>();
+        formParams.put("grant_type", Collections.singletonList("client_credentials"));
+        formParams.put("expires_in", Collections.singletonList("86400"));
+        signatureCalculator = new SignatureCalculator(CONSUMER_KEY, CONSUMER_SECRET);
+    }
+
+    @Benchmark
+    public String sign_template() {
+        return signatureCalculator.calculateSignature(METHOD, URL, TIMESTAMP, NONCE,
+                SignatureMethod.HMACSHA256, formParams, null);
+    }
+
+    @Benchmark
+    public String sign_previous() throws Exception {
+        String signatureBaseString = previousSignatureBaseString();
+        byte[] keyBytes = (previousUrlEncode(CONSUMER_SECRET) + "&").getBytes(StandardCharsets.UTF_8);
+        Mac mac = Mac.getInstance(SignatureMethod.HMACSHA256.getAlgorithm());
+        mac.init(new SecretKeySpec(keyBytes, SignatureMethod.HMACSHA256.getAlgorithm()));
+        return Base64.getEncoder().encodeToString(mac.doFinal(signatureBaseString.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * The signature base string as it was built before the template.
+     */
+    private String previousSignatureBaseString() {
+        StringBuilder signatureBaseString = new StringBuilder(100);
+        signatureBaseString.append(METHOD.toUpperCase());
+        signatureBaseString.append('&');
+        signatureBaseString.append(previousUrlEncode(URL));
+
+        List<String[]> parameters = new ArrayList<>();
+        add(parameters, "oauth_consumer_key", CONSUMER_KEY);
+        add(parameters, "oauth_nonce", NONCE);
+        add(parameters, "oauth_signature_method", SignatureMethod.HMACSHA256.getOauth1SignatureMethod());
+        add(parameters, "oauth_timestamp", String.valueOf(TIMESTAMP));
+        add(parameters, "oauth_version", "1.0");
+        for (Map.Entry<String, List<String>> entry : formParams.entrySet()) {
+            for (String value : entry.getValue()) {
+                add(parameters, entry.getKey(), value);
+            }
+        }
+        String[][] params = parameters.toArray(new String[parameters.size()][]);
+        Arrays.sort(params, (a, b) -> {
+            int diff = a[0].compareTo(b[0]);
+            return diff == 0 ? a[1].compareTo(b[1]) : diff;
+        });
+        StringBuilder encodedParams = new StringBuilder(100);
+        for (String[] param : params) {
+            if (encodedParams.length() > 0) {
+                encodedParams.append('&');
+            }
+            encodedParams.append(param[0]).append('=').append(param[1]);
+        }
+        signatureBaseString.append('&');
+        signatureBaseString.append(previousUrlEncode(encodedParams.toString()));
+        return signatureBaseString.toString();
+    }
+
+    private static void add(List<String[]> parameters, String key, String value) {
+        parameters.add(new String[] {previousUrlEncode(key), previousUrlEncode(value)});
+    }
+
+    private static String previousUrlEncode(String s) {
+        try {
+            return URLEncoder.encode(s, "UTF-8").replaceAll("\\+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -62,6 +62,12 @@ public class OAuth1Signer implements HttpProvider.HttpRequestAuthorizer {
     
     
     private final SignatureMethod signatureMethod;
+
+    /**
+     * The SignatureCalculator for the consumerKey, consumerSecret pair, created on first use.
+     * It holds the precomputed signing key and reusable Mac instances.
+     */
+    private volatile SignatureCalculator signatureCalculator;
         
     /**
      * Construct the OAuth signer based on accessKeyId and accessKeySecret.
@@ -123,6 +129,16 @@ public class OAuth1Signer implements HttpProvider.HttpRequestAuthorizer {
         this.signatureMethod = signatureMethod;
     }
 
+    /**
+     * Gets the HERE client accessKeyId, the value of oauth_consumer_key.
+     * It is sent in plaintext, and identifies, but does not authenticate, the caller.
+     *
+     * @return the consumer key
+     */
+    public String getConsumerKey() {
+        return consumerKey;
+    }
+
     /**
      * The source of entropy for OAuth1.0 nonce values.
      * File bytes with entropy for OAuth1.0 nonce values.
@@ -184,7 +200,12 @@ public class OAuth1Signer implements HttpProvider.HttpRequestAuthorizer {
         // client accessKeyId is "Client Identifier" a.k.a. "oauth_consumer_key" in the OAuth1.0 spec
         // client accessKeySecret is "Client Shared-Secret" , which becomes the client shared-secret component 
         // of the HMAC-SHA1 key per http://tools.ietf.org/html/rfc5849#section-3.4.2.
-        SignatureCalculator calculator = new SignatureCalculator(consumerKey, consumerSecret);
+        SignatureCalculator calculator = signatureCalculator;
+        if (null == calculator) {
+            // a benign race; at worst a second equivalent calculator is created
+            calculator = new SignatureCalculator(consumerKey, consumerSecret);
+            signatureCalculator = calculator;
+        }
         return calculator;
     }
 
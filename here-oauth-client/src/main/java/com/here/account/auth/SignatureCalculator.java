@@ -16,18 +16,23 @@
 package com.here.account.auth;
 
 import com.here.account.util.OAuthConstants;
+import com.here.account.util.PercentEncoder;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
 import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.Signature;
+import java.security.SignatureException;
+import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,9 +48,67 @@ public class SignatureCalculator {
 
     private static final Logger LOG = Logger.getLogger(SignatureCalculator.class.getName());
 
+    /**
+     * The maximum number of idle initialized Mac instances kept per HMAC algorithm.
+     * More concurrent signers than this still work, the extra Macs are just not kept.
+     */
+    private static final int MAX_POOLED_MACS = 8;
+
+    /**
+     * The maximum number of idle Signature instances, initialized for signing, kept per algorithm.
+     */
+    private static final int MAX_POOLED_SIGNATURES = 8;
+
+    /**
+     * The maximum number of parsed verification public keys kept.
+     */
+    private static final int MAX_CACHED_PUBLIC_KEYS = 64;
+
+    /**
+     * Parsed verification public keys, by their Base64 X.509 encoding, least recently used first.
+     */
+    private static final Map<String, PublicKey> PUBLIC_KEYS =
+            Collections.synchronizedMap(new LinkedHashMap<String, PublicKey>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PublicKey> eldest) {
+                    return size() > MAX_CACHED_PUBLIC_KEYS;
+                }
+            });
+
     private final String consumerKey;
     private final String consumerSecret;
 
+    /**
+     * The HMAC-SHAn signing key bytes, per
+     * <a href="https://tools.ietf.org/html/rfc5849#section-3.4.2">RFC5849 Section 3.4.2</a>,
+     * computed once from the consumerSecret.
+     */
+    private final byte[] hmacKeyBytes;
+
+    /**
+     * Idle Mac instances already initialized with the signing key, by algorithm.
+     */
+    private final Map<String, MacPool> macPools = new ConcurrentHashMap<>();
+
+    /**
+     * Idle Signature instances already initialized for signing with the private key, by algorithm.
+     * They are kept per calculator, so the private key is not reachable once the calculator is gone.
+     */
+    private final Map<String, SignaturePool> signaturePools = new ConcurrentHashMap<>();
+
+    /**
+     * The ES512 private key parsed from the consumerSecret, on first use.
+     */
+    private volatile PrivateKey ellipticCurvePrivateKey;
+
+    /**
+     * The most recently used signature base string template.  A signer normally
+     * signs requests to a single token endpoint, so one is enough.
+     */
+    private volatile BaseStringTemplate baseStringTemplate;
+
     /**
      * This is the constant for Elliptic Curve algorithm
      */
@@ -54,6 +117,7 @@ public class SignatureCalculator {
     public SignatureCalculator(String consumerKey, String consumerSecret) {
         this.consumerKey = consumerKey;
         this.consumerSecret = consumerSecret;
+        this.hmacKeyBytes = null == consumerSecret ? null : getHmacKeyBytes(consumerSecret);
     }
 
     /**
@@ -101,11 +165,17 @@ public class SignatureCalculator {
             String oauthVersion,
             Map<String, List<String>> formParams, 
             Map<String, List<String>> queryParams) {
-        String signatureBaseString = computeSignatureBaseString(this.consumerKey, method, baseURL, oauthTimestamp, nonce, signatureMethod,
-                oauthVersion,
-                formParams,
-                queryParams);
-        return generateSignature(signatureBaseString.toString(), this.consumerSecret, signatureMethod);
+        String signatureBaseString = getBaseStringTemplate(method, baseURL, signatureMethod, oauthVersion)
+                .build(oauthTimestamp, nonce, formParams, queryParams);
+        if (signatureMethod.equals(ES512)) {
+            return computePooledECDSASignature(signatureBaseString.getBytes(OAuthConstants.UTF_8_CHARSET),
+                    signatureMethod.getAlgorithm());
+        }
+        if (null == hmacKeyBytes) {
+            return generateSignature(signatureBaseString, this.consumerSecret, signatureMethod);
+        }
+        return computePooledHMACSignature(signatureBaseString.getBytes(OAuthConstants.UTF_8_CHARSET),
+                signatureMethod.getAlgorithm());
     }
 
     /**
@@ -122,12 +192,15 @@ public class SignatureCalculator {
         //
         //    Parameter names and values are encoded per Parameter Encoding
         //    (Section 3.6).
-        return new StringBuilder().append("OAuth ")
-                .append("oauth_consumer_key").append("=\"").append(urlEncode(consumerKey))
+        StringBuilder header = new StringBuilder(256).append("OAuth ")
+                .append("oauth_consumer_key").append("=\"");
+        PercentEncoder.encode(consumerKey, header)
                 .append("\", ").append("oauth_signature_method").append("=\"").append(signatureMethod.getOauth1SignatureMethod())
-                .append("\", ").append("oauth_signature").append("=\"").append(urlEncode(signature))
+                .append("\", ").append("oauth_signature").append("=\"");
+        PercentEncoder.encode(signature, header)
                 .append("\", ").append("oauth_timestamp").append("=\"").append(oauthTimestamp)
-                .append("\", ").append("oauth_nonce").append("=\"").append(urlEncode(nonce))
+                .append("\", ").append("oauth_nonce").append("=\"");
+        return PercentEncoder.encode(nonce, header)
                 .append("\", ").append("oauth_version").append("=\"").append("1.0").append("\"").toString();
     }
 
@@ -203,59 +276,8 @@ public class SignatureCalculator {
                                      String oauthVersion,
                                      Map<String, List<String>> formParams,
                                      Map<String, List<String>> queryParams) {
-        //Create signature base with the http method and base url
-        StringBuilder signatureBaseString = new StringBuilder(100);
-        signatureBaseString.append(method.toUpperCase());
-        signatureBaseString.append('&');
-        signatureBaseString.append(urlEncode(normalizeBaseURL(baseURL)));
-
-        //create parameter set with OAuth parameters
-        // 3.4.1.3.1.  Parameter Sources
-        OAuthParameterSet parameterSet = new OAuthParameterSet();
-
-        // The OAuth HTTP "Authorization" header field (Section 3.5.1) if
-        // present.  The header's content is parsed into a list of name/value
-        // pairs excluding the "realm" parameter if present.  The parameter
-        // values are decoded as defined by Section 3.5.1.
-        parameterSet.add("oauth_consumer_key", consumerKey); // decoded consumerKey
-        parameterSet.add("oauth_nonce", nonce);
-        parameterSet.add("oauth_signature_method", signatureMethod.getOauth1SignatureMethod());
-        parameterSet.add("oauth_timestamp", String.valueOf(oauthTimestamp));
-        if (null != oauthVersion) {
-            parameterSet.add("oauth_version", oauthVersion);
-        }
-
-        //add form parameters
-        if (formParams != null && !formParams.isEmpty()) {
-            for (String key : formParams.keySet()) {
-                List<String> values = formParams.get(key);
-                for (String value : values) {
-                    parameterSet.add(key, value);
-                }
-            }
-        }
-
-        //add query parameters
-        if (queryParams != null && !queryParams.isEmpty()) {
-            for (String key : queryParams.keySet()) {
-                List<String> values = queryParams.get(key);
-                for (String value : values) {
-                    parameterSet.add(key, value);
-                }
-            }
-        }
-
-        //sort the parameters by the key and format them into key=value concatenated with &
-        String parameterString = parameterSet.sortAndConcat();
-        //combine the signature base and parameters
-        signatureBaseString.append('&');
-        signatureBaseString.append(urlEncode(parameterString));
-
-        if (LOG.isLoggable(Level.FINE)) {
-            LOG.fine("signatureBaseString=" + signatureBaseString);
-        }
-
-        return signatureBaseString.toString();
+        return new BaseStringTemplate(consumerKey, method, baseURL, signatureMethod, oauthVersion)
+                .build(oauthTimestamp, nonce, formParams, queryParams);
     }
 
     /**
@@ -271,7 +293,8 @@ public class SignatureCalculator {
 
         try {
             if (signatureMethod.equals(ES512))
-                return computeECDSASignature(bytesToSign, key, signatureMethod.getAlgorithm());
+                return computeECDSASignature(bytesToSign, consumerSecretToEllipticCurvePrivateKey(key),
+                        signatureMethod.getAlgorithm());
             else
                 return computeHMACSignature(bytesToSign, key, signatureMethod.getAlgorithm());
         } catch (Exception e) {
@@ -280,27 +303,25 @@ public class SignatureCalculator {
     }
 
     /**
-     * Utility method to URL encode a given string. If there are any spaces the URLEncodes encodes it to "+"
-     * but we require it to be "%20".
+     * Utility method to URL encode a given string per RFC3986, as required by
+     * <a href="https://tools.ietf.org/html/rfc5849#section-3.6">RFC5849 Section 3.6</a>.
+     * Spaces are encoded as "%20".
      */
     static String urlEncode(String s) {
-        try {
-            return URLEncoder.encode(s, OAuthConstants.UTF_8_STRING).replaceAll("\\+", "%20");
-        } catch (UnsupportedEncodingException e) {
-            throw new IllegalArgumentException(e);
-        }
+        return PercentEncoder.encode(s);
     }
 
     /**
      * Compute elliptic curve digital signature
      * @param bytesToSign bytes to be signed
+     * @param key the parsed private key
      * @param algorithm elliptic curve algorithm to be used.
      * @return signed cipher text
      */
-    private static String computeECDSASignature(byte[] bytesToSign, String key, String algorithm) {
+    private static String computeECDSASignature(byte[] bytesToSign, PrivateKey key, String algorithm) {
         try {
             Signature s = Signature.getInstance(algorithm);
-            s.initSign(consumerSecretToEllipticCurvePrivateKey(key));
+            s.initSign(key);
             s.update(bytesToSign);
             return Base64.getEncoder().encodeToString(s.sign());
         } catch (Exception e) {
@@ -308,6 +329,31 @@ public class SignatureCalculator {
         }
     }
 
+    /**
+     * Compute elliptic curve digital signature with this calculator's parsed private key,
+     * reusing an initialized Signature if one is idle.
+     *
+     * @param bytesToSign bytes to be signed
+     * @param algorithm elliptic curve algorithm to be used.
+     * @return signed cipher text
+     */
+    private String computePooledECDSASignature(byte[] bytesToSign, String algorithm) {
+        SignaturePool signaturePool = signaturePools.computeIfAbsent(algorithm,
+                a -> new SignaturePool(getEllipticCurvePrivateKey(), a));
+        Signature signature = signaturePool.borrow();
+        byte[] signedBytes;
+        try {
+            signature.update(bytesToSign);
+            // sign resets the Signature to its state after initSign, ready for its next use
+            signedBytes = signature.sign();
+        } catch (SignatureException | RuntimeException e) {
+            // don't return a Signature in an unknown state
+            throw new IllegalArgumentException(e);
+        }
+        signaturePool.giveBack(signature);
+        return Base64.getEncoder().encodeToString(signedBytes);
+    }
+
     /**
      * Compute HMAC digital signature
      * @param bytesToSign bytes to be signed
@@ -316,7 +362,7 @@ public class SignatureCalculator {
      */
     private static String computeHMACSignature(byte[] bytesToSign, String key, String algorithm) {
         try {
-            byte[] keyBytes = (urlEncode(key) + "&").getBytes(OAuthConstants.UTF_8_CHARSET);
+            byte[] keyBytes = getHmacKeyBytes(key);
             SecretKeySpec signingKey = new SecretKeySpec(keyBytes, algorithm);
 
             //generate signature based on the requested signature method
@@ -329,6 +375,77 @@ public class SignatureCalculator {
         }
     }
 
+    /**
+     * Compute HMAC digital signature with this calculator's precomputed key,
+     * reusing an initialized Mac if one is idle.
+     *
+     * @param bytesToSign bytes to be signed
+     * @param algorithm HMAC algorithm to be used.
+     * @return signed cipher text
+     */
+    private String computePooledHMACSignature(byte[] bytesToSign, String algorithm) {
+        MacPool macPool = macPools.computeIfAbsent(algorithm, a -> new MacPool(hmacKeyBytes, a));
+        Mac mac = macPool.borrow();
+        byte[] signedBytes;
+        try {
+            // doFinal resets the Mac, ready for its next use
+            signedBytes = mac.doFinal(bytesToSign);
+        } catch (RuntimeException e) {
+            // don't return a Mac in an unknown state
+            throw new IllegalArgumentException(e);
+        }
+        macPool.giveBack(mac);
+        return Base64.getEncoder().encodeToString(signedBytes);
+    }
+
+    /**
+     * Get the HMAC-SHAn key from the shared secret; the token secret is always empty here.
+     */
+    private static byte[] getHmacKeyBytes(String key) {
+        return (urlEncode(key) + "&").getBytes(OAuthConstants.UTF_8_CHARSET);
+    }
+
+    /**
+     * Get the signature base string template for the request, reusing the last one if it matches.
+     */
+    private BaseStringTemplate getBaseStringTemplate(String method, String baseURL,
+            SignatureMethod signatureMethod, String oauthVersion) {
+        BaseStringTemplate template = baseStringTemplate;
+        if (null == template || !template.matches(method, baseURL, signatureMethod, oauthVersion)) {
+            template = new BaseStringTemplate(consumerKey, method, baseURL, signatureMethod, oauthVersion);
+            baseStringTemplate = template;
+        }
+        return template;
+    }
+
+    /**
+     * Get this calculator's consumerSecret as an elliptic curve private key, parsing it only once.
+     */
+    private PrivateKey getEllipticCurvePrivateKey() {
+        PrivateKey privateKey = ellipticCurvePrivateKey;
+        if (null == privateKey) {
+            privateKey = consumerSecretToEllipticCurvePrivateKey(consumerSecret);
+            ellipticCurvePrivateKey = privateKey;
+        }
+        return privateKey;
+    }
+
+    /**
+     * Get the verification key as an elliptic curve public key, from the cache if it was parsed before.
+     */
+    private static PublicKey verificationKeyToEllipticCurvePublicKey(String verificationKey)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        PublicKey pubKey = PUBLIC_KEYS.get(verificationKey);
+        if (null == pubKey) {
+            byte[] keyBytes = Base64.getDecoder().decode(verificationKey);
+            X509EncodedKeySpec publicSpec = new X509EncodedKeySpec(keyBytes);
+            KeyFactory kf = KeyFactory.getInstance(ELLIPTIC_CURVE_ALGORITHM);
+            pubKey = kf.generatePublic(publicSpec);
+            PUBLIC_KEYS.put(verificationKey, pubKey);
+        }
+        return pubKey;
+    }
+
     /**
      * Convert the consumer key to the elliptic curve private key
      */
@@ -369,10 +486,7 @@ public class SignatureCalculator {
     private static boolean verifyECDSASignature(String cipherText, String signature, String verificationKey, SignatureMethod signatureMethod) {
         try {
             //convert the verification key to EC public key
-            byte[] keyBytes = Base64.getDecoder().decode(verificationKey);
-            X509EncodedKeySpec publicSpec = new X509EncodedKeySpec(keyBytes);
-            KeyFactory kf = KeyFactory.getInstance(ELLIPTIC_CURVE_ALGORITHM);
-            PublicKey pubKey = kf.generatePublic(publicSpec);
+            PublicKey pubKey = verificationKeyToEllipticCurvePublicKey(verificationKey);
 
             byte[] signatureBytes = Base64.getDecoder().decode(signature.getBytes(OAuthConstants.UTF_8_STRING));
             Signature s = Signature.getInstance(signatureMethod.getAlgorithm());
@@ -385,42 +499,241 @@ public class SignatureCalculator {
     }
 
     /**
-     * Container class for Parameters.
+     * A bounded pool of Mac instances for one algorithm, all initialized with the same key.
+     * New instances are cloned from a prototype, to avoid repeating the JCA provider lookup
+     * of {@link Mac#getInstance(String)}.
+     */
+    private static final class MacPool {
+
+        private final SecretKeySpec signingKey;
+        private final Mac prototype;
+        private final BlockingQueue<Mac> idle = new ArrayBlockingQueue<>(MAX_POOLED_MACS);
+
+        private MacPool(byte[] keyBytes, String algorithm) {
+            try {
+                this.signingKey = new SecretKeySpec(keyBytes, algorithm);
+                this.prototype = Mac.getInstance(algorithm);
+                this.prototype.init(signingKey);
+            } catch (Exception e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        private Mac borrow() {
+            Mac mac = idle.poll();
+            if (null != mac) {
+                return mac;
+            }
+            try {
+                return (Mac) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                try {
+                    mac = Mac.getInstance(prototype.getAlgorithm(), prototype.getProvider());
+                    mac.init(signingKey);
+                    return mac;
+                } catch (Exception e2) {
+                    throw new IllegalArgumentException(e2);
+                }
+            }
+        }
+
+        private void giveBack(Mac mac) {
+            // if the pool is full, the Mac is dropped
+            idle.offer(mac);
+        }
+    }
+
+    /**
+     * A bounded pool of Signature instances for one algorithm, all initialized for signing
+     * with the same private key.
+     */
+    private static final class SignaturePool {
+
+        private final PrivateKey privateKey;
+        private final String algorithm;
+        private final BlockingQueue<Signature> idle = new ArrayBlockingQueue<>(MAX_POOLED_SIGNATURES);
+
+        private SignaturePool(PrivateKey privateKey, String algorithm) {
+            this.privateKey = privateKey;
+            this.algorithm = algorithm;
+        }
+
+        private Signature borrow() {
+            Signature signature = idle.poll();
+            if (null != signature) {
+                return signature;
+            }
+            try {
+                signature = Signature.getInstance(algorithm);
+                signature.initSign(privateKey);
+                return signature;
+            } catch (Exception e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        private void giveBack(Signature signature) {
+            // if the pool is full, the Signature is dropped
+            idle.offer(signature);
+        }
+    }
+
+    /**
+     * A signature base string per
+     * <a href="https://tools.ietf.org/html/rfc5849#section-3.4.1">RFC5849 Section 3.4.1</a>
+     * with the parts that are fixed for a signer and a request target computed once:
+     * the HTTP method, the normalized base URL, and the encoded, sorted,
+     * oauth_consumer_key, oauth_signature_method, and oauth_version parameters.
+     * At sign time the nonce, timestamp, and request parameters are sorted and merged in.
      */
-    private static final class OAuthParameterSet {
+    private static final class BaseStringTemplate {
+
+        /**
+         * The largest buffer kept for reuse by a thread.
+         */
+        private static final int MAX_REUSED_BUFFER_LENGTH = 4096;
 
-        private final List<Parameter> allParameters = new ArrayList<>();
+        private static final ThreadLocal<StringBuilder> BUFFERS =
+                ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+        private final String method;
+        private final String baseURL;
+        private final SignatureMethod signatureMethod;
+        private final String oauthVersion;
 
         /**
-         * Add the given URL encoded key-value to the parameter list
-         *
-         * @param key   the parameter key
-         * @param value the parameter value
-         * @return the list with new parameter added.
+         * "METHOD&amp;encoded base URL&amp;"
+         */
+        private final String prefix;
+
+        /**
+         * The constant parameters, sorted.
          */
-        private List<Parameter> add(String key, String value) {
-            allParameters.add(new Parameter(urlEncode(key), urlEncode(value)));
-            return allParameters;
+        private final Parameter[] constants;
+
+        /**
+         * The constant parameters as they appear in the base string, encoded a second time.
+         */
+        private final String[] encodedConstants;
+
+        private BaseStringTemplate(String consumerKey, String method, String baseURL,
+                SignatureMethod signatureMethod, String oauthVersion) {
+            this.method = method;
+            this.baseURL = baseURL;
+            this.signatureMethod = signatureMethod;
+            this.oauthVersion = oauthVersion;
+
+            StringBuilder buf = new StringBuilder(100);
+            buf.append(method.toUpperCase()).append('&');
+            PercentEncoder.encode(normalizeBaseURL(baseURL), buf).append('&');
+            this.prefix = buf.toString();
+
+            // 3.4.1.3.1.  Parameter Sources
+            // The OAuth HTTP "Authorization" header field (Section 3.5.1) if
+            // present.  The header's content is parsed into a list of name/value
+            // pairs excluding the "realm" parameter if present.  The parameter
+            // values are decoded as defined by Section 3.5.1.
+            List<Parameter> constantList = new ArrayList<>(3);
+            constantList.add(new Parameter(urlEncode("oauth_consumer_key"), urlEncode(consumerKey))); // decoded consumerKey
+            constantList.add(new Parameter(urlEncode("oauth_signature_method"),
+                    urlEncode(signatureMethod.getOauth1SignatureMethod())));
+            if (null != oauthVersion) {
+                constantList.add(new Parameter(urlEncode("oauth_version"), urlEncode(oauthVersion)));
+            }
+            this.constants = constantList.toArray(new Parameter[constantList.size()]);
+            Arrays.sort(this.constants);
+            this.encodedConstants = new String[constants.length];
+            for (int i = 0; i < constants.length; i++) {
+                buf.setLength(0);
+                appendEncoded(buf, constants[i]);
+                encodedConstants[i] = buf.toString();
+            }
+        }
+
+        private boolean matches(String method, String baseURL, SignatureMethod signatureMethod, String oauthVersion) {
+            return this.method.equals(method)
+                    && this.baseURL.equals(baseURL)
+                    && this.signatureMethod == signatureMethod
+                    && Objects.equals(this.oauthVersion, oauthVersion);
         }
 
         /**
-         * Sort the parameters by their key and concat into key=value format with '&'
+         * Build the signature base string for a request.
          *
-         * @return the concatinated parameters in the sorted order.
+         * @param oauthTimestamp  the time stamp
+         * @param nonce           nonce
+         * @param formParams      the list of form parameters
+         * @param queryParams     list of query parameters
+         * @return computed OAuth 1.0 signature base string.
          */
-        private String sortAndConcat() {
-            Parameter[] params = new Parameter[allParameters.size()];
-            allParameters.toArray(params);
-            Arrays.sort(params);
-            StringBuilder encodedParams = new StringBuilder(100);
-
-            for (Parameter param : params) {
-                if (encodedParams.length() > 0) {
-                    encodedParams.append('&');
+        private String build(long oauthTimestamp, String nonce,
+                Map<String, List<String>> formParams, Map<String, List<String>> queryParams) {
+            Parameter[] variables = new Parameter[2 + count(formParams) + count(queryParams)];
+            int n = 0;
+            variables[n++] = new Parameter("oauth_nonce", urlEncode(nonce));
+            variables[n++] = new Parameter("oauth_timestamp", String.valueOf(oauthTimestamp));
+            n = addAll(variables, n, formParams);
+            addAll(variables, n, queryParams);
+            Arrays.sort(variables);
+
+            StringBuilder buf = BUFFERS.get();
+            buf.setLength(0);
+            buf.append(prefix);
+            // merge the sorted variable parameters into the sorted constant ones,
+            // formatted as key=value concatenated with &, and encoded
+            int c = 0;
+            int v = 0;
+            while (c < constants.length || v < variables.length) {
+                if (c > 0 || v > 0) {
+                    buf.append("%26");
                 }
-                encodedParams.append(param.getKey()).append('=').append(param.getValue());
+                if (v == variables.length
+                        || (c < constants.length && constants[c].compareTo(variables[v]) <= 0)) {
+                    buf.append(encodedConstants[c++]);
+                } else {
+                    appendEncoded(buf, variables[v++]);
+                }
+            }
+            String signatureBaseString = buf.toString();
+            if (buf.capacity() > MAX_REUSED_BUFFER_LENGTH) {
+                BUFFERS.remove();
             }
-            return encodedParams.toString();
+
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("signatureBaseString=" + signatureBaseString);
+            }
+            return signatureBaseString;
+        }
+
+        private static int count(Map<String, List<String>> params) {
+            int count = 0;
+            if (null != params) {
+                for (List<String> values : params.values()) {
+                    count += values.size();
+                }
+            }
+            return count;
+        }
+
+        private static int addAll(Parameter[] parameters, int n, Map<String, List<String>> params) {
+            if (null != params) {
+                for (Map.Entry<String, List<String>> entry : params.entrySet()) {
+                    String encodedKey = urlEncode(entry.getKey());
+                    for (String value : entry.getValue()) {
+                        parameters[n++] = new Parameter(encodedKey, urlEncode(value));
+                    }
+                }
+            }
+            return n;
+        }
+
+        /**
+         * Append the already-encoded parameter as key=value, encoded a second time
+         * as the base string requires.
+         */
+        private static void appendEncoded(StringBuilder buf, Parameter parameter) {
+            PercentEncoder.encode(parameter.getKey(), buf).append("%3D");
+            PercentEncoder.encode(parameter.getValue(), buf);
         }
     }
 
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.auth.provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+import com.here.account.auth.OAuth1ClientCredentialsProvider;
+
+/**
+ * Memoizes the delegate of a credentials provider, such as the parsed contents of a
+ * credentials file, so that the token-request path neither reads nor parses anything
+ * while the credentials are unchanged.
+ *
+ * <p>
+ * Each {@link #get()} computes a cheap version of the source, such as the attributes
+ * of a file, and builds a new delegate only if the version differs from
+ * that of the cached one, or after {@link #reload()}.
+ * A delegate that fails to build is not cached.
+ *
+ * @param <T> the type of the delegate
+ */
+class CachedDelegate<T> {
+
+    /**
+     * The properties that {@link FromSystemProperties} reads.
+     */
+    private static final String[] CREDENTIALS_PROPERTY_NAMES = {
+            OAuth1ClientCredentialsProvider.FromProperties.TOKEN_ENDPOINT_URL_PROPERTY,
+            OAuth1ClientCredentialsProvider.FromProperties.ACCESS_KEY_ID_PROPERTY,
+            OAuth1ClientCredentialsProvider.FromProperties.ACCESS_KEY_SECRET_PROPERTY,
+            OAuth1ClientCredentialsProvider.FromProperties.TOKEN_SCOPE_PROPERTY
+    };
+
+    /**
+     * The unix attributes of a file that change when it is rewritten or replaced.
+     * Unlike the modification time, the status change time (ctime) cannot be set back,
+     * for example by {@code cp -p} or a restore, and a replaced file has a new inode.
+     */
+    private static final String UNIX_FILE_ATTRIBUTES = "unix:dev,ino,ctime,lastModifiedTime,size";
+
+    /**
+     * Gets a CachedDelegate that builds a new delegate when the file changes.
+     * On unix file systems, a change is its device and inode, status change time,
+     * modification time, or size; elsewhere only its file key, modification time, or size.
+     *
+     * <p>
+     * A rewrite that keeps the size, within the timestamp granularity of the file system
+     * (one second or more on some) of the previous check, is not detected;
+     * nor, off unix, is a rewrite that also restores the modification time.
+     * Call {@link #reload()} after such a change.
+     *
+     * @param file the file the delegate is parsed from
+     * @param loader builds the delegate from the file
+     * @param <T> the type of the delegate
+     * @return the CachedDelegate
+     */
+    static <T> CachedDelegate<T> forFile(File file, Supplier<T> loader) {
+        Path path = file.toPath();
+        boolean unix = path.getFileSystem().supportedFileAttributeViews().contains("unix");
+        return new CachedDelegate<>(() -> fileVersion(path, unix), loader);
+    }
+
+    private static Object fileVersion(Path path, boolean unix) {
+        try {
+            if (unix) {
+                return Files.readAttributes(path, UNIX_FILE_ATTRIBUTES);
+            }
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return Arrays.asList(attributes.fileKey(), attributes.lastModifiedTime(), attributes.size());
+        } catch (IOException e) {
+            // missing or unreadable, the loader reports why
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Gets a CachedDelegate that builds a new delegate when any of the credentials
+     * properties changes.
+     *
+     * @param properties supplies the properties the delegate is built from
+     * @param loader builds the delegate from the properties
+     * @param <T> the type of the delegate
+     * @return the CachedDelegate
+     */
+    static <T> CachedDelegate<T> forProperties(Supplier<Properties> properties, Supplier<T> loader) {
+        return new CachedDelegate<>(() -> {
+            Properties current = properties.get();
+            Object[] values = new Object[CREDENTIALS_PROPERTY_NAMES.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = null != current ? current.getProperty(CREDENTIALS_PROPERTY_NAMES[i]) : null;
+            }
+            return Arrays.asList(values);
+        }, loader);
+    }
+
+    private final Supplier<?> version;
+    private final Supplier<T> loader;
+
+    private volatile Cached<T> cached;
+
+    CachedDelegate(Supplier<?> version, Supplier<T> loader) {
+        this.version = Objects.requireNonNull(version, "version cannot be null");
+        this.loader = Objects.requireNonNull(loader, "loader cannot be null");
+    }
+
+    /**
+     * Gets the cached delegate, or builds a new one if the source changed.
+     *
+     * @return the delegate
+     */
+    T get() {
+        Object currentVersion = version.get();
+        Cached<T> current = cached;
+        if (null != current && current.version.equals(currentVersion)) {
+            return current.delegate;
+        }
+        synchronized (this) {
+            current = cached;
+            if (null != current && current.version.equals(currentVersion)) {
+                return current.delegate;
+            }
+            T delegate = loader.get();
+            cached = new Cached<>(currentVersion, delegate);
+            return delegate;
+        }
+    }
+
+    /**
+     * Forgets the cached delegate, so that the next {@link #get()} builds a new one.
+     */
+    void reload() {
+        cached = null;
+    }
+
+    private static class Cached<T> {
+        private final Object version;
+        private final T delegate;
+
+        private Cached(Object version, T delegate) {
+            this.version = version;
+            this.delegate = delegate;
+        }
+    }
+}
@@ -17,6 +17,11 @@ package com.here.account.auth.provider;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 import com.here.account.http.HttpConstants.HttpMethods;
@@ -28,12 +33,25 @@ import com.here.account.util.Clock;
 import com.here.account.util.SettableSystemClock;
 
 /**
+ * Uses the first provider of the chain that has credentials.
+ *
+ * <p>
+ * The chosen provider is resolved once, and published to all threads through a
+ * memoized future, so that concurrent first calls probe the chain only once.
+ * If the chosen provider later fails, for example because its credentials file was
+ * removed, the chain is resolved again.
+ * By default the providers are probed one after another; with
+ * {@link #setProbeExecutor(Executor)} they are all probed in parallel, and the first
+ * provider in chain order that has credentials still wins.
+ *
  * @author kmccrack
  */
 public class ClientAuthorizationProviderChain implements ClientAuthorizationRequestProvider {
 
     private static final Logger LOG = Logger.getLogger(ClientAuthorizationProviderChain.class.getName());
-    private ClientAuthorizationRequestProvider mostRecentProvider = null;
+    private final AtomicReference<CompletableFuture<ClientAuthorizationRequestProvider>> chosenProvider =
+            new AtomicReference<>();
+    private volatile Executor probeExecutor;
     private List<ClientAuthorizationRequestProvider> clientAuthorizationProviders;
 
     public ClientAuthorizationProviderChain(ClientAuthorizationRequestProvider... clientAuthorizationProviders) {
@@ -86,36 +104,133 @@ public class ClientAuthorizationProviderChain implements ClientAuthorizationRequ
                 );
     }
 
+    /**
+     * Probes all the providers of the chain in parallel on the executor, instead of
+     * one after another.  Useful when probing involves slow file systems.
+     *
+     * @param probeExecutor the executor to probe on, or null to probe sequentially
+     * @return this
+     */
+    public ClientAuthorizationProviderChain setProbeExecutor(Executor probeExecutor) {
+        this.probeExecutor = probeExecutor;
+        return this;
+    }
+
     protected ClientAuthorizationRequestProvider getClientCredentialsProvider() {
-        if (mostRecentProvider != null) {
-            return mostRecentProvider;
-        }
+        return join(getChosenProvider());
+    }
 
-        for (ClientAuthorizationRequestProvider credentials : clientAuthorizationProviders) {
-            try {
-                if (null != credentials.getTokenEndpointUrl() && credentials.getTokenEndpointUrl() != ""
-                    && null != credentials.getClientAuthorizer()) {
-                    LOG.info("Loading credentials from " + credentials.toString());
+    /**
+     * Forgets the chosen provider, so that the next use probes the chain again.
+     */
+    public void reset() {
+        chosenProvider.set(null);
+    }
 
-                    mostRecentProvider = credentials;
-                    return credentials;
+    /**
+     * Gets the future of the chosen provider, resolving the chain if there is none yet,
+     * or if the last resolution failed.  Only the thread that publishes the future
+     * resolves the chain; the others wait for its result.
+     */
+    private CompletableFuture<ClientAuthorizationRequestProvider> getChosenProvider() {
+        CompletableFuture<ClientAuthorizationRequestProvider> current = chosenProvider.get();
+        while (null == current || current.isCompletedExceptionally()) {
+            CompletableFuture<ClientAuthorizationRequestProvider> resolution = new CompletableFuture<>();
+            if (chosenProvider.compareAndSet(current, resolution)) {
+                try {
+                    resolution.complete(resolveProvider());
+                } catch (RuntimeException e) {
+                    resolution.completeExceptionally(e);
+                }
+                return resolution;
+            }
+            current = chosenProvider.get();
+        }
+        return current;
+    }
+
+    private ClientAuthorizationRequestProvider resolveProvider() {
+        Executor executor = probeExecutor;
+        if (null == executor) {
+            for (ClientAuthorizationRequestProvider credentials : clientAuthorizationProviders) {
+                if (hasCredentials(credentials)) {
+                    return chosen(credentials);
+                }
+            }
+        } else {
+            List<CompletableFuture<Boolean>> probes = new ArrayList<>(clientAuthorizationProviders.size());
+            for (ClientAuthorizationRequestProvider credentials : clientAuthorizationProviders) {
+                probes.add(CompletableFuture.supplyAsync(() -> hasCredentials(credentials), executor));
+            }
+            // wait only as long as needed to know that no earlier provider has credentials
+            for (int i = 0; i < probes.size(); i++) {
+                if (probes.get(i).join()) {
+                    return chosen(clientAuthorizationProviders.get(i));
                 }
-            } catch (Exception e) {
-                // Ignore any exceptions and move onto the next provider
-                LOG.warning("Unable to load credentials from " + credentials.toString() +
-                        ": " + e.getMessage());
             }
         }
 
         throw new RequestProviderException("Unable to load credentials from chain");
     }
 
+    private static boolean hasCredentials(ClientAuthorizationRequestProvider credentials) {
+        try {
+            String tokenEndpointUrl = credentials.getTokenEndpointUrl();
+            return null != tokenEndpointUrl && !tokenEndpointUrl.isEmpty()
+                    && null != credentials.getClientAuthorizer();
+        } catch (Exception e) {
+            // Ignore any exceptions and move onto the next provider
+            LOG.warning("Unable to load credentials from " + credentials.toString() +
+                    ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static ClientAuthorizationRequestProvider chosen(ClientAuthorizationRequestProvider credentials) {
+        LOG.info("Loading credentials from " + credentials.toString());
+        return credentials;
+    }
+
+    private static ClientAuthorizationRequestProvider join(
+            CompletableFuture<ClientAuthorizationRequestProvider> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gets a value from the chosen provider.  If that fails, the chosen provider's
+     * credentials may have gone away, so the chain is resolved again, and the value
+     * is taken from the newly chosen provider, if it is a different one.
+     */
+    private <T> T fromChosenProvider(Function<ClientAuthorizationRequestProvider, T> getter) {
+        CompletableFuture<ClientAuthorizationRequestProvider> future = getChosenProvider();
+        ClientAuthorizationRequestProvider provider = join(future);
+        try {
+            return getter.apply(provider);
+        } catch (RuntimeException e) {
+            LOG.warning("Unable to use credentials from " + provider.toString() + ": " + e.getMessage());
+            chosenProvider.compareAndSet(future, null);
+            ClientAuthorizationRequestProvider newProvider = join(getChosenProvider());
+            if (newProvider == provider) {
+                throw e;
+            }
+            return getter.apply(newProvider);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public String getTokenEndpointUrl() {
-        return getClientCredentialsProvider().getTokenEndpointUrl();
+        return fromChosenProvider(ClientAuthorizationRequestProvider::getTokenEndpointUrl);
     }
 
     /**
@@ -123,7 +238,7 @@ public class ClientAuthorizationProviderChain implements ClientAuthorizationRequ
      */
     @Override
     public HttpRequestAuthorizer getClientAuthorizer() {
-        return getClientCredentialsProvider().getClientAuthorizer();
+        return fromChosenProvider(ClientAuthorizationRequestProvider::getClientAuthorizer);
     }
 
     /**
@@ -131,7 +246,7 @@ public class ClientAuthorizationProviderChain implements ClientAuthorizationRequ
      */
     @Override
     public AccessTokenRequest getNewAccessTokenRequest() {
-        return getClientCredentialsProvider().getNewAccessTokenRequest();
+        return fromChosenProvider(ClientAuthorizationRequestProvider::getNewAccessTokenRequest);
     }
     
     /**
@@ -139,7 +254,7 @@ public class ClientAuthorizationProviderChain implements ClientAuthorizationRequ
      */
     @Override
     public HttpMethods getHttpMethod() {
-        return getClientCredentialsProvider().getHttpMethod();
+        return fromChosenProvider(ClientAuthorizationRequestProvider::getHttpMethod);
     }
 
     /**
@@ -147,7 +262,7 @@ public class ClientAuthorizationProviderChain implements ClientAuthorizationRequ
      */
     @Override
     public Clock getClock() {
-        return getClientCredentialsProvider().getClock();
+        return fromChosenProvider(ClientAuthorizationRequestProvider::getClock);
     }
 
     /**
@@ -155,6 +270,6 @@ public class ClientAuthorizationProviderChain implements ClientAuthorizationRequ
      */
     @Override
     public String getScope() {
-        return getClientCredentialsProvider().getScope();
+        return fromChosenProvider(ClientAuthorizationRequestProvider::getScope);
     }
 }
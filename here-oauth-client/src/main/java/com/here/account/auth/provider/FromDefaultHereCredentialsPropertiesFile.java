@@ -37,6 +37,7 @@ implements ClientAuthorizationRequestProvider {
     private static final String CREDENTIALS_DOT_PROPERTIES_FILENAME = "credentials.properties";
 
     private final File file;
+    private final CachedDelegate<ClientCredentialsProvider> clientCredentialsProvider;
 
     public FromDefaultHereCredentialsPropertiesFile() {
         this(new SettableSystemClock());
@@ -53,10 +54,29 @@ implements ClientAuthorizationRequestProvider {
     public FromDefaultHereCredentialsPropertiesFile(Clock clock, File file) {
         super(clock);
         this.file = file;
+        this.clientCredentialsProvider = CachedDelegate.forFile(file, this::loadClientCredentialsProvider);
     }
 
-
+    /**
+     * Gets the credentials from the file, which is read again only when it changes:
+     * on unix file systems its inode, status change time, modification time, or size;
+     * elsewhere its modification time or size.  Otherwise call {@link #reload()}.
+     *
+     * @return the ClientCredentialsProvider
+     */
     protected ClientCredentialsProvider getClientCredentialsProvider() {
+        return clientCredentialsProvider.get();
+    }
+
+    /**
+     * Forgets the credentials read from the file, so that the next use reads it again,
+     * even if it does not appear to have changed.
+     */
+    public void reload() {
+        clientCredentialsProvider.reload();
+    }
+
+    private ClientCredentialsProvider loadClientCredentialsProvider() {
         try {
             Properties properties = OAuth1ClientCredentialsProvider.getPropertiesFromFile(file);
             return FromSystemProperties.getClientCredentialsProviderWithDefaultTokenEndpointUrl(getClock(), properties
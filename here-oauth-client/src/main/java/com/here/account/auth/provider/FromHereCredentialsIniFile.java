@@ -37,6 +37,7 @@ implements ClientAuthorizationRequestProvider {
 
     private final File file;
     private final String sectionName;
+    private final CachedDelegate<ClientAuthorizationRequestProvider> delegate;
 
     public FromHereCredentialsIniFile(Clock clock) {
         this(clock, getDefaultHereCredentialsIniFile(), FromHereCredentialsIniStream.DEFAULT_INI_SECTION_NAME);
@@ -56,15 +57,30 @@ implements ClientAuthorizationRequestProvider {
 
         this.file = file;
         this.sectionName = sectionName;
+        this.delegate = CachedDelegate.forFile(file, this::loadDelegate);
     }
     
     /**
-     * The delegate allows for reloading the file each time it is used, 
-     * in case it has changed.
+     * The delegate allows for reloading the file in case it has changed.
+     * The file is parsed again only when it changes: on unix file systems its inode,
+     * status change time, modification time, or size; elsewhere its modification time or size.
+     * Otherwise call {@link #reload()}.
      * 
      * @return the ClientAuthorizationRequestProvider
      */
     protected ClientAuthorizationRequestProvider getDelegate() {
+        return delegate.get();
+    }
+
+    /**
+     * Forgets the parsed file, so that the next use parses it again,
+     * even if it does not appear to have changed.
+     */
+    public void reload() {
+        delegate.reload();
+    }
+
+    private ClientAuthorizationRequestProvider loadDelegate() {
         try (InputStream inputStream = new FileInputStream(file)) {
             return new FromHereCredentialsIniStream(getClock(), inputStream, sectionName);
         } catch (IOException e) {
@@ -28,6 +28,7 @@ public class FromProperties extends ClientCredentialsGrantRequestProvider
         implements ClientAuthorizationRequestProvider {
 
     private final Properties properties;
+    private final CachedDelegate<ClientCredentialsProvider> delegate;
 
     public FromProperties(Clock clock, String tokenEndpointUrl, String accessKeyId, String accessKeySecret) {
         this(clock, tokenEndpointUrl, accessKeyId, accessKeySecret, null);
@@ -54,10 +55,25 @@ public class FromProperties extends ClientCredentialsGrantRequestProvider
     public FromProperties(Clock clock, Properties properties) {
         super(clock);
         this.properties = properties;
+        this.delegate = CachedDelegate.forProperties(() -> properties,
+                () -> FromSystemProperties.getClientCredentialsProviderWithDefaultTokenEndpointUrl(getClock(), properties));
     }
 
+    /**
+     * Gets the credentials, built again only when one of the credentials properties
+     * changes, or after {@link #reload()}.
+     *
+     * @return the ClientCredentialsProvider
+     */
     protected ClientCredentialsProvider getDelegate() {
-        return FromSystemProperties.getClientCredentialsProviderWithDefaultTokenEndpointUrl(getClock(), properties);
+        return delegate.get();
+    }
+
+    /**
+     * Forgets the credentials built from the properties, so that the next use builds them again.
+     */
+    public void reload() {
+        delegate.reload();
     }
 
     /**
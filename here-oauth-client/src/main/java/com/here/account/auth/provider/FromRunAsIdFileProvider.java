@@ -49,6 +49,12 @@ public class FromRunAsIdFileProvider
 
     private final String tokenUrl;
 
+    /**
+     * Set once the file was found readable, so that later calls skip the file system checks;
+     * a file that disappears afterwards fails the token request instead.
+     */
+    private volatile boolean verifiedReadable;
+
     public FromRunAsIdFileProvider() {
         this(new SettableSystemClock());
     }
@@ -88,6 +94,9 @@ public class FromRunAsIdFileProvider
     }
 
     protected void verifyFileIsReadable() {
+        if (verifiedReadable) {
+            return;
+        }
         File file;
         try {
             URL url = new URL(getTokenEndpointUrl());
@@ -107,6 +116,7 @@ public class FromRunAsIdFileProvider
                     + tokenUrl
                     + " is not readable.  If you were trying to use runAsId, contact HERE support.");
         }
+        verifiedReadable = true;
     }
 
     protected HttpProvider.HttpRequestAuthorizer getAuthorizer() {
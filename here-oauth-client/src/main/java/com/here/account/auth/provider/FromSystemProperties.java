@@ -31,17 +31,33 @@ import com.here.account.util.SettableSystemClock;
 public class FromSystemProperties extends ClientCredentialsGrantRequestProvider
 implements ClientAuthorizationRequestProvider {
 
+    private final CachedDelegate<ClientCredentialsProvider> delegate;
+
     public FromSystemProperties() {
         this(new SettableSystemClock());
     }
 
     public FromSystemProperties(Clock clock) {
         super(clock);
+        this.delegate = CachedDelegate.forProperties(System::getProperties,
+                () -> getClientCredentialsProviderWithDefaultTokenEndpointUrl(getClock(), System.getProperties()));
     }
 
+    /**
+     * Gets the credentials, built again only when one of the credentials System Properties
+     * changes, or after {@link #reload()}.
+     *
+     * @return the ClientCredentialsProvider
+     */
     protected ClientCredentialsProvider getDelegate() {
-        Properties properties = System.getProperties();
-        return getClientCredentialsProviderWithDefaultTokenEndpointUrl(getClock(), properties);
+        return delegate.get();
+    }
+
+    /**
+     * Forgets the credentials built from the System Properties, so that the next use builds them again.
+     */
+    public void reload() {
+        delegate.reload();
     }
 
     private static final String DEFAULT_TOKEN_ENDPOINT_URL = "https://account.api.here.com/oauth2/token";
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.client;
+
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.here.account.util.Clock;
+
+/**
+ * A circuit breaker that stops sending requests to a failing server.
+ *
+ * <p>
+ * The circuit starts {@link State#CLOSED}, and requests are sent.
+ * After {@code failureThreshold} consecutive failures it is {@link State#OPEN}:
+ * for {@code openDurationMillis} no request is sent, and callers fail immediately
+ * instead of waiting out connect timeouts.
+ * Then it is {@link State#HALF_OPEN}: one trial request is sent, which closes the
+ * circuit if it succeeds, or opens it again if it fails.
+ *
+ * <p>
+ * Plug a CircuitBreaker into a {@link Client} with
+ * {@link Client.Builder#withCircuitBreaker(CircuitBreaker)}.
+ * Share one instance between the Clients that send requests to the same server.
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+
+    /**
+     * The default number of consecutive failures that opens the circuit.
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /**
+     * The default time the circuit stays open, 30 seconds.
+     */
+    public static final long DEFAULT_OPEN_DURATION_MILLIS = 30000L;
+
+    /**
+     * The states of the circuit.
+     */
+    public enum State {
+        /**
+         * Requests are sent, and failures are counted.
+         */
+        CLOSED,
+
+        /**
+         * No requests are sent.
+         */
+        OPEN,
+
+        /**
+         * One trial request is sent, to decide whether to close the circuit.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Observes the state transitions of a CircuitBreaker, for example to log or export them.
+     * Listeners are invoked on the thread that caused the transition, and should return quickly.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * The circuit breaker changed state.
+         *
+         * @param circuitBreaker the circuit breaker
+         * @param from the previous state
+         * @param to the new state
+         */
+        void onStateTransition(CircuitBreaker circuitBreaker, State from, State to);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+        private long openDurationMillis = DEFAULT_OPEN_DURATION_MILLIS;
+        private Clock clock = Clock.SYSTEM;
+        private Listener listener;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the number of consecutive failures that opens the circuit.
+         *
+         * @param failureThreshold the number of consecutive failures, at least 1
+         * @return this Builder
+         */
+        public Builder setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * Sets how long the circuit stays open before a trial request is allowed.
+         *
+         * @param openDurationMillis the open duration in milliseconds
+         * @return this Builder
+         */
+        public Builder setOpenDurationMillis(long openDurationMillis) {
+            this.openDurationMillis = openDurationMillis;
+            return this;
+        }
+
+        /**
+         * Optionally sets the Clock; the default is {@link Clock#SYSTEM}.
+         *
+         * @param clock the Clock
+         * @return this Builder
+         */
+        public Builder setClock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Optionally sets a Listener to observe the state transitions.
+         *
+         * @param listener the Listener
+         * @return this Builder
+         */
+        public Builder setListener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            if (failureThreshold < 1) {
+                throw new IllegalArgumentException("failureThreshold must be at least 1: " + failureThreshold);
+            }
+            if (openDurationMillis < 0) {
+                throw new IllegalArgumentException("openDurationMillis must not be negative: " + openDurationMillis);
+            }
+            Objects.requireNonNull(clock, "clock cannot be null");
+            return new CircuitBreaker(failureThreshold, openDurationMillis, clock, listener);
+        }
+    }
+
+    private final int failureThreshold;
+    private final long openDurationMillis;
+    private final Clock clock;
+    private final Listener listener;
+
+    // written under the lock, read without it on the fast path
+    private volatile State state = State.CLOSED;
+    private volatile long openUntilMillis;
+
+    // guarded by this
+    private int consecutiveFailures;
+    private boolean trialInFlight;
+
+    private CircuitBreaker(int failureThreshold, long openDurationMillis, Clock clock, Listener listener) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.clock = clock;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the current state.
+     *
+     * @return the state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the milliseconds until an open circuit allows a trial request.
+     *
+     * @return the remaining open milliseconds, or 0 if the circuit is not open
+     */
+    public long getRemainingOpenMillis() {
+        if (State.OPEN != state) {
+            return 0L;
+        }
+        return Math.max(0L, openUntilMillis - clock.currentTimeMillis());
+    }
+
+    /**
+     * Asks for permission to send a request.  If permission is given, the caller must
+     * report the outcome with {@link #onSuccess()} or {@link #onFailure()}.
+     *
+     * @return true if the request may be sent, false if the circuit is open
+     */
+    public boolean tryAcquirePermission() {
+        State current = state;
+        if (State.CLOSED == current) {
+            return true;
+        }
+        if (State.OPEN == current && clock.currentTimeMillis() < openUntilMillis) {
+            // fail fast, without taking the lock
+            return false;
+        }
+        State from;
+        synchronized (this) {
+            from = state;
+            if (State.CLOSED == from) {
+                return true;
+            }
+            if (State.OPEN == from) {
+                if (clock.currentTimeMillis() < openUntilMillis) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+            } else if (trialInFlight) {
+                // HALF_OPEN, and another caller is sending the trial request
+                return false;
+            }
+            trialInFlight = true;
+        }
+        if (State.OPEN == from) {
+            notifyListener(State.OPEN, State.HALF_OPEN);
+        }
+        return true;
+    }
+
+    /**
+     * Reports that a permitted request succeeded.
+     */
+    public void onSuccess() {
+        State from;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            trialInFlight = false;
+            from = state;
+            if (State.CLOSED == from) {
+                return;
+            }
+            state = State.CLOSED;
+        }
+        notifyListener(from, State.CLOSED);
+    }
+
+    /**
+     * Reports that a permitted request failed.
+     */
+    public void onFailure() {
+        State from;
+        synchronized (this) {
+            trialInFlight = false;
+            from = state;
+            if (State.OPEN == from) {
+                return;
+            }
+            if (State.CLOSED == from && ++consecutiveFailures < failureThreshold) {
+                return;
+            }
+            openUntilMillis = clock.currentTimeMillis() + openDurationMillis;
+            state = State.OPEN;
+        }
+        notifyListener(from, State.OPEN);
+    }
+
+    private void notifyListener(State from, State to) {
+        LOGGER.info("circuit breaker " + from + " -> " + to);
+        if (null != listener) {
+            try {
+                listener.onStateTransition(this, from, to);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "circuit breaker listener failed: " + e, e);
+            }
+        }
+    }
+}
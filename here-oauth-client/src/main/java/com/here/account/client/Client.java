@@ -16,8 +16,10 @@
 package com.here.account.client;
 
 import com.here.account.http.HttpConstants;
+import com.here.account.http.HttpException;
 import com.here.account.http.HttpProvider;
 import com.here.account.http.HttpProvider.HttpRequest;
+import com.here.account.oauth2.CircuitBreakerOpenException;
 import com.here.account.oauth2.RequestExecutionException;
 import com.here.account.oauth2.ResponseParsingException;
 import com.here.account.oauth2.retry.NoRetryPolicy;
@@ -27,10 +29,14 @@ import com.here.account.oauth2.retry.RetryExecutor;
 import com.here.account.oauth2.retry.RetryPolicy;
 import com.here.account.olp.OlpHttpMessage;
 import com.here.account.util.CloseUtil;
+import com.here.account.util.FutureUtil;
 import com.here.account.util.OAuthConstants;
 import com.here.account.util.Serializer;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -38,7 +44,15 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -62,6 +76,8 @@ public class Client {
         private Serializer serializer;
         private RetryPolicy retryPolicy;
         private HttpProvider.HttpRequestAuthorizer clientAuthorizer;
+        private CircuitBreaker circuitBreaker;
+        private HedgingPolicy hedgingPolicy;
 
         private Builder() {
 
@@ -87,12 +103,39 @@ public class Client {
             return this;
         }
 
+        /**
+         * Optionally sets a CircuitBreaker.  While it is open, requests are not sent,
+         * and fail with a {@link CircuitBreakerOpenException}.
+         * Responses with status 500 or greater, and failures to execute the request,
+         * count as failures.
+         *
+         * @param circuitBreaker the CircuitBreaker, or null for none
+         * @return this Builder
+         */
+        public Builder withCircuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        /**
+         * Optionally sets a HedgingPolicy, for the idempotent requests sent with
+         * {@link Client#sendMessage(Supplier, Class, Class, BiFunction)}.
+         *
+         * @param hedgingPolicy the HedgingPolicy, or null for no hedging
+         * @return this Builder
+         */
+        public Builder withHedgingPolicy(HedgingPolicy hedgingPolicy) {
+            this.hedgingPolicy = hedgingPolicy;
+            return this;
+        }
+
         public Client build() {
             if (null == retryPolicy) {
                 retryPolicy = new NoRetryPolicy();
             }
 
-            return new Client(httpProvider, serializer, clientAuthorizer, retryPolicy);
+            return new Client(httpProvider, serializer, clientAuthorizer, retryPolicy, circuitBreaker,
+                    hedgingPolicy);
         }
     }
 
@@ -106,13 +149,18 @@ public class Client {
     private final Serializer serializer;
     private final HttpProvider.HttpRequestAuthorizer clientAuthorizer;
     private final RetryExecutor retryExecutor;
+    private final CircuitBreaker circuitBreaker;
+    private final HedgingPolicy hedgingPolicy;
 
     private Client(HttpProvider httpProvider, Serializer serializer,
-                    HttpProvider.HttpRequestAuthorizer clientAuthorizer, RetryPolicy retryPolicy) {
+                    HttpProvider.HttpRequestAuthorizer clientAuthorizer, RetryPolicy retryPolicy,
+                    CircuitBreaker circuitBreaker, HedgingPolicy hedgingPolicy) {
         this.httpProvider = httpProvider;
         this.serializer = serializer;
         this.clientAuthorizer = clientAuthorizer;
         this.retryExecutor = new RetryExecutor(retryPolicy);
+        this.circuitBreaker = circuitBreaker;
+        this.hedgingPolicy = hedgingPolicy;
     }
 
     public HttpProvider.HttpRequestAuthorizer getClientAuthorizer() {
@@ -191,25 +239,92 @@ public class Client {
             Class<U> errorResponseClass,
             BiFunction<Integer, U, RuntimeException> newExceptionFunction)
             throws RequestExecutionException, ResponseParsingException {
+        HttpRequest httpRequest = getRequest(method, url, request, additionalHeaders);
+        return sendMessage(httpRequest, responseClass,
+                errorResponseClass, newExceptionFunction);
+    }
+
+    /**
+     * Sends the requested HTTP Message to the Server, with additional headers, 
+     * asynchronously.
+     * This is the non-blocking form of 
+     * {@link #sendMessage(String, String, Object, Map, Class, Class, BiFunction)}.
+     *
+     * @param method the HTTP method
+     * @param url the HTTP request URL
+     * @param request the request object of type R, or null if no request object
+     * @param additionalHeaders additional headers to add to the request,
+     *        beyond that (those) possibly added by your HttpRequestAuthorizer.
+     * @param responseClass the response object class, for deserialization
+     * @param errorResponseClass the response error object class, for deserialization
+     * @param newExceptionFunction the function for getting a new RuntimeException based
+     *      on the statusCode and error response object
+     * @param executor the Executor on which to run any blocking work
+     * @param <R> the Request parameterized type
+     * @param <T> the Response parameterized type
+     * @param <U> the Response Error parameterized type
+     * @return a CompletableFuture of the Response of type T
+     * @see #sendMessageAsync(HttpRequest, Class, Class, BiFunction, Executor)
+     */
+    public <R, T, U> CompletableFuture<T> sendMessageAsync(
+            String method,
+            String url,
+            R request,
+            Map<String, String> additionalHeaders,
+            Class<T> responseClass,
+            Class<U> errorResponseClass,
+            BiFunction<Integer, U, RuntimeException> newExceptionFunction,
+            Executor executor) {
+        HttpRequest httpRequest;
+        try {
+            httpRequest = getRequest(method, url, request, additionalHeaders);
+        } catch (RuntimeException e) {
+            return FutureUtil.failedFuture(e);
+        }
+        return sendMessageAsync(httpRequest, responseClass,
+                errorResponseClass, newExceptionFunction, executor);
+    }
 
+    private <R> HttpRequest getRequest(String method, String url, R request,
+            Map<String, String> additionalHeaders) {
         HttpProvider.HttpRequest httpRequest;
         if (null == request) {
             httpRequest = httpProvider.getRequest(
                     clientAuthorizer, method, url, (String) null);
         } else {
-            // HttpConstants.ContentTypes.JSON == requestContentType
-            String jsonBody = serializer.objectToJson(request);
+            // HttpConstants.ContentTypes.JSON == requestContentType,
+            // serialized here, before the circuit breaker and retries see the request,
+            // so that a request that cannot be serialized is not counted as a failed exchange
+            SerializedRequestBody requestBody = new SerializedRequestBody();
+            serializer.writeObjectToJson(requestBody, request);
             httpRequest = httpProvider.getRequest(
-                        clientAuthorizer, method, url, jsonBody);
+                        clientAuthorizer, method, url, requestBody);
         }
 
         // If there's additional headers, add them to the request
-        HttpRequest httpRequestWithAdditonalHeaders = addAdditionalHeaders(httpRequest, additionalHeaders);
+        return addAdditionalHeaders(httpRequest, additionalHeaders);
+    }
 
-        return sendMessage(httpRequestWithAdditonalHeaders, responseClass,
-                errorResponseClass, newExceptionFunction);
+    /**
+     * A JSON request body, serialized once when the request is built,
+     * and written from its buffer, without another copy, each time the request is sent.
+     */
+    private static class SerializedRequestBody extends ByteArrayOutputStream
+            implements HttpProvider.RequestBodyWriter {
+
+        private SerializedRequestBody() {
+            super(256);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long getContentLength() {
+            return size();
+        }
     }
-    
+
     /**
      * Sends the requested HTTP Message to the Server.
      * This method is useful if you have already constructed your 
@@ -234,15 +349,257 @@ public class Client {
             throws RequestExecutionException, ResponseParsingException {
         // blocking
         HttpProvider.HttpResponse httpResponse;
-        InputStream jsonInputStream;
 
+        acquireCircuitBreakerPermission();
         try {
             Retryable retryable = () -> httpProvider.execute(httpRequest);
             httpResponse = retryExecutor.execute(retryable);
-            jsonInputStream = httpResponse.getResponseBody();
         } catch (RuntimeException e) {
+            recordOutcome(null);
+            throw e;
+        } catch (Exception e) {
+            recordOutcome(null);
+            throw new RequestExecutionException(e);
+        }
+        recordOutcome(httpResponse);
+
+        return handleResponse(httpResponse, responseClass, errorResponseClass, newExceptionFunction);
+    }
+
+    /**
+     * Sends an idempotent HTTP Message to the Server.
+     * With a {@link HedgingPolicy}, if there is no response after the hedging delay,
+     * a second attempt is sent, the first successful response is used, and the other
+     * request is aborted, or its response discarded.
+     * The RetryPolicy applies to the hedged attempt as a whole, so each retry sends
+     * at most two requests, and is counted once.
+     * The httpRequestSupplier is asked for a new request for each attempt and retry,
+     * so that each is authorized separately, for example with a new OAuth1.0 nonce.
+     *
+     * @param httpRequestSupplier supplies a new, authorized, HTTP Request for each attempt
+     * @param responseClass the Response class
+     * @param errorResponseClass the class for Error Responses
+     * @param newExceptionFunction the new RuntimeException-creating function
+     *     that takes a statusCode and an Error Response object.
+     * @param <T> the Response parameterized type
+     * @param <U> the Response Error parameterized type
+     * @return the Response of type T
+     * @throws RequestExecutionException if trouble executing the request
+     * @throws ResponseParsingException if trouble serializing the request,
+     *      or deserializing the response
+     */
+    public <T, U> T sendMessage(Supplier<HttpRequest> httpRequestSupplier, Class<T> responseClass,
+            Class<U> errorResponseClass,
+            BiFunction<Integer, U, RuntimeException> newExceptionFunction)
+            throws RequestExecutionException, ResponseParsingException {
+        if (null == hedgingPolicy) {
+            return sendMessage(httpRequestSupplier.get(), responseClass, errorResponseClass,
+                    newExceptionFunction);
+        }
+
+        HttpProvider.HttpResponse httpResponse;
+
+        acquireCircuitBreakerPermission();
+        try {
+            Retryable retryable = () -> executeHedged(httpRequestSupplier);
+            httpResponse = retryExecutor.execute(retryable);
+        } catch (RuntimeException e) {
+            recordOutcome(null);
             throw e;
         } catch (Exception e) {
+            recordOutcome(null);
+            throw new RequestExecutionException(e);
+        }
+        recordOutcome(httpResponse);
+
+        return handleResponse(httpResponse, responseClass, errorResponseClass, newExceptionFunction);
+    }
+
+    /**
+     * Executes the request once, and if it has no response after the hedging delay, a second one,
+     * returning the first successful response.  If both fail, the last failure is returned or thrown.
+     * A request still in progress when this method returns is aborted.
+     */
+    private HttpProvider.HttpResponse executeHedged(Supplier<HttpRequest> httpRequestSupplier)
+            throws IOException, HttpException {
+        Executor executor = hedgingPolicy.getExecutor();
+        HttpRequest primaryRequest = httpRequestSupplier.get();
+        CompletableFuture<HttpProvider.HttpResponse> primary = executeAttempt(primaryRequest, executor);
+        HttpRequest hedgeRequest = null;
+        CompletableFuture<HttpProvider.HttpResponse> hedge = null;
+        try {
+            try {
+                return primary.get(hedgingPolicy.getDelayMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                LOGGER.fine(() -> "no response after the hedging delay, sending a hedged request");
+            }
+            hedgeRequest = httpRequestSupplier.get();
+            hedge = executeAttempt(hedgeRequest, executor);
+            return firstSuccess(primary, hedge).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interruptedIOException = new InterruptedIOException(e.getMessage());
+            interruptedIOException.initCause(e);
+            throw interruptedIOException;
+        } catch (ExecutionException e) {
+            Throwable cause = FutureUtil.unwrap(e);
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof HttpException) {
+                throw (HttpException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RequestExecutionException(cause);
+        } finally {
+            // the losing response, if it still arrives, is discarded by firstSuccess
+            abortIfIncomplete(primaryRequest, primary);
+            abortIfIncomplete(hedgeRequest, hedge);
+        }
+    }
+
+    private static void abortIfIncomplete(HttpRequest httpRequest,
+            CompletableFuture<HttpProvider.HttpResponse> attempt) {
+        if (null != attempt && !attempt.isDone()) {
+            try {
+                httpRequest.abort();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "failed to abort the losing hedged request", e);
+            }
+        }
+    }
+
+    private CompletableFuture<HttpProvider.HttpResponse> executeAttempt(HttpRequest httpRequest,
+            Executor executor) {
+        long startNanos = System.nanoTime();
+        CompletableFuture<HttpProvider.HttpResponse> attempt;
+        try {
+            attempt = httpProvider.executeAsync(httpRequest, executor);
+        } catch (RuntimeException e) {
+            attempt = FutureUtil.failedFuture(e);
+        }
+        attempt.thenAccept(httpResponse -> {
+            if (isSuccess(httpResponse)) {
+                hedgingPolicy.recordResponseMillis(
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            }
+        });
+        return attempt;
+    }
+
+    /**
+     * Returns a future of the first successful response of the two attempts,
+     * or of the last failure if neither succeeds.  Responses not returned are discarded.
+     */
+    private static CompletableFuture<HttpProvider.HttpResponse> firstSuccess(
+            CompletableFuture<HttpProvider.HttpResponse> first,
+            CompletableFuture<HttpProvider.HttpResponse> second) {
+        CompletableFuture<HttpProvider.HttpResponse> result = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(2);
+        BiConsumer<HttpProvider.HttpResponse, Throwable> onComplete = (httpResponse, t) -> {
+            boolean success = null == t && isSuccess(httpResponse);
+            boolean returned = (success || 0 == remaining.decrementAndGet())
+                    && (null == t ? result.complete(httpResponse) : result.completeExceptionally(t));
+            if (!returned && null == t && null != httpResponse) {
+                httpResponse.discard();
+            }
+        };
+        first.whenComplete(onComplete);
+        second.whenComplete(onComplete);
+        return result;
+    }
+
+    private static boolean isSuccess(HttpProvider.HttpResponse httpResponse) {
+        return null != httpResponse && httpResponse.getStatusCode() < 500;
+    }
+
+    /**
+     * Sends the requested HTTP Message to the Server, asynchronously.
+     * The calling thread is not blocked.  The request, and any retries 
+     * according to the RetryPolicy, are executed via 
+     * {@link HttpProvider#executeAsync(HttpRequest, Executor)}; 
+     * with a blocking HttpProvider they run on the specified <tt>executor</tt>.
+     *
+     * @param httpRequest the HTTP Request
+     * @param responseClass the Response class
+     * @param errorResponseClass the class for Error Responses
+     * @param newExceptionFunction the new RuntimeException-creating function 
+     *     that takes a statusCode and an Error Response object.
+     * @param executor the Executor on which to run any blocking work
+     * @param <T> the Response parameterized type
+     * @param <U> the Response Error parameterized type
+     * @return a CompletableFuture of the Response of type T, completed exceptionally 
+     *     with a RequestExecutionException if trouble executing the request, 
+     *     a ResponseParsingException if trouble deserializing the response, 
+     *     or the exception from <tt>newExceptionFunction</tt> for error responses
+     */
+    public <T, U> CompletableFuture<T> sendMessageAsync(HttpRequest httpRequest, Class<T> responseClass,
+            Class<U> errorResponseClass,
+            BiFunction<Integer, U, RuntimeException> newExceptionFunction,
+            Executor executor) {
+        try {
+            acquireCircuitBreakerPermission();
+        } catch (CircuitBreakerOpenException e) {
+            return FutureUtil.failedFuture(e);
+        }
+        CompletableFuture<T> result = new CompletableFuture<T>();
+        retryExecutor.executeAsync(() -> httpProvider.executeAsync(httpRequest, executor), executor)
+                .whenComplete((httpResponse, t) -> {
+                    recordOutcome(null == t ? httpResponse : null);
+                    if (null != t) {
+                        Throwable cause = FutureUtil.unwrap(t);
+                        result.completeExceptionally(cause instanceof RuntimeException || cause instanceof Error
+                                ? cause : new RequestExecutionException(cause));
+                        return;
+                    }
+                    try {
+                        result.complete(handleResponse(httpResponse, responseClass,
+                                errorResponseClass, newExceptionFunction));
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+        return result;
+    }
+
+    /**
+     * Fails fast with a CircuitBreakerOpenException if the circuit breaker is open.
+     */
+    private void acquireCircuitBreakerPermission() throws CircuitBreakerOpenException {
+        if (null != circuitBreaker && !circuitBreaker.tryAcquirePermission()) {
+            throw new CircuitBreakerOpenException(circuitBreaker.getRemainingOpenMillis());
+        }
+    }
+
+    /**
+     * Reports the outcome of a request to the circuit breaker.
+     *
+     * @param httpResponse the final response, or null if the request failed to execute
+     */
+    private void recordOutcome(HttpProvider.HttpResponse httpResponse) {
+        if (null == circuitBreaker) {
+            return;
+        }
+        if (!isSuccess(httpResponse)) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    private <T, U> T handleResponse(HttpProvider.HttpResponse httpResponse, Class<T> responseClass,
+            Class<U> errorResponseClass,
+            BiFunction<Integer, U, RuntimeException> newExceptionFunction)
+            throws RequestExecutionException, ResponseParsingException {
+        InputStream jsonInputStream;
+        try {
+            jsonInputStream = httpResponse.getResponseBody();
+        } catch (IOException e) {
             throw new RequestExecutionException(e);
         }
 
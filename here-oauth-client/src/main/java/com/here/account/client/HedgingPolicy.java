@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.client;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configures hedged requests in a {@link Client}: if an idempotent request has no
+ * response after the hedging delay, a second attempt is sent, and the first successful
+ * response of the two is used.  This cuts the tail latency of calls such as the token
+ * request, at the cost of a few extra requests.
+ *
+ * <p>
+ * The delay is either fixed, or tracks a percentile of the recent successful
+ * response times, so that only the slowest requests are hedged.
+ *
+ * <p>
+ * Hedging only applies to
+ * {@link Client#sendMessage(java.util.function.Supplier, Class, Class, java.util.function.BiFunction)},
+ * which gets a new request, and so a new OAuth1.0 nonce, for each attempt.
+ */
+public class HedgingPolicy {
+
+    /**
+     * The default fixed hedging delay, 1 second.
+     */
+    public static final long DEFAULT_DELAY_MILLIS = 1000L;
+
+    /**
+     * The default percentile of recent response times used as the delay, when tracked.
+     */
+    public static final int DEFAULT_PERCENTILE = 95;
+
+    /**
+     * The number of recent response times kept to compute the percentile.
+     */
+    static final int SAMPLES = 128;
+
+    /**
+     * The number of response times needed before the percentile replaces the fixed delay.
+     */
+    static final int MIN_SAMPLES = 20;
+
+    /**
+     * The maximum number of threads in the default pool for hedged attempts.
+     */
+    static final int DEFAULT_MAX_THREADS = 32;
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private long delayMillis = DEFAULT_DELAY_MILLIS;
+        private boolean trackPercentile = false;
+        private int percentile = DEFAULT_PERCENTILE;
+        private long minDelayMillis = 0L;
+        private Executor executor;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the fixed hedging delay.  When the percentile is tracked, this is the
+         * delay until enough response times are recorded.
+         *
+         * @param delayMillis the delay before the second attempt, in milliseconds
+         * @return this Builder
+         */
+        public Builder setDelayMillis(long delayMillis) {
+            this.delayMillis = delayMillis;
+            return this;
+        }
+
+        /**
+         * Default is false, to use the fixed delay.
+         * Set to true to use the tracked percentile of recent response times as the delay.
+         *
+         * @param trackPercentile true to track the percentile
+         * @return this Builder
+         */
+        public Builder setTrackPercentile(boolean trackPercentile) {
+            this.trackPercentile = trackPercentile;
+            return this;
+        }
+
+        /**
+         * Sets the percentile of recent response times to use as the delay, default 95.
+         *
+         * @param percentile the percentile, between 1 and 99
+         * @return this Builder
+         */
+        public Builder setPercentile(int percentile) {
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * Sets a lower bound for the tracked delay, so that a run of fast responses
+         * does not make every request hedged.
+         *
+         * @param minDelayMillis the minimum delay, in milliseconds
+         * @return this Builder
+         */
+        public Builder setMinDelayMillis(long minDelayMillis) {
+            this.minDelayMillis = minDelayMillis;
+            return this;
+        }
+
+        /**
+         * Optionally sets the Executor that runs the attempts of blocking HttpProviders.
+         * By default a shared pool of at most {@value HedgingPolicy#DEFAULT_MAX_THREADS}
+         * daemon threads is used.
+         *
+         * @param executor the Executor
+         * @return this Builder
+         */
+        public Builder setExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public HedgingPolicy build() {
+            if (delayMillis < 0) {
+                throw new IllegalArgumentException("delayMillis must not be negative: " + delayMillis);
+            }
+            if (percentile < 1 || percentile > 99) {
+                throw new IllegalArgumentException("percentile must be between 1 and 99: " + percentile);
+            }
+            return new HedgingPolicy(delayMillis, trackPercentile, percentile, minDelayMillis, executor);
+        }
+    }
+
+    private final long delayMillis;
+    private final boolean trackPercentile;
+    private final int percentile;
+    private final long minDelayMillis;
+    private final Executor executor;
+
+    // guarded by this
+    private final long[] samples = new long[SAMPLES];
+    private int sampleCount;
+    private int nextSample;
+
+    private HedgingPolicy(long delayMillis, boolean trackPercentile, int percentile, long minDelayMillis,
+            Executor executor) {
+        this.delayMillis = delayMillis;
+        this.trackPercentile = trackPercentile;
+        this.percentile = percentile;
+        this.minDelayMillis = minDelayMillis;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the current delay before a second attempt is sent.
+     *
+     * @return the hedging delay, in milliseconds
+     */
+    public long getDelayMillis() {
+        if (!trackPercentile) {
+            return delayMillis;
+        }
+        long[] sorted;
+        synchronized (this) {
+            if (sampleCount < MIN_SAMPLES) {
+                return delayMillis;
+            }
+            sorted = Arrays.copyOf(samples, sampleCount);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(sorted.length * percentile / 100.0) - 1;
+        return Math.max(minDelayMillis, sorted[index]);
+    }
+
+    /**
+     * Records the response time of a successful attempt.
+     *
+     * @param responseMillis the response time, in milliseconds
+     */
+    public void recordResponseMillis(long responseMillis) {
+        if (!trackPercentile) {
+            return;
+        }
+        synchronized (this) {
+            samples[nextSample] = responseMillis;
+            nextSample = (nextSample + 1) % SAMPLES;
+            if (sampleCount < SAMPLES) {
+                sampleCount++;
+            }
+        }
+    }
+
+    /**
+     * Returns the Executor that runs the attempts.
+     *
+     * @return the Executor
+     */
+    public Executor getExecutor() {
+        return null != executor ? executor : DefaultExecutor.INSTANCE;
+    }
+
+    /**
+     * Holds the shared pool of daemon threads for hedged attempts, created on first use.
+     * Idle threads exit after a minute.  When all threads are busy, an attempt runs on
+     * the calling thread instead, so the request is sent without hedging rather than queued.
+     */
+    private static class DefaultExecutor {
+        private static final String THREAD_NAME_PREFIX = "here-auth-hedge-";
+        private static final ExecutorService INSTANCE = newExecutor();
+
+        private static ExecutorService newExecutor() {
+            AtomicInteger threadNumber = new AtomicInteger();
+            return new ThreadPoolExecutor(0, DEFAULT_MAX_THREADS, 60L, TimeUnit.SECONDS,
+                    new SynchronousQueue<Runnable>(), r -> {
+                        Thread thread = new Thread(r, THREAD_NAME_PREFIX + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+    }
+}
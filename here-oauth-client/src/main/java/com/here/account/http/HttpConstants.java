@@ -39,6 +39,12 @@ public class HttpConstants {
     public static final int DEFAULT_REQUEST_TIMEOUT_IN_MS = 5000;
     public static final int DEFAULT_CONNECTION_TIMEOUT_IN_MS = 5000;
 
+    /**
+     * The largest unread remainder of a response body that is read to the end
+     * when the response is discarded, so that its connection can be reused.
+     */
+    public static final int MAX_DRAIN_BYTES = 64 * 1024;
+
     public enum HttpMethods {
         /**
          * See <a href="https://tools.ietf.org/html/rfc7231#section-4.3.1">HTTP/1.1 Semantics and Content: GET</a>.
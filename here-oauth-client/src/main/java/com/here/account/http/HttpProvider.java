@@ -15,11 +15,17 @@
  */
 package com.here.account.http;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * An interface to the HTTP wireline provider implementation of your choosing.
@@ -58,6 +64,45 @@ public interface HttpProvider extends Closeable {
             throw new UnsupportedOperationException("addHeader not supported");
         }
 
+        /**
+         * Aborts the execution of this request, if it is in progress, so that its
+         * connection is released without waiting for the response.
+         * The execution then fails, typically with an IOException.
+         * The default implementation does nothing, and the request runs to completion.
+         */
+        default void abort() {
+        }
+
+    }
+    
+    /**
+     * Writes a request body, such as a JSON document, to the transport.
+     * The writer may be invoked more than once for the same request, 
+     * for example when the request is retried, and must write the same bytes each time.
+     * It may close the outputStream when done.
+     */
+    @FunctionalInterface
+    public static interface RequestBodyWriter {
+
+        /**
+         * Writes the request body to the <tt>outputStream</tt>.
+         * 
+         * @param outputStream the OutputStream to which to write the request body
+         * @throws IOException if there is I/O trouble writing the request body
+         */
+        void writeTo(OutputStream outputStream) throws IOException;
+
+        /**
+         * Returns the number of bytes {@link #writeTo(OutputStream)} writes, if known up front.
+         * HttpProviders send a body of known length with a Content-Length header
+         * as it is written; one of unknown length is first buffered to measure it.
+         *
+         * @return the number of bytes written, or -1 if not known
+         */
+        default long getContentLength() {
+            return -1L;
+        }
+
     }
     
     /**
@@ -84,8 +129,10 @@ public interface HttpProvider extends Closeable {
     
     /**
      * Wrapper for HTTP responses.
+     * A response whose body is not read to the end and closed should be
+     * {@link #discard() discarded}, so its connection is released.
      */
-    public static interface HttpResponse {
+    public static interface HttpResponse extends Closeable {
         
         /**
          * Returns the HTTP response status code.
@@ -121,6 +168,59 @@ public interface HttpProvider extends Closeable {
         default Map<String, List<String>> getHeaders() {
             throw new UnsupportedOperationException();
         }
+
+        /**
+         * Releases the resources held by this response, such as its connection,
+         * without reading the rest of the response body.
+         * Depending on the implementation the connection may not be reusable afterwards.
+         * The default implementation does nothing.
+         *
+         * @throws IOException if there is I/O trouble
+         */
+        @Override
+        default void close() throws IOException {
+        }
+
+        /**
+         * Discards this response.  If the unread remainder of the response body is
+         * at most {@link HttpConstants#MAX_DRAIN_BYTES}, it is read and dropped
+         * so the connection can be reused; otherwise the response is closed unread.
+         * Trouble while discarding is ignored.
+         */
+        default void discard() {
+            InputStream body = null;
+            boolean drained = false;
+            try {
+                body = getResponseBody();
+                if (null == body) {
+                    drained = true;
+                } else {
+                    // read and drop at most MAX_DRAIN_BYTES, checking that the end was reached
+                    byte[] buf = new byte[8192];
+                    int remaining = HttpConstants.MAX_DRAIN_BYTES + 1;
+                    int n;
+                    while (remaining > 0 && (n = body.read(buf, 0, Math.min(buf.length, remaining))) >= 0) {
+                        remaining -= n;
+                    }
+                    drained = remaining > 0;
+                }
+            } catch (IOException | RuntimeException e) {
+                // the connection is not reusable, close it below
+            }
+            // close the response first when the body is not drained, to abort rather than read it
+            Closeable[] closeables = drained
+                    ? new Closeable[] {body, this}
+                    : new Closeable[] {this, body};
+            for (Closeable closeable : closeables) {
+                if (null != closeable) {
+                    try {
+                        closeable.close();
+                    } catch (IOException | RuntimeException e) {
+                        // ignored
+                    }
+                }
+            }
+        }
         
     }
 
@@ -139,6 +239,42 @@ public interface HttpProvider extends Closeable {
      */
     HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method, String url, String requestBodyJson);
     
+    /**
+     * Gets the RequestBuilder, with the specified method, url, and a 
+     * Content-Type: application/json request body written by the 
+     * <tt>requestBodyWriter</tt> when the request is executed.
+     * The Authorization header has already been set according to the 
+     * httpRequestAuthorizer implementation.
+     * 
+     * <p>
+     * The default implementation writes the body up front into a String, 
+     * and calls {@link #getRequest(HttpRequestAuthorizer, String, String, String)}.
+     * Implementations should override this method to stream the body 
+     * straight into the HTTP client.
+     * 
+     * @param httpRequestAuthorizer for adding the Authorization header value
+     * @param method HTTP method value
+     * @param url HTTP request URL
+     * @param requestBodyWriter the writer of the
+     *      Content-Type: application/json
+     *      JSON request body, or null for no request body.
+     * @return the HttpRequest object you can {@link #execute(HttpRequest)}.
+     */
+    default HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method, String url,
+            RequestBodyWriter requestBodyWriter) {
+        String requestBodyJson = null;
+        if (null != requestBodyWriter) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try {
+                requestBodyWriter.writeTo(outputStream);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            requestBodyJson = new String(outputStream.toByteArray(), HttpConstants.ENCODING_CHARSET);
+        }
+        return getRequest(httpRequestAuthorizer, method, url, requestBodyJson);
+    }
+    
     /**
      * Gets the RequestBuilder, with the specified method, url, and formParams. 
      * The Authorization header has already been set according to the 
@@ -166,5 +302,28 @@ public interface HttpProvider extends Closeable {
      * @throws IOException if there is I/O trouble executing the httpRequest
      */
     HttpResponse execute(HttpRequest httpRequest) throws HttpException, IOException;
+
+    /**
+     * Execute the <tt>httpRequest</tt> asynchronously.
+     * The default implementation runs the blocking {@link #execute(HttpRequest)} 
+     * on the specified <tt>executor</tt>.  Implementations with a non-blocking 
+     * HTTP client should override this method, and use the <tt>executor</tt> 
+     * only for dependent work, if at all.
+     * 
+     * @param httpRequest the HttpRequest
+     * @param executor the Executor on which to run blocking work
+     * @return a CompletableFuture of the HttpResponse to the request, 
+     *      completed exceptionally with the {@link HttpException} or {@link IOException} 
+     *      if there is trouble executing the httpRequest
+     */
+    default CompletableFuture<HttpResponse> executeAsync(HttpRequest httpRequest, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return execute(httpRequest);
+            } catch (HttpException | IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
     
 }
@@ -16,8 +16,12 @@
 package com.here.account.http.apache;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
@@ -39,10 +43,14 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpTrace;
+import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.protocol.HttpContext;
 
 import com.here.account.http.HttpConstants;
@@ -141,11 +149,17 @@ public class ApacheHttpClientProvider implements HttpProvider {
          */
         public HttpProvider build() {
 
-            CloseableHttpClient client = this.httpClient != null ? this.httpClient :
-            // uses PoolingHttpClientConnectionManager by default
-                    HttpClientBuilder.create().setDefaultRequestConfig(apacheConfigBuilder.build()).build();
+            if (null != this.httpClient) {
+                return new ApacheHttpClientProvider(this.httpClient, null, this.doCloseHttpClient);
+            }
 
-            return new ApacheHttpClientProvider(client, this.doCloseHttpClient);
+            // the same defaults HttpClientBuilder would use, but kept for its pool statistics
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            CloseableHttpClient client = HttpClientBuilder.create()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(apacheConfigBuilder.build())
+                    .build();
+            return new ApacheHttpClientProvider(client, connectionManager, this.doCloseHttpClient);
 
         }
     }
@@ -178,6 +192,14 @@ public class ApacheHttpClientProvider implements HttpProvider {
             httpRequestBase.addHeader(name, value);
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void abort() {
+            httpRequestBase.abort();
+        }
+
     }
     
     private static class ApacheHttpClientResponse implements HttpResponse {
@@ -239,6 +261,17 @@ public class ApacheHttpClientProvider implements HttpProvider {
             return ret;
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() throws IOException {
+            if (apacheHttpResponse instanceof Closeable) {
+                // releases the connection, closing it if the entity was not fully consumed
+                ((Closeable) apacheHttpResponse).close();
+            }
+        }
+
     }
 
     private HttpRequestBase getRequestNoAuth(String method, String url) {
@@ -363,6 +396,102 @@ public class ApacheHttpClientProvider implements HttpProvider {
         return request;
     }
     
+    /**
+     * {@inheritDoc}
+     * A request body of known length is written straight into the connection, 
+     * with its Content-Length, when the request is executed.
+     * A request body of unknown length is written to a buffer first, to measure it, 
+     * so it is never sent with Transfer-Encoding: chunked.
+     */
+    @Override
+    public HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method, String url,
+            RequestBodyWriter requestBodyWriter) {
+        HttpRequestBase apacheRequest = getRequestNoAuth(method, url);
+        
+        ApacheHttpClientRequest request = new ApacheHttpClientRequest(apacheRequest);
+        
+        // application/json request bodies are never part of the OAuth1 Authorization header
+        httpRequestAuthorizer.authorize(request, method, url, null);
+
+        if (null != requestBodyWriter) {
+            if (!(apacheRequest instanceof HttpEntityEnclosingRequestBase)) {
+                throw new IllegalArgumentException("no JSON request body permitted for method "+method);
+            }
+            apacheRequest.addHeader(HttpConstants.CONTENT_TYPE, HttpConstants.CONTENT_TYPE_JSON);
+            HttpEntity entity;
+            if (requestBodyWriter.getContentLength() < 0) {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                try {
+                    requestBodyWriter.writeTo(outputStream);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                entity = new ByteArrayEntity(outputStream.toByteArray());
+            } else {
+                entity = new RequestBodyWriterEntity(requestBodyWriter);
+            }
+            ((HttpEntityEnclosingRequestBase) apacheRequest).setEntity(entity);
+        }
+        
+        return request;
+    }
+    
+    /**
+     * An HttpEntity whose content, of known length, is written by a RequestBodyWriter, 
+     * which writes the same bytes each time, so the entity is repeatable.
+     */
+    private static class RequestBodyWriterEntity extends AbstractHttpEntity {
+        
+        private final RequestBodyWriter requestBodyWriter;
+        
+        private RequestBodyWriterEntity(RequestBodyWriter requestBodyWriter) {
+            this.requestBodyWriter = requestBodyWriter;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long getContentLength() {
+            return requestBodyWriter.getContentLength();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public InputStream getContent() throws IOException {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            requestBodyWriter.writeTo(outputStream);
+            return new ByteArrayInputStream(outputStream.toByteArray());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            requestBodyWriter.writeTo(outputStream);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+        
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -386,12 +515,27 @@ public class ApacheHttpClientProvider implements HttpProvider {
     }
 
     private final CloseableHttpClient httpClient;
+    private final PoolingHttpClientConnectionManager connectionManager;
     private final boolean doCloseHttpClient;
 
-    private ApacheHttpClientProvider(CloseableHttpClient httpClient, boolean doCloseHttpClient) {
+    private ApacheHttpClientProvider(CloseableHttpClient httpClient,
+            PoolingHttpClientConnectionManager connectionManager, boolean doCloseHttpClient) {
         this.httpClient = httpClient;
+        this.connectionManager = connectionManager;
         this.doCloseHttpClient = doCloseHttpClient;
     }
+
+    /**
+     * Gets the current statistics of the connection pool, such as the number of
+     * leased and available connections.
+     * Use this to monitor for connections that are never released.
+     *
+     * @return the total pool statistics, or null if the httpClient was injected via
+     *      {@link Builder#setHttpClient(CloseableHttpClient)}, as its pool is not known here
+     */
+    public PoolStats getConnectionPoolStats() {
+        return null != connectionManager ? connectionManager.getTotalStats() : null;
+    }
     
     /**
      * {@inheritDoc}
@@ -21,16 +21,15 @@ import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.net.URLEncoder;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 
 import com.here.account.http.HttpConstants;
 import com.here.account.http.HttpException;
 import com.here.account.http.HttpProvider;
+import com.here.account.util.PercentEncoder;
 
 /**
  * A pure-Java implementation of the HttpProvider interface using 
@@ -106,6 +105,16 @@ public class JavaHttpProvider implements HttpProvider {
         public Map<String, List<String>> getHeaders() {
             return headers;
         }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() throws IOException {
+            if (null != responseBody) {
+                responseBody.close();
+            }
+        }
         
         
     }
@@ -118,6 +127,7 @@ public class JavaHttpProvider implements HttpProvider {
         private Map<String, String> additionalHeaders;
         
         private byte[] body;
+        private final RequestBodyWriter bodyWriter;
         private final String contentType;
         private final String contentLength;
         
@@ -128,6 +138,7 @@ public class JavaHttpProvider implements HttpProvider {
 
             contentType = null;
             body = null;
+            bodyWriter = null;
             contentLength = null;
         }
         
@@ -139,9 +150,22 @@ public class JavaHttpProvider implements HttpProvider {
             
             contentType = HttpConstants.CONTENT_TYPE_JSON;
             body = requestBodyJson.getBytes(HttpConstants.ENCODING_CHARSET);
+            bodyWriter = null;
             contentLength = String.valueOf(body.length);
         }
 
+        private JavaHttpRequest(String method, String url, 
+                RequestBodyWriter requestBodyWriter) {
+            this.method = method;
+            this.url = url;
+            this.additionalHeaders = new HashMap<String, String>();
+            
+            contentType = HttpConstants.CONTENT_TYPE_JSON;
+            body = null;
+            bodyWriter = requestBodyWriter;
+            contentLength = null;
+        }
+
         
         private JavaHttpRequest(String method, String url, 
                 Map<String, List<String>> formParams) {
@@ -152,6 +176,7 @@ public class JavaHttpProvider implements HttpProvider {
             try {
                 contentType = HttpConstants.CONTENT_TYPE_FORM_URLENCODED;
                 body = getFormBody(formParams);
+                bodyWriter = null;
                 contentLength = String.valueOf(body.length);
             } catch (UnsupportedEncodingException e) {
                 throw new IllegalArgumentException(e);
@@ -198,6 +223,10 @@ public class JavaHttpProvider implements HttpProvider {
             return body;
         }
 
+        public RequestBodyWriter getBodyWriter() {
+            return bodyWriter;
+        }
+
         public String getContentType() {
             return contentType;
         }
@@ -238,6 +267,27 @@ public class JavaHttpProvider implements HttpProvider {
         return httpRequest;
     }
 
+    /**
+     * {@inheritDoc}
+     * A request body of known length is written straight into the connection, 
+     * in fixed-length streaming mode, when the request is executed.
+     * A request body of unknown length is buffered by the HttpURLConnection, 
+     * so it is still sent with a Content-Length rather than chunked.
+     */
+    @Override
+    public HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method, String url,
+            RequestBodyWriter requestBodyWriter) {
+        HttpRequest httpRequest;
+        if (null == requestBodyWriter) {
+            httpRequest = new JavaHttpRequest(method, url);
+        } else {
+            httpRequest = new JavaHttpRequest(method, url, 
+                    requestBodyWriter);
+        }
+        httpRequestAuthorizer.authorize(httpRequest, method, url, null);
+        return httpRequest;
+    }
+
     @Override
     public HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method, String url,
             Map<String, List<String>> formParams) {
@@ -281,6 +331,16 @@ public class JavaHttpProvider implements HttpProvider {
             connection.setRequestProperty(HttpConstants.CONTENT_LENGTH_HEADER,
                     javaHttpRequest.getContentLength());
         }
+        RequestBodyWriter bodyWriter = javaHttpRequest.getBodyWriter();
+        if (null != bodyWriter) {
+            connection.setRequestProperty(HttpConstants.CONTENT_TYPE_HEADER,
+                    javaHttpRequest.getContentType());
+            long contentLength = bodyWriter.getContentLength();
+            if (contentLength >= 0) {
+                // stream rather than buffer the body, still with its Content-Length
+                connection.setFixedLengthStreamingMode(contentLength);
+            }
+        }
 
         String authorizationHeader = javaHttpRequest.getAuthorizationHeader();
         if (null != authorizationHeader) {
@@ -304,6 +364,13 @@ public class JavaHttpProvider implements HttpProvider {
                 outputStream.write(body);
                 outputStream.flush();
             }
+        } else if (null != bodyWriter) {
+            try (
+                    OutputStream outputStream = connection.getOutputStream()
+            ) {
+                // the writer may close the outputStream, which also flushes it
+                bodyWriter.writeTo(outputStream);
+            }
         }
                  
         // Read response
@@ -324,33 +391,32 @@ public class JavaHttpProvider implements HttpProvider {
         return new JavaHttpResponse(statusCode, responseContentLength, inputStream, headers);
     }
 
+    /**
+     * Gets the application/x-www-form-urlencoded body for the form parameters,
+     * with names and values percent-encoded per RFC3986.
+     *
+     * @param formParams the form parameters
+     * @return the UTF-8 bytes of the body
+     * @throws UnsupportedEncodingException never; declared for compatibility
+     */
     protected static byte[] getFormBody(Map<String, List<String>> formParams) throws UnsupportedEncodingException {
-        StringBuilder formBuf = new StringBuilder();
-        boolean first = true;
-        Set<Entry<String, List<String>>> formEntrySet = formParams.entrySet();
-        for (Entry<String, List<String>> formEntry : formEntrySet) {
+        StringBuilder formBuf = new StringBuilder(128);
+        for (Entry<String, List<String>> formEntry : formParams.entrySet()) {
             String key = formEntry.getKey();
             List<String> values = formEntry.getValue();
-            String encodedKey = URLEncoder.encode(key, HttpConstants.CHARSET_STRING);
             if (null != values && !values.isEmpty()) {
                 for (String value : values) {
-                    if (first) {
-                        first = false;
-                    } else {
+                    if (formBuf.length() > 0) {
                         formBuf.append('&');
                     }
-                    formBuf
-                        .append(encodedKey)
-                        .append('=')
-                        .append(URLEncoder.encode(value, HttpConstants.CHARSET_STRING));
+                    PercentEncoder.encode(key, formBuf).append('=');
+                    PercentEncoder.encode(value, formBuf);
                 }
             } else {
-                if (first) {
-                    first = false;
-                } else {
+                if (formBuf.length() > 0) {
                     formBuf.append('&');
                 }
-                formBuf.append(encodedKey);
+                PercentEncoder.encode(key, formBuf);
             }
         }
         return formBuf.toString().getBytes(HttpConstants.ENCODING_CHARSET);
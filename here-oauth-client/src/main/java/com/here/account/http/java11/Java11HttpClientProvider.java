@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.http.java11;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.here.account.http.HttpConstants;
+import com.here.account.http.HttpException;
+import com.here.account.http.HttpProvider;
+import com.here.account.util.FutureUtil;
+
+/**
+ * An HttpProvider implementation using the Java 11+ {@code java.net.http.HttpClient},
+ * with HTTP/2 and a non-blocking {@link HttpProvider#executeAsync}.
+ *
+ * <p>
+ * This is the Java 8 placeholder of the class.  The implementation is in the
+ * multi-release jar under {@code META-INF/versions/11}, and is used automatically
+ * when running on Java 11 or later.  Both have the same public API.  On earlier versions
+ * {@link #isAvailable()} returns false, and the built provider fails every execution
+ * with an UnsupportedOperationException.
+ */
+public class Java11HttpClientProvider implements HttpProvider {
+
+    /**
+     * Returns true if this provider can be built on the running Java version.
+     *
+     * @return true on Java 11 or later
+     */
+    public static boolean isAvailable() {
+        return false;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int connectionTimeoutInMs = HttpConstants.DEFAULT_CONNECTION_TIMEOUT_IN_MS;
+        private int requestTimeoutInMs = HttpConstants.DEFAULT_REQUEST_TIMEOUT_IN_MS;
+        private Executor executor;
+        private boolean preferHttp2 = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the timeout to establish a connection.
+         *
+         * @param connectionTimeoutInMs the connect timeout in milliseconds
+         * @return this Builder
+         */
+        public Builder setConnectionTimeoutInMs(int connectionTimeoutInMs) {
+            this.connectionTimeoutInMs = connectionTimeoutInMs;
+            return this;
+        }
+
+        /**
+         * Sets the timeout for each request, until the response headers are received.
+         *
+         * @param requestTimeoutInMs the request timeout in milliseconds
+         * @return this Builder
+         */
+        public Builder setRequestTimeoutInMs(int requestTimeoutInMs) {
+            this.requestTimeoutInMs = requestTimeoutInMs;
+            return this;
+        }
+
+        /**
+         * Optionally sets the Executor the HttpClient uses for its asynchronous tasks.
+         * By default the HttpClient creates its own.
+         *
+         * @param executor the Executor
+         * @return this Builder
+         */
+        public Builder setExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Default is true, to negotiate HTTP/2 with the server and multiplex requests
+         * over one connection.  Set to false to always use HTTP/1.1.
+         *
+         * @param preferHttp2 true to prefer HTTP/2
+         * @return this Builder
+         */
+        public Builder setPreferHttp2(boolean preferHttp2) {
+            this.preferHttp2 = preferHttp2;
+            return this;
+        }
+
+        /**
+         * Build using builders, builders, and more builders.
+         *
+         * @return the built HttpProvider implementation for java.net.http.HttpClient;
+         *      on Java versions before 11, one whose executions always fail
+         */
+        public HttpProvider build() {
+            return new Java11HttpClientProvider();
+        }
+    }
+
+    /**
+     * A request that is never executed.
+     */
+    private static class PlaceholderRequest implements HttpRequest {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void addAuthorizationHeader(String value) {
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void addHeader(String name, String value) {
+        }
+    }
+
+    /**
+     * Only the Builder can construct a Java11HttpClientProvider.
+     */
+    private Java11HttpClientProvider() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method, String url,
+            String requestBodyJson) {
+        return new PlaceholderRequest();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method, String url,
+            RequestBodyWriter requestBodyWriter) {
+        return new PlaceholderRequest();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method, String url,
+            Map<String, List<String>> formParams) {
+        return new PlaceholderRequest();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UnsupportedOperationException always, on Java versions before 11
+     */
+    @Override
+    public HttpResponse execute(HttpRequest httpRequest) throws HttpException, IOException {
+        throw unsupported();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The returned future always fails with an UnsupportedOperationException,
+     * on Java versions before 11.
+     */
+    @Override
+    public CompletableFuture<HttpResponse> executeAsync(HttpRequest httpRequest, Executor executor) {
+        return FutureUtil.failedFuture(unsupported());
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Java11HttpClientProvider requires Java 11 or later, running "
+                + System.getProperty("java.version"));
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * An Implementation of {@code com.here.account.http} using the Java 11+ 
+ * {@code java.net.http.HttpClient}.
+ * The classes are shipped in the multi-release jar under {@code META-INF/versions/11}; 
+ * on earlier Java versions only a placeholder is present.
+ */
+package com.here.account.http.java11;
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2;
+
+/**
+ * A CircuitBreakerOpenException occurs when a request is not sent,
+ * because the {@link com.here.account.client.CircuitBreaker} is open.
+ */
+public class CircuitBreakerOpenException extends RequestExecutionException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long remainingOpenMillis;
+
+    /**
+     * Constructs an instance of <code>CircuitBreakerOpenException</code>.
+     *
+     * @param remainingOpenMillis the milliseconds until the circuit breaker allows a trial request
+     */
+    public CircuitBreakerOpenException(long remainingOpenMillis) {
+        super("circuit breaker is open, no request sent; retry in " + remainingOpenMillis + " ms");
+        this.remainingOpenMillis = remainingOpenMillis;
+    }
+
+    /**
+     * Returns the milliseconds, when the exception was created, until the circuit
+     * breaker allows a trial request.
+     *
+     * @return the remaining open milliseconds
+     */
+    public long getRemainingOpenMillis() {
+        return remainingOpenMillis;
+    }
+}
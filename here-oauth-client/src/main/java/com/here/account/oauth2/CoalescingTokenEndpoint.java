@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.here.account.util.Clock;
+
+/**
+ * A {@link TokenEndpoint} that coalesces concurrent identical token requests.
+ * The first caller for a given request makes the HTTP call; callers with an
+ * identical request that arrive while it is in flight wait for, and receive, its result.
+ * Optionally a successful result is also handed to identical requests arriving within
+ * a short reuse window after it completed.  Failures are never reused.
+ *
+ * <p>
+ * Two requests are identical if they are of the same class, and have the same form
+ * parameters, additional headers, and correlation id.
+ */
+class CoalescingTokenEndpoint implements TokenEndpoint {
+
+    private final TokenEndpoint delegate;
+    private final Clock clock;
+    private final long reuseMillis;
+    private final Map<Key, InFlight> inFlight = new ConcurrentHashMap<Key, InFlight>();
+
+    /**
+     * Creates a coalescing view of the delegate.
+     *
+     * @param delegate the TokenEndpoint making the actual calls
+     * @param clock the clock used to measure the reuse window
+     * @param reuseMillis how long a successful response may be reused, 0 for no reuse
+     */
+    CoalescingTokenEndpoint(TokenEndpoint delegate, Clock clock, long reuseMillis) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+        this.clock = Objects.requireNonNull(clock, "clock cannot be null");
+        if (reuseMillis < 0) {
+            throw new IllegalArgumentException("reuseMillis cannot be negative: " + reuseMillis);
+        }
+        this.reuseMillis = reuseMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AccessTokenResponse requestToken(AccessTokenRequest request)
+            throws AccessTokenException, RequestExecutionException, ResponseParsingException {
+        Key key = new Key(request);
+        while (true) {
+            InFlight existing = inFlight.get(key);
+            if (null != existing) {
+                if (existing.isReusable()) {
+                    return join(existing.future);
+                }
+                // a completed result outside its reuse window
+                inFlight.remove(key, existing);
+                continue;
+            }
+            InFlight mine = new InFlight();
+            if (null != inFlight.putIfAbsent(key, mine)) {
+                // lost the race, wait on the winner
+                continue;
+            }
+            return execute(key, mine, request);
+        }
+    }
+
+    private AccessTokenResponse execute(Key key, InFlight mine, AccessTokenRequest request) {
+        AccessTokenResponse response;
+        try {
+            response = delegate.requestToken(request);
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.future.completeExceptionally(e);
+            throw e;
+        }
+        mine.completedAtMillis = clock.currentTimeMillis();
+        if (reuseMillis <= 0) {
+            inFlight.remove(key, mine);
+        }
+        mine.future.complete(response);
+        return response;
+    }
+
+    private static AccessTokenResponse join(CompletableFuture<AccessTokenResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Fresh<AccessTokenResponse> requestAutoRefreshingToken(AccessTokenRequest request)
+            throws AccessTokenException, RequestExecutionException, ResponseParsingException {
+        return delegate.requestAutoRefreshingToken(request);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Fresh<AccessTokenResponse> requestAutoRefreshingToken(Supplier<AccessTokenRequest> requestSupplier)
+            throws AccessTokenException, RequestExecutionException, ResponseParsingException {
+        return delegate.requestAutoRefreshingToken(requestSupplier);
+    }
+
+    /**
+     * A call in flight, or a completed successful call within its reuse window.
+     */
+    private class InFlight {
+        private final CompletableFuture<AccessTokenResponse> future = new CompletableFuture<AccessTokenResponse>();
+        private volatile long completedAtMillis;
+
+        private boolean isReusable() {
+            return !future.isDone()
+                    || clock.currentTimeMillis() - completedAtMillis < reuseMillis;
+        }
+    }
+
+    /**
+     * The identity of an AccessTokenRequest, for coalescing purposes.
+     */
+    private static final class Key {
+        private final Class<?> requestClass;
+        private final Map<String, List<String>> formParams;
+        private final Map<String, String> additionalHeaders;
+        private final String correlationId;
+        private final int hashCode;
+
+        private Key(AccessTokenRequest request) {
+            Objects.requireNonNull(request, "request cannot be null");
+            this.requestClass = request.getClass();
+            this.formParams = request.toFormParams();
+            this.additionalHeaders = request.getAdditionalHeaders();
+            this.correlationId = request.getCorrelationId();
+            this.hashCode = Objects.hash(requestClass, formParams, additionalHeaders, correlationId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return requestClass == that.requestClass
+                    && Objects.equals(formParams, that.formParams)
+                    && Objects.equals(additionalHeaders, that.additionalHeaders)
+                    && Objects.equals(correlationId, that.correlationId);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
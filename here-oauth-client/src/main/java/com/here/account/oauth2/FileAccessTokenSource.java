@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.here.account.util.Serializer;
+
+/**
+ * Reads a {@link FileAccessTokenResponse} from a file, such as the runAsId
+ * {@code /dev/shm/identity/access-token}, parsing it again only when the file changes.
+ *
+ * <p>
+ * Without listeners, each {@link #get()} compares the file's modification time and size
+ * with those of the last parse, which costs one stat call.  While there are listeners,
+ * a shared daemon thread watches the file's directory with a {@link WatchService}, and
+ * re-parses and publishes the new token to the listeners as soon as the file changes;
+ * {@link #get()} then does no file I/O at all.  Where no WatchService is available,
+ * the thread polls the modification time and size every {@value #POLL_MILLIS} ms instead.
+ */
+final class FileAccessTokenSource {
+
+    private static final Logger LOGGER = Logger.getLogger(FileAccessTokenSource.class.getName());
+
+    /**
+     * The polling interval when the file cannot be watched.
+     */
+    static final long POLL_MILLIS = 1000L;
+
+    /**
+     * The polling interval that catches changes the WatchService missed.
+     */
+    static final long WATCHED_POLL_MILLIS = 10000L;
+
+    /**
+     * Gets a source for a {@code file://} url, or null if the url has no file path.
+     *
+     * @param url the file url
+     * @param serializer parses the file
+     * @return the FileAccessTokenSource, or null
+     */
+    static FileAccessTokenSource forUrl(String url, Serializer serializer) {
+        Path file;
+        try {
+            file = Paths.get(new URL(url).toURI());
+        } catch (Exception e) {
+            LOGGER.fine(() -> "not a file path, reading " + url + " as a url: " + e);
+            return null;
+        }
+        return new FileAccessTokenSource(file, serializer);
+    }
+
+    private final Path file;
+    private final Serializer serializer;
+    private final CopyOnWriteArrayList<Consumer<FileAccessTokenResponse>> listeners =
+            new CopyOnWriteArrayList<>();
+
+    /**
+     * The last parsed token, and the file attributes it was parsed from.
+     */
+    private volatile Parsed parsed;
+
+    /**
+     * True while the Watcher watches the file, so that the parsed token is current.
+     */
+    private volatile boolean watched;
+
+    FileAccessTokenSource(Path file, Serializer serializer) {
+        this.file = Objects.requireNonNull(file, "file cannot be null");
+        this.serializer = Objects.requireNonNull(serializer, "serializer cannot be null");
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the current token from the file.
+     *
+     * @return the token, with {@link AccessTokenResponse#getExpiresIn()} counting down from now
+     * @throws RequestExecutionException if the file cannot be read or parsed
+     */
+    AccessTokenResponse get() throws RequestExecutionException {
+        Parsed current = parsed;
+        if (null == current || !watched) {
+            current = reload(false);
+        }
+        return current.newResponse();
+    }
+
+    /**
+     * Adds a listener, notified with the new token each time the file changes.
+     *
+     * @param listener the listener
+     * @return a Closeable that removes the listener
+     */
+    Closeable addListener(Consumer<FileAccessTokenResponse> listener) {
+        listeners.add(listener);
+        Watcher.INSTANCE.register(this);
+        return () -> {
+            listeners.remove(listener);
+            if (listeners.isEmpty()) {
+                Watcher.INSTANCE.unregister(this);
+            }
+        };
+    }
+
+    /**
+     * Parses the file, if it changed since the last parse or <tt>force</tt> is true.
+     */
+    private synchronized Parsed reload(boolean force) throws RequestExecutionException {
+        Parsed current = parsed;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            long lastModifiedMillis = attributes.lastModifiedTime().toMillis();
+            long size = attributes.size();
+            if (!force && null != current
+                    && current.lastModifiedMillis == lastModifiedMillis && current.size == size) {
+                return current;
+            }
+            FileAccessTokenResponse response;
+            try (InputStream is = Files.newInputStream(file)) {
+                response = serializer.jsonToPojo(is, FileAccessTokenResponse.class);
+            }
+            current = new Parsed(response, lastModifiedMillis, size);
+            parsed = current;
+            return current;
+        } catch (IOException | RuntimeException e) {
+            throw new RequestExecutionException(e);
+        }
+    }
+
+    /**
+     * Re-parses the file and notifies the listeners if it changed.
+     */
+    private void checkForChange(boolean force) {
+        Parsed before = parsed;
+        Parsed after;
+        try {
+            after = reload(force);
+        } catch (RequestExecutionException e) {
+            // perhaps mid-write; the next event or poll tries again
+            LOGGER.log(Level.FINE, "trouble reading " + file + ": " + e, e);
+            return;
+        }
+        if (null != after && (null == before || !after.sameToken(before))) {
+            LOGGER.fine(() -> "token file " + file + " changed");
+            FileAccessTokenResponse response = after.newResponse();
+            for (Consumer<FileAccessTokenResponse> listener : listeners) {
+                try {
+                    listener.accept(response);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "token file listener failed: " + e, e);
+                }
+            }
+        }
+    }
+
+    private static class Parsed {
+        private final FileAccessTokenResponse response;
+        private final long lastModifiedMillis;
+        private final long size;
+
+        private Parsed(FileAccessTokenResponse response, long lastModifiedMillis, long size) {
+            this.response = response;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.size = size;
+        }
+
+        private boolean sameToken(Parsed other) {
+            return Objects.equals(response.getAccessToken(), other.response.getAccessToken())
+                    && Objects.equals(response.getExp(), other.response.getExp());
+        }
+
+        /**
+         * A copy of the parsed token, without parsing again, so that its expiresIn is
+         * computed from now.
+         */
+        private FileAccessTokenResponse newResponse() {
+            return new FileAccessTokenResponse(response.getAccessToken(), response.getTokenType(),
+                    null, response.getRefreshToken(), response.getIdToken(), response.getExp(),
+                    response.getScope());
+        }
+    }
+
+    /**
+     * Watches the directories of the sources with listeners, on one shared daemon thread,
+     * started on first use.
+     */
+    private static class Watcher implements Runnable {
+        private static final Watcher INSTANCE = new Watcher();
+
+        private final WatchService watchService;
+        private final Set<FileAccessTokenSource> sources = ConcurrentHashMap.newKeySet();
+        private final Map<Path, WatchKey> watchKeys = new ConcurrentHashMap<>();
+        private Thread thread;
+
+        private Watcher() {
+            WatchService service;
+            try {
+                service = Paths.get("").getFileSystem().newWatchService();
+            } catch (IOException | UnsupportedOperationException e) {
+                LOGGER.info("no WatchService, polling token files: " + e);
+                service = null;
+            }
+            this.watchService = service;
+        }
+
+        private synchronized void register(FileAccessTokenSource source) {
+            if (!sources.add(source)) {
+                return;
+            }
+            Path directory = source.file.toAbsolutePath().getParent();
+            if (null != watchService && null != directory) {
+                try {
+                    if (!watchKeys.containsKey(directory)) {
+                        watchKeys.put(directory, directory.register(watchService,
+                                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+                    }
+                    source.watched = true;
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.info("cannot watch " + directory + ", polling " + source.file + ": " + e);
+                }
+            }
+            if (null == thread) {
+                thread = new Thread(this, "here-auth-file-watch");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        private synchronized void unregister(FileAccessTokenSource source) {
+            if (!sources.remove(source)) {
+                return;
+            }
+            source.watched = false;
+            Path directory = source.file.toAbsolutePath().getParent();
+            boolean directoryInUse = false;
+            for (FileAccessTokenSource other : sources) {
+                directoryInUse |= Objects.equals(directory, other.file.toAbsolutePath().getParent());
+            }
+            if (!directoryInUse && null != directory) {
+                WatchKey watchKey = watchKeys.remove(directory);
+                if (null != watchKey) {
+                    watchKey.cancel();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    boolean polling = null == watchService || sources.stream().anyMatch(s -> !s.watched);
+                    long timeoutMillis = polling ? POLL_MILLIS : WATCHED_POLL_MILLIS;
+                    WatchKey watchKey = null != watchService
+                            ? watchService.poll(timeoutMillis, TimeUnit.MILLISECONDS)
+                            : null;
+                    if (null == watchKey) {
+                        if (null == watchService) {
+                            Thread.sleep(timeoutMillis);
+                        }
+                        // no event, compare modification times and sizes
+                        for (FileAccessTokenSource source : sources) {
+                            source.checkForChange(false);
+                        }
+                        continue;
+                    }
+                    Path directory = (Path) watchKey.watchable();
+                    for (WatchEvent<?> event : watchKey.pollEvents()) {
+                        Object context = event.context();
+                        for (FileAccessTokenSource source : sources) {
+                            Path file = source.file.toAbsolutePath();
+                            if (directory.equals(file.getParent())
+                                    && (StandardWatchEventKinds.OVERFLOW == event.kind()
+                                        || file.getFileName().equals(context))) {
+                                source.checkForChange(true);
+                            }
+                        }
+                    }
+                    watchKey.reset();
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "token file watcher failed: " + e, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.here.account.util.Clock;
+import com.here.account.util.JacksonSerializer;
+import com.here.account.util.Serializer;
+
+/**
+ * A {@link TokenStore} that keeps each token in its own file, readable only by the
+ * owner, in a directory that defaults to {@code ~/.here/token-cache}.
+ *
+ * <p>
+ * The file name is a SHA-256 hash of the key.  The file holds the token together with
+ * its absolute expiry, {@code exp} in UTC seconds, in the same form as the files read by
+ * {@link FileAccessTokenResponse}, so that a token loaded after a restart expires at the
+ * time the server set.  Files are written to a temporary file first, then atomically
+ * moved in place, so that concurrent processes never read a partial token.
+ * On POSIX file systems, a file that group or others can access is ignored.
+ *
+ * <pre>
+ * {@code
+        HereAccessTokenProvider accessTokens = HereAccessTokenProvider.builder()
+                .setTokenStore(FileTokenStore.builder().build())
+                .build();
+ * }
+ * </pre>
+ */
+public class FileTokenStore implements TokenStore {
+
+    private static final Logger LOGGER = Logger.getLogger(FileTokenStore.class.getName());
+
+    /**
+     * The default minimum lifetime a stored token needs to be used, 5 minutes.
+     */
+    public static final long DEFAULT_MIN_REMAINING_SECONDS = TimeUnit.MINUTES.toSeconds(5);
+
+    private static final String USER_DOT_HOME = "user.home";
+    private static final String DOT_HERE_SUBDIR = ".here";
+    private static final String TOKEN_CACHE_SUBDIR = "token-cache";
+    private static final String FILE_SUFFIX = ".json";
+
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY =
+            PosixFilePermissions.fromString("rwx------");
+    static final Set<PosixFilePermission> OWNER_ONLY_FILE =
+            PosixFilePermissions.fromString("rw-------");
+    private static final Set<PosixFilePermission> GROUP_OR_OTHERS = EnumSet.of(
+            PosixFilePermission.GROUP_READ, PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_EXECUTE,
+            PosixFilePermission.OTHERS_READ, PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_EXECUTE);
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private File directory;
+        private long minRemainingSeconds = DEFAULT_MIN_REMAINING_SECONDS;
+        private Serializer serializer;
+        private Clock clock = Clock.SYSTEM;
+
+        private Builder() {
+        }
+
+        /**
+         * Optionally set the directory of the token files.
+         * The default is {@code token-cache} in the {@code .here} directory of the user's home.
+         *
+         * @param directory the directory, created with owner-only permissions if missing
+         * @return this Builder
+         */
+        public Builder setDirectory(File directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * Optionally set the lifetime a stored token must have left to be loaded,
+         * default {@link #DEFAULT_MIN_REMAINING_SECONDS}.
+         *
+         * @param minRemainingSeconds the minimum remaining lifetime, in seconds
+         * @return this Builder
+         */
+        public Builder setMinRemainingSeconds(long minRemainingSeconds) {
+            this.minRemainingSeconds = minRemainingSeconds;
+            return this;
+        }
+
+        /**
+         * Optionally set the Serializer; the default is a {@link JacksonSerializer}.
+         *
+         * @param serializer the Serializer
+         * @return this Builder
+         */
+        public Builder setSerializer(Serializer serializer) {
+            this.serializer = serializer;
+            return this;
+        }
+
+        /**
+         * Optionally set the Clock; the default is {@link Clock#SYSTEM}.
+         *
+         * @param clock the Clock
+         * @return this Builder
+         */
+        public Builder setClock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public FileTokenStore build() {
+            File directory = this.directory;
+            if (null == directory) {
+                String userDotHome = System.getProperty(USER_DOT_HOME);
+                if (null == userDotHome || userDotHome.isEmpty()) {
+                    throw new IllegalStateException("no " + USER_DOT_HOME + ", please set the directory");
+                }
+                directory = new File(new File(userDotHome, DOT_HERE_SUBDIR), TOKEN_CACHE_SUBDIR);
+            }
+            if (minRemainingSeconds < 0) {
+                throw new IllegalArgumentException("minRemainingSeconds must not be negative: "
+                        + minRemainingSeconds);
+            }
+            Objects.requireNonNull(clock, "clock cannot be null");
+            return new FileTokenStore(directory.toPath(), minRemainingSeconds,
+                    null != serializer ? serializer : new JacksonSerializer(), clock);
+        }
+    }
+
+    private final Path directory;
+    private final long minRemainingSeconds;
+    private final Serializer serializer;
+    private final Clock clock;
+
+    private FileTokenStore(Path directory, long minRemainingSeconds, Serializer serializer, Clock clock) {
+        this.directory = directory;
+        this.minRemainingSeconds = minRemainingSeconds;
+        this.serializer = serializer;
+        this.clock = clock;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AccessTokenResponse load(String key) {
+        Path file = getFile(key);
+        try {
+            if (!isOwnerOnly(file)) {
+                LOGGER.warning("ignoring token file " + file + ", it is accessible to group or others");
+                return null;
+            }
+            FileAccessTokenResponse response;
+            try (InputStream is = Files.newInputStream(file)) {
+                response = serializer.jsonToPojo(is, FileAccessTokenResponse.class);
+            }
+            if (null == response || null == response.getAccessToken() || null == response.getExp()) {
+                return null;
+            }
+            long remainingSeconds = response.getExp() - clock.currentTimeMillis() / 1000L;
+            if (remainingSeconds < minRemainingSeconds) {
+                LOGGER.fine(() -> "stored token has " + remainingSeconds + " seconds left, not using it");
+                return null;
+            }
+            return response;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "trouble reading token file " + file + ": " + e, e);
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void store(String key, AccessTokenResponse accessTokenResponse) {
+        Map<String, Object> json = toJsonMap(accessTokenResponse);
+        if (null == json) {
+            return;
+        }
+
+        Path file = getFile(key);
+        Path tmp = null;
+        try {
+            createDirectory();
+            tmp = createOwnerOnlyFile(file.getFileName() + ".");
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                os.write(serializer.objectToJson(json).getBytes(StandardCharsets.UTF_8));
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tmp = null;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "trouble writing token file " + file + ": " + e, e);
+        } finally {
+            if (null != tmp) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    LOGGER.fine(() -> "trouble deleting " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the token as a json object with its absolute expiry, exp, in UTC seconds,
+     * as read by {@link FileAccessTokenResponse}, or null if the token cannot be stored.
+     */
+    static Map<String, Object> toJsonMap(AccessTokenResponse accessTokenResponse) {
+        Long expiresIn = accessTokenResponse.getExpiresIn();
+        if (null == accessTokenResponse.getAccessToken() || null == expiresIn) {
+            return null;
+        }
+        long exp = accessTokenResponse.getStartTimeMilliseconds() / 1000L + expiresIn;
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("access_token", accessTokenResponse.getAccessToken());
+        json.put("token_type", accessTokenResponse.getTokenType());
+        json.put("expires_in", expiresIn);
+        json.put("exp", exp);
+        if (null != accessTokenResponse.getScope()) {
+            json.put("scope", accessTokenResponse.getScope());
+        }
+        if (null != accessTokenResponse.getIdToken()) {
+            json.put("id_token", accessTokenResponse.getIdToken());
+        }
+        return json;
+    }
+
+    Path getFile(String key) {
+        return directory.resolve(sha256Hex(key) + FILE_SUFFIX);
+    }
+
+    private void createDirectory() throws IOException {
+        if (Files.isDirectory(directory)) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system
+            Files.createDirectories(directory);
+        }
+    }
+
+    private Path createOwnerOnlyFile(String prefix) throws IOException {
+        FileAttribute<Set<PosixFilePermission>> ownerOnly = PosixFilePermissions.asFileAttribute(OWNER_ONLY_FILE);
+        try {
+            return Files.createTempFile(directory, prefix, ".tmp", ownerOnly);
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system
+            Path tmp = Files.createTempFile(directory, prefix, ".tmp");
+            File file = tmp.toFile();
+            file.setReadable(false, false);
+            file.setReadable(true, true);
+            file.setWritable(false, false);
+            file.setWritable(true, true);
+            return tmp;
+        }
+    }
+
+    static boolean isOwnerOnly(Path file) throws IOException {
+        try {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+            for (PosixFilePermission permission : GROUP_OR_OTHERS) {
+                if (permissions.contains(permission)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system
+            return true;
+        }
+    }
+
+    static String sha256Hex(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available: " + e, e);
+        }
+    }
+}
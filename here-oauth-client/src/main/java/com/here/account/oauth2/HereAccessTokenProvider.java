@@ -17,14 +17,27 @@ package com.here.account.oauth2;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.here.account.auth.provider.ClientAuthorizationProviderChain;
+import com.here.account.client.CircuitBreaker;
+import com.here.account.client.HedgingPolicy;
 import com.here.account.http.HttpProvider;
 import com.here.account.http.apache.ApacheHttpClientProvider;
 import com.here.account.oauth2.retry.NoRetryPolicy;
 import com.here.account.oauth2.retry.RetryPolicy;
 import com.here.account.util.Clock;
+import com.here.account.util.FutureUtil;
 import com.here.account.util.JacksonSerializer;
 import com.here.account.util.Serializer;
 import com.here.account.util.SettableSystemClock;
@@ -86,6 +99,16 @@ import com.here.account.util.SettableSystemClock;
  */
 public class HereAccessTokenProvider implements AccessTokenSupplier, Closeable, AccessTokenProvider {
 
+    private static final Logger LOGGER = Logger.getLogger(HereAccessTokenProvider.class.getName());
+
+    /**
+     * The default time the first {@link #getAccessToken()} waits for a token
+     * being fetched in the background, 30 seconds.
+     */
+    public static final long DEFAULT_INITIAL_TOKEN_TIMEOUT_MILLIS = 30000L;
+
+    private static final AtomicInteger INITIALIZATION_THREAD_NUMBER = new AtomicInteger();
+
     /**
      * Gets a new Builder for a HERE Access Token Provider.
      *
@@ -108,6 +131,14 @@ public class HereAccessTokenProvider implements AccessTokenSupplier, Closeable,
         private boolean alwaysRequestNewToken = false;
         private Serializer serializer;
         private RetryPolicy retryPolicy;
+        private CircuitBreaker circuitBreaker;
+        private HedgingPolicy hedgingPolicy;
+        private TokenStore tokenStore;
+        private boolean coalesceTokenRequests = false;
+        private long coalescedResponseReuseMillis = 0L;
+        private boolean initializeInBackground = false;
+        private long initialTokenTimeoutMillis = DEFAULT_INITIAL_TOKEN_TIMEOUT_MILLIS;
+        private Executor initializationExecutor;
 
         private Builder() {
         }
@@ -177,6 +208,160 @@ public class HereAccessTokenProvider implements AccessTokenSupplier, Closeable,
             return this;
         }
 
+        /**
+         * Optionally set a CircuitBreaker around the token endpoint. Default is none.
+         * While the circuit breaker is open, no token request is sent; the last good token
+         * is returned if it has not expired, otherwise a {@link CircuitBreakerOpenException}
+         * is thrown immediately.
+         *
+         * @param circuitBreaker the CircuitBreaker
+         * @return this Builder
+         */
+        public Builder setCircuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        /**
+         * Optionally set a HedgingPolicy for token requests. Default is none.
+         * If a token request has no response after the hedging delay, a second request,
+         * signed with a new nonce, is sent, and the first successful response is used.
+         * This also shortens the blocking token request made while building.
+         *
+         * @param hedgingPolicy the HedgingPolicy
+         * @return this Builder
+         */
+        public Builder setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+            this.hedgingPolicy = hedgingPolicy;
+            return this;
+        }
+
+        /**
+         * Optionally set a TokenStore, such as a {@link FileTokenStore}, to keep tokens
+         * across restarts. Default is none.
+         * The auto-refreshing token starts from the stored token, if it has enough
+         * lifetime left, instead of requesting a new one; each new token is stored.
+         * Only applies to credentials with an accessKeyId.
+         *
+         * @param tokenStore the TokenStore
+         * @return this Builder
+         */
+        public Builder setTokenStore(TokenStore tokenStore) {
+            this.tokenStore = tokenStore;
+            return this;
+        }
+
+        /**
+         * Default is false.
+         * Only applies when {@link #setAlwaysRequestNewToken(boolean)} is true.
+         *
+         * Optionally set this value to true, so that concurrent calls
+         * to {@link HereAccessTokenProvider#getAccessToken()} with an identical
+         * token request share a single in-flight remote API call, and all
+         * receive its result.
+         *
+         * @param coalesceTokenRequests default is false.  set to true to coalesce
+         *        concurrent identical token requests.
+         * @return this Builder
+         */
+        public Builder setCoalesceTokenRequests(boolean coalesceTokenRequests) {
+            this.coalesceTokenRequests = coalesceTokenRequests;
+            return this;
+        }
+
+        /**
+         * Default is 0, no reuse.
+         * Only applies when token requests are coalesced.
+         *
+         * Optionally set a short window, in milliseconds, during which a successful
+         * coalesced response is also returned to identical requests arriving after
+         * the remote API call completed.  Failures are never reused.
+         *
+         * @param coalescedResponseReuseMillis the reuse window in milliseconds
+         * @return this Builder
+         * @see #setCoalesceTokenRequests(boolean)
+         */
+        public Builder setCoalescedResponseReuseMillis(long coalescedResponseReuseMillis) {
+            this.coalescedResponseReuseMillis = coalescedResponseReuseMillis;
+            return this;
+        }
+
+
+        /**
+         * Default is false, and {@link #build()} gets the first token before it returns.
+         * Only applies when {@link #setAlwaysRequestNewToken(boolean)} is false.
+         *
+         * Optionally set this value to true, so that {@link #build()} returns immediately,
+         * and the first token is fetched in the background.  The first
+         * {@link HereAccessTokenProvider#getAccessToken()} waits for it, for at most
+         * {@link #setInitialTokenTimeoutMillis(long)}.  If fetching the first token fails,
+         * the next {@link HereAccessTokenProvider#getAccessToken()} tries again.
+         *
+         * @param initializeInBackground true to fetch the first token in the background
+         * @return this Builder
+         */
+        public Builder setInitializeInBackground(boolean initializeInBackground) {
+            this.initializeInBackground = initializeInBackground;
+            return this;
+        }
+
+        /**
+         * Default is {@link HereAccessTokenProvider#DEFAULT_INITIAL_TOKEN_TIMEOUT_MILLIS}.
+         * Only applies when the first token is fetched in the background.
+         *
+         * Optionally set the deadline for a {@link HereAccessTokenProvider#getAccessToken()}
+         * waiting for the first token; after it a RequestExecutionException is thrown.
+         *
+         * @param initialTokenTimeoutMillis the time to wait for the first token, in milliseconds
+         * @return this Builder
+         */
+        public Builder setInitialTokenTimeoutMillis(long initialTokenTimeoutMillis) {
+            this.initialTokenTimeoutMillis = initialTokenTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Optionally set the Executor that fetches the first token in the background.
+         * By default a new daemon thread is started for it.
+         *
+         * @param initializationExecutor the Executor
+         * @return this Builder
+         */
+        public Builder setInitializationExecutor(Executor initializationExecutor) {
+            this.initializationExecutor = initializationExecutor;
+            return this;
+        }
+
+        /**
+         * Build without blocking the calling thread.  The first token is fetched in the
+         * background, and the returned future completes with the HereAccessTokenProvider
+         * once it has a token.  If getting the first token fails, the provider is closed,
+         * and the future completes exceptionally.
+         *
+         * @return a CompletableFuture of the HereAccessTokenProvider
+         */
+        public CompletableFuture<HereAccessTokenProvider> buildAsync() {
+            HereAccessTokenProvider provider;
+            try {
+                provider = build(true);
+            } catch (RuntimeException e) {
+                return FutureUtil.failedFuture(e);
+            }
+            CompletableFuture<HereAccessTokenProvider> result = new CompletableFuture<>();
+            provider.initialization.get().whenComplete((fresh, t) -> {
+                if (null == t) {
+                    result.complete(provider);
+                } else {
+                    try {
+                        provider.close();
+                    } catch (IOException | RuntimeException e) {
+                        LOGGER.log(Level.WARNING, "trouble closing after failed initialization: " + e, e);
+                    }
+                    result.completeExceptionally(FutureUtil.unwrap(t));
+                }
+            });
+            return result;
+        }
 
         /**
          * Build using builders, builders, and more builders.
@@ -184,6 +369,10 @@ public class HereAccessTokenProvider implements AccessTokenSupplier, Closeable,
          * @return the built HereAccessTokenProvider implementation for getting HERE Access Tokens.
          */
         public HereAccessTokenProvider build() {
+            return build(initializeInBackground);
+        }
+
+        private HereAccessTokenProvider build(boolean initializeInBackground) {
 
             if (null == clientAuthorizationRequestProvider) {
                 // use the default provider chain
@@ -214,36 +403,146 @@ public class HereAccessTokenProvider implements AccessTokenSupplier, Closeable,
                     httpProvider,
                     doCloseHttpProvider,
                     alwaysRequestNewToken,
-                    retryPolicy);
+                    retryPolicy,
+                    circuitBreaker,
+                    hedgingPolicy,
+                    tokenStore,
+                    coalesceTokenRequests,
+                    coalescedResponseReuseMillis,
+                    initializeInBackground,
+                    initialTokenTimeoutMillis,
+                    null != initializationExecutor ? initializationExecutor : DEFAULT_INITIALIZATION_EXECUTOR);
         }
     }
 
+    /**
+     * Starts a new daemon thread for each initialization.
+     */
+    private static final Executor DEFAULT_INITIALIZATION_EXECUTOR = runnable -> {
+        Thread thread = new Thread(runnable, "here-auth-init-" + INITIALIZATION_THREAD_NUMBER.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    };
+
     private final Serializer serializer;
     private final HttpProvider httpProvider;
     private final boolean doCloseHttpProvider;
     private final TokenEndpoint tokenEndpoint;
     private final Supplier<AccessTokenRequest> accessTokenRequestSupplier;
-    private final Fresh<AccessTokenResponse> fresh;
+    private final long initialTokenTimeoutMillis;
+    private final Executor initializationExecutor;
+
+    /**
+     * The always fresh token, set once the first token is received;
+     * remains null when always requesting a new token.
+     */
+    private volatile Fresh<AccessTokenResponse> fresh;
+
+    /**
+     * The future of {@link #fresh}, replaced if a background initialization fails.
+     */
+    private final AtomicReference<CompletableFuture<Fresh<AccessTokenResponse>>> initialization =
+            new AtomicReference<>();
+    private volatile boolean closed;
 
 
     private HereAccessTokenProvider(
             Serializer serializer,
             ClientAuthorizationRequestProvider credentials, HttpProvider httpProvider,
-            boolean doCloseHttpProvider, boolean alwaysRequestNewToken, RetryPolicy retryPolicy) {
+            boolean doCloseHttpProvider, boolean alwaysRequestNewToken, RetryPolicy retryPolicy,
+            CircuitBreaker circuitBreaker, HedgingPolicy hedgingPolicy, TokenStore tokenStore,
+            boolean coalesceTokenRequests, long coalescedResponseReuseMillis,
+            boolean initializeInBackground, long initialTokenTimeoutMillis, Executor initializationExecutor) {
         this.serializer = serializer;
         this.httpProvider = httpProvider;
         this.doCloseHttpProvider = doCloseHttpProvider;
-        this.tokenEndpoint = HereAccount.getTokenEndpoint(httpProvider, credentials, this.serializer, retryPolicy);
+        TokenEndpoint endpoint = HereAccount.getTokenEndpoint(httpProvider, credentials, this.serializer, retryPolicy,
+                circuitBreaker, hedgingPolicy, tokenStore);
+        if (alwaysRequestNewToken && coalesceTokenRequests) {
+            Clock clock = null != credentials.getClock() ? credentials.getClock() : Clock.SYSTEM;
+            endpoint = new CoalescingTokenEndpoint(endpoint, clock, coalescedResponseReuseMillis);
+        }
+        this.tokenEndpoint = endpoint;
         this.accessTokenRequestSupplier = () -> {
             return credentials.getNewAccessTokenRequest();
         };
+        this.initialTokenTimeoutMillis = initialTokenTimeoutMillis;
+        this.initializationExecutor = initializationExecutor;
         if (alwaysRequestNewToken) {
             // always request a new token
             this.fresh = null;
+            this.initialization.set(CompletableFuture.completedFuture(null));
+        } else if (initializeInBackground) {
+            // use the auto-refreshing technique, once the first token arrives
+            startInitialization(null);
         } else {
             // use the auto-refreshing technique
             this.fresh = tokenEndpoint.requestAutoRefreshingToken(
                     accessTokenRequestSupplier);
+            this.initialization.set(CompletableFuture.completedFuture(fresh));
+        }
+    }
+
+    /**
+     * Starts fetching the first token in the background, unless another thread already
+     * replaced the <tt>failed</tt> initialization.
+     *
+     * @param failed the failed initialization to replace, or null for the first one
+     * @return the current initialization
+     */
+    private CompletableFuture<Fresh<AccessTokenResponse>> startInitialization(
+            CompletableFuture<Fresh<AccessTokenResponse>> failed) {
+        CompletableFuture<Fresh<AccessTokenResponse>> next = new CompletableFuture<>();
+        if (!initialization.compareAndSet(failed, next)) {
+            return initialization.get();
+        }
+        try {
+            initializationExecutor.execute(() -> {
+                try {
+                    Fresh<AccessTokenResponse> newFresh = tokenEndpoint.requestAutoRefreshingToken(
+                            accessTokenRequestSupplier);
+                    this.fresh = newFresh;
+                    next.complete(newFresh);
+                    if (closed) {
+                        // closed while the first token was in flight
+                        newFresh.close();
+                    }
+                } catch (Throwable t) {
+                    next.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            next.completeExceptionally(e);
+        }
+        return next;
+    }
+
+    /**
+     * Waits for the first token, for at most the initialTokenTimeoutMillis.
+     */
+    private Fresh<AccessTokenResponse> awaitInitialization() {
+        CompletableFuture<Fresh<AccessTokenResponse>> current = initialization.get();
+        if (current.isCompletedExceptionally()) {
+            // try again
+            current = startInitialization(current);
+        }
+        try {
+            return current.get(initialTokenTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequestExecutionException(e);
+        } catch (TimeoutException e) {
+            throw new RequestExecutionException("no access token after waiting "
+                    + initialTokenTimeoutMillis + " ms for the first one", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RequestExecutionException(cause);
         }
     }
 
@@ -265,6 +564,10 @@ public class HereAccessTokenProvider implements AccessTokenSupplier, Closeable,
     }
     
     public AccessTokenResponse getAccessTokenResponse() {
+        Fresh<AccessTokenResponse> fresh = this.fresh;
+        if (null == fresh) {
+            fresh = awaitInitialization();
+        }
         if (null != fresh) {
             return fresh.get();
         } else {
@@ -278,6 +581,8 @@ public class HereAccessTokenProvider implements AccessTokenSupplier, Closeable,
      */
     @Override
     public void close() throws IOException {
+        closed = true;
+        Fresh<AccessTokenResponse> fresh = this.fresh;
         try {
             if (null != fresh) {
                 fresh.close();
@@ -16,7 +16,10 @@
 package com.here.account.oauth2;
 
 import com.here.account.auth.NoAuthorizer;
+import com.here.account.auth.OAuth1Signer;
+import com.here.account.client.CircuitBreaker;
 import com.here.account.client.Client;
+import com.here.account.client.HedgingPolicy;
 import com.here.account.http.HttpConstants;
 import com.here.account.http.HttpConstants.HttpMethods;
 import com.here.account.http.HttpProvider;
@@ -32,7 +35,12 @@ import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.net.URL;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -166,7 +174,7 @@ public class HereAccount {
     public static TokenEndpoint getTokenEndpoint(
             HttpProvider httpProvider,
             ClientCredentialsProvider clientCredentialsProvider) {
-        return new TokenEndpointImpl(reuseClock(clientCredentialsProvider), httpProvider, clientCredentialsProvider, new JacksonSerializer(), new NoRetryPolicy());
+        return new TokenEndpointImpl(reuseClock(clientCredentialsProvider), httpProvider, clientCredentialsProvider, new JacksonSerializer(), new NoRetryPolicy(), null, null, null);
     }
     
     
@@ -275,9 +283,82 @@ public class HereAccount {
             HttpProvider httpProvider,
             ClientAuthorizationRequestProvider clientAuthorizationRequestProvider,
             Serializer serializer, RetryPolicy retryPolicy) {
-        return getTokenEndpoint(reuseClock(clientAuthorizationRequestProvider),
-                httpProvider, clientAuthorizationRequestProvider, serializer, retryPolicy);
+        return getTokenEndpoint(httpProvider, clientAuthorizationRequestProvider, serializer, retryPolicy, null);
+    }
+
+    /**
+     * Internal use only.
+     * Get the Token Endpoint which makes various Token Endpoint API calls to the
+     * HERE Account Authorization Server, guarded by a CircuitBreaker.
+     * While the circuit breaker is open, the last good token for an identical
+     * request is returned if it has not expired, otherwise a
+     * {@link CircuitBreakerOpenException} is thrown.
+     *
+     * @param httpProvider the HTTP-layer provider implementation
+     * @param clientAuthorizationRequestProvider identifies the token endpoint URL and
+     *     client credentials to be injected into requests
+     * @param serializer the Serializer to use
+     * @param retryPolicy retry policy
+     * @param circuitBreaker the circuit breaker, or null for none
+     * @return a {@code TokenEndpoint} representing access for the provided client
+     */
+    static TokenEndpoint getTokenEndpoint(
+            HttpProvider httpProvider,
+            ClientAuthorizationRequestProvider clientAuthorizationRequestProvider,
+            Serializer serializer, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker) {
+        return getTokenEndpoint(httpProvider, clientAuthorizationRequestProvider, serializer, retryPolicy,
+                circuitBreaker, null);
+    }
 
+    /**
+     * Internal use only.
+     * Get the Token Endpoint which makes various Token Endpoint API calls to the
+     * HERE Account Authorization Server, guarded by a CircuitBreaker, and with
+     * hedged blocking token and timestamp requests.
+     *
+     * @param httpProvider the HTTP-layer provider implementation
+     * @param clientAuthorizationRequestProvider identifies the token endpoint URL and
+     *     client credentials to be injected into requests
+     * @param serializer the Serializer to use
+     * @param retryPolicy retry policy
+     * @param circuitBreaker the circuit breaker, or null for none
+     * @param hedgingPolicy the hedging policy, or null for no hedging
+     * @return a {@code TokenEndpoint} representing access for the provided client
+     */
+    static TokenEndpoint getTokenEndpoint(
+            HttpProvider httpProvider,
+            ClientAuthorizationRequestProvider clientAuthorizationRequestProvider,
+            Serializer serializer, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker,
+            HedgingPolicy hedgingPolicy) {
+        return getTokenEndpoint(httpProvider, clientAuthorizationRequestProvider, serializer, retryPolicy,
+                circuitBreaker, hedgingPolicy, null);
+    }
+
+    /**
+     * Internal use only.
+     * Get the Token Endpoint which makes various Token Endpoint API calls to the
+     * HERE Account Authorization Server, guarded by a CircuitBreaker, with
+     * hedged blocking token and timestamp requests, and saving tokens to a TokenStore.
+     * Auto-refreshing tokens start from the stored token, if it has enough lifetime left.
+     *
+     * @param httpProvider the HTTP-layer provider implementation
+     * @param clientAuthorizationRequestProvider identifies the token endpoint URL and
+     *     client credentials to be injected into requests
+     * @param serializer the Serializer to use
+     * @param retryPolicy retry policy
+     * @param circuitBreaker the circuit breaker, or null for none
+     * @param hedgingPolicy the hedging policy, or null for no hedging
+     * @param tokenStore the token store, or null for none
+     * @return a {@code TokenEndpoint} representing access for the provided client
+     */
+    static TokenEndpoint getTokenEndpoint(
+            HttpProvider httpProvider,
+            ClientAuthorizationRequestProvider clientAuthorizationRequestProvider,
+            Serializer serializer, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker,
+            HedgingPolicy hedgingPolicy, TokenStore tokenStore) {
+        return new TokenEndpointImpl(reuseClock(clientAuthorizationRequestProvider),
+                httpProvider, clientAuthorizationRequestProvider, serializer, retryPolicy, circuitBreaker,
+                hedgingPolicy, tokenStore);
     }
 
     /**
@@ -304,7 +385,7 @@ public class HereAccount {
             ClientAuthorizationRequestProvider clientCredentialsProvider,
             Serializer serializer, RetryPolicy retryPolicy) {
         return new TokenEndpointImpl(clock,
-                httpProvider, clientCredentialsProvider, serializer, retryPolicy);
+                httpProvider, clientCredentialsProvider, serializer, retryPolicy, null, null, null);
     }
     
     /**
@@ -315,30 +396,37 @@ public class HereAccount {
      * confidential clients.
      *
      * @param clock the clock to use
-     * @param tokenEndpoint the token endpoint to request tokens
+     * @param tokenEndpoint the token endpoint to request tokens, or to load them from its TokenStore
      * @param accessTokenRequestFactory the Supplier of AccessTokenRequests
+     * @param initialResponse the first token, requested from the tokenEndpoint or loaded from a TokenStore
      * @return the refreshable response provider presenting an always "fresh" client_credentials-based HERE Access Token.
-     * @throws AccessTokenException if you had trouble authenticating your request to the authorization server, 
-     *      or the authorization server rejected your request
-     * @throws RequestExecutionException if trouble processing the request
-     * @throws ResponseParsingException if trouble parsing the response
      */
     private static RefreshableResponseProvider<AccessTokenResponse> getRefreshableClientTokenProvider(
             Clock clock,
-            TokenEndpoint tokenEndpoint, Supplier<AccessTokenRequest> accessTokenRequestFactory)
-            throws AccessTokenException, RequestExecutionException, ResponseParsingException {
+            TokenEndpointImpl tokenEndpoint, Supplier<AccessTokenRequest> accessTokenRequestFactory,
+            AccessTokenResponse initialResponse) {
         return new RefreshableResponseProvider<>(
                 clock,
                 null,
-                tokenEndpoint.requestToken(accessTokenRequestFactory.get()),
-                (AccessTokenResponse previous) -> {
-                    try {
-                        return tokenEndpoint.requestToken(accessTokenRequestFactory.get());
-                    } catch (AccessTokenException | RequestExecutionException | ResponseParsingException e) {
-                        throw new RuntimeException("trouble refresh: " + e, e);
+                initialResponse,
+                new RefreshableResponseProvider.ResponseRefresher<AccessTokenResponse>() {
+
+                    @Override
+                    public AccessTokenResponse refresh(AccessTokenResponse previous) {
+                        try {
+                            return tokenEndpoint.requestSharedToken(accessTokenRequestFactory.get());
+                        } catch (AccessTokenException | RequestExecutionException | ResponseParsingException e) {
+                            throw new RuntimeException("trouble refresh: " + e, e);
+                        }
+                    }
+
+                    @Override
+                    public CompletableFuture<AccessTokenResponse> refreshAsync(AccessTokenResponse previous,
+                            Executor executor) {
+                        return tokenEndpoint.requestSharedTokenAsync(accessTokenRequestFactory.get(), executor);
                     }
                 },
-                RefreshableResponseProvider.getScheduledExecutorServiceSize1()
+                SharedRefreshScheduler.acquire()
         );
     }
     
@@ -361,6 +449,11 @@ public class HereAccount {
         private final String timestampUrl;
         private final boolean requestTokenFromFile;
 
+        /**
+         * Reads the token file, when requesting tokens from a file path.
+         */
+        private final FileAccessTokenSource fileTokenSource;
+
         private final Client client;
         private final HttpProvider httpProvider;
         private final HttpMethods httpMethod;
@@ -368,6 +461,18 @@ public class HereAccount {
         private final String scope;
         private final HttpProvider.HttpRequestAuthorizer clientAuthorizer;
         private final Serializer serializer;
+        private final boolean hasCircuitBreaker;
+        private final TokenStore tokenStore;
+
+        /**
+         * The accessKeyId of the client, identifying its tokens in the tokenStore.
+         */
+        private final String tokenStoreClientId;
+
+        /**
+         * The last token received, returned while the circuit breaker is open.
+         */
+        private volatile LastGoodToken lastGoodToken;
 
         /**
          * Construct a new ability to obtain authorization from the HERE authorization server.
@@ -378,13 +483,19 @@ public class HereAccount {
          * and provides access token request objects
          * @param serializer used to serialize json To pojo and vice versa
          * @param retryPolicy retry policy
+         * @param circuitBreaker the circuit breaker, or null for none
+         * @param hedgingPolicy the hedging policy, or null for no hedging
+         * @param tokenStore the token store, or null for none
          */
         private TokenEndpointImpl(
                 Clock clock,
                 HttpProvider httpProvider,
                 ClientAuthorizationRequestProvider clientAuthorizationProvider,
                 Serializer serializer,
-                RetryPolicy retryPolicy) {
+                RetryPolicy retryPolicy,
+                CircuitBreaker circuitBreaker,
+                HedgingPolicy hedgingPolicy,
+                TokenStore tokenStore) {
             // these values are fixed once selected
             this.clock = clock;
             this.url = clientAuthorizationProvider.getTokenEndpointUrl();
@@ -397,11 +508,27 @@ public class HereAccount {
                     .withClientAuthorizer(clientAuthorizer)
                     .withSerializer(serializer)
                     .withRetryPolicy(retryPolicy)
+                    .withCircuitBreaker(circuitBreaker)
+                    .withHedgingPolicy(hedgingPolicy)
                     .build();
+            this.hasCircuitBreaker = null != circuitBreaker;
             this.httpProvider = httpProvider;
             this.serializer = serializer;
 
             requestTokenFromFile = null != url && url.startsWith(FILE_URL_START);
+            fileTokenSource = requestTokenFromFile ? FileAccessTokenSource.forUrl(url, serializer) : null;
+
+            // only tokens from the authorization server, for identifiable credentials, are stored
+            if (null != tokenStore && !requestTokenFromFile && clientAuthorizer instanceof OAuth1Signer) {
+                this.tokenStore = tokenStore;
+                this.tokenStoreClientId = ((OAuth1Signer) clientAuthorizer).getConsumerKey();
+            } else {
+                if (null != tokenStore) {
+                    LOGGER.warning("token store not used, the client is not authorized with an accessKeyId");
+                }
+                this.tokenStore = null;
+                this.tokenStoreClientId = null;
+            }
 
             if (currentTimeMillisSettable = clock instanceof SettableClock
                     && null != url && url.endsWith(SLASH_TOKEN)) {
@@ -415,6 +542,10 @@ public class HereAccount {
         
         protected AccessTokenResponse requestTokenFromFile() 
                 throws RequestExecutionException {
+            if (null != fileTokenSource) {
+                // parses the file only when it changed
+                return fileTokenSource.get();
+            }
             try (InputStream is = new URL(url).openStream()){
                 return serializer.jsonToPojo(is,
                         FileAccessTokenResponse.class);
@@ -438,6 +569,168 @@ public class HereAccount {
         protected AccessTokenResponse requestTokenHttp(AccessTokenRequest authorizationRequest,
                                                        int retryFixableErrorsCount)
                 throws AccessTokenException, RequestExecutionException, ResponseParsingException {            
+            try {
+                // a new request, signed with a new nonce, for each hedged attempt
+                AccessTokenResponse response = client.sendMessage(() -> getTokenHttpRequest(authorizationRequest),
+                        AccessTokenResponse.class, ErrorResponse.class,
+                        (statusCode, errorResponse) -> {
+                            return new AccessTokenException(statusCode, errorResponse);
+                        });
+                rememberGoodToken(authorizationRequest, response);
+                return response;
+            } catch (AccessTokenException e) {
+                return handleFixableErrors(authorizationRequest, retryFixableErrorsCount, e);
+            } catch (CircuitBreakerOpenException e) {
+                return getLastGoodToken(authorizationRequest, e);
+            }
+        }
+
+        /**
+         * The last token received for a request, with the time it was received.
+         */
+        private static class LastGoodToken {
+            private final String grantType;
+            private final String scope;
+            private final AccessTokenResponse response;
+            private final long receivedAtMillis;
+
+            private LastGoodToken(String grantType, String scope, AccessTokenResponse response,
+                    long receivedAtMillis) {
+                this.grantType = grantType;
+                this.scope = scope;
+                this.response = response;
+                this.receivedAtMillis = receivedAtMillis;
+            }
+        }
+
+        /**
+         * Remembers a new token, for the circuit breaker fallback, and in the token store.
+         */
+        private void rememberGoodToken(AccessTokenRequest authorizationRequest, AccessTokenResponse response) {
+            if (hasCircuitBreaker && null != response && null != response.getExpiresIn()) {
+                lastGoodToken = new LastGoodToken(authorizationRequest.getGrantType(),
+                        authorizationRequest.getScope(), response, clock.currentTimeMillis());
+            }
+            if (null != tokenStore && null != response) {
+                try {
+                    tokenStore.store(getTokenStoreKey(authorizationRequest), response);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "trouble storing token: " + e, e);
+                }
+            }
+        }
+
+        /**
+         * Gets a token for the auto-refreshing token: the stored token, if another process
+         * already stored a new one, otherwise a new token.  Only one process at a time
+         * requests a new token; the others wait for it, and then use the token it stored.
+         */
+        private AccessTokenResponse requestSharedToken(AccessTokenRequest authorizationRequest)
+                throws AccessTokenException, RequestExecutionException, ResponseParsingException {
+            if (null == tokenStore) {
+                return requestToken(authorizationRequest);
+            }
+            AccessTokenResponse stored = loadStoredToken(authorizationRequest);
+            if (null != stored) {
+                return stored;
+            }
+            try (TokenStore.Lock lock = lockStoredToken(authorizationRequest)) {
+                // another process may have stored a token while we waited
+                stored = loadStoredToken(authorizationRequest);
+                if (null != stored) {
+                    return stored;
+                }
+                return requestToken(authorizationRequest);
+            }
+        }
+
+        /**
+         * The non-blocking form of {@link #requestSharedToken(AccessTokenRequest)}.
+         * Waiting for the lock blocks, so it runs on the <tt>executor</tt>.
+         */
+        private CompletableFuture<AccessTokenResponse> requestSharedTokenAsync(
+                AccessTokenRequest authorizationRequest, Executor executor) {
+            if (null == tokenStore) {
+                return requestTokenAsync(authorizationRequest, executor);
+            }
+            AccessTokenResponse stored = loadStoredToken(authorizationRequest);
+            if (null != stored) {
+                return CompletableFuture.completedFuture(stored);
+            }
+            return CompletableFuture.supplyAsync(() -> requestSharedToken(authorizationRequest), executor);
+        }
+
+        private TokenStore.Lock lockStoredToken(AccessTokenRequest authorizationRequest) {
+            try {
+                return tokenStore.lock(getTokenStoreKey(authorizationRequest));
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "trouble locking stored token: " + e, e);
+                return () -> {
+                };
+            }
+        }
+
+        /**
+         * Loads the stored token for the request, or returns null.
+         * A token that would be refreshed again right away is not used.
+         */
+        private AccessTokenResponse loadStoredToken(AccessTokenRequest authorizationRequest) {
+            if (null == tokenStore) {
+                return null;
+            }
+            try {
+                AccessTokenResponse response = tokenStore.load(getTokenStoreKey(authorizationRequest));
+                if (null != response
+                        && (null == response.getExpiresIn() || response.getExpiresIn() < MIN_STORED_TOKEN_SECONDS)) {
+                    return null;
+                }
+                if (null != response) {
+                    LOGGER.info("using stored token, expires in " + response.getExpiresIn() + " seconds");
+                }
+                return response;
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "trouble loading stored token: " + e, e);
+                return null;
+            }
+        }
+
+        /**
+         * The token store key: the url, the accessKeyId, the grant type, and the scope.
+         */
+        private String getTokenStoreKey(AccessTokenRequest authorizationRequest) {
+            String requestScope = null != authorizationRequest.getScope() ? authorizationRequest.getScope() : scope;
+            return url + " " + tokenStoreClientId + " " + authorizationRequest.getGrantType()
+                    + " " + (null != requestScope ? requestScope : "");
+        }
+
+        /**
+         * Returns the last good token for an identical request if it has at least a second left,
+         * otherwise throws the CircuitBreakerOpenException.
+         * The returned copy's expiresIn is the remaining lifetime, not the original one,
+         * so that it is refreshed and hard-expired on time.
+         */
+        private AccessTokenResponse getLastGoodToken(AccessTokenRequest authorizationRequest,
+                CircuitBreakerOpenException e) throws CircuitBreakerOpenException {
+            LastGoodToken last = lastGoodToken;
+            if (null != last
+                    && Objects.equals(last.grantType, authorizationRequest.getGrantType())
+                    && Objects.equals(last.scope, authorizationRequest.getScope())) {
+                long remainingSeconds = (last.receivedAtMillis
+                        + last.response.getExpiresIn() * CONVERT_SECONDS_TO_MILLISECONDS
+                        - clock.currentTimeMillis()) / CONVERT_SECONDS_TO_MILLISECONDS;
+                if (remainingSeconds > 0) {
+                    LOGGER.fine(() -> "circuit breaker open, returning the last good token, expires in "
+                            + remainingSeconds + " seconds");
+                    AccessTokenResponse response = last.response;
+                    return new AccessTokenResponse(response.getAccessToken(), response.getTokenType(),
+                            remainingSeconds, response.getRefreshToken(), response.getIdToken(),
+                            response.getScope());
+                }
+            }
+            throw e;
+        }
+
+        private HttpProvider.HttpRequest getTokenHttpRequest(AccessTokenRequest authorizationRequest) {
             String method = httpMethod.getMethod();
 
             HttpProvider.HttpRequest httpRequest;
@@ -450,17 +743,61 @@ public class HereAccount {
             httpRequest = httpProvider.getRequest(
                 clientAuthorizer, method, url, authorizationRequest.toFormParams());
             addAdditionalHeaders(httpRequest, authorizationRequest);
+            return httpRequest;
+        }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public CompletableFuture<AccessTokenResponse> requestTokenAsync(AccessTokenRequest authorizationRequest,
+                                                                       Executor executor) {
+            if (requestTokenFromFile) {
+                return CompletableFuture.supplyAsync(this::requestTokenFromFile, executor);
+            } else {
+                return requestTokenHttpAsync(authorizationRequest, 1, executor);
+            }
+        }
+
+        /**
+         * The non-blocking form of {@link #requestTokenHttp(AccessTokenRequest, int)}; 
+         * the clock skew correction and retry are chained as continuations.
+         */
+        protected CompletableFuture<AccessTokenResponse> requestTokenHttpAsync(
+                AccessTokenRequest authorizationRequest, int retryFixableErrorsCount, Executor executor) {
+            HttpProvider.HttpRequest httpRequest;
             try {
-                AccessTokenResponse response = client.sendMessage(httpRequest,
-                        AccessTokenResponse.class, ErrorResponse.class,
-                        (statusCode, errorResponse) -> {
-                            return new AccessTokenException(statusCode, errorResponse);
-                        });
-                return response;
-            } catch (AccessTokenException e) {
-                return handleFixableErrors(authorizationRequest, retryFixableErrorsCount, e);
+                httpRequest = getTokenHttpRequest(authorizationRequest);
+            } catch (RuntimeException e) {
+                return FutureUtil.failedFuture(e);
             }
+
+            return client.sendMessageAsync(httpRequest,
+                    AccessTokenResponse.class, ErrorResponse.class,
+                    (statusCode, errorResponse) -> {
+                        return new AccessTokenException(statusCode, errorResponse);
+                    }, executor)
+                    .handle((response, t) -> {
+                        if (null == t) {
+                            rememberGoodToken(authorizationRequest, response);
+                            return CompletableFuture.completedFuture(response);
+                        }
+                        Throwable cause = FutureUtil.unwrap(t);
+                        if (cause instanceof AccessTokenException) {
+                            return handleFixableErrorsAsync(authorizationRequest, retryFixableErrorsCount,
+                                    (AccessTokenException) cause, executor);
+                        }
+                        if (cause instanceof CircuitBreakerOpenException) {
+                            try {
+                                return CompletableFuture.completedFuture(getLastGoodToken(authorizationRequest,
+                                        (CircuitBreakerOpenException) cause));
+                            } catch (CircuitBreakerOpenException e) {
+                                return FutureUtil.<AccessTokenResponse>failedFuture(e);
+                            }
+                        }
+                        return FutureUtil.<AccessTokenResponse>failedFuture(cause);
+                    })
+                    .thenCompose(Function.identity());
         }
 
         /**
@@ -486,6 +823,12 @@ public class HereAccount {
         private static final int CLOCK_SKEW_ERROR_CODE = 401204;
         private static final long CONVERT_SECONDS_TO_MILLISECONDS = 1000L;
 
+        /**
+         * The lifetime a stored token needs to be used: more than the refresh backoff
+         * plus the minimum refresh interval of the RefreshableResponseProvider.
+         */
+        private static final long MIN_STORED_TOKEN_SECONDS = 120L;
+
         private static final String SLASH_TOKEN = "/oauth2/token";
         private static final String SLASH_TIMESTAMP = "/timestamp";
         private final NoAuthorizer noAuthorizer = new NoAuthorizer();
@@ -504,11 +847,8 @@ public class HereAccount {
             // we have a clock skew
             String method = HttpConstants.HttpMethods.GET.getMethod();
 
-            HttpProvider.HttpRequest httpRequest;
-            httpRequest = httpProvider.getRequest(
-                    noAuthorizer, method, timestampUrl, (String) null);
-
-            TimestampResponse timestampResponse = client.sendMessage(httpRequest, TimestampResponse.class,
+            TimestampResponse timestampResponse = client.sendMessage(() -> httpProvider.getRequest(
+                    noAuthorizer, method, timestampUrl, (String) null), TimestampResponse.class,
                     ErrorResponse.class, (statusCode, errorResponse2) -> {
                         return new AccessTokenException(statusCode, errorResponse2);
                     });
@@ -516,6 +856,24 @@ public class HereAccount {
             return timestampResponse;
         }
 
+        protected CompletableFuture<TimestampResponse> getServerTimestampAsync(Executor executor) {
+            // we have a clock skew
+            String method = HttpConstants.HttpMethods.GET.getMethod();
+
+            HttpProvider.HttpRequest httpRequest;
+            try {
+                httpRequest = httpProvider.getRequest(
+                        noAuthorizer, method, timestampUrl, (String) null);
+            } catch (RuntimeException e) {
+                return FutureUtil.failedFuture(e);
+            }
+
+            return client.sendMessageAsync(httpRequest, TimestampResponse.class,
+                    ErrorResponse.class, (statusCode, errorResponse2) -> {
+                        return new AccessTokenException(statusCode, errorResponse2);
+                    }, executor);
+        }
+
         protected AccessTokenResponse handleFixableErrors(AccessTokenRequest authorizationRequest,
                                                           int retryFixableErrorsCount,
                                                           AccessTokenException e) {
@@ -537,12 +895,43 @@ public class HereAccount {
             }
             throw e;
         }
+
+        protected CompletableFuture<AccessTokenResponse> handleFixableErrorsAsync(
+                AccessTokenRequest authorizationRequest, int retryFixableErrorsCount,
+                AccessTokenException e, Executor executor) {
+            if (canFixClockSkew(retryFixableErrorsCount, e)) {
+                // correct the Clock
+                return getServerTimestampAsync(executor)
+                        .handle((timestampResponse, t) -> {
+                            if (null != t) {
+                                // trouble correcting the clock
+                                LOGGER.warning(() -> "correcting clock skew, trouble getting timestamp: "
+                                        + FutureUtil.unwrap(t));
+                                return FutureUtil.<AccessTokenResponse>failedFuture(e);
+                            }
+                            settableClock.setCurrentTimeMillis(
+                                    timestampResponse.getTimestamp() * CONVERT_SECONDS_TO_MILLISECONDS);
+
+                            // retry
+                            return requestTokenHttpAsync(authorizationRequest, retryFixableErrorsCount - 1,
+                                    executor);
+                        })
+                        .thenCompose(Function.identity());
+            }
+            return FutureUtil.failedFuture(e);
+        }
         
         //@Override
         public Fresh<AccessTokenResponse> requestAutoRefreshingToken(Supplier<AccessTokenRequest> requestSupplier) 
                 throws AccessTokenException, RequestExecutionException, ResponseParsingException {
+            AccessTokenRequest initialRequest = requestSupplier.get();
+            AccessTokenResponse initialResponse = requestSharedToken(initialRequest);
             final RefreshableResponseProvider<AccessTokenResponse> refresher = 
-                    HereAccount.getRefreshableClientTokenProvider(clock, this, requestSupplier);
+                    HereAccount.getRefreshableClientTokenProvider(clock, this, requestSupplier, initialResponse);
+            // publish a changed token file right away, rather than at the next scheduled refresh
+            final Closeable fileSubscription = null != fileTokenSource
+                    ? fileTokenSource.addListener(refresher::publish)
+                    : null;
             return new Fresh<AccessTokenResponse>() {
 
                 /**
@@ -558,7 +947,13 @@ public class HereAccount {
                  */
                 @Override
                 public void close() throws IOException {
-                    refresher.shutdown();
+                    try {
+                        if (null != fileSubscription) {
+                            fileSubscription.close();
+                        }
+                    } finally {
+                        refresher.shutdown();
+                    }
                 }
             };
             
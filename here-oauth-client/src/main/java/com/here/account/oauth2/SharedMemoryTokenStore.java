@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import com.here.account.util.Clock;
+import com.here.account.util.JacksonSerializer;
+import com.here.account.util.Serializer;
+
+/**
+ * A {@link TokenStore} that shares tokens between the processes of one host, through
+ * memory-mapped files in {@code /dev/shm}, so that the JVMs on a node using the same
+ * credentials make one token request per token lifetime, instead of one each.
+ *
+ * <p>
+ * Each key has a small owner-only file, named by a SHA-256 hash of the key.
+ * The process that needs a new token takes an exclusive {@link FileChannel#lock() FileChannel lock}
+ * on the file with {@link #lock(String)}, requests the token, and stores it; the other
+ * processes wait for the lock, and then load the stored token instead of requesting their own.
+ *
+ * <p>
+ * Reads take no lock.  The file starts with a generation counter, which is odd while a
+ * token is being written, and is incremented again when the write is done.
+ * A reader that sees the same even generation before and after reading, and a matching
+ * checksum, has a consistent token; one that sees an unchanged generation since its last
+ * read reuses the token it already parsed.
+ *
+ * <pre>
+ * {@code
+        HereAccessTokenProvider accessTokens = HereAccessTokenProvider.builder()
+                .setTokenStore(SharedMemoryTokenStore.builder().build())
+                .build();
+ * }
+ * </pre>
+ */
+public class SharedMemoryTokenStore implements TokenStore {
+
+    private static final Logger LOGGER = Logger.getLogger(SharedMemoryTokenStore.class.getName());
+
+    /**
+     * The default minimum lifetime a stored token needs to be used, 5 minutes.
+     */
+    public static final long DEFAULT_MIN_REMAINING_SECONDS = FileTokenStore.DEFAULT_MIN_REMAINING_SECONDS;
+
+    private static final String DEV_SHM = "/dev/shm";
+    private static final String JAVA_IO_TMPDIR = "java.io.tmpdir";
+    private static final String FILE_PREFIX = "here-auth-token-";
+    private static final String FILE_SUFFIX = ".shm";
+
+    /**
+     * The file layout: magic, generation, payload length, payload CRC32, payload.
+     */
+    static final int MAGIC = 0x48544f4b;
+    static final int MAGIC_OFFSET = 0;
+    static final int GENERATION_OFFSET = 8;
+    static final int LENGTH_OFFSET = 16;
+    static final int CHECKSUM_OFFSET = 20;
+    static final int PAYLOAD_OFFSET = 24;
+    static final int FILE_SIZE = 16384;
+
+    /**
+     * How many times a reader retries when it sees a write in progress.
+     */
+    private static final int READ_ATTEMPTS = 100;
+
+    /**
+     * The open files, shared by all the stores of this JVM, because a JVM can hold
+     * only one FileChannel lock on a file.
+     */
+    private static final ConcurrentMap<Path, Segment> SEGMENTS = new ConcurrentHashMap<>();
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private File directory;
+        private long minRemainingSeconds = DEFAULT_MIN_REMAINING_SECONDS;
+        private Serializer serializer;
+        private Clock clock = Clock.SYSTEM;
+
+        private Builder() {
+        }
+
+        /**
+         * Optionally set the directory of the shared files.  The default is {@code /dev/shm},
+         * or the {@code java.io.tmpdir} if there is no {@code /dev/shm}.
+         * All the processes that share tokens must use the same directory.
+         *
+         * @param directory the directory
+         * @return this Builder
+         */
+        public Builder setDirectory(File directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * Optionally set the lifetime a stored token must have left to be loaded,
+         * default {@link #DEFAULT_MIN_REMAINING_SECONDS}.
+         *
+         * @param minRemainingSeconds the minimum remaining lifetime, in seconds
+         * @return this Builder
+         */
+        public Builder setMinRemainingSeconds(long minRemainingSeconds) {
+            this.minRemainingSeconds = minRemainingSeconds;
+            return this;
+        }
+
+        /**
+         * Optionally set the Serializer; the default is a {@link JacksonSerializer}.
+         *
+         * @param serializer the Serializer
+         * @return this Builder
+         */
+        public Builder setSerializer(Serializer serializer) {
+            this.serializer = serializer;
+            return this;
+        }
+
+        /**
+         * Optionally set the Clock; the default is {@link Clock#SYSTEM}.
+         *
+         * @param clock the Clock
+         * @return this Builder
+         */
+        public Builder setClock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public SharedMemoryTokenStore build() {
+            File directory = this.directory;
+            if (null == directory) {
+                directory = new File(DEV_SHM);
+                if (!directory.isDirectory()) {
+                    directory = new File(System.getProperty(JAVA_IO_TMPDIR));
+                }
+            }
+            if (minRemainingSeconds < 0) {
+                throw new IllegalArgumentException("minRemainingSeconds must not be negative: "
+                        + minRemainingSeconds);
+            }
+            Objects.requireNonNull(clock, "clock cannot be null");
+            return new SharedMemoryTokenStore(directory.toPath(), minRemainingSeconds,
+                    null != serializer ? serializer : new JacksonSerializer(), clock);
+        }
+    }
+
+    private final Path directory;
+    private final long minRemainingSeconds;
+    private final Serializer serializer;
+    private final Clock clock;
+
+    private SharedMemoryTokenStore(Path directory, long minRemainingSeconds, Serializer serializer, Clock clock) {
+        this.directory = directory;
+        this.minRemainingSeconds = minRemainingSeconds;
+        this.serializer = serializer;
+        this.clock = clock;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AccessTokenResponse load(String key) {
+        Segment segment = getSegment(key);
+        if (null == segment) {
+            return null;
+        }
+        FileAccessTokenResponse stored = segment.read(serializer);
+        if (null == stored) {
+            return null;
+        }
+        long remainingSeconds = stored.getExp() - clock.currentTimeMillis() / 1000L;
+        if (remainingSeconds < minRemainingSeconds) {
+            LOGGER.fine(() -> "shared token has " + remainingSeconds + " seconds left, not using it");
+            return null;
+        }
+        // a new object, so that getExpiresIn() counts down from now
+        return new FileAccessTokenResponse(stored.getAccessToken(), stored.getTokenType(), null, null,
+                stored.getIdToken(), stored.getExp(), stored.getScope());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void store(String key, AccessTokenResponse accessTokenResponse) {
+        Map<String, Object> json = FileTokenStore.toJsonMap(accessTokenResponse);
+        if (null == json) {
+            return;
+        }
+        Segment segment = getSegment(key);
+        if (null == segment) {
+            return;
+        }
+        byte[] payload = serializer.objectToJson(json).getBytes(StandardCharsets.UTF_8);
+        if (payload.length > FILE_SIZE - PAYLOAD_OFFSET) {
+            LOGGER.warning("token of " + payload.length + " bytes is too large to share");
+            return;
+        }
+        segment.lock();
+        try {
+            segment.write(payload);
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /**
+     * Takes the exclusive lock of the key's file, which excludes the other threads
+     * of this JVM, and the other processes.
+     *
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public Lock lock(String key) {
+        Segment segment = getSegment(key);
+        if (null == segment) {
+            return TokenStore.super.lock(key);
+        }
+        segment.lock();
+        return segment::unlock;
+    }
+
+    Path getFile(String key) {
+        return directory.resolve(FILE_PREFIX + FileTokenStore.sha256Hex(key) + FILE_SUFFIX);
+    }
+
+    /**
+     * Gets the open file of the key, or null if it cannot be used.
+     */
+    private Segment getSegment(String key) {
+        Path file = getFile(key);
+        Segment segment = SEGMENTS.get(file);
+        if (null != segment && segment.isOpen()) {
+            return segment;
+        }
+        synchronized (SEGMENTS) {
+            segment = SEGMENTS.get(file);
+            if (null != segment && segment.isOpen()) {
+                return segment;
+            }
+            try {
+                segment = Segment.open(file);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "trouble opening shared token file " + file + ": " + e, e);
+                return null;
+            }
+            if (null != segment) {
+                SEGMENTS.put(file, segment);
+            }
+            return segment;
+        }
+    }
+
+    /**
+     * One memory-mapped file, and the locks that guard writing it.
+     */
+    private static class Segment {
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        /**
+         * Excludes the other threads of this JVM; the FileLock is held while it is.
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+        private FileLock fileLock;
+
+        /**
+         * The last token read, and its generation.
+         */
+        private volatile Parsed parsed;
+
+        private Segment(Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private static Segment open(Path file) throws IOException {
+            Set<StandardOpenOption> options = EnumSet.of(
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(file, options,
+                        PosixFilePermissions.asFileAttribute(FileTokenStore.OWNER_ONLY_FILE));
+            } catch (UnsupportedOperationException e) {
+                // not a POSIX file system
+                channel = FileChannel.open(file, options);
+            }
+            try {
+                if (!FileTokenStore.isOwnerOnly(file)) {
+                    LOGGER.warning("not sharing tokens through " + file + ", it is accessible to group or others");
+                    channel.close();
+                    return null;
+                }
+                // grows the file to FILE_SIZE, if needed; new bytes are zeros
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+                return new Segment(file, channel, buffer);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        private void lock() {
+            lock.lock();
+            if (lock.getHoldCount() > 1) {
+                return;
+            }
+            try {
+                fileLock = channel.lock();
+            } catch (IOException e) {
+                // still excludes the threads of this JVM
+                LOGGER.log(Level.WARNING, "trouble locking shared token file " + file + ": " + e, e);
+            }
+        }
+
+        private void unlock() {
+            try {
+                if (lock.getHoldCount() == 1 && null != fileLock) {
+                    try {
+                        fileLock.release();
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "trouble unlocking shared token file " + file + ": " + e, e);
+                    } finally {
+                        fileLock = null;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Writes the token, holding the lock.
+         */
+        private void write(byte[] payload) {
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, payload.length);
+
+            long generation = buffer.getLong(GENERATION_OFFSET);
+            if ((generation & 1L) != 0) {
+                // a writer died mid-write
+                generation++;
+            }
+            // odd while writing
+            buffer.putLong(GENERATION_OFFSET, generation + 1);
+            buffer.putInt(LENGTH_OFFSET, payload.length);
+            buffer.putInt(CHECKSUM_OFFSET, (int) crc.getValue());
+            ByteBuffer view = buffer.duplicate();
+            view.position(PAYLOAD_OFFSET);
+            view.put(payload);
+            buffer.putInt(MAGIC_OFFSET, MAGIC);
+            buffer.putLong(GENERATION_OFFSET, generation + 2);
+        }
+
+        /**
+         * Reads the token without a lock, or returns null if there is none.
+         */
+        private FileAccessTokenResponse read(Serializer serializer) {
+            for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+                long generation = buffer.getLong(GENERATION_OFFSET);
+                if (0L == generation || MAGIC != buffer.getInt(MAGIC_OFFSET)) {
+                    return null;
+                }
+                if ((generation & 1L) != 0) {
+                    // a write is in progress
+                    Thread.yield();
+                    continue;
+                }
+                Parsed last = parsed;
+                if (null != last && last.generation == generation) {
+                    return last.response;
+                }
+
+                int length = buffer.getInt(LENGTH_OFFSET);
+                int checksum = buffer.getInt(CHECKSUM_OFFSET);
+                if (length < 0 || length > FILE_SIZE - PAYLOAD_OFFSET) {
+                    continue;
+                }
+                byte[] payload = new byte[length];
+                ByteBuffer view = buffer.duplicate();
+                view.position(PAYLOAD_OFFSET);
+                view.get(payload);
+                if (buffer.getLong(GENERATION_OFFSET) != generation) {
+                    // written while we read
+                    continue;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    continue;
+                }
+                FileAccessTokenResponse response;
+                try {
+                    response = serializer.jsonToPojo(new ByteArrayInputStream(payload),
+                            FileAccessTokenResponse.class);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "trouble parsing shared token " + file + ": " + e, e);
+                    return null;
+                }
+                if (null == response || null == response.getAccessToken() || null == response.getExp()) {
+                    return null;
+                }
+                parsed = new Parsed(generation, response);
+                return response;
+            }
+            LOGGER.warning("no consistent token in " + file + " after " + READ_ATTEMPTS + " attempts");
+            return null;
+        }
+    }
+
+    private static class Parsed {
+        private final long generation;
+        private final FileAccessTokenResponse response;
+
+        private Parsed(long generation, FileAccessTokenResponse response) {
+            this.generation = generation;
+            this.response = response;
+        }
+    }
+}
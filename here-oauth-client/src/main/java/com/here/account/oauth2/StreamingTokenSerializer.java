@@ -0,0 +1,629 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+
+import com.here.account.oauth2.bo.TimestampResponse;
+import com.here.account.util.JacksonSerializer;
+import com.here.account.util.Serializer;
+
+/**
+ * A {@link Serializer} that decodes the small, fixed responses of the HERE Account
+ * endpoints, {@link AccessTokenResponse}, {@link FileAccessTokenResponse},
+ * {@link TimestampResponse} and {@link ErrorResponse}, with a hand-written streaming
+ * decoder, instead of reflection-based data binding.
+ * Everything else, including serialization, goes to a fallback Serializer,
+ * by default a {@link JacksonSerializer}, so that Jackson's ObjectMapper is not
+ * loaded until something actually needs it.
+ *
+ * <p>
+ * Decoding follows the data binding of {@link JacksonSerializer}: unknown properties
+ * are ignored, numbers and booleans are accepted for string properties, and numeric
+ * strings are accepted for number properties.
+ *
+ * <p>
+ * Select it with, for example,
+ * {@link HereAccessTokenProvider.Builder#setSerializer(Serializer)}.
+ */
+public class StreamingTokenSerializer implements Serializer {
+
+    private final Serializer fallback;
+
+    public StreamingTokenSerializer() {
+        this(new JacksonSerializer());
+    }
+
+    /**
+     * Constructs a StreamingTokenSerializer.
+     *
+     * @param fallback the Serializer for the types this one does not decode,
+     *     and for serialization
+     */
+    public StreamingTokenSerializer(Serializer fallback) {
+        this.fallback = Objects.requireNonNull(fallback, "fallback cannot be null");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> jsonToMap(InputStream jsonInputStream) {
+        return fallback.jsonToMap(jsonInputStream);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T jsonToPojo(InputStream jsonInputStream, Class<T> pojoClass) {
+        Schema schema = getSchema(pojoClass);
+        if (null == schema) {
+            return fallback.jsonToPojo(jsonInputStream, pojoClass);
+        }
+        try {
+            Object[] values = new JsonReader(jsonInputStream).readObject(schema);
+            if (null == values) {
+                return null;
+            }
+            return pojoClass.cast(newPojo(schema, values));
+        } catch (IOException e) {
+            throw new RuntimeException("trouble deserializing json: " + e, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String objectToJson(Object object) {
+        return fallback.objectToJson(object);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeObjectToJson(OutputStream outputStream, Object object) {
+        fallback.writeObjectToJson(outputStream, object);
+    }
+
+    private static final Schema ACCESS_TOKEN_RESPONSE = new Schema(AccessTokenResponse.class,
+            "access_token", "token_type", "expires_in", "refresh_token", "id_token", "scope");
+    private static final Schema FILE_ACCESS_TOKEN_RESPONSE = new Schema(FileAccessTokenResponse.class,
+            "access_token", "token_type", "expires_in", "refresh_token", "id_token", "exp", "scope");
+    private static final Schema TIMESTAMP_RESPONSE = new Schema(TimestampResponse.class,
+            "timestamp");
+    private static final Schema ERROR_RESPONSE = new Schema(ErrorResponse.class,
+            "error", "error_description", "errorId", "httpStatus", "errorCode", "message",
+            "title", "status", "code", "cause", "action", "correlationId");
+
+    /**
+     * Gets the Schema of a decoded class, or null if the class is not decoded here.
+     */
+    static Schema getSchema(Class<?> pojoClass) {
+        // exact classes only; subclasses may have more properties
+        if (AccessTokenResponse.class == pojoClass) {
+            return ACCESS_TOKEN_RESPONSE;
+        } else if (FileAccessTokenResponse.class == pojoClass) {
+            return FILE_ACCESS_TOKEN_RESPONSE;
+        } else if (TimestampResponse.class == pojoClass) {
+            return TIMESTAMP_RESPONSE;
+        } else if (ErrorResponse.class == pojoClass) {
+            return ERROR_RESPONSE;
+        }
+        return null;
+    }
+
+    private static Object newPojo(Schema schema, Object[] values) throws IOException {
+        if (ACCESS_TOKEN_RESPONSE == schema) {
+            return new AccessTokenResponse(
+                    getString(schema, values, 0),
+                    getString(schema, values, 1),
+                    getLong(schema, values, 2),
+                    getString(schema, values, 3),
+                    getString(schema, values, 4),
+                    getString(schema, values, 5));
+        } else if (FILE_ACCESS_TOKEN_RESPONSE == schema) {
+            return new FileAccessTokenResponse(
+                    getString(schema, values, 0),
+                    getString(schema, values, 1),
+                    getLong(schema, values, 2),
+                    getString(schema, values, 3),
+                    getString(schema, values, 4),
+                    getLong(schema, values, 5),
+                    getString(schema, values, 6));
+        } else if (TIMESTAMP_RESPONSE == schema) {
+            return new TimestampResponse(getLong(schema, values, 0));
+        } else {
+            return new ErrorResponse(
+                    getString(schema, values, 0),
+                    getString(schema, values, 1),
+                    getString(schema, values, 2),
+                    getInteger(schema, values, 3),
+                    getInteger(schema, values, 4),
+                    getString(schema, values, 5),
+                    getString(schema, values, 6),
+                    getInteger(schema, values, 7),
+                    getString(schema, values, 8),
+                    getString(schema, values, 9),
+                    getString(schema, values, 10),
+                    getString(schema, values, 11));
+        }
+    }
+
+    private static String getString(Schema schema, Object[] values, int index) throws IOException {
+        Object value = values[index];
+        if (null == value || value instanceof String) {
+            return (String) value;
+        } else if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        throw new IOException("cannot read a String from a structured value of property \""
+                + schema.names[index] + "\"");
+    }
+
+    private static Long getLong(Schema schema, Object[] values, int index) throws IOException {
+        Object value = values[index];
+        if (null == value || value instanceof Long) {
+            return (Long) value;
+        } else if (value instanceof Double) {
+            return ((Double) value).longValue();
+        } else if (value instanceof String) {
+            String text = ((String) value).trim();
+            if (text.isEmpty()) {
+                return null;
+            }
+            try {
+                return Long.valueOf(text);
+            } catch (NumberFormatException e) {
+                throw new IOException("not a number in property \"" + schema.names[index] + "\": " + text, e);
+            }
+        }
+        throw new IOException("cannot read a number from property \"" + schema.names[index] + "\"");
+    }
+
+    private static Integer getInteger(Schema schema, Object[] values, int index) throws IOException {
+        Long value = getLong(schema, values, index);
+        if (null == value) {
+            return null;
+        }
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IOException("number out of range in property \"" + schema.names[index] + "\": " + value);
+        }
+        return value.intValue();
+    }
+
+    /**
+     * The JSON property names of a decoded class, in constructor order, also as ASCII
+     * bytes, so that names can be matched without building Strings.
+     */
+    static final class Schema {
+        private final Class<?> pojoClass;
+        private final String[] names;
+        private final byte[][] nameBytes;
+
+        private Schema(Class<?> pojoClass, String... names) {
+            this.pojoClass = pojoClass;
+            this.names = names;
+            this.nameBytes = new byte[names.length][];
+            for (int i = 0; i < names.length; i++) {
+                nameBytes[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+            }
+        }
+
+        private int indexOf(String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int indexOf(byte[] bytes, int offset, int length) {
+            for (int i = 0; i < nameBytes.length; i++) {
+                byte[] name = nameBytes[i];
+                if (name.length == length && regionMatches(name, bytes, offset)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean regionMatches(byte[] name, byte[] bytes, int offset) {
+            for (int i = 0; i < name.length; i++) {
+                if (name[i] != bytes[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return pojoClass.getSimpleName();
+        }
+    }
+
+    /**
+     * Reads one UTF-8 encoded JSON object, in one pass over the bytes.  Nested objects and
+     * arrays are skipped, as no decoded type has structured properties.
+     */
+    private static final class JsonReader {
+
+        /**
+         * Stands for the value of a property that is an object or an array.
+         */
+        private static final Object STRUCTURED = new Object();
+
+        /**
+         * The read buffers, recycled per thread; decoding never calls out, so a thread
+         * only ever uses one JsonReader at a time.
+         */
+        private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[2048]);
+
+        private final InputStream inputStream;
+        private final byte[] buffer = BUFFERS.get();
+        private int position;
+        private int limit;
+        private long consumed;
+        private StringBuilder text;
+
+        private JsonReader(InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        /**
+         * Reads the object's values, in the order of the schema's names,
+         * or null if the JSON is a null.
+         */
+        private Object[] readObject(Schema schema) throws IOException {
+            int c = nextNonWhitespace();
+            if (0xEF == c) {
+                // the UTF-8 byte order mark
+                if (0xBB != read() || 0xBF != read()) {
+                    throw syntaxError("bad byte order mark", c);
+                }
+                c = nextNonWhitespace();
+            }
+            if ('n' == c) {
+                readLiteral("null");
+                return null;
+            }
+            if ('{' != c) {
+                throw syntaxError("expected '{'", c);
+            }
+            Object[] values = new Object[schema.names.length];
+            c = nextNonWhitespace();
+            if ('}' == c) {
+                return values;
+            }
+            while (true) {
+                if ('"' != c) {
+                    throw syntaxError("expected a property name", c);
+                }
+                int index = readPropertyIndex(schema);
+                c = nextNonWhitespace();
+                if (':' != c) {
+                    throw syntaxError("expected ':'", c);
+                }
+                c = nextNonWhitespace();
+                if (index >= 0) {
+                    values[index] = readValue(c);
+                } else if ('"' == c) {
+                    // unknown properties are skipped
+                    skipString();
+                } else {
+                    readValue(c);
+                }
+                c = nextNonWhitespace();
+                if ('}' == c) {
+                    return values;
+                }
+                if (',' != c) {
+                    throw syntaxError("expected ',' or '}'", c);
+                }
+                c = nextNonWhitespace();
+            }
+        }
+
+        /**
+         * Reads the rest of a property name, after its opening quote, and gets its index
+         * in the schema, or -1 if it is unknown.
+         */
+        private int readPropertyIndex(Schema schema) throws IOException {
+            for (int i = position; i < limit; i++) {
+                byte b = buffer[i];
+                if ('"' == b) {
+                    int index = schema.indexOf(buffer, position, i - position);
+                    consumed += i + 1 - position;
+                    position = i + 1;
+                    return index;
+                } else if ('\\' == b || b < 0x20) {
+                    break;
+                }
+            }
+            return schema.indexOf(readString());
+        }
+
+        private Object readValue(int c) throws IOException {
+            switch (c) {
+            case '"':
+                return readString();
+            case '{':
+            case '[':
+                skipStructure(c);
+                return STRUCTURED;
+            case 't':
+                readLiteral("true");
+                return Boolean.TRUE;
+            case 'f':
+                readLiteral("false");
+                return Boolean.FALSE;
+            case 'n':
+                readLiteral("null");
+                return null;
+            default:
+                if ('-' == c || ('0' <= c && c <= '9')) {
+                    return readNumber(c);
+                }
+                throw syntaxError("expected a value", c);
+            }
+        }
+
+        /**
+         * Reads the rest of a string, after its opening quote.
+         */
+        private String readString() throws IOException {
+            // most strings are plain ASCII within the buffer; decode them in one go
+            for (int i = position; i < limit; i++) {
+                byte b = buffer[i];
+                if ('"' == b) {
+                    String string = asciiString(position, i - position);
+                    consumed += i + 1 - position;
+                    position = i + 1;
+                    return string;
+                } else if ('\\' == b || b < 0x20) {
+                    // an escape, a control character, or a non-ASCII byte
+                    break;
+                }
+            }
+            StringBuilder text = newText();
+            while (true) {
+                int c = read();
+                if ('"' == c) {
+                    return text.toString();
+                } else if ('\\' == c) {
+                    text.append(readEscape());
+                } else if (c < 0x20) {
+                    throw syntaxError("unterminated string", c);
+                } else if (c < 0x80) {
+                    text.append((char) c);
+                } else {
+                    text.appendCodePoint(readCodePoint(c));
+                }
+            }
+        }
+
+        private StringBuilder newText() {
+            if (null == text) {
+                text = new StringBuilder();
+            } else {
+                text.setLength(0);
+            }
+            return text;
+        }
+
+        /**
+         * Copies ASCII bytes into a String, without the CharsetDecoder that
+         * {@code new String(bytes, offset, length, charset)} builds on each call.
+         */
+        @SuppressWarnings("deprecation")
+        private String asciiString(int offset, int length) {
+            return new String(buffer, 0, offset, length);
+        }
+
+        /**
+         * Decodes the rest of a multi-byte UTF-8 sequence.
+         */
+        private int readCodePoint(int first) throws IOException {
+            if (0xC0 == (first & 0xE0)) {
+                return ((first & 0x1F) << 6) | readContinuation();
+            } else if (0xE0 == (first & 0xF0)) {
+                return ((first & 0x0F) << 12) | (readContinuation() << 6) | readContinuation();
+            } else if (0xF0 == (first & 0xF8)) {
+                int codePoint = ((first & 0x07) << 18) | (readContinuation() << 12)
+                        | (readContinuation() << 6) | readContinuation();
+                if (codePoint <= Character.MAX_CODE_POINT) {
+                    return codePoint;
+                }
+            }
+            throw syntaxError("bad UTF-8", first);
+        }
+
+        private int readContinuation() throws IOException {
+            int c = read();
+            if (0x80 != (c & 0xC0)) {
+                throw syntaxError("bad UTF-8", c);
+            }
+            return c & 0x3F;
+        }
+
+        private char readEscape() throws IOException {
+            int c = read();
+            switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("bad unicode escape", c);
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw syntaxError("bad escape", c);
+            }
+        }
+
+        private Object readNumber(int first) throws IOException {
+            // integers, such as expires_in, are accumulated without building a String
+            boolean negative = '-' == first;
+            long value = negative ? 0L : first - '0';
+            int digits = negative ? 0 : 1;
+            int c = peek();
+            while ('0' <= c && c <= '9' && digits < 18) {
+                read();
+                value = value * 10 + (c - '0');
+                digits++;
+                c = peek();
+            }
+            if (digits > 0 && !('0' <= c && c <= '9' || '-' == c || '+' == c
+                    || '.' == c || 'e' == c || 'E' == c)) {
+                return negative ? -value : value;
+            }
+
+            // a fraction, an exponent, or too many digits
+            StringBuilder text = newText();
+            if (negative) {
+                text.append('-');
+            }
+            if (digits > 0) {
+                text.append(value);
+            }
+            boolean integral = true;
+            while (true) {
+                c = peek();
+                if ('0' <= c && c <= '9' || '-' == c || '+' == c) {
+                    text.append((char) read());
+                } else if ('.' == c || 'e' == c || 'E' == c) {
+                    integral = false;
+                    text.append((char) read());
+                } else {
+                    break;
+                }
+            }
+            String number = text.toString();
+            try {
+                return integral ? (Object) Long.valueOf(number) : (Object) Double.valueOf(number);
+            } catch (NumberFormatException e) {
+                throw new IOException("bad number " + number + " at byte " + consumed, e);
+            }
+        }
+
+        private void readLiteral(String literal) throws IOException {
+            for (int i = 1; i < literal.length(); i++) {
+                int c = read();
+                if (literal.charAt(i) != c) {
+                    throw syntaxError("expected " + literal, c);
+                }
+            }
+        }
+
+        /**
+         * Skips the rest of an object or array, after its opening bracket.
+         */
+        private void skipStructure(int open) throws IOException {
+            int depth = 1;
+            while (depth > 0) {
+                int c = read();
+                if ('"' == c) {
+                    skipString();
+                } else if ('{' == c || '[' == c) {
+                    depth++;
+                } else if ('}' == c || ']' == c) {
+                    depth--;
+                } else if (c < 0) {
+                    throw syntaxError("unterminated " + ('{' == open ? "object" : "array"), c);
+                }
+            }
+        }
+
+        private void skipString() throws IOException {
+            while (true) {
+                int c = read();
+                if ('"' == c) {
+                    return;
+                } else if ('\\' == c) {
+                    read();
+                } else if (c < 0) {
+                    throw syntaxError("unterminated string", c);
+                }
+            }
+        }
+
+        private int nextNonWhitespace() throws IOException {
+            while (true) {
+                int c = read();
+                if (' ' != c && '\t' != c && '\n' != c && '\r' != c) {
+                    return c;
+                }
+            }
+        }
+
+        private int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position] & 0xFF;
+        }
+
+        private int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            consumed++;
+            return buffer[position++] & 0xFF;
+        }
+
+        private boolean fill() throws IOException {
+            int count = inputStream.read(buffer, 0, buffer.length);
+            if (count <= 0) {
+                return false;
+            }
+            position = 0;
+            limit = count;
+            return true;
+        }
+
+        private IOException syntaxError(String message, int c) {
+            return new IOException(message + ", found " + (c < 0 ? "end of input"
+                    : 0x20 <= c && c < 0x7F ? "'" + (char) c + "'" : "byte " + c)
+                    + " at byte " + consumed);
+        }
+    }
+}
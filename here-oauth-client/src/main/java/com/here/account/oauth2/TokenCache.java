@@ -0,0 +1,687 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import com.here.account.auth.OAuth1ClientCredentialsProvider;
+import com.here.account.http.HttpProvider;
+import com.here.account.oauth2.retry.NoRetryPolicy;
+import com.here.account.oauth2.retry.RetryPolicy;
+import com.here.account.util.Clock;
+import com.here.account.util.FutureUtil;
+import com.here.account.util.JacksonSerializer;
+import com.here.account.util.Serializer;
+import com.here.account.util.SettableSystemClock;
+import com.here.account.util.SharedRefreshScheduler;
+
+/**
+ * A bounded cache of HERE Access Tokens for many (credentials, scope) combinations.
+ * Use this instead of one {@link HereAccessTokenProvider} per tenant when you need
+ * tokens for thousands of credentials, of which only some are in use at any moment.
+ *
+ * <p>
+ * Tokens are requested on first use.  A periodic maintenance pass, run on the
+ * {@link SharedRefreshScheduler}, refreshes tokens that are close to expiry only
+ * if they were accessed within the configured expire-after-access interval;
+ * entries idle for longer are evicted instead.  The refreshes are queued, soonest
+ * expiry first, and run asynchronously; at most
+ * {@link Builder#setMaxConcurrentRefreshes(int) maxConcurrentRefreshes} are in flight
+ * at once, so the shared scheduler threads stay available to other providers,
+ * and each completed refresh starts the next queued one.
+ * When the cache grows beyond its maximum size, the least-recently-accessed entries
+ * are evicted in one batch, down to about 90% of the maximum size, so the cost of
+ * finding them is spread over many inserts.
+ * Memory and refresh traffic therefore scale with the working set,
+ * not with the total number of tenants.
+ *
+ * <pre>
+ * {@code
+        try (TokenCache tokenCache = TokenCache.builder()
+                .setHttpProvider(ApacheHttpClientProvider.builder().build())
+                .setMaximumSize(5000)
+                .build()) {
+            String accessToken = tokenCache.getAccessToken(
+                    tokenEndpointUrl, accessKeyId, accessKeySecret, scope);
+            // use accessToken on a request...
+        }
+ * }
+ * </pre>
+ */
+public class TokenCache implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(TokenCache.class.getName());
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 1000;
+    public static final long DEFAULT_EXPIRE_AFTER_ACCESS_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    public static final long DEFAULT_MAINTENANCE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Number of milliseconds before expiry at which a token is refreshed.
+     */
+    static final long REFRESH_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * The default maximum number of maintenance refreshes in flight at once.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_REFRESHES = 2;
+
+    /**
+     * A size eviction also frees this fraction of the maximum size, so that
+     * the entries are scanned at most once per that many inserts.
+     */
+    private static final int EVICTION_BATCH_DIVISOR = 10;
+
+    /**
+     * Gets a new Builder for a TokenCache.
+     *
+     * @return the Builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private HttpProvider httpProvider;
+        private Serializer serializer;
+        private RetryPolicy retryPolicy;
+        private Clock clock;
+        private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+        private long expireAfterAccessMillis = DEFAULT_EXPIRE_AFTER_ACCESS_MILLIS;
+        private long maintenanceIntervalMillis = DEFAULT_MAINTENANCE_INTERVAL_MILLIS;
+        private int maxConcurrentRefreshes = DEFAULT_MAX_CONCURRENT_REFRESHES;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the HttpProvider used for all token requests.  Required.
+         * The cache does not close the HttpProvider.
+         *
+         * @param httpProvider the HttpProvider to set
+         * @return this Builder
+         */
+        public Builder setHttpProvider(HttpProvider httpProvider) {
+            this.httpProvider = httpProvider;
+            return this;
+        }
+
+        /**
+         * Optionally override the default JSON Serializer.
+         *
+         * @param serializer the serializer to set
+         * @return this Builder
+         */
+        public Builder setSerializer(Serializer serializer) {
+            this.serializer = serializer;
+            return this;
+        }
+
+        /**
+         * Optionally override the retry policy. Default behaviour is no retry.
+         *
+         * @param retryPolicy the RetryPolicy
+         * @return this Builder
+         */
+        public Builder setRetryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Optionally override the clock, such as during tests.
+         *
+         * @param clock the clock to use
+         * @return this Builder
+         */
+        public Builder setClock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of (credentials, scope) entries to keep.
+         * Default is {@value #DEFAULT_MAXIMUM_SIZE}.
+         *
+         * @param maximumSize the maximum number of entries, must be positive
+         * @return this Builder
+         */
+        public Builder setMaximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Sets how long an entry may go without being accessed before it is evicted,
+         * rather than refreshed.
+         * Default is {@link TokenCache#DEFAULT_EXPIRE_AFTER_ACCESS_MILLIS}.
+         *
+         * @param expireAfterAccessMillis the idle time in milliseconds
+         * @return this Builder
+         */
+        public Builder setExpireAfterAccessMillis(long expireAfterAccessMillis) {
+            this.expireAfterAccessMillis = expireAfterAccessMillis;
+            return this;
+        }
+
+        /**
+         * Sets how often the maintenance pass runs to evict idle entries and refresh
+         * recently-accessed tokens near expiry.
+         * Default is {@link TokenCache#DEFAULT_MAINTENANCE_INTERVAL_MILLIS}.
+         *
+         * @param maintenanceIntervalMillis the interval in milliseconds
+         * @return this Builder
+         */
+        public Builder setMaintenanceIntervalMillis(long maintenanceIntervalMillis) {
+            this.maintenanceIntervalMillis = maintenanceIntervalMillis;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of maintenance refreshes in flight at once.
+         * Further refreshes wait in a queue, and start as earlier ones complete.
+         * With a blocking HttpProvider each in-flight refresh occupies a
+         * {@link SharedRefreshScheduler} thread.
+         * Default is {@value TokenCache#DEFAULT_MAX_CONCURRENT_REFRESHES}.
+         *
+         * @param maxConcurrentRefreshes the maximum number of refreshes in flight, must be positive
+         * @return this Builder
+         */
+        public Builder setMaxConcurrentRefreshes(int maxConcurrentRefreshes) {
+            this.maxConcurrentRefreshes = maxConcurrentRefreshes;
+            return this;
+        }
+
+        /**
+         * Build using builders, builders, and more builders.
+         *
+         * @return the built TokenCache
+         */
+        public TokenCache build() {
+            Objects.requireNonNull(httpProvider, "httpProvider is required");
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+            }
+            if (maxConcurrentRefreshes <= 0) {
+                throw new IllegalArgumentException("maxConcurrentRefreshes must be positive: "
+                        + maxConcurrentRefreshes);
+            }
+            if (null == serializer) {
+                serializer = new JacksonSerializer();
+            }
+            if (null == retryPolicy) {
+                retryPolicy = new NoRetryPolicy();
+            }
+            if (null == clock) {
+                clock = new SettableSystemClock();
+            }
+            return new TokenCache(this);
+        }
+    }
+
+    private final HttpProvider httpProvider;
+    private final Serializer serializer;
+    private final RetryPolicy retryPolicy;
+    private final Clock clock;
+    private final int maximumSize;
+    private final long expireAfterAccessMillis;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<Key, Entry>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final Semaphore refreshPermits;
+    private final Queue<Entry> refreshQueue = new ConcurrentLinkedQueue<Entry>();
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    private TokenCache(Builder builder) {
+        this.httpProvider = builder.httpProvider;
+        this.serializer = builder.serializer;
+        this.retryPolicy = builder.retryPolicy;
+        this.clock = builder.clock;
+        this.maximumSize = builder.maximumSize;
+        this.expireAfterAccessMillis = builder.expireAfterAccessMillis;
+        this.refreshPermits = new Semaphore(builder.maxConcurrentRefreshes);
+
+        this.scheduledExecutorService = SharedRefreshScheduler.acquire();
+        scheduledExecutorService.scheduleWithFixedDelay(this::runMaintenance,
+                builder.maintenanceIntervalMillis, builder.maintenanceIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets an unexpired Access Token for the specified credentials and scope.
+     *
+     * @param tokenEndpointUrl the full URL of the OAuth2.0 token endpoint
+     * @param accessKeyId the access key id
+     * @param accessKeySecret the access key secret
+     * @param scope the scope of the token, or null for the default scope
+     * @return the Access Token
+     * @throws AccessTokenException if the authorization server rejected the request
+     * @throws RequestExecutionException if trouble processing the request
+     * @throws ResponseParsingException if trouble parsing the response
+     */
+    public String getAccessToken(String tokenEndpointUrl, String accessKeyId, String accessKeySecret,
+            String scope) throws AccessTokenException, RequestExecutionException, ResponseParsingException {
+        return getAccessTokenResponse(tokenEndpointUrl, accessKeyId, accessKeySecret, scope).getAccessToken();
+    }
+
+    /**
+     * Gets an unexpired Access Token Response for the specified credentials and scope.
+     * If there is no unexpired cached response, one is requested before this method returns.
+     *
+     * @param tokenEndpointUrl the full URL of the OAuth2.0 token endpoint
+     * @param accessKeyId the access key id
+     * @param accessKeySecret the access key secret
+     * @param scope the scope of the token, or null for the default scope
+     * @return the Access Token Response
+     * @throws AccessTokenException if the authorization server rejected the request
+     * @throws RequestExecutionException if trouble processing the request
+     * @throws ResponseParsingException if trouble parsing the response
+     */
+    public AccessTokenResponse getAccessTokenResponse(String tokenEndpointUrl, String accessKeyId,
+            String accessKeySecret, String scope)
+            throws AccessTokenException, RequestExecutionException, ResponseParsingException {
+        Key key = new Key(tokenEndpointUrl, accessKeyId, accessKeySecret, scope);
+        long now = clock.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (null != entry) {
+            entry.lastAccessMillis = now;
+            AccessTokenResponse response = entry.getIfUnexpired(now);
+            if (null != response) {
+                hitCount.incrementAndGet();
+                return response;
+            }
+        } else {
+            Entry newEntry = new Entry(key, now);
+            entry = entries.putIfAbsent(key, newEntry);
+            if (null == entry) {
+                entry = newEntry;
+                evictIfNecessary();
+            }
+        }
+        missCount.incrementAndGet();
+        return entry.load();
+    }
+
+    /**
+     * Gets the number of requests that were served from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of requests that required a token request.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of entries evicted, because of idleness or size.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Gets the number of entries currently in the cache.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Stops the maintenance pass and discards all entries.
+     * The HttpProvider is not closed.
+     */
+    @Override
+    public void close() {
+        scheduledExecutorService.shutdown();
+        entries.clear();
+        for (Entry entry = refreshQueue.poll(); null != entry; entry = refreshQueue.poll()) {
+            entry.cancelQueuedRefresh();
+        }
+    }
+
+    /**
+     * Evicts idle entries, and queues asynchronous refreshes of recently-accessed entries
+     * that are close to expiry, soonest expiry first.
+     *
+     * @return a future completed when the refreshes queued by this pass have finished
+     */
+    //@VisibleForTesting
+    CompletableFuture<Void> runMaintenance() {
+        long now = clock.currentTimeMillis();
+        List<Entry> candidates = new ArrayList<Entry>();
+        for (Entry entry : entries.values()) {
+            if (now - entry.lastAccessMillis > expireAfterAccessMillis) {
+                if (entries.remove(entry.key, entry)) {
+                    evictionCount.incrementAndGet();
+                }
+            } else if (entry.needsRefresh(now)) {
+                candidates.add(entry);
+            }
+        }
+        evictIfNecessary();
+
+        candidates.sort((a, b) -> Long.compare(a.getExpiresAtMillis(), b.getExpiresAtMillis()));
+        List<CompletableFuture<?>> refreshes = new ArrayList<CompletableFuture<?>>(candidates.size());
+        for (Entry entry : candidates) {
+            refreshes.add(entry.queueRefresh());
+        }
+        startQueuedRefreshes();
+        return CompletableFuture.allOf(refreshes.toArray(new CompletableFuture<?>[refreshes.size()]))
+                .handle((v, t) -> null);
+    }
+
+    /**
+     * Starts queued refreshes while there are permits; each completion releases its
+     * permit and starts the next.  Only one thread drains the queue at a time, and a
+     * refresh that completes immediately asks that thread to go round again, rather
+     * than recursing.
+     */
+    private void startQueuedRefreshes() {
+        if (0 != drainRequests.getAndIncrement()) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (!refreshQueue.isEmpty() && refreshPermits.tryAcquire()) {
+                Entry entry = refreshQueue.poll();
+                if (null == entry) {
+                    refreshPermits.release();
+                    continue;
+                }
+                entry.refreshQueued().whenComplete((response, t) -> {
+                    refreshPermits.release();
+                    if (null != t) {
+                        LOG.warning("Failed to refresh HERE token for " + entry.key + ": "
+                                + FutureUtil.unwrap(t));
+                    }
+                    startQueuedRefreshes();
+                });
+            }
+            missed = drainRequests.addAndGet(-missed);
+        } while (0 != missed);
+    }
+
+    /**
+     * Evicts the least-recently-accessed entries once the cache is over its maximum size.
+     * One caller at a time scans the entries, and evicts enough of them to leave room
+     * for the next maximumSize / {@value #EVICTION_BATCH_DIVISOR} inserts.
+     */
+    private void evictIfNecessary() {
+        while (entries.size() > maximumSize && evicting.compareAndSet(false, true)) {
+            try {
+                int batchSize = entries.size() - maximumSize + maximumSize / EVICTION_BATCH_DIVISOR;
+                if (batchSize <= 0) {
+                    continue;
+                }
+                // most recently accessed candidate at the head, so it is dropped first
+                PriorityQueue<EvictionCandidate> eldest = new PriorityQueue<EvictionCandidate>(batchSize + 1,
+                        (a, b) -> Long.compare(b.lastAccessMillis, a.lastAccessMillis));
+                for (Entry entry : entries.values()) {
+                    eldest.offer(new EvictionCandidate(entry));
+                    if (eldest.size() > batchSize) {
+                        eldest.poll();
+                    }
+                }
+                for (EvictionCandidate candidate : eldest) {
+                    if (entries.remove(candidate.entry.key, candidate.entry)) {
+                        evictionCount.incrementAndGet();
+                    }
+                }
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    /**
+     * An entry with its access time as of the eviction scan,
+     * so the ordering cannot change while the candidates are compared.
+     */
+    private static final class EvictionCandidate {
+        private final Entry entry;
+        private final long lastAccessMillis;
+
+        private EvictionCandidate(Entry entry) {
+            this.entry = entry;
+            this.lastAccessMillis = entry.lastAccessMillis;
+        }
+    }
+
+    /**
+     * The cache key; the credentials and the scope.
+     * The accessKeySecret takes part in equality so a rotated secret gets a new entry,
+     * but is never part of the String representation.
+     */
+    private static final class Key {
+        private final String tokenEndpointUrl;
+        private final String accessKeyId;
+        private final String accessKeySecret;
+        private final String scope;
+        private final int hashCode;
+
+        private Key(String tokenEndpointUrl, String accessKeyId, String accessKeySecret, String scope) {
+            Objects.requireNonNull(tokenEndpointUrl, "tokenEndpointUrl is required");
+            Objects.requireNonNull(accessKeyId, "accessKeyId is required");
+            Objects.requireNonNull(accessKeySecret, "accessKeySecret is required");
+            this.tokenEndpointUrl = tokenEndpointUrl;
+            this.accessKeyId = accessKeyId;
+            this.accessKeySecret = accessKeySecret;
+            this.scope = scope;
+            this.hashCode = Objects.hash(tokenEndpointUrl, accessKeyId, accessKeySecret, scope);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return tokenEndpointUrl.equals(that.tokenEndpointUrl)
+                    && accessKeyId.equals(that.accessKeyId)
+                    && accessKeySecret.equals(that.accessKeySecret)
+                    && Objects.equals(scope, that.scope);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return "Key [tokenEndpointUrl=" + tokenEndpointUrl + ", accessKeyId=" + accessKeyId
+                    + ", scope=" + scope + "]";
+        }
+    }
+
+    /**
+     * One cached (credentials, scope) entry.
+     */
+    private final class Entry {
+        private final Key key;
+        private final OAuth1ClientCredentialsProvider credentials;
+        private volatile TokenEndpoint tokenEndpoint;
+        private volatile Snapshot snapshot;
+        private volatile long lastAccessMillis;
+        private final AtomicReference<CompletableFuture<AccessTokenResponse>> pendingRefresh =
+                new AtomicReference<CompletableFuture<AccessTokenResponse>>();
+
+        private Entry(Key key, long now) {
+            this.key = key;
+            this.credentials = new OAuth1ClientCredentialsProvider(clock, key.tokenEndpointUrl,
+                    key.accessKeyId, key.accessKeySecret, key.scope);
+            this.lastAccessMillis = now;
+        }
+
+        private AccessTokenResponse getIfUnexpired(long now) {
+            Snapshot current = snapshot;
+            if (null != current && now < current.expiresAtMillis) {
+                return current.response;
+            }
+            return null;
+        }
+
+        private boolean needsRefresh(long now) {
+            Snapshot current = snapshot;
+            return null != current && now >= current.expiresAtMillis - REFRESH_BACKOFF_MILLIS;
+        }
+
+        /**
+         * Loads the token if there is no unexpired one; concurrent callers for the same
+         * entry wait for a single request.
+         */
+        private synchronized AccessTokenResponse load() {
+            AccessTokenResponse current = getIfUnexpired(clock.currentTimeMillis());
+            if (null != current) {
+                return current;
+            }
+            return refresh();
+        }
+
+        private synchronized AccessTokenResponse refresh() {
+            long requestedAt = clock.currentTimeMillis();
+            return update(requestedAt, getTokenEndpoint().requestToken(credentials.getNewAccessTokenRequest()));
+        }
+
+        private long getExpiresAtMillis() {
+            Snapshot current = snapshot;
+            return null != current ? current.expiresAtMillis : Long.MAX_VALUE;
+        }
+
+        /**
+         * Queues a refresh of this entry, unless one is already queued or in flight.
+         *
+         * @return a future completed when the queued refresh has finished
+         */
+        private CompletableFuture<AccessTokenResponse> queueRefresh() {
+            CompletableFuture<AccessTokenResponse> queued = new CompletableFuture<AccessTokenResponse>();
+            if (pendingRefresh.compareAndSet(null, queued)) {
+                refreshQueue.add(this);
+                return queued;
+            }
+            CompletableFuture<AccessTokenResponse> pending = pendingRefresh.get();
+            return null != pending ? pending : CompletableFuture.completedFuture(null);
+        }
+
+        /**
+         * Runs the queued refresh without blocking the calling thread; any blocking work
+         * runs on the scheduler.  An entry evicted while queued is not refreshed.
+         */
+        private CompletableFuture<AccessTokenResponse> refreshQueued() {
+            CompletableFuture<AccessTokenResponse> pending = pendingRefresh.get();
+            CompletableFuture<AccessTokenResponse> future;
+            long requestedAt = clock.currentTimeMillis();
+            if (entries.get(key) != this) {
+                future = CompletableFuture.completedFuture(null);
+            } else {
+                try {
+                    future = getTokenEndpoint().requestTokenAsync(credentials.getNewAccessTokenRequest(),
+                            scheduledExecutorService);
+                } catch (RejectedExecutionException e) {
+                    // closed
+                    future = FutureUtil.failedFuture(e);
+                } catch (RuntimeException e) {
+                    future = FutureUtil.failedFuture(e);
+                }
+            }
+            return future.whenComplete((newResponse, t) -> {
+                if (null == t && null != newResponse) {
+                    update(requestedAt, newResponse);
+                }
+                pendingRefresh.compareAndSet(pending, null);
+                if (null == pending) {
+                    return;
+                }
+                if (null != t) {
+                    pending.completeExceptionally(t);
+                } else {
+                    pending.complete(newResponse);
+                }
+            });
+        }
+
+        private void cancelQueuedRefresh() {
+            CompletableFuture<AccessTokenResponse> pending = pendingRefresh.getAndSet(null);
+            if (null != pending) {
+                pending.complete(null);
+            }
+        }
+
+        private AccessTokenResponse update(long requestedAt, AccessTokenResponse newResponse) {
+            Long expiresIn = newResponse.getExpiresIn();
+            long expiresAtMillis = null != expiresIn
+                    ? requestedAt + TimeUnit.SECONDS.toMillis(expiresIn)
+                    : Long.MAX_VALUE;
+            this.snapshot = new Snapshot(newResponse, expiresAtMillis);
+            return newResponse;
+        }
+
+        private TokenEndpoint getTokenEndpoint() {
+            // not synchronized, so a refresh never waits on a blocking load(); a duplicate is harmless
+            TokenEndpoint current = tokenEndpoint;
+            if (null == current) {
+                current = HereAccount.getTokenEndpoint(httpProvider, credentials, serializer, retryPolicy);
+                tokenEndpoint = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * An immutable token response with its expiry, published as one unit so a reader
+     * never pairs a token with another token's expiry.
+     */
+    private static final class Snapshot {
+        private final AccessTokenResponse response;
+        private final long expiresAtMillis;
+
+        private Snapshot(AccessTokenResponse response, long expiresAtMillis) {
+            this.response = response;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
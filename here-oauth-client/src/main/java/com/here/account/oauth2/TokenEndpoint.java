@@ -15,6 +15,9 @@
  */
 package com.here.account.oauth2;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Supplier;
 
 /**
@@ -40,6 +43,39 @@ public interface TokenEndpoint {
      */
     AccessTokenResponse requestToken(AccessTokenRequest request) 
             throws AccessTokenException, RequestExecutionException, ResponseParsingException;
+
+    /**
+     * POST to the token endpoint to get a HERE Access Token, asynchronously.
+     * The calling thread is not blocked.  Blocking work, if any, runs on 
+     * the specified <tt>executor</tt>.
+     * The default implementation runs {@link #requestToken(AccessTokenRequest)} 
+     * on the <tt>executor</tt>.
+     *
+     * @param request the token request
+     * @param executor the Executor on which to run blocking work
+     * @return a CompletableFuture of the Access Token, completed exceptionally with an 
+     *      {@link AccessTokenException}, {@link RequestExecutionException}, or 
+     *      {@link ResponseParsingException} on failure
+     */
+    default CompletableFuture<AccessTokenResponse> requestTokenAsync(AccessTokenRequest request, 
+            Executor executor) {
+        return CompletableFuture.supplyAsync(() -> requestToken(request), executor);
+    }
+
+    /**
+     * POST to the token endpoint to get a HERE Access Token, asynchronously, 
+     * running any blocking work on the {@link ForkJoinPool#commonPool()}.
+     * If your HttpProvider is blocking, prefer 
+     * {@link #requestTokenAsync(AccessTokenRequest, Executor)} with an Executor 
+     * sized for blocking I/O.
+     *
+     * @param request the token request
+     * @return a CompletableFuture of the Access Token
+     * @see #requestTokenAsync(AccessTokenRequest, Executor)
+     */
+    default CompletableFuture<AccessTokenResponse> requestTokenAsync(AccessTokenRequest request) {
+        return requestTokenAsync(request, ForkJoinPool.commonPool());
+    }
     
     /**
      * POST to the token endpoint to get an always fresh HERE Access Token, for use with HERE Services.
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2;
+
+/**
+ * Keeps HERE Access Tokens beyond the life of a process, so that a restarted JVM can
+ * use the token of its predecessor instead of requesting a new one.
+ *
+ * <p>
+ * Plug a TokenStore into a {@link HereAccessTokenProvider} with
+ * {@link HereAccessTokenProvider.Builder#setTokenStore(TokenStore)}.
+ * The auto-refreshing token is then seeded from the store, and each new token
+ * is saved to it.
+ *
+ * <p>
+ * Keys identify the token endpoint url, the client accessKeyId, the grant type, and
+ * the scope; they never contain the accessKeySecret.  A TokenStore is a cache:
+ * implementations should log and swallow I/O trouble rather than fail token requests.
+ */
+public interface TokenStore {
+
+    /**
+     * Loads the token saved for the key, if it is still usable.
+     *
+     * @param key identifies the credentials and scope of the token
+     * @return the saved token, with {@link AccessTokenResponse#getExpiresIn()} counting
+     *     down from now, or null if there is none with enough lifetime left
+     */
+    AccessTokenResponse load(String key);
+
+    /**
+     * Saves the token for the key, replacing any previous one.
+     *
+     * @param key identifies the credentials and scope of the token
+     * @param accessTokenResponse the token just received
+     */
+    void store(String key, AccessTokenResponse accessTokenResponse);
+
+    /**
+     * Takes the lock of the key, so that only one process at a time requests a new token
+     * for it; the others wait, and then load the token it stored.
+     * The default implementation locks nothing.
+     *
+     * @param key identifies the credentials and scope of the token
+     * @return the Lock, to close once the new token is stored
+     */
+    default Lock lock(String key) {
+        return () -> {
+        };
+    }
+
+    /**
+     * The lock of a key, released on {@link #close()}.
+     */
+    @FunctionalInterface
+    interface Lock extends AutoCloseable {
+
+        /**
+         * Releases the lock.
+         */
+        @Override
+        void close();
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.here.account.oauth2.retry;
+
+import java.net.SocketTimeoutException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.here.account.http.HttpProvider;
+import com.here.account.util.Clock;
+
+/**
+ * An implementation of {@link RetryPolicy} to retry on {@code SocketTimeoutException},
+ * http status greater or equal to 500, and http status 429 Too Many Requests.
+ *
+ * <p>
+ * When a 429 or 503 response has a
+ * <a href="https://tools.ietf.org/html/rfc7231#section-7.1.3">Retry-After</a> header,
+ * the retry waits as directed by the server, plus up to {@code baseIntervalMillis}
+ * of random jitter so that many clients told the same time do not all retry at once.
+ * If the server asks to wait longer than {@code maxRetryAfterMillis}, no retry is made.
+ *
+ * <p>
+ * Otherwise the wait uses
+ * <a href="https://aws.amazon.com/blogs/architecture/exponential-backoff-and-jitter/">decorrelated jitter</a>:
+ * a random interval between {@code baseIntervalMillis} and three times the previous
+ * interval, capped at {@code maxIntervalMillis}.  Unlike
+ * {@link Socket5xxExponentialRandomBackoffPolicy} the interval is never 0.
+ */
+public class RetryAfterJitterBackoffPolicy implements RetryPolicy {
+
+    public static final int DEFAULT_MAX_NO_RETRIES = 3;
+    public static final int DEFAULT_BASE_INTERVAL_MILLIS = 500;
+    public static final int DEFAULT_MAX_INTERVAL_MILLIS = 20000;
+    public static final int DEFAULT_MAX_RETRY_AFTER_MILLIS = 60000;
+
+    static final String RETRY_AFTER_HEADER = "Retry-After";
+    static final int TOO_MANY_REQUESTS = 429;
+    static final int SERVICE_UNAVAILABLE = 503;
+
+    private final int maxNumberOfRetries;
+    private final int baseIntervalMillis;
+    private final int maxIntervalMillis;
+    private final int maxRetryAfterMillis;
+    private final Clock clock;
+
+    public RetryAfterJitterBackoffPolicy() {
+        this(DEFAULT_MAX_NO_RETRIES, DEFAULT_BASE_INTERVAL_MILLIS, DEFAULT_MAX_INTERVAL_MILLIS,
+                DEFAULT_MAX_RETRY_AFTER_MILLIS);
+    }
+
+    /**
+     * Construct a RetryAfterJitterBackoffPolicy.
+     *
+     * @param maxNumberOfRetries the maximum number of retries
+     * @param baseIntervalMillis the minimum wait interval, in milliseconds
+     * @param maxIntervalMillis the maximum wait interval when there is no Retry-After header,
+     *      in milliseconds
+     * @param maxRetryAfterMillis the longest Retry-After the policy waits for, in milliseconds
+     */
+    public RetryAfterJitterBackoffPolicy(int maxNumberOfRetries, int baseIntervalMillis,
+            int maxIntervalMillis, int maxRetryAfterMillis) {
+        this(maxNumberOfRetries, baseIntervalMillis, maxIntervalMillis, maxRetryAfterMillis, Clock.SYSTEM);
+    }
+
+    RetryAfterJitterBackoffPolicy(int maxNumberOfRetries, int baseIntervalMillis,
+            int maxIntervalMillis, int maxRetryAfterMillis, Clock clock) {
+        if (baseIntervalMillis <= 0) {
+            throw new IllegalArgumentException("baseIntervalMillis must be positive: " + baseIntervalMillis);
+        }
+        if (maxIntervalMillis < baseIntervalMillis) {
+            throw new IllegalArgumentException("maxIntervalMillis " + maxIntervalMillis
+                    + " must not be less than baseIntervalMillis " + baseIntervalMillis);
+        }
+        this.maxNumberOfRetries = maxNumberOfRetries;
+        this.baseIntervalMillis = baseIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.maxRetryAfterMillis = maxRetryAfterMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean shouldRetry(RetryContext retryContext) {
+        if (retryContext.getRetryCount() >= maxNumberOfRetries) {
+            return false;
+        }
+        Exception lastException = retryContext.getLastException();
+        if (null != lastException) {
+            return lastException instanceof SocketTimeoutException
+                    || lastException.getCause() instanceof SocketTimeoutException;
+        }
+        HttpProvider.HttpResponse lastRetryResponse = retryContext.getLastRetryResponse();
+        if (null == lastRetryResponse) {
+            return false;
+        }
+        int statusCode = lastRetryResponse.getStatusCode();
+        if (statusCode != TOO_MANY_REQUESTS && statusCode < 500) {
+            return false;
+        }
+        // don't block the caller for longer than the server is worth waiting for
+        long retryAfterMillis = getRetryAfterMillis(lastRetryResponse);
+        return retryAfterMillis <= maxRetryAfterMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNextRetryIntervalMillis(RetryContext retryContext) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        HttpProvider.HttpResponse lastRetryResponse = retryContext.getLastRetryResponse();
+        if (null == retryContext.getLastException() && null != lastRetryResponse) {
+            long retryAfterMillis = getRetryAfterMillis(lastRetryResponse);
+            if (retryAfterMillis >= 0) {
+                long retryAfterWithJitter = Math.min(retryAfterMillis, maxRetryAfterMillis)
+                        + random.nextInt(baseIntervalMillis);
+                return (int) Math.max(baseIntervalMillis, retryAfterWithJitter);
+            }
+        }
+
+        long lastInterval = Math.max(baseIntervalMillis, retryContext.getLastRetryIntervalMillis());
+        long upper = Math.min(maxIntervalMillis, lastInterval * 3);
+        if (upper <= baseIntervalMillis) {
+            return baseIntervalMillis;
+        }
+        return (int) random.nextLong(baseIntervalMillis, upper + 1);
+    }
+
+    /**
+     * Returns the milliseconds to wait as directed by the Retry-After header of a 429 or 503
+     * response, or -1 if there is no such header.
+     */
+    long getRetryAfterMillis(HttpProvider.HttpResponse httpResponse) {
+        int statusCode = httpResponse.getStatusCode();
+        if (statusCode != TOO_MANY_REQUESTS && statusCode != SERVICE_UNAVAILABLE) {
+            return -1L;
+        }
+        String retryAfter = getHeader(httpResponse, RETRY_AFTER_HEADER);
+        if (null == retryAfter) {
+            return -1L;
+        }
+        retryAfter = retryAfter.trim();
+        try {
+            // delta-seconds
+            long retryAfterSeconds = Long.parseLong(retryAfter);
+            return retryAfterSeconds > Long.MAX_VALUE / 1000L ? Long.MAX_VALUE : Math.max(0L, retryAfterSeconds * 1000L);
+        } catch (NumberFormatException e) {
+            // not delta-seconds, try the HTTP-date below
+        }
+        try {
+            long retryAtMillis = ZonedDateTime.parse(retryAfter, DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant().toEpochMilli();
+            return Math.max(0L, retryAtMillis - clock.currentTimeMillis());
+        } catch (DateTimeParseException e) {
+            return -1L;
+        }
+    }
+
+    private static String getHeader(HttpProvider.HttpResponse httpResponse, String name) {
+        Map<String, List<String>> headers;
+        try {
+            headers = httpResponse.getHeaders();
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+        if (null == headers) {
+            return null;
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            // header names are case-insensitive
+            if (name.equalsIgnoreCase(header.getKey())) {
+                List<String> values = header.getValue();
+                return null == values || values.isEmpty() ? null : values.get(0);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,188 @@
+package com.here.account.oauth2.retry;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.here.account.util.Clock;
+
+/**
+ * A budget of retries, shared by all the {@link RetryBudgetPolicy}s that use it.
+ * Each successful request deposits {@code retryRatio} of a retry into the budget,
+ * and each retry withdraws one.  On top of that, {@code minRetriesPerSecond} retries
+ * are always allowed, so that a client with little traffic can still retry.
+ *
+ * <p>
+ * Deposits and withdrawals are counted over a sliding window of
+ * {@code windowMillis}, in {@link #BUCKETS} buckets, so that successes from long ago
+ * do not pay for a retry storm now.  When the endpoint degrades, successes stop
+ * and the retries are capped at about {@code minRetriesPerSecond}, instead of
+ * multiplying the load on the endpoint.
+ *
+ * <p>
+ * Use {@link #forHost(String)} to share one budget between all the Clients that
+ * send requests to the same host.
+ */
+public class RetryBudget {
+
+    /**
+     * The default ratio of retries to successful requests, 10%.
+     */
+    public static final double DEFAULT_RETRY_RATIO = 0.1;
+
+    /**
+     * The default number of retries always allowed per second, regardless of successes.
+     */
+    public static final int DEFAULT_MIN_RETRIES_PER_SECOND = 1;
+
+    /**
+     * The default length of the sliding window, 10 seconds.
+     */
+    public static final long DEFAULT_WINDOW_MILLIS = 10000L;
+
+    /**
+     * The number of buckets the sliding window is divided into.
+     */
+    static final int BUCKETS = 10;
+
+    private static final ConcurrentMap<String, RetryBudget> BUDGETS_BY_HOST = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the default budget shared by all requests to the specified host.
+     *
+     * @param host the host name, case-insensitive, optionally with a port
+     * @return the shared RetryBudget of the host
+     */
+    public static RetryBudget forHost(String host) {
+        Objects.requireNonNull(host, "host cannot be null");
+        return BUDGETS_BY_HOST.computeIfAbsent(host.toLowerCase(Locale.ROOT), h -> new RetryBudget());
+    }
+
+    /**
+     * Returns the default budget shared by all requests to the host of the specified url.
+     *
+     * @param url the url, for example the token endpoint url
+     * @return the shared RetryBudget of the url's host
+     */
+    public static RetryBudget forUrl(String url) {
+        Objects.requireNonNull(url, "url cannot be null");
+        String authority = URI.create(url).getAuthority();
+        if (null == authority) {
+            throw new IllegalArgumentException("url has no host: " + url);
+        }
+        return forHost(authority);
+    }
+
+    private final Clock clock;
+    private final double retryRatio;
+    private final int minRetriesPerSecond;
+    private final long windowMillis;
+    private final long bucketMillis;
+
+    // guarded by this
+    private final long[] bucketStarts = new long[BUCKETS];
+    private final long[] successes = new long[BUCKETS];
+    private final long[] retries = new long[BUCKETS];
+
+    /**
+     * Construct a RetryBudget with the default ratio, minimum, and window.
+     */
+    public RetryBudget() {
+        this(Clock.SYSTEM, DEFAULT_RETRY_RATIO, DEFAULT_MIN_RETRIES_PER_SECOND, DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * Construct a RetryBudget.
+     *
+     * @param clock the clock to measure the window against
+     * @param retryRatio the retries allowed per successful request, for example 0.1 for 10%
+     * @param minRetriesPerSecond the retries allowed per second regardless of successes
+     * @param windowMillis the length of the sliding window, in milliseconds
+     */
+    public RetryBudget(Clock clock, double retryRatio, int minRetriesPerSecond, long windowMillis) {
+        this.clock = Objects.requireNonNull(clock, "clock cannot be null");
+        if (retryRatio < 0) {
+            throw new IllegalArgumentException("retryRatio must not be negative: " + retryRatio);
+        }
+        if (minRetriesPerSecond < 0) {
+            throw new IllegalArgumentException("minRetriesPerSecond must not be negative: " + minRetriesPerSecond);
+        }
+        if (windowMillis < BUCKETS) {
+            throw new IllegalArgumentException("windowMillis must be at least " + BUCKETS + ": " + windowMillis);
+        }
+        this.retryRatio = retryRatio;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.windowMillis = windowMillis;
+        this.bucketMillis = windowMillis / BUCKETS;
+        Arrays.fill(bucketStarts, Long.MIN_VALUE);
+    }
+
+    /**
+     * Records a successful request, depositing into the budget.
+     */
+    public synchronized void recordSuccess() {
+        successes[currentBucket()]++;
+    }
+
+    /**
+     * Withdraws one retry from the budget, if any is left.
+     *
+     * @return true if the retry may be made, false if the budget is exhausted
+     */
+    public synchronized boolean tryAcquireRetry() {
+        int bucket = currentBucket();
+        if (remaining() < 1) {
+            return false;
+        }
+        retries[bucket]++;
+        return true;
+    }
+
+    /**
+     * Returns the number of retries currently left in the budget,
+     * for example to export as a metric.
+     *
+     * @return the retries left in the sliding window
+     */
+    public synchronized int getRemainingRetries() {
+        currentBucket();
+        return (int) Math.max(0, Math.floor(remaining()));
+    }
+
+    private double remaining() {
+        long totalSuccesses = 0;
+        long totalRetries = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            totalSuccesses += successes[i];
+            totalRetries += retries[i];
+        }
+        double allowed = totalSuccesses * retryRatio + minRetriesPerSecond * (windowMillis / 1000.0);
+        return allowed - totalRetries;
+    }
+
+    /**
+     * Returns the index of the bucket for the current time, clearing
+     * the buckets that have slid out of the window.
+     */
+    private int currentBucket() {
+        long start = clock.currentTimeMillis() / bucketMillis * bucketMillis;
+        int bucket = (int) ((start / bucketMillis) % BUCKETS);
+        if (bucketStarts[bucket] != start) {
+            bucketStarts[bucket] = start;
+            successes[bucket] = 0;
+            retries[bucket] = 0;
+        }
+        // also expire buckets that were not touched for a whole window
+        for (int i = 0; i < BUCKETS; i++) {
+            if (i != bucket && bucketStarts[i] != Long.MIN_VALUE && start - bucketStarts[i] >= windowMillis) {
+                bucketStarts[i] = Long.MIN_VALUE;
+                successes[i] = 0;
+                retries[i] = 0;
+            }
+        }
+        return bucket;
+    }
+}
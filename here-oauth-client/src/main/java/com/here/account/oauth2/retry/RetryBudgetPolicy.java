@@ -0,0 +1,81 @@
+package com.here.account.oauth2.retry;
+
+import java.util.Objects;
+import java.util.logging.Logger;
+
+/**
+ * A {@link RetryPolicy} that wraps another RetryPolicy, and only allows the retries
+ * it decides on while the shared {@link RetryBudget} has retries left.
+ * Successful 2xx and 3xx responses are deposited into the budget.
+ *
+ * <p>
+ * Give every Client that sends requests to the same host the budget of
+ * {@link RetryBudget#forHost(String)}, so that together they do not multiply
+ * the load on a degraded endpoint.
+ */
+public class RetryBudgetPolicy implements RetryPolicy {
+
+    private static final Logger LOGGER = Logger.getLogger(RetryBudgetPolicy.class.getName());
+
+    private final RetryPolicy delegate;
+    private final RetryBudget retryBudget;
+
+    /**
+     * Construct a RetryBudgetPolicy.
+     *
+     * @param delegate the RetryPolicy that decides whether a retry is wanted, and when
+     * @param retryBudget the budget the retries are withdrawn from
+     */
+    public RetryBudgetPolicy(RetryPolicy delegate, RetryBudget retryBudget) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+        this.retryBudget = Objects.requireNonNull(retryBudget, "retryBudget cannot be null");
+    }
+
+    /**
+     * Returns the budget the retries are withdrawn from, for example to export
+     * {@link RetryBudget#getRemainingRetries()} as a metric.
+     *
+     * @return the RetryBudget
+     */
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean shouldRetry(RetryContext retryContext) {
+        if (isSuccess(retryContext)) {
+            retryBudget.recordSuccess();
+        }
+        if (!delegate.shouldRetry(retryContext)) {
+            return false;
+        }
+        if (!retryBudget.tryAcquireRetry()) {
+            LOGGER.warning("Retry budget exhausted, not retrying.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNextRetryIntervalMillis(RetryContext retryContext) {
+        return delegate.getNextRetryIntervalMillis(retryContext);
+    }
+
+    /**
+     * Only 2xx and 3xx responses are successes; 4xx responses such as 429 Too Many Requests
+     * must not grow the budget while the server is shedding load.
+     */
+    private static boolean isSuccess(RetryContext retryContext) {
+        if (null != retryContext.getLastException() || null == retryContext.getLastRetryResponse()) {
+            return false;
+        }
+        int statusCode = retryContext.getLastRetryResponse().getStatusCode();
+        return statusCode >= 200 && statusCode < 400;
+    }
+}
@@ -10,6 +10,7 @@ public class RetryContext {
     private int retryCount;
     private HttpProvider.HttpResponse lastRetryResponse;
     private Exception lastException;
+    private int lastRetryIntervalMillis;
 
     public int getRetryCount() {
         return this.retryCount;
@@ -37,4 +38,17 @@ public class RetryContext {
     public void setLastException(Exception lastException) {
         this.lastException = lastException;
     }
+
+    /**
+     * Returns the wait interval before the last retry, or 0 before the first retry.
+     *
+     * @return the last wait interval in milliseconds
+     */
+    public int getLastRetryIntervalMillis() {
+        return lastRetryIntervalMillis;
+    }
+
+    public void setLastRetryIntervalMillis(int lastRetryIntervalMillis) {
+        this.lastRetryIntervalMillis = lastRetryIntervalMillis;
+    }
 }
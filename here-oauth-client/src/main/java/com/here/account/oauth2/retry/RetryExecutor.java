@@ -1,7 +1,19 @@
 package com.here.account.oauth2.retry;
 
 import com.here.account.http.HttpProvider;
+import com.here.account.util.FutureUtil;
 
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
@@ -11,14 +23,36 @@ import java.util.logging.Logger;
 public class RetryExecutor {
 
     private final RetryPolicy retryPolicy;
+    private final ScheduledExecutorService scheduledExecutorService;
     private static final Logger LOGGER = Logger.getLogger(RetryExecutor.class.getName());
 
     public RetryExecutor(RetryPolicy retryPolicy) {
         this.retryPolicy = retryPolicy;
+        this.scheduledExecutorService = null;
+    }
+
+    /**
+     * Construct a RetryExecutor whose asynchronous retries are timed by the specified
+     * scheduledExecutorService.  Its threads only start each attempt, the attempts
+     * themselves run on the Executor passed to
+     * {@link #executeAsync(Supplier, Executor)}.
+     *
+     * @param retryPolicy the retry policy
+     * @param scheduledExecutorService times the waits between asynchronous attempts
+     */
+    public RetryExecutor(RetryPolicy retryPolicy, ScheduledExecutorService scheduledExecutorService) {
+        this.retryPolicy = retryPolicy;
+        this.scheduledExecutorService = Objects.requireNonNull(scheduledExecutorService,
+                "scheduledExecutorService cannot be null");
     }
 
     /**
      * Execute the given {@link Retryable} until retry policy decides to give up.
+     * The calling thread sleeps between attempts; if it is interrupted while
+     * waiting, no more attempts are made, the interrupt status is restored, and the
+     * InterruptedException is thrown.
+     * Use {@link #executeAsync(Supplier, Executor)} to not block the calling thread.
+     *
      * @param retryable the {@link Retryable} to execute
      * @return http response return from {@code Retryable}
      * @throws Exception
@@ -28,6 +62,7 @@ public class RetryExecutor {
         HttpProvider.HttpResponse httpResponse;
 
         while (true) {
+            httpResponse = null;
             try {
                 httpResponse = retryable.execute();
                 retryContext.setLastRetryResponse(httpResponse);
@@ -41,12 +76,17 @@ public class RetryExecutor {
                 retryContext.incrementRetryCount();
 
                 int waitInterval = retryPolicy.getNextRetryIntervalMillis(retryContext);
+                retryContext.setLastRetryIntervalMillis(waitInterval);
+                // release the connection of the response we are not going to return
+                discard(httpResponse);
 
                 LOGGER.warning("Retrying after - "+ waitInterval +" milliseconds...");
                 try {
                     Thread.sleep(waitInterval);
                 } catch (InterruptedException e){
-                    LOGGER.warning("Got InterruptedException while waiting to retry.");
+                    LOGGER.warning("Got InterruptedException while waiting to retry, not retrying.");
+                    Thread.currentThread().interrupt();
+                    throw e;
                 }
             } else {
                 break;
@@ -59,4 +99,153 @@ public class RetryExecutor {
 
         return retryContext.getLastRetryResponse();
     }
+
+    /**
+     * Execute the given asynchronous attempt until retry policy decides to give up.
+     * The calling thread is not blocked, and no thread is blocked between attempts:
+     * each retry is scheduled to start on the <tt>executor</tt> after the retry interval.
+     *
+     * <p>
+     * Cancelling the returned future stops the retries, and cancels a scheduled retry.
+     * An attempt already in flight is left to complete, and its response is discarded,
+     * so that its connection is released.
+     *
+     * @param attempt supplies a new CompletableFuture of the http response, for each attempt
+     * @param executor the Executor on which to start each attempt
+     * @return a CompletableFuture of the http response from the last attempt,
+     *      or completed exceptionally with the last attempt's exception
+     */
+    public CompletableFuture<HttpProvider.HttpResponse> executeAsync(
+            Supplier<CompletableFuture<HttpProvider.HttpResponse>> attempt, Executor executor) {
+        CompletableFuture<HttpProvider.HttpResponse> result = new CompletableFuture<>();
+        AtomicReference<Future<?>> pending = new AtomicReference<>();
+        result.whenComplete((httpResponse, t) -> {
+            if (result.isCancelled()) {
+                cancel(pending.get());
+            }
+        });
+        attemptAsync(new RetryContext(), attempt, executor, result, pending);
+        return result;
+    }
+
+    private void attemptAsync(RetryContext retryContext,
+                              Supplier<CompletableFuture<HttpProvider.HttpResponse>> attempt,
+                              Executor executor,
+                              CompletableFuture<HttpProvider.HttpResponse> result,
+                              AtomicReference<Future<?>> pending) {
+        if (result.isDone()) {
+            // cancelled
+            return;
+        }
+        CompletableFuture<HttpProvider.HttpResponse> future;
+        try {
+            future = attempt.get();
+        } catch (RuntimeException e) {
+            future = FutureUtil.failedFuture(e);
+        }
+
+        future.whenComplete((httpResponse, t) -> {
+            if (result.isDone()) {
+                // cancelled while the attempt was in flight
+                discard(null == t ? httpResponse : null);
+                return;
+            }
+            if (null == t) {
+                retryContext.setLastRetryResponse(httpResponse);
+                //clearing the exception generated by the last failed retry
+                retryContext.setLastException(null);
+            } else {
+                Throwable cause = FutureUtil.unwrap(t);
+                if (!(cause instanceof Exception)) {
+                    result.completeExceptionally(cause);
+                    return;
+                }
+                retryContext.setLastException((Exception) cause);
+            }
+
+            try {
+                if (retryPolicy.shouldRetry(retryContext)) {
+                    retryContext.incrementRetryCount();
+
+                    int waitInterval = retryPolicy.getNextRetryIntervalMillis(retryContext);
+                    retryContext.setLastRetryIntervalMillis(waitInterval);
+                    // release the connection of the response we are not going to return
+                    discard(null == t ? httpResponse : null);
+
+                    LOGGER.warning("Retrying after - "+ waitInterval +" milliseconds...");
+                    Runnable nextAttempt = () -> {
+                        try {
+                            executor.execute(() -> attemptAsync(retryContext, attempt, executor, result, pending));
+                        } catch (RejectedExecutionException e) {
+                            result.completeExceptionally(e);
+                        }
+                    };
+                    if (waitInterval <= 0) {
+                        nextAttempt.run();
+                    } else {
+                        setPending(pending, getScheduledExecutorService()
+                                .schedule(nextAttempt, waitInterval, TimeUnit.MILLISECONDS), result);
+                    }
+                } else if (retryContext.getLastException() != null) {
+                    result.completeExceptionally(retryContext.getLastException());
+                } else {
+                    result.complete(retryContext.getLastRetryResponse());
+                }
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Remembers the scheduled retry, cancelling it if the result was cancelled meanwhile.
+     */
+    private static void setPending(AtomicReference<Future<?>> pending, Future<?> future,
+            CompletableFuture<HttpProvider.HttpResponse> result) {
+        pending.set(future);
+        if (result.isCancelled()) {
+            cancel(future);
+        }
+    }
+
+    private static void cancel(Future<?> future) {
+        if (null != future) {
+            future.cancel(true);
+        }
+    }
+
+    private ScheduledExecutorService getScheduledExecutorService() {
+        return null != scheduledExecutorService ? scheduledExecutorService : DefaultScheduler.INSTANCE;
+    }
+
+    /**
+     * Holds the shared scheduler that times asynchronous retries, created on first use.
+     * Its single daemon thread only hands each due attempt to the caller's Executor.
+     */
+    private static class DefaultScheduler {
+        private static final String THREAD_NAME_PREFIX = "here-auth-retry-";
+        private static final ScheduledExecutorService INSTANCE = newScheduler();
+
+        private static ScheduledExecutorService newScheduler() {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, THREAD_NAME_PREFIX + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+
+    /**
+     * Discards a response that will not be returned to the caller.
+     *
+     * @param httpResponse the response, or null if the attempt failed with an exception
+     */
+    private static void discard(HttpProvider.HttpResponse httpResponse) {
+        if (null != httpResponse) {
+            httpResponse.discard();
+        }
+    }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * A Serializer that uses Jackson like {@link JacksonSerializer}, but keeps an immutable,
+ * thread-safe {@link ObjectReader} and {@link ObjectWriter} per class, so that type
+ * resolution and the (de)serializer lookup happen once per class instead of on every call.
+ *
+ * <p>
+ * The readers and writers of the registered classes are built, and their
+ * (de)serializers resolved, when the CachedJacksonSerializer is built; those of other
+ * classes on first use.  The {@link JsonFactory} can be tuned and injected, for example
+ * to configure its buffer recycling.
+ *
+ * <pre>
+ * {@code
+        Serializer serializer = CachedJacksonSerializer.builder()
+                .addClass(AccessTokenResponse.class)
+                .addClass(ErrorResponse.class)
+                .build();
+ * }
+ * </pre>
+ */
+public class CachedJacksonSerializer implements Serializer {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private JsonFactory jsonFactory;
+        private final List<Class<?>> classes = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Optionally set the JsonFactory; the default is a new JsonFactory, which recycles
+         * its buffers per thread.
+         * The JsonFactory must not be shared with another ObjectMapper.
+         *
+         * @param jsonFactory the JsonFactory
+         * @return this Builder
+         */
+        public Builder setJsonFactory(JsonFactory jsonFactory) {
+            this.jsonFactory = jsonFactory;
+            return this;
+        }
+
+        /**
+         * Registers a class, whose reader and writer are built along with the
+         * CachedJacksonSerializer.
+         *
+         * @param pojoClass the class
+         * @return this Builder
+         */
+        public Builder addClass(Class<?> pojoClass) {
+            classes.add(Objects.requireNonNull(pojoClass, "pojoClass cannot be null"));
+            return this;
+        }
+
+        public CachedJacksonSerializer build() {
+            return new CachedJacksonSerializer(null != jsonFactory ? jsonFactory : new JsonFactory(), classes);
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    private CachedJacksonSerializer(JsonFactory jsonFactory, List<Class<?>> classes) {
+        // configured like JsonSerializer's ObjectMapper
+        this.objectMapper = new ObjectMapper(jsonFactory);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.configure(MapperFeature.PROPAGATE_TRANSIENT_MARKER, true);
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+        getReader(HashMap.class);
+        for (Class<?> pojoClass : classes) {
+            getReader(pojoClass);
+            getWriter(pojoClass);
+        }
+    }
+
+    private ObjectReader getReader(Class<?> pojoClass) {
+        return readers.computeIfAbsent(pojoClass, objectMapper::readerFor);
+    }
+
+    private ObjectWriter getWriter(Class<?> pojoClass) {
+        return writers.computeIfAbsent(pojoClass, objectMapper::writerFor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> jsonToMap(InputStream jsonInputStream) {
+        try {
+            return getReader(HashMap.class).readValue(jsonInputStream);
+        } catch (IOException e) {
+            throw new RuntimeException("trouble deserializing json: " + e, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T jsonToPojo(InputStream jsonInputStream, Class<T> pojoClass) {
+        try {
+            return getReader(pojoClass).readValue(jsonInputStream);
+        } catch (IOException e) {
+            throw new RuntimeException("trouble deserializing json: " + e, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String objectToJson(Object object) {
+        try {
+            return getWriter(writerClass(object)).writeValueAsString(object);
+        } catch (IOException e) {
+            throw new RuntimeException("trouble serializing json: " + e, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeObjectToJson(OutputStream outputStream, Object object) {
+        try {
+            getWriter(writerClass(object)).writeValue(outputStream, object);
+        } catch (IOException e) {
+            throw new RuntimeException("trouble serializing json: " + e, e);
+        }
+    }
+
+    private static Class<?> writerClass(Object object) {
+        return null != object ? object.getClass() : Object.class;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Helpers for working with {@link CompletableFuture}s on the Java 8 baseline.
+ */
+public class FutureUtil {
+
+    /**
+     * An Executor that runs each task on the calling thread.
+     */
+    public static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    /**
+     * This class cannot be instantiated.
+     */
+    private FutureUtil() {}
+
+    /**
+     * Gets a new CompletableFuture, already completed exceptionally with the specified Throwable.
+     *
+     * @param t the Throwable
+     * @param <T> the parameterized type of the future
+     * @return the failed CompletableFuture
+     */
+    public static <T> CompletableFuture<T> failedFuture(Throwable t) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
+    /**
+     * Unwraps the {@link CompletionException}s and {@link ExecutionException}s
+     * added by CompletableFuture stages, to get the original cause.
+     *
+     * @param t the Throwable observed by a dependent stage
+     * @return the original cause
+     */
+    public static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException)
+                && null != t.getCause()) {
+            t = t.getCause();
+        }
+        return t;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.util;
+
+/**
+ * Percent-encodes the UTF-8 bytes of text per
+ * <a href="https://tools.ietf.org/html/rfc3986#section-2.1">RFC 3986 Section 2.1</a>,
+ * leaving only the unreserved characters {@code ALPHA / DIGIT / "-" / "." / "_" / "~"}
+ * as-is.  This is the encoding required for OAuth1.0 signature base strings by
+ * <a href="https://tools.ietf.org/html/rfc5849#section-3.6">RFC 5849 Section 3.6</a>,
+ * and is also valid for application/x-www-form-urlencoded bodies.
+ *
+ * <p>
+ * Unlike {@link java.net.URLEncoder}, a space is encoded as {@code %20},
+ * {@code "*"} is encoded, and {@code "~"} is not.
+ * The encoder appends directly to the caller's StringBuilder, and
+ * {@link #encode(String)} returns its argument when nothing needs encoding,
+ * so the common case allocates nothing.
+ */
+public final class PercentEncoder {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Indexed by ASCII character, true if the character is unreserved.
+     */
+    private static final boolean[] UNRESERVED = new boolean[128];
+
+    static {
+        for (char c = 'A'; c <= 'Z'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            UNRESERVED[c] = true;
+        }
+        UNRESERVED['-'] = true;
+        UNRESERVED['.'] = true;
+        UNRESERVED['_'] = true;
+        UNRESERVED['~'] = true;
+    }
+
+    /**
+     * This class cannot be instantiated.
+     */
+    private PercentEncoder() {}
+
+    /**
+     * Percent-encodes the text.
+     *
+     * @param s the text to encode
+     * @return the encoded text, which is {@code s} itself if it contains only unreserved characters
+     */
+    public static String encode(String s) {
+        int first = indexOfFirstToEncode(s);
+        if (first < 0) {
+            return s;
+        }
+        StringBuilder buf = new StringBuilder(s.length() + 16);
+        buf.append(s, 0, first);
+        appendEncoded(s, first, buf);
+        return buf.toString();
+    }
+
+    /**
+     * Percent-encodes the text, appending it to {@code buf}.
+     *
+     * @param s the text to encode
+     * @param buf the StringBuilder to append to
+     * @return buf
+     */
+    public static StringBuilder encode(CharSequence s, StringBuilder buf) {
+        appendEncoded(s, 0, buf);
+        return buf;
+    }
+
+    private static int indexOfFirstToEncode(CharSequence s) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 128 || !UNRESERVED[c]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void appendEncoded(CharSequence s, int start, StringBuilder buf) {
+        int length = s.length();
+        for (int i = start; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (UNRESERVED[c]) {
+                    buf.append(c);
+                } else {
+                    appendByte(buf, c);
+                }
+            } else if (c < 0x800) {
+                appendByte(buf, 0xC0 | (c >> 6));
+                appendByte(buf, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                appendByte(buf, 0xF0 | (codePoint >> 18));
+                appendByte(buf, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendByte(buf, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendByte(buf, 0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, replaced with '?' as String.getBytes(UTF_8) does
+                appendByte(buf, '?');
+            } else {
+                appendByte(buf, 0xE0 | (c >> 12));
+                appendByte(buf, 0x80 | ((c >> 6) & 0x3F));
+                appendByte(buf, 0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static void appendByte(StringBuilder buf, int b) {
+        buf.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+    }
+}
@@ -16,10 +16,16 @@
 package com.here.account.util;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
 import com.here.account.util.RefreshableResponseProvider.ExpiringResponse;
@@ -28,16 +34,27 @@ import com.here.account.util.RefreshableResponseProvider.ExpiringResponse;
  * Use this class if you want to always have an unexpired view of an expiring response object 
  * (within reason we expect that each request calls {@link #getUnexpiredResponse()} which is 
  * intended to execute quickly).
- * Strategy is to use a dedicated thread-scheduled executor service, to retrieve and set your 
+ * Strategy is to use a thread-scheduled executor service, to retrieve and set your 
  * ExpiringResponse to be always up-to-date.
+ * By default the executor service is a lease on the process-wide {@link SharedRefreshScheduler}, 
+ * so the number of refresh threads does not grow with the number of providers.
  * 
  * <p>
  * Token provider which handles refreshing tokens on a configurable interval.
  * 
  * <p>
- * Note that this implementation does not incur any synchronization; rather it is assumed the refresh interval
- * is less than the maximum time for token so that while the token is refreshing the current token
- * continues to be valid.
+ * Each response is held in an immutable snapshot together with its soft and hard expiry times, 
+ * so {@link #getUnexpiredResponse()} is a lock-free read.  The response is
+ * <ul>
+ *   <li>fresh until its soft expiry, the point at which the refresh is normally scheduled;</li>
+ *   <li>soft-expired until its hard expiry ({@link ExpiringResponse#getExpiresIn()}); 
+ *       it is still served, while a single background refresh runs;</li>
+ *   <li>hard-expired after that; callers wait a bounded time for a refresh, 
+ *       or get a {@link ResponseExpiredException}.</li>
+ * </ul>
+ * At most one refresh is in flight at a time; the scheduled refresh and callers share it.
+ * After a failed refresh, no new refresh is started for {@value #RETRY_FAIL_SECONDS} seconds, 
+ * so callers of a hard-expired provider fail fast instead of each waiting on the authorization server.
  * 
  * <p>
  * Adapted from HERE DG class RefreshableTokenAuthenticationProvider.
@@ -62,6 +79,11 @@ public class RefreshableResponseProvider<T extends ExpiringResponse> {
    * attempt to refresh failed
    */
   static final long RETRY_FAIL_SECONDS = 5;
+  /**
+   * default number of milliseconds callers wait for a refresh, when the 
+   * response is hard-expired
+   */
+  public static final long DEFAULT_HARD_EXPIRY_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(10);
 
   private final ResponseRefresher<T> refreshResponseFunction;
   private final ScheduledExecutorService scheduledExecutorService;
@@ -71,8 +93,12 @@ public class RefreshableResponseProvider<T extends ExpiringResponse> {
    * refresh is scheduled at this fixed interval in milliseconds.
    */
   private final Long refreshIntervalMillis;
-  private boolean started;
-  private volatile T refreshResponse;  //volatile so consistent across threads
+  private final long hardExpiryWaitMillis;
+  private volatile boolean started;
+  private volatile Snapshot<T> snapshot;  //volatile so consistent across threads
+  private final AtomicReference<CompletableFuture<T>> inFlightRefresh = new AtomicReference<>();
+  private volatile long nextRefreshAllowedMillis;
+  private volatile Throwable lastRefreshFailure;
   private Clock clock;
 
   /**
@@ -95,12 +121,14 @@ public class RefreshableResponseProvider<T extends ExpiringResponse> {
   ) {
       this(Clock.SYSTEM, refreshIntervalMillis, 
               initialResponse, refreshResponseFunction,
-              getScheduledExecutorServiceSize1()
+              SharedRefreshScheduler.acquire()
               );
   }
   
   /**
    * Gets a here-auth-refresh ScheduledExecutorService with 1 core pool thread.
+   * Prefer {@link SharedRefreshScheduler#acquire()}, which does not dedicate 
+   * a thread to each provider.
    * 
    * @return the ScheduledExecutorService size 1
    */
@@ -127,6 +155,30 @@ public class RefreshableResponseProvider<T extends ExpiringResponse> {
           final ResponseRefresher<T> refreshResponseFunction,
           final ScheduledExecutorService scheduledExecutorService
       ) {
+      this(clock, refreshIntervalMillis, initialResponse, refreshResponseFunction, 
+              scheduledExecutorService, DEFAULT_HARD_EXPIRY_WAIT_MILLIS);
+  }
+
+  /**
+   * Create a RefreshableResponseProvider.
+   * 
+   * @param clock the clock to use
+   * @param refreshIntervalMillis optional.  only specify during tests, not in real code.
+   * @param initialResponse the initial value of an active response
+   * @param refreshResponseFunction the ability to refresh and get a new response prior to the
+   *     previous one expiring.
+   * @param scheduledExecutorService the executor service used for refreshes
+   * @param hardExpiryWaitMillis the maximum number of milliseconds a call to 
+   *     {@link #getUnexpiredResponse()} waits for a refresh, once the response is hard-expired
+   */
+  public RefreshableResponseProvider(
+          final Clock clock,
+          final Long refreshIntervalMillis,
+          final T initialResponse,
+          final ResponseRefresher<T> refreshResponseFunction,
+          final ScheduledExecutorService scheduledExecutorService,
+          final long hardExpiryWaitMillis
+      ) {
       Objects.requireNonNull(clock, "clock cannot be null");
       Objects.requireNonNull(initialResponse, "initialResponse cannot be null");
       Objects.requireNonNull(refreshResponseFunction, "refreshResponseFunction cannot be null");
@@ -140,8 +192,9 @@ public class RefreshableResponseProvider<T extends ExpiringResponse> {
       
       this.clock = clock;
       this.refreshIntervalMillis = refreshIntervalMillis;
-      this.refreshResponse = initialResponse;
+      this.snapshot = newSnapshot(initialResponse, clock.currentTimeMillis());
       this.refreshResponseFunction = refreshResponseFunction;
+      this.hardExpiryWaitMillis = hardExpiryWaitMillis;
 
       this.scheduledExecutorService = scheduledExecutorService;
       this.started = true;
@@ -168,6 +221,20 @@ public class RefreshableResponseProvider<T extends ExpiringResponse> {
      * @return a new token
      */
     T refresh(T previous);
+
+    /**
+     * Invoked to refresh the token asynchronously.
+     * The default implementation runs {@link #refresh(ExpiringResponse)} on the 
+     * specified <tt>executor</tt>.  Override this method if you can refresh 
+     * without blocking a thread.
+     *
+     * @param previous the previous token.
+     * @param executor the Executor on which to run blocking work
+     * @return a CompletableFuture of the new token
+     */
+    default CompletableFuture<T> refreshAsync(T previous, Executor executor) {
+      return CompletableFuture.supplyAsync(() -> refresh(previous), executor);
+    }
   }
   
   /**
@@ -199,7 +266,9 @@ public class RefreshableResponseProvider<T extends ExpiringResponse> {
   }
   
   /**
-   * Shutdown the background threads
+   * Shutdown the background threads.
+   * If the executor service is a {@link SharedRefreshScheduler} lease, only this provider's 
+   * scheduled refreshes are cancelled; the shared threads stop once the last lease is released.
    */
   public void shutdown() {
     if (started) {
@@ -226,10 +295,82 @@ public class RefreshableResponseProvider<T extends ExpiringResponse> {
    * It is assumed that your code always comes back to this method, for every 
    * API request.
    * 
+   * <p>
+   * A soft-expired response is returned immediately, and triggers a background refresh 
+   * if none is in flight.  If the response is hard-expired, this call waits up to the 
+   * configured hard expiry wait for a refresh.
+   * 
    * @return the unexpired response
+   * @throws ResponseExpiredException if the response is hard-expired, and no refresh 
+   *     succeeded in time, or a refresh failed recently
    */
   public T getUnexpiredResponse() {
-      return refreshResponse;
+      Snapshot<T> current = snapshot;
+      long now = clock.currentTimeMillis();
+      if (now < current.softExpiryMillis) {
+          return current.response;
+      }
+      if (now < current.hardExpiryMillis) {
+          // stale-while-revalidate
+          if (now >= nextRefreshAllowedMillis) {
+              startRefresh(false);
+          }
+          return current.response;
+      }
+      return awaitRefresh(now);
+  }
+
+  /**
+   * Gets the current unexpired response, without blocking.
+   * This is the asynchronous form of {@link #getUnexpiredResponse()}: 
+   * if the response is hard-expired, the returned future completes when 
+   * the refresh completes, rather than after a bounded wait.
+   * 
+   * @return a CompletableFuture of the unexpired response, completed exceptionally 
+   *     with a {@link ResponseExpiredException} if the response is hard-expired 
+   *     and the refresh failed
+   */
+  public CompletableFuture<T> getUnexpiredResponseAsync() {
+      Snapshot<T> current = snapshot;
+      long now = clock.currentTimeMillis();
+      if (now < current.hardExpiryMillis) {
+          // use the snapshot and time already read, so the caller never waits for a refresh
+          if (now >= current.softExpiryMillis && now >= nextRefreshAllowedMillis) {
+              startRefresh(false);
+          }
+          return CompletableFuture.completedFuture(current.response);
+      }
+      CompletableFuture<T> refresh;
+      try {
+          refresh = getRefreshForExpired(now);
+      } catch (ResponseExpiredException e) {
+          return FutureUtil.failedFuture(e);
+      }
+      CompletableFuture<T> result = new CompletableFuture<T>();
+      refresh.whenComplete((response, t) -> {
+          if (null == t) {
+              result.complete(response);
+          } else {
+              result.completeExceptionally(
+                  new ResponseExpiredException("response expired, and refresh failed", FutureUtil.unwrap(t)));
+          }
+      });
+      return result;
+  }
+
+  /**
+   * Replaces the current response with a newer one that was received outside of a refresh, 
+   * for example when a watched token file changes, so that callers get it right away.
+   * The scheduled refresh then moves to the soft expiry of the new response.
+   * 
+   * @param response the new response
+   */
+  public void publish(T response) {
+      Objects.requireNonNull(response, "response cannot be null");
+      Objects.requireNonNull(response.getExpiresIn(), "response.getExpiresIn() cannot be null");
+      this.snapshot = newSnapshot(response, clock.currentTimeMillis());
+      this.lastRefreshFailure = null;
+      this.nextRefreshAllowedMillis = 0L;
   }
 
   /*---- private ------------------------------------------------------------*/
@@ -243,10 +384,122 @@ public class RefreshableResponseProvider<T extends ExpiringResponse> {
       return refreshIntervalMillis;
     }
 
+    return softExpiryInterval(snapshot.response);
+  }
+
+  private static long softExpiryInterval(ExpiringResponse response) {
     //remove a few seconds to give time to refresh before token expires
     return TimeUnit.SECONDS.toMillis(
-        Math.max(refreshResponse.getExpiresIn() - REFRESH_BACKOFF_SECONDS, MIN_REFRESH_SECONDS)
+        Math.max(response.getExpiresIn() - REFRESH_BACKOFF_SECONDS, MIN_REFRESH_SECONDS)
+    );
+  }
+
+  private static <T extends ExpiringResponse> Snapshot<T> newSnapshot(T response, long receivedAtMillis) {
+    long hardExpiryMillis = receivedAtMillis + TimeUnit.SECONDS.toMillis(response.getExpiresIn());
+    long softExpiryMillis = Math.min(receivedAtMillis + softExpiryInterval(response), hardExpiryMillis);
+    return new Snapshot<T>(response, softExpiryMillis, hardExpiryMillis);
+  }
+
+  /**
+   * Waits a bounded time for a refresh of a hard-expired response.
+   */
+  private T awaitRefresh(long now) {
+    CompletableFuture<T> refresh = getRefreshForExpired(now);
+    try {
+      return refresh.get(hardExpiryWaitMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      throw new ResponseExpiredException("response expired, and refresh did not complete within " 
+          + hardExpiryWaitMillis + " milliseconds");
+    } catch (ExecutionException e) {
+      throw new ResponseExpiredException("response expired, and refresh failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ResponseExpiredException("response expired, and interrupted waiting for refresh", e);
+    }
+  }
+
+  /**
+   * Gets the in-flight refresh, or starts one unless a refresh failed recently.
+   */
+  private CompletableFuture<T> getRefreshForExpired(long now) {
+    CompletableFuture<T> refresh = inFlightRefresh.get();
+    if (null == refresh) {
+      if (now < nextRefreshAllowedMillis) {
+        throw new ResponseExpiredException("response expired, and the most recent refresh failed", 
+            lastRefreshFailure);
+      }
+      refresh = startRefresh(false);
+    }
+    return refresh;
+  }
+
+  /**
+   * Starts a refresh, or joins the one already in flight.
+   *
+   * @param inline true to run a new refresh on the calling thread, 
+   *     false to run it on the executor service
+   * @return the in-flight refresh
+   */
+  private CompletableFuture<T> startRefresh(boolean inline) {
+    final CompletableFuture<T> refresh = new CompletableFuture<T>();
+    while (!inFlightRefresh.compareAndSet(null, refresh)) {
+      CompletableFuture<T> existing = inFlightRefresh.get();
+      if (null != existing) {
+        return existing;
+      }
+    }
+    doRefresh(refresh, inline);
+    return refresh;
+  }
+
+  /**
+   * Runs the refresh.  The scheduled refresh already runs on a background thread, and 
+   * uses the blocking {@link ResponseRefresher#refresh(ExpiringResponse)}; caller-triggered 
+   * refreshes use {@link ResponseRefresher#refreshAsync(ExpiringResponse, Executor)} on the 
+   * executor service, so the caller is never blocked by them.
+   */
+  private void doRefresh(CompletableFuture<T> refresh, boolean inline) {
+    Snapshot<T> current = snapshot;
+    LOG.info(
+          String.format(
+              "Refreshing HERE auth token (last successful response %s seconds)",
+              TimeUnit.SECONDS.convert(clock.currentTimeMillis() - current.response.getStartTimeMilliseconds(), TimeUnit.MILLISECONDS)
+          )
     );
+
+    CompletableFuture<T> future;
+    try {
+      if (inline) {
+        future = CompletableFuture.completedFuture(refreshResponseFunction.refresh(current.response));
+      } else {
+        future = refreshResponseFunction.refreshAsync(current.response, scheduledExecutorService);
+      }
+    } catch (RejectedExecutionException e) {
+      // shut down; refresh on the caller's thread
+      future = refreshResponseFunction.refreshAsync(current.response, FutureUtil.DIRECT_EXECUTOR);
+    } catch (RuntimeException e) {
+      future = FutureUtil.failedFuture(e);
+    }
+    if (null == future) {
+      future = FutureUtil.failedFuture(new NullPointerException("refreshAsync returned null"));
+    }
+
+    future.whenComplete((response, t) -> {
+      if (null == t && null != response) {
+        this.snapshot = newSnapshot(response, clock.currentTimeMillis());
+        this.lastRefreshFailure = null;
+        inFlightRefresh.compareAndSet(refresh, null);
+        refresh.complete(response);
+      } else {
+        Throwable exp = null != t ? FutureUtil.unwrap(t) 
+            : new NullPointerException("refreshed response cannot be null");
+        LOG.warning("Failed to refresh HERE token " + exp);
+        this.lastRefreshFailure = exp;
+        this.nextRefreshAllowedMillis = clock.currentTimeMillis() + TimeUnit.SECONDS.toMillis(RETRY_FAIL_SECONDS);
+        inFlightRefresh.compareAndSet(refresh, null);
+        refresh.completeExceptionally(exp);
+      }
+    });
   }
 
   /**
@@ -261,34 +514,55 @@ public class RefreshableResponseProvider<T extends ExpiringResponse> {
     }
 
     LOG.info("Scheduling next token refresh in " + millis + " milliseconds");
+    final Snapshot<T> scheduledFor = snapshot;
     clock.schedule(scheduledExecutorService, new Runnable() {
         @Override
         public void run() {
-          refreshToken();
+          refreshToken(scheduledFor);
         }
       }, millis);
   }
 
   /**
-   * Execute the token refresh.
+   * Execute the scheduled token refresh, sharing any refresh already in flight.
+   *
+   * @param scheduledFor the snapshot that was current when this refresh was scheduled
    */
-  private void refreshToken() {
-    LOG.info(
-          String.format(
-              "Refreshing HERE auth token (last successful response %s seconds)",
-              TimeUnit.SECONDS.convert(clock.currentTimeMillis() - refreshResponse.getStartTimeMilliseconds(), TimeUnit.MILLISECONDS)
-          )
-    );
+  private void refreshToken(Snapshot<T> scheduledFor) {
+    Snapshot<T> current = snapshot;
+    if (null == refreshIntervalMillis && current != scheduledFor) {
+      long untilSoftExpiry = current.softExpiryMillis - clock.currentTimeMillis();
+      if (untilSoftExpiry > 0) {
+        // a caller-triggered refresh already renewed the response
+        scheduleTokenRefresh(untilSoftExpiry);
+        return;
+      }
+    }
 
-    try {
-      this.refreshResponse = refreshResponseFunction.refresh(refreshResponse);
-      scheduleTokenRefresh(nextRefreshInterval());
-    } catch (Exception exp) {
-      LOG.warning("Failed to refresh HERE token " + exp);
-      scheduleTokenRefresh(
-          //try again within time window if call failed
-          Math.min(nextRefreshInterval(), TimeUnit.SECONDS.toMillis(RETRY_FAIL_SECONDS))
-      );
+    startRefresh(true).whenComplete((response, exp) -> {
+      if (null == exp) {
+        scheduleTokenRefresh(nextRefreshInterval());
+      } else {
+        scheduleTokenRefresh(
+            //try again within time window if call failed
+            Math.min(nextRefreshInterval(), TimeUnit.SECONDS.toMillis(RETRY_FAIL_SECONDS))
+        );
+      }
+    });
+  }
+
+  /**
+   * An immutable view of a response, and the times at which it becomes soft- and hard-expired.
+   */
+  private static final class Snapshot<T> {
+    private final T response;
+    private final long softExpiryMillis;
+    private final long hardExpiryMillis;
+
+    private Snapshot(T response, long softExpiryMillis, long hardExpiryMillis) {
+      this.response = response;
+      this.softExpiryMillis = softExpiryMillis;
+      this.hardExpiryMillis = hardExpiryMillis;
     }
   }
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.util;
+
+/**
+ * A ResponseExpiredException occurs when a {@link RefreshableResponseProvider}
+ * has only an expired response, and could not refresh it in time.
+ * The cause, if any, is the most recent refresh failure.
+ */
+public class ResponseExpiredException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs an instance of <code>ResponseExpiredException</code> with the
+     * specified detail message.
+     *
+     * @param msg the detail message.
+     */
+    public ResponseExpiredException(String msg) {
+        super(msg);
+    }
+
+    /**
+     * Constructs an instance of <code>ResponseExpiredException</code> with the
+     * specified detail message and cause.
+     *
+     * @param msg the detail message.
+     * @param cause the cause
+     */
+    public ResponseExpiredException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * A process-wide scheduler shared by all {@link RefreshableResponseProvider}s.
+ *
+ * <p>
+ * Instead of each provider owning its own thread, providers {@link #acquire()} a
+ * lease on one {@link ScheduledThreadPoolExecutor}: a single delay queue feeding
+ * a small, fixed pool of worker threads.  The number of threads therefore stays
+ * constant no matter how many providers are active.
+ *
+ * <p>
+ * Each lease looks like an ordinary {@link ScheduledExecutorService}.  Shutting down a
+ * lease cancels only the tasks scheduled through that lease; when the last lease is
+ * shut down, the underlying executor is shut down too and its threads are released.
+ * A later {@link #acquire()} starts a new executor.
+ */
+public class SharedRefreshScheduler {
+
+    private static final Logger LOG = Logger.getLogger(SharedRefreshScheduler.class.getName());
+
+    /**
+     * The number of worker threads in the shared pool.
+     * Refreshes are short, infrequent, blocking HTTP calls, so a few threads serve
+     * many thousands of providers.
+     */
+    static final int DEFAULT_POOL_SIZE = 4;
+
+    private static final String THREAD_NAME_PREFIX = "here-auth-refresh-";
+
+    private static final Object LOCK = new Object();
+    private static ScheduledThreadPoolExecutor executor;
+    private static int leaseCount;
+
+    /**
+     * This class cannot be instantiated.
+     */
+    private SharedRefreshScheduler() {}
+
+    /**
+     * Acquires a lease on the shared scheduler.
+     * Call {@link ScheduledExecutorService#shutdown()} on the returned lease when you no
+     * longer need it.
+     *
+     * @return a ScheduledExecutorService backed by the shared pool
+     */
+    public static ScheduledExecutorService acquire() {
+        synchronized (LOCK) {
+            if (null == executor) {
+                executor = newExecutor();
+            }
+            leaseCount++;
+            return new Lease(executor);
+        }
+    }
+
+    /**
+     * Gets the number of leases currently outstanding.
+     *
+     * @return the number of active leases
+     */
+    public static int getLeaseCount() {
+        synchronized (LOCK) {
+            return leaseCount;
+        }
+    }
+
+    /**
+     * Returns true if the shared pool currently has an executor running.
+     *
+     * @return true if there is a running shared executor
+     */
+    static boolean isRunning() {
+        synchronized (LOCK) {
+            return null != executor;
+        }
+    }
+
+    private static void release(ScheduledThreadPoolExecutor leasedExecutor) {
+        synchronized (LOCK) {
+            if (leasedExecutor != executor) {
+                // the executor was already replaced; nothing to do
+                return;
+            }
+            leaseCount--;
+            if (leaseCount <= 0) {
+                LOG.fine("Last lease released; shutting down shared refresh threads");
+                executor.shutdownNow();
+                executor = null;
+                leaseCount = 0;
+            }
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor newExecutor() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ScheduledThreadPoolExecutor newExecutor = new ScheduledThreadPoolExecutor(
+                DEFAULT_POOL_SIZE, new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, THREAD_NAME_PREFIX + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+
+                });
+        newExecutor.setRemoveOnCancelPolicy(true);
+        newExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return newExecutor;
+    }
+
+    /**
+     * A view of the shared executor that tracks its own scheduled tasks,
+     * so they can be cancelled when the lease is shut down.
+     */
+    private static class Lease extends AbstractExecutorService implements ScheduledExecutorService {
+
+        private final ScheduledThreadPoolExecutor executor;
+        private final Set<ScheduledFuture<?>> futures = ConcurrentHashMap.newKeySet();
+        private volatile boolean shutdown;
+
+        private Lease(ScheduledThreadPoolExecutor executor) {
+            this.executor = executor;
+        }
+
+        private <F extends ScheduledFuture<?>> F track(F future) {
+            futures.removeIf(ScheduledFuture::isDone);
+            futures.add(future);
+            if (shutdown) {
+                // lost a race with shutdown()
+                future.cancel(false);
+            }
+            return future;
+        }
+
+        private void checkNotShutdown() {
+            if (shutdown) {
+                throw new RejectedExecutionException("lease on shared refresh scheduler was shut down");
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            checkNotShutdown();
+            return track(executor.schedule(command, delay, unit));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            checkNotShutdown();
+            return track(executor.schedule(callable, delay, unit));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period,
+                TimeUnit unit) {
+            checkNotShutdown();
+            return track(executor.scheduleAtFixedRate(command, initialDelay, period, unit));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                TimeUnit unit) {
+            checkNotShutdown();
+            return track(executor.scheduleWithFixedDelay(command, initialDelay, delay, unit));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void execute(Runnable command) {
+            schedule(command, 0L, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Cancels the tasks scheduled through this lease, and releases the lease.
+         * The shared threads are only shut down when the last lease is released.
+         */
+        @Override
+        public void shutdown() {
+            if (!shutdown) {
+                synchronized (this) {
+                    if (shutdown) {
+                        return;
+                    }
+                    shutdown = true;
+                }
+                for (ScheduledFuture<?> future : futures) {
+                    future.cancel(false);
+                }
+                futures.clear();
+                release(executor);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown();
+            return new ArrayList<Runnable>();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isTerminated() {
+            if (!shutdown) {
+                return false;
+            }
+            for (ScheduledFuture<?> future : futures) {
+                if (!future.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (!isTerminated()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.MILLISECONDS.sleep(Math.min(10L, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.http.java11;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+import com.here.account.http.HttpConstants;
+import com.here.account.http.HttpException;
+import com.here.account.http.HttpProvider;
+import com.here.account.util.PercentEncoder;
+
+/**
+ * An HttpProvider implementation using the Java 11+ {@code java.net.http.HttpClient},
+ * with HTTP/2 and a non-blocking {@link HttpProvider#executeAsync}.
+ *
+ * <p>
+ * One HttpClient, and so one connection pool, is shared by all requests of a provider.
+ * With HTTP/2 concurrent token requests to the same host are multiplexed
+ * over a single connection.
+ */
+public class Java11HttpClientProvider implements HttpProvider {
+
+    /**
+     * Returns true if this provider can be built on the running Java version.
+     *
+     * @return true on Java 11 or later
+     */
+    public static boolean isAvailable() {
+        return true;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int connectionTimeoutInMs = HttpConstants.DEFAULT_CONNECTION_TIMEOUT_IN_MS;
+        private int requestTimeoutInMs = HttpConstants.DEFAULT_REQUEST_TIMEOUT_IN_MS;
+        private Executor executor;
+        private boolean preferHttp2 = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the timeout to establish a connection.
+         *
+         * @param connectionTimeoutInMs the connect timeout in milliseconds
+         * @return this Builder
+         */
+        public Builder setConnectionTimeoutInMs(int connectionTimeoutInMs) {
+            this.connectionTimeoutInMs = connectionTimeoutInMs;
+            return this;
+        }
+
+        /**
+         * Sets the timeout for each request, until the response headers are received.
+         *
+         * @param requestTimeoutInMs the request timeout in milliseconds
+         * @return this Builder
+         */
+        public Builder setRequestTimeoutInMs(int requestTimeoutInMs) {
+            this.requestTimeoutInMs = requestTimeoutInMs;
+            return this;
+        }
+
+        /**
+         * Optionally sets the Executor the HttpClient uses for its asynchronous tasks.
+         * By default the HttpClient creates its own.
+         *
+         * @param executor the Executor
+         * @return this Builder
+         */
+        public Builder setExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Default is true, to negotiate HTTP/2 with the server and multiplex requests
+         * over one connection.  Set to false to always use HTTP/1.1.
+         *
+         * @param preferHttp2 true to prefer HTTP/2
+         * @return this Builder
+         */
+        public Builder setPreferHttp2(boolean preferHttp2) {
+            this.preferHttp2 = preferHttp2;
+            return this;
+        }
+
+        /**
+         * Build using builders, builders, and more builders.
+         *
+         * @return the built HttpProvider implementation for java.net.http.HttpClient.
+         */
+        public HttpProvider build() {
+            HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofMillis(connectionTimeoutInMs))
+                    .version(preferHttp2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                    .followRedirects(HttpClient.Redirect.NEVER);
+            if (null != executor) {
+                clientBuilder.executor(executor);
+            }
+            return new Java11HttpClientProvider(clientBuilder.build(), Duration.ofMillis(requestTimeoutInMs));
+        }
+    }
+
+    private static class Java11HttpRequest implements HttpRequest {
+
+        private final String method;
+        private final String url;
+        private final String contentType;
+        private final byte[] body;
+        private String authorizationHeader;
+        private final Map<String, String> additionalHeaders = new HashMap<String, String>();
+        private volatile CompletableFuture<?> inFlight;
+        private volatile AbortableBodySubscriber bodySubscriber;
+        private volatile boolean aborted;
+
+        private Java11HttpRequest(String method, String url, String contentType, byte[] body) {
+            this.method = method;
+            this.url = url;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void addAuthorizationHeader(String value) {
+            this.authorizationHeader = value;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void addHeader(String name, String value) {
+            this.additionalHeaders.put(name, value);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p>
+         * The execution fails with an IOException.  Once the response headers have arrived,
+         * the body subscription is cancelled, which makes the HttpClient reset the HTTP/2
+         * stream or close the HTTP/1.1 connection.  Before that, on Java 11 to 15 the exchange
+         * itself keeps running until its headers arrive or it times out, because cancelling
+         * the {@code sendAsync} future only propagates to the exchange from Java 16.
+         */
+        @Override
+        public void abort() {
+            aborted = true;
+            AbortableBodySubscriber subscriber = bodySubscriber;
+            if (null != subscriber) {
+                subscriber.abort();
+            }
+            CompletableFuture<?> current = inFlight;
+            if (null != current) {
+                current.cancel(true);
+            }
+        }
+
+        private java.net.http.HttpResponse.BodyHandler<byte[]> bodyHandler() {
+            return responseInfo -> {
+                AbortableBodySubscriber subscriber = new AbortableBodySubscriber(this);
+                bodySubscriber = subscriber;
+                return subscriber;
+            };
+        }
+
+        private java.net.http.HttpRequest toHttpRequest(Duration requestTimeout) {
+            java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(URI.create(url))
+                    .timeout(requestTimeout);
+            java.net.http.HttpRequest.BodyPublisher bodyPublisher;
+            if (null != body) {
+                // Content-Length is a restricted header, the HttpClient sets it from the publisher
+                builder.header(HttpConstants.CONTENT_TYPE_HEADER, contentType);
+                bodyPublisher = java.net.http.HttpRequest.BodyPublishers.ofByteArray(body);
+            } else {
+                bodyPublisher = java.net.http.HttpRequest.BodyPublishers.noBody();
+            }
+            builder.method(method, bodyPublisher);
+            if (null != authorizationHeader) {
+                builder.header(HttpConstants.AUTHORIZATION_HEADER, authorizationHeader);
+            }
+            for (Entry<String, String> additionalHeader : additionalHeaders.entrySet()) {
+                builder.header(additionalHeader.getKey(), additionalHeader.getValue());
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Collects the response body as a byte array, like
+     * {@link java.net.http.HttpResponse.BodySubscribers#ofByteArray()}, and can be aborted
+     * by cancelling its subscription, which works on every Java version from 11.
+     */
+    private static class AbortableBodySubscriber implements java.net.http.HttpResponse.BodySubscriber<byte[]> {
+
+        private final Java11HttpRequest request;
+        private final java.net.http.HttpResponse.BodySubscriber<byte[]> delegate =
+                java.net.http.HttpResponse.BodySubscribers.ofByteArray();
+        private final CompletableFuture<byte[]> body = new CompletableFuture<byte[]>();
+        private volatile Flow.Subscription subscription;
+
+        private AbortableBodySubscriber(Java11HttpRequest request) {
+            this.request = request;
+            delegate.getBody().whenComplete((bytes, t) -> {
+                if (null == t) {
+                    body.complete(bytes);
+                } else {
+                    body.completeExceptionally(t);
+                }
+            });
+        }
+
+        private void abort() {
+            Flow.Subscription current = subscription;
+            if (null != current) {
+                current.cancel();
+            }
+            body.completeExceptionally(new IOException("request aborted"));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return body;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            delegate.onSubscribe(subscription);
+            if (request.aborted) {
+                abort();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            delegate.onNext(item);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onError(Throwable throwable) {
+            delegate.onError(throwable);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onComplete() {
+            delegate.onComplete();
+        }
+    }
+
+    private static class Java11HttpResponse implements HttpResponse {
+
+        private final int statusCode;
+        private final byte[] body;
+        private final Map<String, List<String>> headers;
+
+        private Java11HttpResponse(java.net.http.HttpResponse<byte[]> response) {
+            this.statusCode = response.statusCode();
+            this.body = response.body();
+            Map<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+            headers.putAll(response.headers().map());
+            this.headers = headers;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long getContentLength() {
+            return body.length;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public InputStream getResponseBody() throws IOException {
+            return new ByteArrayInputStream(body);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+    }
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+
+    /**
+     * Only the Builder can construct a Java11HttpClientProvider.
+     */
+    private Java11HttpClientProvider(HttpClient httpClient, Duration requestTimeout) {
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        // the HttpClient releases its connections when it is no longer referenced
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method, String url,
+            String requestBodyJson) {
+        HttpRequest httpRequest;
+        if (null == requestBodyJson) {
+            httpRequest = new Java11HttpRequest(method, url, null, null);
+        } else {
+            httpRequest = new Java11HttpRequest(method, url, HttpConstants.CONTENT_TYPE_JSON,
+                    requestBodyJson.getBytes(HttpConstants.ENCODING_CHARSET));
+        }
+        httpRequestAuthorizer.authorize(httpRequest, method, url, null);
+        return httpRequest;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Unlike the other providers, this one does not stream the body into the connection:
+     * it is written once into a buffer, and copied from it with
+     * {@link ByteArrayOutputStream#toByteArray()} into the bytes sent, with their
+     * Content-Length, on each execution.  Only the intermediate String is avoided.
+     */
+    @Override
+    public HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method, String url,
+            RequestBodyWriter requestBodyWriter) {
+        HttpRequest httpRequest;
+        if (null == requestBodyWriter) {
+            httpRequest = new Java11HttpRequest(method, url, null, null);
+        } else {
+            long contentLength = requestBodyWriter.getContentLength();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(
+                    0 <= contentLength && contentLength <= Integer.MAX_VALUE ? (int) contentLength : 256);
+            try {
+                requestBodyWriter.writeTo(outputStream);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            httpRequest = new Java11HttpRequest(method, url, HttpConstants.CONTENT_TYPE_JSON,
+                    outputStream.toByteArray());
+        }
+        // application/json request bodies are never part of the OAuth1 Authorization header
+        httpRequestAuthorizer.authorize(httpRequest, method, url, null);
+        return httpRequest;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method, String url,
+            Map<String, List<String>> formParams) {
+        HttpRequest httpRequest;
+        if (null == formParams) {
+            httpRequest = new Java11HttpRequest(method, url, null, null);
+        } else {
+            httpRequest = new Java11HttpRequest(method, url, HttpConstants.CONTENT_TYPE_FORM_URLENCODED,
+                    getFormBody(formParams));
+        }
+        httpRequestAuthorizer.authorize(httpRequest, method, url, formParams);
+        return httpRequest;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HttpResponse execute(HttpRequest httpRequest) throws HttpException, IOException {
+        java.net.http.HttpRequest request = toHttpRequest(httpRequest);
+        try {
+            return new Java11HttpResponse(httpClient.send(request,
+                    ((Java11HttpRequest) httpRequest).bodyHandler()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interruptedIOException = new InterruptedIOException(e.getMessage());
+            interruptedIOException.initCause(e);
+            throw interruptedIOException;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The request is sent without blocking a thread; the executor only runs
+     * the conversion of the response.
+     */
+    @Override
+    public CompletableFuture<HttpResponse> executeAsync(HttpRequest httpRequest, Executor executor) {
+        java.net.http.HttpRequest request = toHttpRequest(httpRequest);
+        CompletableFuture<java.net.http.HttpResponse<byte[]>> exchange =
+                httpClient.sendAsync(request, ((Java11HttpRequest) httpRequest).bodyHandler());
+        ((Java11HttpRequest) httpRequest).inFlight = exchange;
+        return exchange.thenApplyAsync(Java11HttpResponse::new, executor);
+    }
+
+    private java.net.http.HttpRequest toHttpRequest(HttpRequest httpRequest) {
+        if (!(httpRequest instanceof Java11HttpRequest)) {
+            throw new IllegalArgumentException("httpRequest is not of expected type; use "
+                    + getClass() + ".getRequest(..) to get a request of the expected type");
+        }
+        return ((Java11HttpRequest) httpRequest).toHttpRequest(requestTimeout);
+    }
+
+    private static byte[] getFormBody(Map<String, List<String>> formParams) {
+        StringBuilder formBuf = new StringBuilder(128);
+        for (Entry<String, List<String>> formEntry : formParams.entrySet()) {
+            String key = formEntry.getKey();
+            List<String> values = formEntry.getValue();
+            if (null != values && !values.isEmpty()) {
+                for (String value : values) {
+                    if (formBuf.length() > 0) {
+                        formBuf.append('&');
+                    }
+                    PercentEncoder.encode(key, formBuf).append('=');
+                    PercentEncoder.encode(value, formBuf);
+                }
+            } else {
+                if (formBuf.length() > 0) {
+                    formBuf.append('&');
+                }
+                PercentEncoder.encode(key, formBuf);
+            }
+        }
+        return formBuf.toString().getBytes(HttpConstants.ENCODING_CHARSET);
+    }
+}
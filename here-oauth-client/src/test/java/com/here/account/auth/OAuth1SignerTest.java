@@ -153,6 +153,16 @@ public class OAuth1SignerTest {
                 !signatureFooBar.equals(signatureFooNone));
     }
     
+    @Test
+    public void test_signatureCalculator_reused() {
+        SignatureCalculator calculator = oauth1Signer.getSignatureCalculator();
+        oauth1Signer.authorize(httpRequest, method, url, null);
+        String first = httpRequest.getAuthorizationHeader();
+        oauth1Signer.authorize(httpRequest, method, url, null);
+        assertTrue("signature changed for the same request", first.equals(httpRequest.getAuthorizationHeader()));
+        assertTrue("SignatureCalculator was not reused", calculator == oauth1Signer.getSignatureCalculator());
+    }
+
     /**
      * Demonstrate the tradeoffs between HmacSHA1 and HmacSHA256 signature methods.
      * OAuth1 signature spec calls out the former by name, 
@@ -24,6 +24,9 @@ import org.junit.Test;
 import java.security.*;
 import java.security.spec.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.here.account.auth.SignatureCalculator.ELLIPTIC_CURVE_ALGORITHM;
 import static org.junit.Assert.assertEquals;
@@ -126,6 +129,25 @@ public class SignatureCalculatorTest {
         assertEquals(expectedSignature, actual);
     }
 
+    @Test
+    public void testSignatureHmacSha1_templateReusedAcrossRequests() {
+        Map<String, List<String>> interleaved = new HashMap<>();
+        interleaved.put("a", Collections.singletonList("first"));
+        interleaved.put("oauth_p", Collections.singletonList("between constants"));
+        interleaved.put("oauth_consumer_key", Collections.singletonList("same key as a constant"));
+        interleaved.put("z", Arrays.asList("b*", "a~"));
+
+        SignatureCalculator sc = new SignatureCalculator(consumerKey, consumerSecret);
+        for (int i = 0; i < 2; i++) {
+            for (String url : new String[] {baseURL, baseURLWithNonStandardPort}) {
+                assertEquals(computeSHA1SignatureUsingLibrary(url, interleaved, params),
+                        sc.calculateSignature(method, url, timestamp, nonce, SignatureMethod.HMACSHA1, interleaved, params));
+                assertEquals(computeSHA1SignatureUsingLibrary(url, null, null),
+                        sc.calculateSignature(method, url, timestamp, nonce, SignatureMethod.HMACSHA1, null, null));
+            }
+        }
+    }
+
     @Test
     public void testVerifySha1Signature() {
         String expectedSignature = computeSHA1SignatureUsingLibrary(baseURLWithNonStandardPort, params, params);
@@ -167,6 +189,29 @@ public class SignatureCalculatorTest {
         assertEquals(withFormAndQueryParamSha256, actual);
     }
 
+    @Test
+    public void testSignatureHmacSha256_reusedConcurrently() throws Exception {
+        final SignatureCalculator sc = new SignatureCalculator(consumerKey, consumerSecret);
+        ExecutorService executorService = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                futures.add(executorService.submit(() -> sc.calculateSignature(method, baseURL, timestamp, nonce,
+                        SignatureMethod.HMACSHA256, params, params)));
+            }
+            for (Future<String> future : futures) {
+                assertEquals(withFormAndQueryParamSha256, future.get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        // the other algorithm has its own Macs
+        assertEquals(computeSHA1SignatureUsingLibrary(baseURL, null, null),
+                sc.calculateSignature(method, baseURL, timestamp, nonce, SignatureMethod.HMACSHA1, null, null));
+        assertEquals(simpleSha256,
+                sc.calculateSignature(method, baseURL, timestamp, nonce, SignatureMethod.HMACSHA256, null, null));
+    }
+
     @Test
     public void testVerifySha256Signature() {
         boolean verified = SignatureCalculator.verifySignature(consumerKey, method, baseURLWithPort, timestamp, nonce,
@@ -241,6 +286,54 @@ public class SignatureCalculatorTest {
         assertTrue(verified);
     }
 
+    @Test
+    public void testSignatureES512_reusedKeysAndSignatures() {
+        KeyPair pair1 = generateES512KeyPair();
+        KeyPair pair2 = generateES512KeyPair();
+        SignatureCalculator sc1 = new SignatureCalculator(consumerKey,
+                Base64.getEncoder().encodeToString(pair1.getPrivate().getEncoded()));
+        SignatureCalculator sc2 = new SignatureCalculator(consumerKey,
+                Base64.getEncoder().encodeToString(pair2.getPrivate().getEncoded()));
+        String publicKey1 = Base64.getEncoder().encodeToString(pair1.getPublic().getEncoded());
+        String publicKey2 = Base64.getEncoder().encodeToString(pair2.getPublic().getEncoded());
+
+        // interleave keys on the same thread; each calculator signs with its own pooled Signatures
+        for (int i = 0; i < 3; i++) {
+            String signature1 = sc1.calculateSignature(method, baseURL, timestamp, nonce, SignatureMethod.ES512, params, null);
+            String signature2 = sc2.calculateSignature(method, baseURL, timestamp, nonce, SignatureMethod.ES512, params, null);
+            assertTrue(SignatureCalculator.verifySignature(consumerKey, method, baseURL, timestamp, nonce,
+                    SignatureMethod.ES512, params, null, signature1, publicKey1));
+            assertTrue(SignatureCalculator.verifySignature(consumerKey, method, baseURL, timestamp, nonce,
+                    SignatureMethod.ES512, params, null, signature2, publicKey2));
+            assertFalse(SignatureCalculator.verifySignature(consumerKey, method, baseURL, timestamp, nonce,
+                    SignatureMethod.ES512, params, null, signature1, publicKey2));
+        }
+    }
+
+    @Test
+    public void testSignatureES512_concurrentPooledSignatures() throws Exception {
+        KeyPair pair = generateES512KeyPair();
+        SignatureCalculator sc = new SignatureCalculator(consumerKey,
+                Base64.getEncoder().encodeToString(pair.getPrivate().getEncoded()));
+        String publicKey = Base64.getEncoder().encodeToString(pair.getPublic().getEncoded());
+
+        // more concurrent signers than pooled Signatures
+        ExecutorService executorService = Executors.newFixedThreadPool(12);
+        try {
+            List<Future<String>> futures = new ArrayList<Future<String>>();
+            for (int i = 0; i < 48; i++) {
+                futures.add(executorService.submit(() -> sc.calculateSignature(method, baseURL, timestamp, nonce,
+                        SignatureMethod.ES512, params, null)));
+            }
+            for (Future<String> future : futures) {
+                assertTrue(SignatureCalculator.verifySignature(consumerKey, method, baseURL, timestamp, nonce,
+                        SignatureMethod.ES512, params, null, future.get(), publicKey));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
     @Test
     public void testVerifyES512() {
         String cipherText = "testing public key and signature encryption";
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.auth.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.here.account.auth.OAuth1ClientCredentialsProvider;
+
+public class CachedDelegateTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void test_forFile_loadsOnlyOnChange() throws IOException {
+        File file = temporaryFolder.newFile("credentials.properties");
+        Files.write(file.toPath(), "first".getBytes(StandardCharsets.UTF_8));
+        CachedDelegate<String> cachedDelegate = CachedDelegate.forFile(file, () -> readAndCount(file));
+
+        assertEquals("first", cachedDelegate.get());
+        assertEquals("first", cachedDelegate.get());
+        assertEquals(1, loads.get());
+
+        Files.write(file.toPath(), "second-longer".getBytes(StandardCharsets.UTF_8));
+        assertEquals("second-longer", cachedDelegate.get());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void test_forFile_sameSizeAndRestoredModificationTime() throws IOException {
+        Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("unix"));
+        File file = temporaryFolder.newFile("credentials.properties");
+        Files.write(file.toPath(), "first".getBytes(StandardCharsets.UTF_8));
+        long lastModified = file.lastModified();
+        CachedDelegate<String> cachedDelegate = CachedDelegate.forFile(file, () -> readAndCount(file));
+        assertEquals("first", cachedDelegate.get());
+
+        // a rotated secret of the same length, with the modification time restored as by cp -p
+        Files.write(file.toPath(), "other".getBytes(StandardCharsets.UTF_8));
+        assertTrue(file.setLastModified(lastModified));
+        assertEquals("other", cachedDelegate.get());
+        assertEquals(2, loads.get());
+
+        // replaced by a rename, as by an atomic writer
+        File replacement = temporaryFolder.newFile("credentials.properties.tmp");
+        Files.write(replacement.toPath(), "third".getBytes(StandardCharsets.UTF_8));
+        assertTrue(replacement.setLastModified(file.lastModified()));
+        Files.move(replacement.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        assertEquals("third", cachedDelegate.get());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void test_reload() throws IOException {
+        File file = temporaryFolder.newFile("credentials.properties");
+        Files.write(file.toPath(), "first".getBytes(StandardCharsets.UTF_8));
+        CachedDelegate<String> cachedDelegate = CachedDelegate.forFile(file, () -> readAndCount(file));
+        assertEquals("first", cachedDelegate.get());
+
+        // same size, and perhaps the same modification time
+        Files.write(file.toPath(), "other".getBytes(StandardCharsets.UTF_8));
+        cachedDelegate.reload();
+        assertEquals("other", cachedDelegate.get());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void test_failedLoad_notCached() {
+        CachedDelegate<String> cachedDelegate = new CachedDelegate<>(() -> "version", () -> {
+            if (1 == loads.incrementAndGet()) {
+                throw new RequestProviderException("trouble loading");
+            }
+            return "loaded";
+        });
+        try {
+            cachedDelegate.get();
+            fail("expected RequestProviderException");
+        } catch (RequestProviderException e) {
+            // expected
+        }
+        assertEquals("loaded", cachedDelegate.get());
+        assertEquals("loaded", cachedDelegate.get());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void test_forProperties_loadsOnlyOnChange() {
+        Properties properties = new Properties();
+        properties.setProperty(OAuth1ClientCredentialsProvider.FromProperties.ACCESS_KEY_ID_PROPERTY, "first-id");
+        CachedDelegate<String> cachedDelegate = CachedDelegate.forProperties(() -> properties, () -> {
+            loads.incrementAndGet();
+            return properties.getProperty(OAuth1ClientCredentialsProvider.FromProperties.ACCESS_KEY_ID_PROPERTY);
+        });
+
+        assertEquals("first-id", cachedDelegate.get());
+        properties.setProperty("some.unrelated.property", "value");
+        assertEquals("first-id", cachedDelegate.get());
+        assertEquals(1, loads.get());
+
+        properties.setProperty(OAuth1ClientCredentialsProvider.FromProperties.ACCESS_KEY_ID_PROPERTY, "second-id");
+        assertEquals("second-id", cachedDelegate.get());
+        assertEquals(2, loads.get());
+    }
+
+    private String readAndCount(File file) {
+        loads.incrementAndGet();
+        try {
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RequestProviderException("trouble reading " + e, e);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.here.account.http.HttpConstants;
 import com.here.account.http.HttpProvider;
 import com.here.account.oauth2.ClientAuthorizationRequestProvider;
 import com.here.account.oauth2.ClientCredentialsGrantRequest;
+import com.here.account.util.SettableSystemClock;
 import org.junit.After;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -29,10 +30,18 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -194,6 +203,72 @@ public class ClientAuthorizationProviderChainTest {
         verifyExpected(providerChain, fromPropertiesFile);
     }
 
+    @Test
+    public void test_parallelProbing_honoursChainOrder() throws Exception {
+        ClientAuthorizationRequestProvider slowFirst = mock(ClientAuthorizationRequestProvider.class);
+        Mockito.when(slowFirst.getTokenEndpointUrl()).thenAnswer(invocation -> {
+            Thread.sleep(100L);
+            return "https://www.example.com/first";
+        });
+        Mockito.when(slowFirst.getClientAuthorizer()).thenReturn(mock(HttpProvider.HttpRequestAuthorizer.class));
+        ClientAuthorizationRequestProvider fastSecond = mock(ClientAuthorizationRequestProvider.class);
+        Mockito.when(fastSecond.getTokenEndpointUrl()).thenReturn("https://www.example.com/second");
+        Mockito.when(fastSecond.getClientAuthorizer()).thenReturn(mock(HttpProvider.HttpRequestAuthorizer.class));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            ClientAuthorizationProviderChain providerChain = new ClientAuthorizationProviderChain(slowFirst, fastSecond)
+                    .setProbeExecutor(executorService);
+            assertEquals("https://www.example.com/first", providerChain.getTokenEndpointUrl());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_concurrentFirstCalls_probeOnce() throws Exception {
+        ClientAuthorizationRequestProvider provider = mock(ClientAuthorizationRequestProvider.class);
+        Mockito.when(provider.getTokenEndpointUrl()).thenReturn("https://www.example.com/token");
+        Mockito.when(provider.getClientAuthorizer()).thenAnswer(invocation -> {
+            Thread.sleep(50L);
+            return mock(HttpProvider.HttpRequestAuthorizer.class);
+        });
+        Mockito.when(provider.getScope()).thenReturn("my-scope");
+        ClientAuthorizationProviderChain providerChain = new ClientAuthorizationProviderChain(provider);
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> scopes = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                scopes.add(executorService.submit((Callable<String>) () -> {
+                    start.await();
+                    return providerChain.getScope();
+                }));
+            }
+            start.countDown();
+            for (Future<String> scope : scopes) {
+                assertEquals("my-scope", scope.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        verify(provider, times(1)).getClientAuthorizer();
+    }
+
+    @Test
+    public void test_chosenProviderGone_resolvesAgain() throws Exception {
+        ClientAuthorizationRequestProvider fromIniFile = getClientAuthorizationRequestProviderFromIniFile();
+        ClientAuthorizationRequestProvider fromProperties = new FromProperties(new SettableSystemClock(),
+                "https://www.example.com/fallback", "my-access-key-id", "my-access-key-secret");
+        ClientAuthorizationProviderChain providerChain = new ClientAuthorizationProviderChain(fromIniFile, fromProperties);
+        assertEquals(fromIniFile.getTokenEndpointUrl(), providerChain.getTokenEndpointUrl());
+
+        assertTrue("could not delete " + file, file.delete());
+        assertEquals("https://www.example.com/fallback", providerChain.getTokenEndpointUrl());
+    }
+
     protected void verifyExpected(ClientAuthorizationProviderChain providerChain, ClientAuthorizationRequestProvider
                                   clientAuthorizationRequestProvider) {
 
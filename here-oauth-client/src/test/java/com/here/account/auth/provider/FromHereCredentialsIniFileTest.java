@@ -16,6 +16,7 @@
 package com.here.account.auth.provider;
 
 import com.here.account.http.HttpConstants.HttpMethods;
+import com.here.account.oauth2.ClientAuthorizationRequestProvider;
 import org.junit.After;
 import org.junit.Test;
 
@@ -23,7 +24,10 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -84,6 +88,27 @@ public class FromHereCredentialsIniFileTest extends FromHereCredentialsIniConsta
         String actualTokenEndpointUrl = fromFile.getTokenEndpointUrl();
     }
 
+    @Test
+    public void test_getDelegate_cachedUntilFileChanges() throws IOException {
+        createTmpFileWithContent(false);
+
+        fromFile = new FromHereCredentialsIniFile(file, TEST_DEFAULT_INI_SECTION_NAME);
+        ClientAuthorizationRequestProvider delegate = fromFile.getDelegate();
+        assertSame(delegate, fromFile.getDelegate());
+
+        // rotate the credentials
+        String rotatedTokenEndpointUrl = expectedTokenEndpointUrl + "/rotated";
+        String contents = new String(getDefaultIniStreamContents(false), StandardCharsets.UTF_8)
+                .replace(expectedTokenEndpointUrl, rotatedTokenEndpointUrl);
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(contents.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(rotatedTokenEndpointUrl, fromFile.getTokenEndpointUrl());
+
+        fromFile.reload();
+        assertNotSame(delegate, fromFile.getDelegate());
+    }
+
     @Test
     public void test_default_file() {
         fromFile = new FromHereCredentialsIniFile();
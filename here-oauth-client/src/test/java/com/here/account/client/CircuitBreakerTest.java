@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.here.account.http.HttpProvider;
+import com.here.account.oauth2.CircuitBreakerOpenException;
+import com.here.account.oauth2.ErrorResponse;
+import com.here.account.oauth2.RequestExecutionException;
+import com.here.account.util.JacksonSerializer;
+import com.here.account.util.TestClock;
+
+public class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 1000L;
+
+    private TestClock clock;
+    private List<String> transitions;
+    private CircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp() {
+        clock = new TestClock();
+        transitions = new ArrayList<>();
+        circuitBreaker = CircuitBreaker.builder()
+                .setFailureThreshold(3)
+                .setOpenDurationMillis(OPEN_MILLIS)
+                .setClock(clock)
+                .setListener((cb, from, to) -> transitions.add(from + "->" + to))
+                .build();
+    }
+
+    private void failRequests(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onFailure();
+        }
+    }
+
+    @Test
+    public void test_opensAfterConsecutiveFailures() {
+        failRequests(2);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onSuccess();
+        // the success reset the count
+        failRequests(2);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        failRequests(1);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        assertEquals(OPEN_MILLIS, circuitBreaker.getRemainingOpenMillis());
+        assertEquals("[CLOSED->OPEN]", transitions.toString());
+    }
+
+    @Test
+    public void test_halfOpen_trialSucceeds() {
+        failRequests(3);
+        clock.setCurrentTimeMillis(clock.currentTimeMillis() + OPEN_MILLIS);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        // only one trial at a time
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertEquals("[CLOSED->OPEN, OPEN->HALF_OPEN, HALF_OPEN->CLOSED]", transitions.toString());
+    }
+
+    @Test
+    public void test_halfOpen_trialFails() {
+        failRequests(3);
+        clock.setCurrentTimeMillis(clock.currentTimeMillis() + OPEN_MILLIS);
+        failRequests(1);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(OPEN_MILLIS, circuitBreaker.getRemainingOpenMillis());
+        assertEquals("[CLOSED->OPEN, OPEN->HALF_OPEN, HALF_OPEN->OPEN]", transitions.toString());
+    }
+
+    @Test
+    public void test_listenerException_ignored() {
+        circuitBreaker = CircuitBreaker.builder()
+                .setFailureThreshold(1)
+                .setListener((cb, from, to) -> {
+                    throw new IllegalStateException("listener");
+                })
+                .build();
+        failRequests(1);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_zeroThreshold_rejected() {
+        CircuitBreaker.builder().setFailureThreshold(0).build();
+    }
+
+    @Test
+    public void test_client_failsFastWhileOpen() throws Exception {
+        HttpProvider httpProvider = mock(HttpProvider.class);
+        HttpProvider.HttpRequest httpRequest = mock(HttpProvider.HttpRequest.class);
+        when(httpProvider.execute(httpRequest)).thenThrow(new IOException("connect timed out"));
+        Client client = Client.builder()
+                .withHttpProvider(httpProvider)
+                .withSerializer(new JacksonSerializer())
+                .withCircuitBreaker(circuitBreaker)
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                client.sendMessage(httpRequest, String.class, ErrorResponse.class, (s, e) -> null);
+                fail("expected RequestExecutionException");
+            } catch (RequestExecutionException e) {
+                assertFalse(e instanceof CircuitBreakerOpenException);
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        try {
+            client.sendMessage(httpRequest, String.class, ErrorResponse.class, (s, e) -> null);
+            fail("expected CircuitBreakerOpenException");
+        } catch (CircuitBreakerOpenException e) {
+            assertEquals(OPEN_MILLIS, e.getRemainingOpenMillis());
+        }
+        try {
+            client.sendMessageAsync(httpRequest, String.class, ErrorResponse.class, (s, e) -> null,
+                    Runnable::run).get(5, TimeUnit.SECONDS);
+            fail("expected CircuitBreakerOpenException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CircuitBreakerOpenException);
+        }
+        verify(httpProvider, times(3)).execute(httpRequest);
+    }
+}
@@ -31,6 +31,7 @@ import com.here.account.util.Serializer;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.io.*;
@@ -40,6 +41,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -138,6 +144,9 @@ public class ClientTest {
         Mockito.when(mockHttpProvider.execute(mockHttpRequest)).thenReturn(mockHttpResponse);
         Mockito.when(mockHttpProvider.getRequest(Mockito.any(HttpProvider.HttpRequestAuthorizer.class), anyString(), anyString(), anyString()))
                 .thenReturn(mockHttpRequest);
+        Mockito.when(mockHttpProvider.getRequest(Mockito.any(HttpProvider.HttpRequestAuthorizer.class), anyString(), anyString(),
+                Mockito.any(HttpProvider.RequestBodyWriter.class)))
+                .thenReturn(mockHttpRequest);
     }
 
     private Map<String, List<String>> createMockResponseHeader() {
@@ -232,6 +241,61 @@ public class ClientTest {
         assertTrue(expectedResponseObject.getCorrelationId().equals(actualResponse.getCorrelationId()));
     }
 
+    @Test
+    public void test_sendMessage1_requestBodyStreamed() throws IOException {
+        Mockito.when(mockHttpResponse.getStatusCode()).thenReturn(201);
+        Client client = Client.builder().withHttpProvider(mockHttpProvider).withSerializer(serializer)
+                .withClientAuthorizer(mockHttpRequestAuthorizer).build();
+        FakeRequest fakeRequest = new FakeRequest("testClientId", "testScope", "testGrantType");
+        client.sendMessage("POST",
+                "http://test.com",
+                fakeRequest,
+                FakeResponse.class,
+                ErrorResponse.class,
+                (statusCode, errorResponse) -> {
+                    return new AccessTokenException(statusCode, errorResponse);
+                });
+
+        ArgumentCaptor<HttpProvider.RequestBodyWriter> requestBodyWriter =
+                ArgumentCaptor.forClass(HttpProvider.RequestBodyWriter.class);
+        Mockito.verify(mockHttpProvider).getRequest(Mockito.any(HttpProvider.HttpRequestAuthorizer.class),
+                Mockito.eq("POST"), Mockito.eq("http://test.com"), requestBodyWriter.capture());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        requestBodyWriter.getValue().writeTo(outputStream);
+        Assert.assertEquals(serializer.objectToJson(fakeRequest),
+                new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        Assert.assertEquals("the body is sent with its Content-Length",
+                outputStream.size(), requestBodyWriter.getValue().getContentLength());
+    }
+
+    @Test
+    public void test_sendMessage1_serializationFailure_doesNotTripCircuitBreaker() throws Exception {
+        Serializer failingSerializer = mock(Serializer.class);
+        Mockito.doThrow(new RuntimeException("trouble serializing json"))
+                .when(failingSerializer).writeObjectToJson(any(OutputStream.class), any());
+        CircuitBreaker circuitBreaker = CircuitBreaker.builder().setFailureThreshold(1).build();
+        Client client = Client.builder().withHttpProvider(mockHttpProvider).withSerializer(failingSerializer)
+                .withClientAuthorizer(mockHttpRequestAuthorizer)
+                .withRetryPolicy(new Socket5xxExponentialRandomBackoffPolicy())
+                .withCircuitBreaker(circuitBreaker).build();
+        FakeRequest fakeRequest = new FakeRequest("testClientId", "testScope", "testGrantType");
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                client.sendMessage("POST", "http://test.com", fakeRequest,
+                        FakeResponse.class, ErrorResponse.class,
+                        (statusCode, errorResponse) -> new AccessTokenException(statusCode, errorResponse));
+                fail("expected the serialization failure");
+            } catch (RuntimeException e) {
+                Assert.assertEquals("trouble serializing json", e.getMessage());
+            }
+        }
+
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        Mockito.verify(failingSerializer, Mockito.times(3)).writeObjectToJson(any(OutputStream.class), any());
+        Mockito.verify(mockHttpProvider, Mockito.never()).execute(any(HttpProvider.HttpRequest.class));
+    }
+
     @Test
     public void test_getClientAuthorizer() {
         Mockito.when(mockHttpResponse.getStatusCode()).thenReturn(201);
@@ -590,4 +654,92 @@ public class ClientTest {
     public void test_response_correlationId() {
 
     }
+
+    /**
+     * Wraps the mock, so that the default executeAsync implementation is used.
+     */
+    private HttpProvider withDefaultExecuteAsync(final HttpProvider httpProvider) {
+        return new HttpProvider() {
+            @Override
+            public HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method,
+                    String url, String requestBodyJson) {
+                return httpProvider.getRequest(httpRequestAuthorizer, method, url, requestBodyJson);
+            }
+
+            @Override
+            public HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method,
+                    String url, Map<String, List<String>> formParams) {
+                return httpProvider.getRequest(httpRequestAuthorizer, method, url, formParams);
+            }
+
+            @Override
+            public HttpResponse execute(HttpRequest httpRequest) throws HttpException, IOException {
+                return httpProvider.execute(httpRequest);
+            }
+
+            @Override
+            public void close() throws IOException {
+                httpProvider.close();
+            }
+        };
+    }
+
+    @Test
+    public void test_sendMessageAsync() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Client client = Client.builder().withHttpProvider(withDefaultExecuteAsync(mockHttpProvider))
+                    .withSerializer(serializer).build();
+            CompletableFuture<FakeResponse> future = client.sendMessageAsync(mockHttpRequest, FakeResponse.class,
+                    ErrorResponse.class, (statusCode, errorResponse) -> {
+                        return new AccessTokenException(statusCode, errorResponse);
+                    }, executor);
+            FakeResponse actualResponse = future.get(5, TimeUnit.SECONDS);
+            assertTrue(expectedResponseObject.getAccessToken().equals(actualResponse.getAccessToken()));
+            assertTrue(expectedCorrelationId.equals(actualResponse.getCorrelationId()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_sendMessageAsync_retry() throws Exception {
+        Mockito.when(mockHttpProvider.execute(mockHttpRequest))
+                .thenThrow(new SocketTimeoutException("first attempt"))
+                .thenReturn(mockHttpResponse);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Client client = Client.builder().withHttpProvider(withDefaultExecuteAsync(mockHttpProvider))
+                    .withSerializer(serializer).withRetryPolicy(new Socket5xxExponentialRandomBackoffPolicy(3, 10))
+                    .build();
+            FakeResponse actualResponse = client.sendMessageAsync(mockHttpRequest, FakeResponse.class,
+                    ErrorResponse.class, (statusCode, errorResponse) -> {
+                        return new AccessTokenException(statusCode, errorResponse);
+                    }, executor).get(5, TimeUnit.SECONDS);
+            assertTrue(expectedResponseObject.getAccessToken().equals(actualResponse.getAccessToken()));
+            Mockito.verify(mockHttpProvider, Mockito.times(2)).execute(mockHttpRequest);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_sendMessageAsync_requestExecutionException() throws Exception {
+        Mockito.when(mockHttpProvider.execute(mockHttpRequest)).thenThrow(new HttpException("Http Exception"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Client client = Client.builder().withHttpProvider(withDefaultExecuteAsync(mockHttpProvider))
+                    .withSerializer(serializer).build();
+            client.sendMessageAsync(mockHttpRequest, FakeResponse.class,
+                    ErrorResponse.class, (statusCode, errorResponse) -> {
+                        return new AccessTokenException(statusCode, errorResponse);
+                    }, executor).get(5, TimeUnit.SECONDS);
+            fail("should have thrown exception, but didn't");
+        } catch (ExecutionException e) {
+            assertTrue("expected RequestExecutionException, actual " + e.getCause(),
+                    e.getCause() instanceof RequestExecutionException);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
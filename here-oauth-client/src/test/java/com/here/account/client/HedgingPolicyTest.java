@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.here.account.http.HttpProvider;
+import com.here.account.oauth2.AccessTokenResponse;
+import com.here.account.oauth2.ErrorResponse;
+import com.here.account.oauth2.retry.RetryContext;
+import com.here.account.oauth2.retry.RetryPolicy;
+import com.here.account.util.JacksonSerializer;
+
+public class HedgingPolicyTest {
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void test_fixedDelay() {
+        HedgingPolicy hedgingPolicy = HedgingPolicy.builder().setDelayMillis(250L).build();
+        hedgingPolicy.recordResponseMillis(10000L);
+        assertEquals(250L, hedgingPolicy.getDelayMillis());
+    }
+
+    @Test
+    public void test_trackedPercentile() {
+        HedgingPolicy hedgingPolicy = HedgingPolicy.builder()
+                .setDelayMillis(250L)
+                .setTrackPercentile(true)
+                .setMinDelayMillis(50L)
+                .build();
+        for (int i = 1; i < HedgingPolicy.MIN_SAMPLES; i++) {
+            hedgingPolicy.recordResponseMillis(i);
+        }
+        // not enough samples yet
+        assertEquals(250L, hedgingPolicy.getDelayMillis());
+        hedgingPolicy.recordResponseMillis(20);
+        // all samples below the minimum delay
+        assertEquals(50L, hedgingPolicy.getDelayMillis());
+
+        hedgingPolicy = HedgingPolicy.builder().setTrackPercentile(true).build();
+        for (int i = 1; i <= 100; i++) {
+            hedgingPolicy.recordResponseMillis(i * 10);
+        }
+        assertEquals(950L, hedgingPolicy.getDelayMillis());
+
+        // only the most recent samples count
+        for (int i = 0; i < HedgingPolicy.SAMPLES; i++) {
+            hedgingPolicy.recordResponseMillis(100L);
+        }
+        assertEquals(100L, hedgingPolicy.getDelayMillis());
+    }
+
+    @Test
+    public void test_defaultExecutor_bounded() {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) HedgingPolicy.builder().build().getExecutor();
+        assertEquals(HedgingPolicy.DEFAULT_MAX_THREADS, executor.getMaximumPoolSize());
+        assertTrue(executor.getRejectedExecutionHandler() instanceof ThreadPoolExecutor.CallerRunsPolicy);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_percentile_outOfRange() {
+        HedgingPolicy.builder().setPercentile(100).build();
+    }
+
+    /**
+     * A token response, which records whether it was discarded.
+     */
+    private static class TokenResponse implements HttpProvider.HttpResponse {
+        private final byte[] body;
+        private volatile boolean discarded;
+
+        private final int statusCode;
+
+        private TokenResponse(String accessToken) {
+            this(200, accessToken);
+        }
+
+        private TokenResponse(int statusCode, String accessToken) {
+            this.statusCode = statusCode;
+            this.body = ("{\"access_token\":\"" + accessToken + "\",\"expires_in\":3600}")
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public long getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public InputStream getResponseBody() throws IOException {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void discard() {
+            discarded = true;
+        }
+    }
+
+    /**
+     * A blocking HttpProvider executing requests with the specified function.
+     */
+    private static HttpProvider httpProvider(Function<HttpProvider.HttpRequest, HttpProvider.HttpResponse> execute) {
+        return new HttpProvider() {
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method, String url,
+                    String requestBodyJson) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public HttpRequest getRequest(HttpRequestAuthorizer httpRequestAuthorizer, String method, String url,
+                    Map<String, List<String>> formParams) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public HttpResponse execute(HttpRequest httpRequest) {
+                return execute.apply(httpRequest);
+            }
+        };
+    }
+
+    @Test
+    public void test_sendMessage_slowPrimary_hedged() throws Exception {
+        HttpProvider.HttpRequest slowRequest = mock(HttpProvider.HttpRequest.class);
+        HttpProvider.HttpRequest fastRequest = mock(HttpProvider.HttpRequest.class);
+        TokenResponse slowResponse = new TokenResponse("slow");
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        CountDownLatch slowDone = new CountDownLatch(1);
+        HttpProvider httpProvider = httpProvider(httpRequest -> {
+            if (httpRequest == fastRequest) {
+                return new TokenResponse("fast");
+            }
+            try {
+                releaseSlow.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return slowResponse;
+        });
+
+        List<HttpProvider.HttpRequest> requests = new ArrayList<>();
+        Client client = Client.builder()
+                .withHttpProvider(httpProvider)
+                .withSerializer(new JacksonSerializer())
+                .withHedgingPolicy(HedgingPolicy.builder()
+                        .setDelayMillis(50L)
+                        .setExecutor(executorService)
+                        .build())
+                .build();
+
+        AccessTokenResponse response = client.sendMessage(() -> {
+            // a new request for each attempt
+            HttpProvider.HttpRequest httpRequest = requests.isEmpty() ? slowRequest : fastRequest;
+            requests.add(httpRequest);
+            return httpRequest;
+        }, AccessTokenResponse.class, ErrorResponse.class, (statusCode, errorResponse) -> null);
+
+        assertEquals("fast", response.getAccessToken());
+        assertEquals(2, requests.size());
+        assertNotSame(requests.get(0), requests.get(1));
+        // the losing request is aborted, rather than left to run
+        verify(slowRequest).abort();
+        verify(fastRequest, never()).abort();
+
+        // the losing response is discarded when it arrives
+        releaseSlow.countDown();
+        for (int i = 0; i < 100 && !slowResponse.discarded; i++) {
+            slowDone.await(50, TimeUnit.MILLISECONDS);
+        }
+        assertTrue("the slow response should be discarded", slowResponse.discarded);
+    }
+
+    @Test
+    public void test_sendMessage_fastPrimary_notHedged() throws Exception {
+        HttpProvider.HttpRequest httpRequest = mock(HttpProvider.HttpRequest.class);
+        HttpProvider httpProvider = httpProvider(r -> new TokenResponse("fast"));
+
+        List<HttpProvider.HttpRequest> requests = new ArrayList<>();
+        Client client = Client.builder()
+                .withHttpProvider(httpProvider)
+                .withSerializer(new JacksonSerializer())
+                .withHedgingPolicy(HedgingPolicy.builder()
+                        .setDelayMillis(5000L)
+                        .setExecutor(executorService)
+                        .build())
+                .build();
+
+        AccessTokenResponse response = client.sendMessage(() -> {
+            requests.add(httpRequest);
+            return httpRequest;
+        }, AccessTokenResponse.class, ErrorResponse.class, (statusCode, errorResponse) -> null);
+
+        assertEquals("fast", response.getAccessToken());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void test_sendMessage_retries_hedgedAttemptAsAWhole() throws Exception {
+        AtomicInteger requestCount = new AtomicInteger();
+        HttpProvider httpProvider = httpProvider(httpRequest -> {
+            requestCount.incrementAndGet();
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new TokenResponse(503, "unavailable");
+        });
+        AtomicInteger shouldRetryCount = new AtomicInteger();
+        RetryPolicy retryPolicy = new RetryPolicy() {
+            @Override
+            public boolean shouldRetry(RetryContext retryContext) {
+                shouldRetryCount.incrementAndGet();
+                return retryContext.getRetryCount() < 2;
+            }
+
+            @Override
+            public int getNextRetryIntervalMillis(RetryContext retryContext) {
+                return 0;
+            }
+        };
+
+        Client client = Client.builder()
+                .withHttpProvider(httpProvider)
+                .withSerializer(new JacksonSerializer())
+                .withRetryPolicy(retryPolicy)
+                .withHedgingPolicy(HedgingPolicy.builder()
+                        .setDelayMillis(20L)
+                        .setExecutor(executorService)
+                        .build())
+                .build();
+
+        try {
+            client.sendMessage(() -> mock(HttpProvider.HttpRequest.class), AccessTokenResponse.class,
+                    ErrorResponse.class, (statusCode, errorResponse) -> new RuntimeException("" + statusCode));
+            fail("the 503 response should be thrown");
+        } catch (RuntimeException e) {
+            assertEquals("503", e.getMessage());
+        }
+
+        // one initial attempt and two retries, each hedged once
+        assertEquals(3, shouldRetryCount.get());
+        assertEquals(6, requestCount.get());
+    }
+}
@@ -31,15 +31,19 @@ import org.apache.http.ParseException;
 import org.apache.http.client.methods.*;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static org.junit.Assert.*;
@@ -282,6 +286,61 @@ public class ApacheHttpClientProviderTest {
         assertTrue("httpEntity was null", null != httpEntity);
     }
     
+    @Test
+    public void test_jsonPut_requestBodyWriter() throws IOException, NoSuchFieldException, IllegalAccessException {
+        String requestBodyJson = "{\"foo\":\"bar\"}";
+        httpRequest = httpProvider.getRequest(httpRequestAuthorizer, "PUT", url,
+                outputStream -> outputStream.write(requestBodyJson.getBytes(StandardCharsets.UTF_8)));
+        HttpPut httpPut = (HttpPut) getHttpRequestBase();
+        assertEquals("application/json", httpPut.getFirstHeader("Content-Type").getValue());
+
+        HttpEntity httpEntity = httpPut.getEntity();
+        assertTrue("a body of unknown length is buffered, and can be written again", httpEntity.isRepeatable());
+        assertFalse("a body of unknown length is still sent with a Content-Length", httpEntity.isChunked());
+        assertEquals(requestBodyJson.length(), httpEntity.getContentLength());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        httpEntity.writeTo(outputStream);
+        assertEquals(requestBodyJson, new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_jsonPut_requestBodyWriter_knownLength()
+            throws IOException, NoSuchFieldException, IllegalAccessException {
+        String requestBodyJson = "{\"foo\":\"bar\"}";
+        byte[] requestBody = requestBodyJson.getBytes(StandardCharsets.UTF_8);
+        httpRequest = httpProvider.getRequest(httpRequestAuthorizer, "PUT", url,
+                new HttpProvider.RequestBodyWriter() {
+                    @Override
+                    public void writeTo(OutputStream outputStream) throws IOException {
+                        outputStream.write(requestBody);
+                    }
+
+                    @Override
+                    public long getContentLength() {
+                        return requestBody.length;
+                    }
+                });
+        HttpPut httpPut = (HttpPut) getHttpRequestBase();
+        assertEquals("application/json", httpPut.getFirstHeader("Content-Type").getValue());
+
+        HttpEntity httpEntity = httpPut.getEntity();
+        assertTrue("a writer entity can be written again, for retries", httpEntity.isRepeatable());
+        assertFalse("a body of known length is sent with its Content-Length", httpEntity.isChunked());
+        assertEquals(requestBody.length, httpEntity.getContentLength());
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            httpEntity.writeTo(outputStream);
+            assertEquals(requestBodyJson, new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        }
+        assertEquals(requestBodyJson, EntityUtils.toString(httpEntity, StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_jsonGet_requestBodyWriter() {
+        httpProvider.getRequest(httpRequestAuthorizer, "GET", url,
+                outputStream -> outputStream.write('{'));
+    }
+
     @Test
     public void test_jsonPut_null() throws NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
         String requestBodyJson = null;
@@ -17,6 +17,7 @@ package com.here.account.http.java;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
@@ -67,6 +68,57 @@ public class JavaHttpProviderTest {
         doRequest();
     }
 
+    @Test
+    public void test_requestBodyWriter_unknownLength() throws HttpException, IOException {
+        String requestBodyJson = "{\"foo\":\"bar\"}";
+        JavaHttpProvider javaHttpProvider = Mockito.spy((JavaHttpProvider) JavaHttpProvider.builder().build());
+        mockHttpUrlConnection = Mockito.spy(getMockHttpUrlConnection());
+        Mockito.doReturn(mockHttpUrlConnection).when(javaHttpProvider).getHttpUrlConnection(Mockito.anyString());
+
+        HttpRequest httpRequest = javaHttpProvider.getRequest(httpRequestAuthorizer, "POST", urlString,
+                outputStream -> {
+                    outputStream.write(requestBodyJson.getBytes(HttpConstants.ENCODING_CHARSET));
+                    outputStream.close();
+                });
+        HttpResponse httpResponse = javaHttpProvider.execute(httpRequest);
+        assertNotNull("httpResponse was null", httpResponse);
+
+        assertEquals(requestBodyJson, new String(byteArrayOutputStream.toByteArray(), HttpConstants.ENCODING_CHARSET));
+        assertEquals(HttpConstants.CONTENT_TYPE_JSON, requestHeaders.get(HttpConstants.CONTENT_TYPE_HEADER));
+        assertNull("the HttpURLConnection measures a body of unknown length",
+                requestHeaders.get(HttpConstants.CONTENT_LENGTH_HEADER));
+        Mockito.verify(mockHttpUrlConnection, Mockito.never()).setChunkedStreamingMode(Mockito.anyInt());
+        Mockito.verify(mockHttpUrlConnection, Mockito.never()).setFixedLengthStreamingMode(Mockito.anyLong());
+    }
+
+    @Test
+    public void test_requestBodyWriter_knownLength() throws HttpException, IOException {
+        byte[] requestBody = "{\"foo\":\"bar\"}".getBytes(HttpConstants.ENCODING_CHARSET);
+        JavaHttpProvider javaHttpProvider = Mockito.spy((JavaHttpProvider) JavaHttpProvider.builder().build());
+        mockHttpUrlConnection = Mockito.spy(getMockHttpUrlConnection());
+        Mockito.doReturn(mockHttpUrlConnection).when(javaHttpProvider).getHttpUrlConnection(Mockito.anyString());
+
+        HttpRequest httpRequest = javaHttpProvider.getRequest(httpRequestAuthorizer, "POST", urlString,
+                new HttpProvider.RequestBodyWriter() {
+                    @Override
+                    public void writeTo(OutputStream outputStream) throws IOException {
+                        outputStream.write(requestBody);
+                    }
+
+                    @Override
+                    public long getContentLength() {
+                        return requestBody.length;
+                    }
+                });
+        HttpResponse httpResponse = javaHttpProvider.execute(httpRequest);
+        assertNotNull("httpResponse was null", httpResponse);
+
+        assertEquals(new String(requestBody, HttpConstants.ENCODING_CHARSET),
+                new String(byteArrayOutputStream.toByteArray(), HttpConstants.ENCODING_CHARSET));
+        Mockito.verify(mockHttpUrlConnection).setFixedLengthStreamingMode((long) requestBody.length);
+        Mockito.verify(mockHttpUrlConnection, Mockito.never()).setChunkedStreamingMode(Mockito.anyInt());
+    }
+
     @Test
     public void test_additionalHeaders() throws HttpException, IOException {
         addAdditionalHeaders = true;
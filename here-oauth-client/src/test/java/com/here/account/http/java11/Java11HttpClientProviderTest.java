@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.http.java11;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.Test;
+
+import com.here.account.http.HttpProvider;
+
+/**
+ * The unit tests run against the classes directory, which is not a multi-release jar,
+ * so only the Java 8 placeholder is visible here.
+ */
+public class Java11HttpClientProviderTest {
+
+    private static final String URL = "https://www.example.com/oauth2/token";
+
+    @Test
+    public void test_placeholder_notAvailable() {
+        assertFalse(Java11HttpClientProvider.isAvailable());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void test_placeholder_execute() throws Exception {
+        HttpProvider httpProvider = newPlaceholder();
+        httpProvider.execute(httpProvider.getRequest(
+                (httpRequest, method, url, formParams) -> { }, "GET", URL, (String) null));
+    }
+
+    @Test
+    public void test_placeholder_executeAsync() throws Exception {
+        HttpProvider httpProvider = newPlaceholder();
+        CompletableFuture<HttpProvider.HttpResponse> future = httpProvider.executeAsync(httpProvider.getRequest(
+                (httpRequest, method, url, formParams) -> { }, "GET", URL, (String) null), Runnable::run);
+        try {
+            future.join();
+            fail("the placeholder should not execute requests");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof UnsupportedOperationException);
+        }
+    }
+
+    private static HttpProvider newPlaceholder() {
+        return Java11HttpClientProvider.builder()
+                .setConnectionTimeoutInMs(1000)
+                .setRequestTimeoutInMs(1000)
+                .setPreferHttp2(false)
+                .build();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.here.account.util.TestClock;
+
+public class CoalescingTokenEndpointTest {
+
+    private static final int THREADS = 20;
+
+    private AtomicInteger callCount;
+    private CountDownLatch release;
+    private volatile RuntimeException toThrow;
+    private TestClock testClock;
+    private ExecutorService executorService;
+
+    private TokenEndpoint delegate = new TokenEndpoint() {
+
+        @Override
+        public AccessTokenResponse requestToken(AccessTokenRequest request) {
+            callCount.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (null != toThrow) {
+                throw toThrow;
+            }
+            return new AccessTokenResponse("token" + callCount.get(), "bearer", 3600L, null, null, null);
+        }
+
+        @Override
+        public Fresh<AccessTokenResponse> requestAutoRefreshingToken(AccessTokenRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Fresh<AccessTokenResponse> requestAutoRefreshingToken(Supplier<AccessTokenRequest> requestSupplier) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    @Before
+    public void setUp() {
+        callCount = new AtomicInteger();
+        release = new CountDownLatch(1);
+        testClock = new TestClock();
+        executorService = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private List<Future<AccessTokenResponse>> submitConcurrent(final TokenEndpoint tokenEndpoint)
+            throws InterruptedException {
+        List<Future<AccessTokenResponse>> futures = new ArrayList<Future<AccessTokenResponse>>();
+        CountDownLatch started = new CountDownLatch(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executorService.submit(() -> {
+                started.countDown();
+                return tokenEndpoint.requestToken(new ClientCredentialsGrantRequest());
+            }));
+        }
+        // let all callers arrive while the first call is in flight
+        started.await(5, TimeUnit.SECONDS);
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (callCount.get() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5L);
+        }
+        Thread.sleep(100L);
+        release.countDown();
+        return futures;
+    }
+
+    @Test
+    public void test_concurrentIdentical_oneCall() throws Exception {
+        TokenEndpoint tokenEndpoint = new CoalescingTokenEndpoint(delegate, testClock, 0L);
+        List<Future<AccessTokenResponse>> futures = submitConcurrent(tokenEndpoint);
+        AccessTokenResponse first = futures.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<AccessTokenResponse> future : futures) {
+            assertSame(first, future.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, callCount.get());
+
+        // no reuse window, the next call goes out
+        assertNotSame(first, tokenEndpoint.requestToken(new ClientCredentialsGrantRequest()));
+        assertEquals(2, callCount.get());
+    }
+
+    @Test
+    public void test_differentRequests_notCoalesced() {
+        release.countDown();
+        TokenEndpoint tokenEndpoint = new CoalescingTokenEndpoint(delegate, testClock, 60000L);
+        tokenEndpoint.requestToken(new ClientCredentialsGrantRequest().setScope("scope1"));
+        tokenEndpoint.requestToken(new ClientCredentialsGrantRequest().setScope("scope2"));
+        assertEquals(2, callCount.get());
+    }
+
+    @Test
+    public void test_reuseWindow() {
+        release.countDown();
+        TokenEndpoint tokenEndpoint = new CoalescingTokenEndpoint(delegate, testClock, 1000L);
+        AccessTokenResponse first = tokenEndpoint.requestToken(new ClientCredentialsGrantRequest());
+        testClock.setCurrentTimeMillis(testClock.currentTimeMillis() + 999L);
+        assertSame(first, tokenEndpoint.requestToken(new ClientCredentialsGrantRequest()));
+        assertEquals(1, callCount.get());
+
+        testClock.setCurrentTimeMillis(testClock.currentTimeMillis() + 1L);
+        assertNotSame(first, tokenEndpoint.requestToken(new ClientCredentialsGrantRequest()));
+        assertEquals(2, callCount.get());
+    }
+
+    @Test
+    public void test_failure_sharedButNotReused() throws Exception {
+        toThrow = new RequestExecutionException("expected");
+        TokenEndpoint tokenEndpoint = new CoalescingTokenEndpoint(delegate, testClock, 60000L);
+        List<Future<AccessTokenResponse>> futures = submitConcurrent(tokenEndpoint);
+        for (Future<AccessTokenResponse> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("expected failure");
+            } catch (ExecutionException e) {
+                assertSame(toThrow, e.getCause());
+            }
+        }
+        assertEquals(1, callCount.get());
+
+        toThrow = null;
+        AccessTokenResponse response = tokenEndpoint.requestToken(new ClientCredentialsGrantRequest());
+        assertTrue(response.getAccessToken().startsWith("token"));
+        assertEquals(2, callCount.get());
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.here.account.auth.provider.FromRunAsIdFileProvider;
+import com.here.account.http.HttpProvider;
+import com.here.account.util.JacksonSerializer;
+import com.here.account.util.SettableSystemClock;
+
+public class FileAccessTokenSourceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path file;
+    private AtomicInteger parses;
+    private JacksonSerializer countingSerializer;
+
+    @Before
+    public void setUp() throws IOException {
+        file = temporaryFolder.newFile("access-token").toPath();
+        parses = new AtomicInteger();
+        countingSerializer = new JacksonSerializer() {
+            @Override
+            public <T> T jsonToPojo(InputStream jsonInputStream, Class<T> pojoClass) {
+                parses.incrementAndGet();
+                return super.jsonToPojo(jsonInputStream, pojoClass);
+            }
+        };
+    }
+
+    private void writeToken(String accessToken) throws IOException {
+        long exp = System.currentTimeMillis() / 1000L + 3600L;
+        String json = "{\"access_token\":\"" + accessToken + "\",\"token_type\":\"bearer\",\"exp\":" + exp + "}";
+        // like the runAsId agent, replace the file atomically
+        Path tmp = Files.createTempFile(file.getParent(), "access-token", ".tmp");
+        Files.write(tmp, json.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Test
+    public void test_forUrl_notAFile() {
+        assertNull(FileAccessTokenSource.forUrl("file://host/not/a/local/path", countingSerializer));
+    }
+
+    @Test
+    public void test_get_parsesOnlyOnChange() throws IOException {
+        writeToken("first-token");
+        FileAccessTokenSource source = new FileAccessTokenSource(file, countingSerializer);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("first-token", source.get().getAccessToken());
+        }
+        assertEquals(1, parses.get());
+
+        writeToken("second-token-longer");
+        assertEquals("second-token-longer", source.get().getAccessToken());
+        assertEquals(2, parses.get());
+    }
+
+    @Test
+    public void test_get_expiresInCountsDownFromExp() throws IOException {
+        writeToken("first-token");
+        FileAccessTokenSource source = new FileAccessTokenSource(file, countingSerializer);
+
+        long expiresIn = source.get().getExpiresIn();
+        assertTrue("expiresIn " + expiresIn, expiresIn > 3590L && expiresIn <= 3600L);
+    }
+
+    @Test
+    public void test_get_missingFile() throws IOException {
+        Files.delete(file);
+        FileAccessTokenSource source = new FileAccessTokenSource(file, countingSerializer);
+        try {
+            source.get();
+            fail("expected RequestExecutionException");
+        } catch (RequestExecutionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void test_listener_notifiedOnChange() throws Exception {
+        writeToken("first-token");
+        FileAccessTokenSource source = new FileAccessTokenSource(file, countingSerializer);
+        assertEquals("first-token", source.get().getAccessToken());
+
+        BlockingQueue<FileAccessTokenResponse> published = new LinkedBlockingQueue<>();
+        try (Closeable subscription = source.addListener(published::add)) {
+            writeToken("second-token-longer");
+            FileAccessTokenResponse response = published.poll(30, TimeUnit.SECONDS);
+            assertTrue("listener was not notified", null != response);
+            assertEquals("second-token-longer", response.getAccessToken());
+
+            // published to get() too, without parsing again
+            int parsesAfterChange = parses.get();
+            assertEquals("second-token-longer", source.get().getAccessToken());
+            assertEquals(parsesAfterChange, parses.get());
+        }
+    }
+
+    @Test
+    public void test_autoRefreshingToken_publishedOnChange() throws Exception {
+        writeToken("first-token");
+        String tokenUrl = "file://" + file.toAbsolutePath();
+        TokenEndpoint tokenEndpoint = HereAccount.getTokenEndpoint(Mockito.mock(HttpProvider.class),
+                new FromRunAsIdFileProvider(new SettableSystemClock(), tokenUrl));
+
+        try (Fresh<AccessTokenResponse> fresh = tokenEndpoint.requestAutoRefreshingToken(
+                new ClientCredentialsGrantRequest())) {
+            assertEquals("first-token", fresh.get().getAccessToken());
+
+            writeToken("second-token-longer");
+            long deadline = System.currentTimeMillis() + 30000L;
+            while (!"second-token-longer".equals(fresh.get().getAccessToken())
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            assertEquals("second-token-longer", fresh.get().getAccessToken());
+        }
+    }
+}
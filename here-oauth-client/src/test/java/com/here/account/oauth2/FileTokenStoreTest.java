@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.here.account.auth.OAuth1Signer;
+import com.here.account.http.HttpConstants;
+import com.here.account.http.HttpException;
+import com.here.account.http.HttpProvider;
+import com.here.account.util.Clock;
+
+public class FileTokenStoreTest {
+
+    private static final String KEY = "https://www.example.com/oauth2/token myAccessKeyId client_credentials ";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+    private FileTokenStore fileTokenStore;
+
+    @Before
+    public void setUp() {
+        directory = new File(temporaryFolder.getRoot(), "token-cache");
+        fileTokenStore = FileTokenStore.builder()
+                .setDirectory(directory)
+                .build();
+    }
+
+    @Test
+    public void test_storeThenLoad() {
+        fileTokenStore.store(KEY, new AccessTokenResponse("my-token", "bearer", 86399L, null, null, "my-scope"));
+
+        AccessTokenResponse loaded = fileTokenStore.load(KEY);
+        assertTrue("expected a FileAccessTokenResponse, was " + loaded, loaded instanceof FileAccessTokenResponse);
+        assertEquals("my-token", loaded.getAccessToken());
+        assertEquals("bearer", loaded.getTokenType());
+        assertEquals("my-scope", loaded.getScope());
+        long expiresIn = loaded.getExpiresIn();
+        assertTrue("expiresIn " + expiresIn, expiresIn > 86390L && expiresIn <= 86399L);
+    }
+
+    @Test
+    public void test_load_missing() {
+        assertNull(fileTokenStore.load(KEY));
+    }
+
+    @Test
+    public void test_load_otherKey() {
+        fileTokenStore.store(KEY, new AccessTokenResponse("my-token", "bearer", 86399L, null, null));
+        assertNull(fileTokenStore.load(KEY + "other-scope"));
+    }
+
+    @Test
+    public void test_load_notEnoughLifetimeLeft() {
+        fileTokenStore.store(KEY, new AccessTokenResponse("my-token", "bearer", 86399L, null, null));
+
+        long now = System.currentTimeMillis();
+        FileTokenStore later = FileTokenStore.builder()
+                .setDirectory(directory)
+                .setClock(fixedClock(now + (86399L - FileTokenStore.DEFAULT_MIN_REMAINING_SECONDS + 10) * 1000L))
+                .build();
+        assertNull(later.load(KEY));
+    }
+
+    @Test
+    public void test_store_ownerOnlyPermissions() throws IOException {
+        Assume.assumeTrue(directory.toPath().getFileSystem().supportedFileAttributeViews().contains("posix"));
+        fileTokenStore.store(KEY, new AccessTokenResponse("my-token", "bearer", 86399L, null, null));
+
+        Path file = fileTokenStore.getFile(KEY);
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory.toPath())));
+        assertFalse("file name should not reveal the key", file.getFileName().toString().contains("myAccessKeyId"));
+    }
+
+    @Test
+    public void test_load_readableByOthers_ignored() throws IOException {
+        Assume.assumeTrue(directory.toPath().getFileSystem().supportedFileAttributeViews().contains("posix"));
+        fileTokenStore.store(KEY, new AccessTokenResponse("my-token", "bearer", 86399L, null, null));
+
+        Files.setPosixFilePermissions(fileTokenStore.getFile(KEY), PosixFilePermissions.fromString("rw-r--r--"));
+        assertNull(fileTokenStore.load(KEY));
+    }
+
+    @Test
+    public void test_load_corrupt() throws IOException {
+        fileTokenStore.store(KEY, new AccessTokenResponse("my-token", "bearer", 86399L, null, null));
+
+        Files.write(fileTokenStore.getFile(KEY), "{not json".getBytes(StandardCharsets.UTF_8));
+        assertNull(fileTokenStore.load(KEY));
+    }
+
+    @Test
+    public void test_hereAccessTokenProvider_seededFromStore() throws IOException, HttpException {
+        String accessKeyId = "id-" + UUID.randomUUID();
+        String expectedAccessToken = "ey789." + UUID.randomUUID() + ".878";
+        HttpProvider httpProvider = Mockito.mock(HttpProvider.class);
+        HttpProvider.HttpResponse httpResponse = Mockito.mock(HttpProvider.HttpResponse.class);
+        byte[] bytes = HereAccountTest.getResponseBody(expectedAccessToken, "my-scope")
+                .getBytes(StandardCharsets.UTF_8);
+        Mockito.when(httpResponse.getStatusCode()).thenReturn(200);
+        Mockito.when(httpResponse.getResponseBody()).thenReturn(new ByteArrayInputStream(bytes));
+        Mockito.when(httpProvider.execute(Mockito.any(HttpProvider.HttpRequest.class))).thenReturn(httpResponse);
+
+        // the first process requests a token
+        try (HereAccessTokenProvider first = HereAccessTokenProvider.builder()
+                .setHttpProvider(httpProvider)
+                .setClientAuthorizationRequestProvider(clientAuthorizationRequestProvider(accessKeyId))
+                .setTokenStore(fileTokenStore)
+                .build()) {
+            assertEquals(expectedAccessToken, first.getAccessToken());
+        }
+        Mockito.verify(httpProvider, Mockito.times(1)).execute(Mockito.any(HttpProvider.HttpRequest.class));
+
+        // the restarted process starts from the stored token
+        try (HereAccessTokenProvider second = HereAccessTokenProvider.builder()
+                .setHttpProvider(httpProvider)
+                .setClientAuthorizationRequestProvider(clientAuthorizationRequestProvider(accessKeyId))
+                .setTokenStore(FileTokenStore.builder().setDirectory(directory).build())
+                .build()) {
+            assertEquals(expectedAccessToken, second.getAccessToken());
+        }
+        Mockito.verify(httpProvider, Mockito.times(1)).execute(Mockito.any(HttpProvider.HttpRequest.class));
+    }
+
+    private static ClientAuthorizationRequestProvider clientAuthorizationRequestProvider(String accessKeyId) {
+        return new ClientAuthorizationRequestProvider() {
+            @Override
+            public String getTokenEndpointUrl() {
+                return "https://www.example.com/oauth2/token";
+            }
+
+            @Override
+            public HttpProvider.HttpRequestAuthorizer getClientAuthorizer() {
+                return new OAuth1Signer(accessKeyId, "my-secret");
+            }
+
+            @Override
+            public AccessTokenRequest getNewAccessTokenRequest() {
+                return new ClientCredentialsGrantRequest();
+            }
+
+            @Override
+            public HttpConstants.HttpMethods getHttpMethod() {
+                return HttpConstants.HttpMethods.POST;
+            }
+
+            @Override
+            public Clock getClock() {
+                return Clock.SYSTEM;
+            }
+        };
+    }
+
+    private static Clock fixedClock(long currentTimeMillis) {
+        return new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return currentTimeMillis;
+            }
+
+            @Override
+            public void schedule(ScheduledExecutorService scheduledExecutorService,
+                    Runnable runnable, long millisecondsInTheFutureToSchedule) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
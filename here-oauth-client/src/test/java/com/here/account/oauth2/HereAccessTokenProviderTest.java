@@ -15,7 +15,10 @@
  */
 package com.here.account.oauth2;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 
 import com.here.account.auth.NoAuthorizer;
@@ -34,7 +37,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class HereAccessTokenProviderTest {
 
@@ -265,6 +273,105 @@ public class HereAccessTokenProviderTest {
         }
     }
 
+    @Test
+    public void test_initializeInBackground_buildReturnsBeforeToken() throws Exception {
+        List<Runnable> initializations = new ArrayList<>();
+        try (
+                HereAccessTokenProvider hereAccessTokenProvider
+                        = HereAccessTokenProvider.builder()
+                        .setHttpProvider(mockHttpProvider)
+                        .setClientAuthorizationRequestProvider(clientAuthorizationRequestProvider)
+                        .setInitializeInBackground(true)
+                        .setInitializationExecutor(initializations::add)
+                        .build();
+        ) {
+            Mockito.verify(mockHttpProvider, Mockito.never()).execute(any(HttpProvider.HttpRequest.class));
+            assertEquals(1, initializations.size());
+
+            initializations.get(0).run();
+            assertEquals(expectedAccessToken, hereAccessTokenProvider.getAccessToken());
+            Mockito.verify(mockHttpProvider, Mockito.times(1)).execute(any(HttpProvider.HttpRequest.class));
+        }
+    }
+
+    @Test
+    public void test_initializeInBackground_timeout() throws IOException {
+        try (
+                HereAccessTokenProvider hereAccessTokenProvider
+                        = HereAccessTokenProvider.builder()
+                        .setHttpProvider(mockHttpProvider)
+                        .setClientAuthorizationRequestProvider(clientAuthorizationRequestProvider)
+                        .setInitializeInBackground(true)
+                        .setInitialTokenTimeoutMillis(50L)
+                        .setInitializationExecutor(runnable -> {
+                            // never runs
+                        })
+                        .build();
+        ) {
+            try {
+                hereAccessTokenProvider.getAccessToken();
+                fail("expected RequestExecutionException");
+            } catch (RequestExecutionException e) {
+                assertTrue("unexpected message " + e.getMessage(), e.getMessage().contains("50 ms"));
+            }
+        }
+    }
 
+    @Test
+    public void test_initializeInBackground_failureRetried() throws IOException, HttpException {
+        HttpProvider.HttpResponse httpResponse = mockHttpProvider.execute(null);
+        Mockito.when(mockHttpProvider.execute(any(HttpProvider.HttpRequest.class)))
+                .thenThrow(new IOException("connection refused"))
+                .thenThrow(new IOException("connection refused"))
+                .thenReturn(httpResponse);
+        try (
+                HereAccessTokenProvider hereAccessTokenProvider
+                        = HereAccessTokenProvider.builder()
+                        .setHttpProvider(mockHttpProvider)
+                        .setClientAuthorizationRequestProvider(clientAuthorizationRequestProvider)
+                        .setRetryPolicy(new Socket5xxExponentialRandomBackoffPolicy(0, 0))
+                        .setInitializeInBackground(true)
+                        .setInitializationExecutor(Runnable::run)
+                        .build();
+        ) {
+            try {
+                hereAccessTokenProvider.getAccessToken();
+                fail("expected RequestExecutionException");
+            } catch (RequestExecutionException e) {
+                // the initialization in build() failed, and so did its retry
+            }
+            assertEquals(expectedAccessToken, hereAccessTokenProvider.getAccessToken());
+        }
+    }
+
+    @Test
+    public void test_buildAsync() throws Exception {
+        CompletableFuture<HereAccessTokenProvider> future = HereAccessTokenProvider.builder()
+                .setHttpProvider(mockHttpProvider)
+                .setClientAuthorizationRequestProvider(clientAuthorizationRequestProvider)
+                .buildAsync();
+        try (HereAccessTokenProvider hereAccessTokenProvider = future.get(10, TimeUnit.SECONDS)) {
+            assertEquals(expectedAccessToken, hereAccessTokenProvider.getAccessToken());
+            Mockito.verify(mockHttpProvider, Mockito.times(1)).execute(any(HttpProvider.HttpRequest.class));
+        }
+    }
+
+    @Test
+    public void test_buildAsync_failure() throws Exception {
+        Mockito.when(mockHttpProvider.execute(any(HttpProvider.HttpRequest.class)))
+                .thenThrow(new IOException("connection refused"));
+        CompletableFuture<HereAccessTokenProvider> future = HereAccessTokenProvider.builder()
+                .setHttpProvider(mockHttpProvider)
+                .setClientAuthorizationRequestProvider(clientAuthorizationRequestProvider)
+                .setRetryPolicy(new Socket5xxExponentialRandomBackoffPolicy(0, 0))
+                .buildAsync();
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue("unexpected cause " + e.getCause(), e.getCause() instanceof RequestExecutionException);
+        }
+        assertFalse(future.isCancelled());
+    }
 
 }
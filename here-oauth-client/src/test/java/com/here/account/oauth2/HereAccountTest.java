@@ -18,6 +18,7 @@ package com.here.account.oauth2;
 import com.here.account.auth.NoAuthorizer;
 import com.here.account.auth.OAuth1ClientCredentialsProvider;
 import com.here.account.auth.OAuth1Signer;
+import com.here.account.client.CircuitBreaker;
 import com.here.account.http.HttpConstants;
 import com.here.account.http.HttpException;
 import com.here.account.http.HttpProvider;
@@ -36,7 +37,13 @@ import org.mockito.stubbing.OngoingStubbing;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.*;
@@ -606,6 +613,67 @@ public class HereAccountTest extends AbstractCredentialTezt {
     }
 
 
+    @Test
+    public void test_handleFixableErrorsAsync() throws Exception {
+        HttpProvider mockHttpProvider = Mockito.mock(HttpProvider.class);
+
+        HttpResponse timestampHttpResponse = Mockito.mock(HttpResponse.class);
+        byte[] timestampBytes = "{\"timestamp\":123}".getBytes(StandardCharsets.UTF_8);
+        Mockito.doReturn(200)
+                .when(timestampHttpResponse).getStatusCode();
+        Mockito.doReturn(new ByteArrayInputStream(timestampBytes))
+                .when(timestampHttpResponse).getResponseBody();
+
+        HttpResponse tokenHttpResponse = Mockito.mock(HttpResponse.class);
+        String expectedAccessToken = "abc."+UUID.randomUUID().toString()+".xyz";
+        byte[] bytes = getResponseBody(expectedAccessToken, null).getBytes(StandardCharsets.UTF_8);
+        Mockito.doReturn(200)
+                .when(tokenHttpResponse).getStatusCode();
+        Mockito.doReturn(new ByteArrayInputStream(bytes))
+                .when(tokenHttpResponse).getResponseBody();
+
+        ErrorResponse errorResponse = new ErrorResponse("foo", "bar", "3", 401, 401204, "none");
+        AccessTokenException toBeThrown = new AccessTokenException(401, errorResponse);
+
+        Mockito.when(mockHttpProvider.execute(Mockito.any(HttpProvider.HttpRequest.class)))
+                .thenThrow(toBeThrown)
+                .thenReturn(timestampHttpResponse)
+                .thenReturn(tokenHttpResponse);
+        Mockito.when(mockHttpProvider.executeAsync(Mockito.any(HttpProvider.HttpRequest.class),
+                Mockito.any(Executor.class)))
+                .thenAnswer(invocation -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return mockHttpProvider.execute(invocation.getArgumentAt(0, HttpProvider.HttpRequest.class));
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, invocation.getArgumentAt(1, Executor.class)));
+
+        ClientAuthorizationRequestProvider mockClientAuthorizationRequestProvider =
+                Mockito.mock(ClientAuthorizationRequestProvider.class);
+        Mockito.doReturn("https://www.example.com/oauth2/token")
+                .when(mockClientAuthorizationRequestProvider).getTokenEndpointUrl();
+        Mockito.doReturn(HttpConstants.HttpMethods.POST)
+                .when(mockClientAuthorizationRequestProvider).getHttpMethod();
+
+        TokenEndpoint tokenEndpoint = HereAccount.getTokenEndpoint(mockHttpProvider, mockClientAuthorizationRequestProvider);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AccessTokenResponse accessTokenResponse = tokenEndpoint
+                    .requestTokenAsync(new IdentityTokenRequest(), executor)
+                    .get(5, TimeUnit.SECONDS);
+            String accessToken = accessTokenResponse.getAccessToken();
+            assertTrue("expected accessToken " + expectedAccessToken + ", actual " + accessToken,
+                    expectedAccessToken.equals(accessToken));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Mockito.verify(mockHttpProvider, times(3))
+                .execute(Mockito.any(HttpProvider.HttpRequest.class));
+    }
+
     @Test
     public void test_requestTokenFromFile() throws IOException {
         HttpProvider mockHttpProvider = Mockito.mock(HttpProvider.class);
@@ -802,6 +870,92 @@ public class HereAccountTest extends AbstractCredentialTezt {
         return mock;
     }
     
+    @Test
+    public void test_circuitBreakerOpen_lastGoodToken() throws Exception {
+        String body = "{\"access_token\":\"my-token\",\"expires_in\":3600}";
+        HttpProvider mockHttpProvider = Mockito.mock(HttpProvider.class);
+        Mockito.when(mockHttpProvider.execute(Mockito.any()))
+                .thenReturn(dummyResponse(200, body.length(),
+                        new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))))
+                .thenThrow(new IOException("connect timed out"));
+        CircuitBreaker circuitBreaker = CircuitBreaker.builder()
+                .setFailureThreshold(1)
+                .setOpenDurationMillis(60000L)
+                .build();
+        TokenEndpoint tokenEndpoint = HereAccount.getTokenEndpoint(mockHttpProvider,
+                new OAuth1ClientCredentialsProvider(url, accessKeyId, accessKeySecret, scope),
+                new JacksonSerializer(), new NoRetryPolicy(), circuitBreaker);
+
+        AccessTokenResponse good = tokenEndpoint.requestToken(new ClientCredentialsGrantRequest());
+        assertEquals("my-token", good.getAccessToken());
+        try {
+            tokenEndpoint.requestToken(new ClientCredentialsGrantRequest());
+            fail("expected RequestExecutionException");
+        } catch (RequestExecutionException e) {
+            assertFalse(e instanceof CircuitBreakerOpenException);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        // no request is sent while the circuit is open
+        AccessTokenResponse lastGood = tokenEndpoint.requestToken(new ClientCredentialsGrantRequest());
+        assertEquals("my-token", lastGood.getAccessToken());
+        assertTrue(lastGood.getExpiresIn() > 3590L && lastGood.getExpiresIn() <= 3600L);
+        assertEquals("my-token", tokenEndpoint.requestTokenAsync(new ClientCredentialsGrantRequest(),
+                Runnable::run).get(5, TimeUnit.SECONDS).getAccessToken());
+        try {
+            tokenEndpoint.requestToken(new ClientCredentialsGrantRequest().setScope("other-scope"));
+            fail("expected CircuitBreakerOpenException");
+        } catch (CircuitBreakerOpenException e) {
+            assertTrue(e.getRemainingOpenMillis() > 0);
+        }
+        Mockito.verify(mockHttpProvider, times(2)).execute(Mockito.any());
+    }
+
+    @Test
+    public void test_circuitBreakerOpen_lastGoodToken_remainingLifetime() throws Exception {
+        String body = "{\"access_token\":\"my-token\",\"expires_in\":3600}";
+        HttpProvider mockHttpProvider = Mockito.mock(HttpProvider.class);
+        Mockito.when(mockHttpProvider.execute(Mockito.any()))
+                .thenReturn(dummyResponse(200, body.length(),
+                        new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))))
+                .thenThrow(new IOException("connect timed out"));
+        SettableSystemClock clock = new SettableSystemClock();
+        CircuitBreaker circuitBreaker = CircuitBreaker.builder()
+                .setFailureThreshold(1)
+                .setOpenDurationMillis(60000L)
+                .setClock(clock)
+                .build();
+        TokenEndpoint tokenEndpoint = HereAccount.getTokenEndpoint(mockHttpProvider,
+                new OAuth1ClientCredentialsProvider(clock, url, accessKeyId, accessKeySecret, scope),
+                new JacksonSerializer(), new NoRetryPolicy(), circuitBreaker);
+        tokenEndpoint.requestToken(new ClientCredentialsGrantRequest());
+        long receivedAtMillis = clock.currentTimeMillis();
+
+        // the endpoint fails 10 seconds before the token expires
+        clock.setCurrentTimeMillis(receivedAtMillis + 3590000L);
+        try {
+            tokenEndpoint.requestToken(new ClientCredentialsGrantRequest());
+            fail("expected RequestExecutionException");
+        } catch (RequestExecutionException e) {
+            assertFalse(e instanceof CircuitBreakerOpenException);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        AccessTokenResponse lastGood = tokenEndpoint.requestToken(new ClientCredentialsGrantRequest());
+        assertEquals("my-token", lastGood.getAccessToken());
+        assertTrue("expected the remaining lifetime, was " + lastGood.getExpiresIn(),
+                lastGood.getExpiresIn() > 0L && lastGood.getExpiresIn() <= 10L);
+
+        // once expired, the last good token is no longer returned
+        clock.setCurrentTimeMillis(receivedAtMillis + 3601000L);
+        try {
+            tokenEndpoint.requestToken(new ClientCredentialsGrantRequest());
+            fail("expected CircuitBreakerOpenException");
+        } catch (CircuitBreakerOpenException e) {
+            // expected
+        }
+    }
+
     /**
      * Build a mock HttpProvider that always throws the given exception when
      * attempting to execute the http request.
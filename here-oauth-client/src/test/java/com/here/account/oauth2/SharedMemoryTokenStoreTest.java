@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.here.account.auth.provider.FromProperties;
+import com.here.account.http.HttpException;
+import com.here.account.http.HttpProvider;
+import com.here.account.util.Clock;
+
+public class SharedMemoryTokenStoreTest {
+
+    private static final String KEY = "https://www.example.com/oauth2/token myAccessKeyId client_credentials ";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private SharedMemoryTokenStore store;
+    private SharedMemoryTokenStore otherStore;
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        store = SharedMemoryTokenStore.builder()
+                .setDirectory(temporaryFolder.getRoot())
+                .build();
+        otherStore = SharedMemoryTokenStore.builder()
+                .setDirectory(temporaryFolder.getRoot())
+                .build();
+        executorService = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void test_load_empty() {
+        assertNull(store.load(KEY));
+    }
+
+    @Test
+    public void test_storeThenLoad_otherStore() {
+        store.store(KEY, new AccessTokenResponse("my-token", "bearer", 86399L, null, null, "my-scope"));
+
+        AccessTokenResponse loaded = otherStore.load(KEY);
+        assertEquals("my-token", loaded.getAccessToken());
+        assertEquals("my-scope", loaded.getScope());
+        long expiresIn = loaded.getExpiresIn();
+        assertTrue("expiresIn " + expiresIn, expiresIn > 86390L && expiresIn <= 86399L);
+    }
+
+    @Test
+    public void test_load_detectsNewGeneration() {
+        store.store(KEY, new AccessTokenResponse("first-token", "bearer", 86399L, null, null, null));
+        assertEquals("first-token", otherStore.load(KEY).getAccessToken());
+        assertEquals("first-token", otherStore.load(KEY).getAccessToken());
+
+        store.store(KEY, new AccessTokenResponse("second-token", "bearer", 86399L, null, null, null));
+        assertEquals("second-token", otherStore.load(KEY).getAccessToken());
+    }
+
+    @Test
+    public void test_store_generationEven() throws IOException {
+        store.store(KEY, new AccessTokenResponse("first-token", "bearer", 86399L, null, null, null));
+        store.store(KEY, new AccessTokenResponse("second-token", "bearer", 86399L, null, null, null));
+
+        try (RandomAccessFile file = new RandomAccessFile(store.getFile(KEY).toFile(), "r")) {
+            assertEquals(SharedMemoryTokenStore.FILE_SIZE, file.length());
+            file.seek(SharedMemoryTokenStore.GENERATION_OFFSET);
+            assertEquals(4L, file.readLong());
+        }
+    }
+
+    @Test
+    public void test_load_notEnoughLifetimeLeft() {
+        store.store(KEY, new AccessTokenResponse("my-token", "bearer", 60L, null, null, null));
+        assertNull(otherStore.load(KEY));
+    }
+
+    @Test
+    public void test_load_corruptPayload() throws IOException {
+        store.store(KEY, new AccessTokenResponse("my-token", "bearer", 86399L, null, null, null));
+
+        try (RandomAccessFile file = new RandomAccessFile(store.getFile(KEY).toFile(), "rw")) {
+            file.seek(SharedMemoryTokenStore.PAYLOAD_OFFSET + 2);
+            file.write('X');
+            // a new generation, so the parsed token is not reused
+            file.seek(SharedMemoryTokenStore.GENERATION_OFFSET);
+            file.writeLong(4L);
+        }
+        assertNull(otherStore.load(KEY));
+    }
+
+    @Test
+    public void test_file_ownerOnly() throws IOException {
+        Path file = store.getFile(KEY);
+        Assume.assumeTrue(file.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        store.store(KEY, new AccessTokenResponse("my-token", "bearer", 86399L, null, null, null));
+
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        assertFalse("file name should not reveal the key", file.getFileName().toString().contains("myAccessKeyId"));
+    }
+
+    @Test
+    public void test_lock_excludesOtherStore() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        Future<?> other;
+        try (TokenStore.Lock lock = store.lock(KEY)) {
+            other = executorService.submit(() -> {
+                try (TokenStore.Lock otherLock = otherStore.lock(KEY)) {
+                    locked.countDown();
+                }
+            });
+            assertFalse("the other store took the lock", locked.await(100, TimeUnit.MILLISECONDS));
+            // reentrant: the holder can still store
+            store.store(KEY, new AccessTokenResponse("my-token", "bearer", 86399L, null, null, null));
+        }
+        assertTrue("the other store never took the lock", locked.await(10, TimeUnit.SECONDS));
+        other.get(10, TimeUnit.SECONDS);
+        assertEquals("my-token", otherStore.load(KEY).getAccessToken());
+    }
+
+    @Test
+    public void test_hereAccessTokenProviders_oneTokenRequest() throws IOException, HttpException {
+        String accessKeyId = "id-" + UUID.randomUUID();
+        String expectedAccessToken = "ey789." + UUID.randomUUID() + ".878";
+        HttpProvider httpProvider = Mockito.mock(HttpProvider.class);
+        HttpProvider.HttpResponse httpResponse = Mockito.mock(HttpProvider.HttpResponse.class);
+        byte[] bytes = HereAccountTest.getResponseBody(expectedAccessToken, "my-scope")
+                .getBytes(StandardCharsets.UTF_8);
+        Mockito.when(httpResponse.getStatusCode()).thenReturn(200);
+        Mockito.when(httpResponse.getResponseBody()).thenReturn(new ByteArrayInputStream(bytes));
+        Mockito.when(httpProvider.execute(Mockito.any(HttpProvider.HttpRequest.class))).thenReturn(httpResponse);
+
+        try (HereAccessTokenProvider first = HereAccessTokenProvider.builder()
+                .setHttpProvider(httpProvider)
+                .setClientAuthorizationRequestProvider(new FromProperties(Clock.SYSTEM,
+                        "https://www.example.com/oauth2/token", accessKeyId, "my-secret"))
+                .setTokenStore(store)
+                .build();
+             HereAccessTokenProvider second = HereAccessTokenProvider.builder()
+                .setHttpProvider(httpProvider)
+                .setClientAuthorizationRequestProvider(new FromProperties(Clock.SYSTEM,
+                        "https://www.example.com/oauth2/token", accessKeyId, "my-secret"))
+                .setTokenStore(otherStore)
+                .build()) {
+            assertEquals(expectedAccessToken, first.getAccessToken());
+            assertEquals(expectedAccessToken, second.getAccessToken());
+        }
+        Mockito.verify(httpProvider, Mockito.times(1)).execute(Mockito.any(HttpProvider.HttpRequest.class));
+    }
+}
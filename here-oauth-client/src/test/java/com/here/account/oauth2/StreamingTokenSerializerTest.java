@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.here.account.oauth2.bo.TimestampResponse;
+import com.here.account.util.JacksonSerializer;
+import com.here.account.util.Serializer;
+
+public class StreamingTokenSerializerTest {
+
+    private final StreamingTokenSerializer serializer = new StreamingTokenSerializer();
+    private final JacksonSerializer jacksonSerializer = new JacksonSerializer();
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_accessTokenResponse_sameAsJackson() {
+        String json = "{\"access_token\":\"ey.abc\\/def.\\u00e9\\\"x\\\"\",\n"
+                + "  \"token_type\" : \"bearer\", \"expires_in\": 86399,\n"
+                + "  \"refresh_token\": null, \"id_token\": \"id\", \"scope\": \"hrn:here:authorization::rlm0000:project/my-project\",\n"
+                + "  \"unknown\": {\"nested\": [1, 2, {\"deep\": \"}]\"}]}, \"other\": [true, false, null]}";
+
+        AccessTokenResponse expected = jacksonSerializer.jsonToPojo(stream(json), AccessTokenResponse.class);
+        AccessTokenResponse actual = serializer.jsonToPojo(stream(json), AccessTokenResponse.class);
+
+        assertEquals("ey.abc/def.é\"x\"", actual.getAccessToken());
+        assertEquals(expected.getAccessToken(), actual.getAccessToken());
+        assertEquals(expected.getTokenType(), actual.getTokenType());
+        assertEquals(expected.getExpiresIn(), actual.getExpiresIn());
+        assertEquals(expected.getRefreshToken(), actual.getRefreshToken());
+        assertEquals(expected.getIdToken(), actual.getIdToken());
+        assertEquals(expected.getScope(), actual.getScope());
+    }
+
+    @Test
+    public void test_accessTokenResponse_coercions() {
+        String json = "{\"access_token\": 12345, \"expires_in\": \"3600\"}";
+
+        AccessTokenResponse expected = jacksonSerializer.jsonToPojo(stream(json), AccessTokenResponse.class);
+        AccessTokenResponse actual = serializer.jsonToPojo(stream(json), AccessTokenResponse.class);
+
+        assertEquals(expected.getAccessToken(), actual.getAccessToken());
+        assertEquals(expected.getExpiresIn(), actual.getExpiresIn());
+    }
+
+    @Test
+    public void test_longAndNonAsciiStrings() {
+        StringBuilder longToken = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            longToken.append("ey").append(i).append('.');
+        }
+        String scope = "projekt-\u00fc-\u20ac-\ud83d\ude00";
+        String json = "{\"access_token\":\"" + longToken + "\",\"scope\":\"" + scope
+                + "\",\"expires_in\":12345678901234567890e-10}";
+
+        AccessTokenResponse expected = jacksonSerializer.jsonToPojo(stream(json), AccessTokenResponse.class);
+        AccessTokenResponse actual = serializer.jsonToPojo(stream(json), AccessTokenResponse.class);
+
+        assertEquals(longToken.toString(), actual.getAccessToken());
+        assertEquals(scope, actual.getScope());
+        assertEquals(expected.getScope(), actual.getScope());
+        assertEquals(expected.getExpiresIn(), actual.getExpiresIn());
+    }
+
+    @Test
+    public void test_fileAccessTokenResponse() {
+        long exp = System.currentTimeMillis() / 1000L + 3600L;
+        String json = "\uFEFF{\"access_token\":\"my-token\",\"token_type\":\"bearer\",\"exp\":" + exp
+                + ",\"scope\":\"my-scope\"}";
+
+        FileAccessTokenResponse actual = serializer.jsonToPojo(stream(json), FileAccessTokenResponse.class);
+        assertEquals("my-token", actual.getAccessToken());
+        assertEquals("bearer", actual.getTokenType());
+        assertEquals(Long.valueOf(exp), actual.getExp());
+        assertEquals("my-scope", actual.getScope());
+    }
+
+    @Test
+    public void test_timestampResponse() {
+        TimestampResponse actual = serializer.jsonToPojo(stream("{ \"timestamp\" : 1577836800 }"),
+                TimestampResponse.class);
+        assertEquals(Long.valueOf(1577836800L), actual.getTimestamp());
+    }
+
+    @Test
+    public void test_errorResponse_sameAsJackson() {
+        String json = "{\"errorId\":\"ERROR-123\",\"httpStatus\":401,\"errorCode\":401300,"
+                + "\"message\":\"Signature mismatch.\",\"error\":\"invalid_client\","
+                + "\"error_description\":\"errorCode: '401300'. Signature mismatch.\","
+                + "\"title\":\"Unauthorized\",\"status\":401,\"code\":\"401300\",\"cause\":\"c\","
+                + "\"action\":\"a\",\"correlationId\":\"my-correlation-id\",\"extra\":1.5e3}";
+
+        ErrorResponse expected = jacksonSerializer.jsonToPojo(stream(json), ErrorResponse.class);
+        ErrorResponse actual = serializer.jsonToPojo(stream(json), ErrorResponse.class);
+
+        assertEquals(expected, actual);
+        assertEquals("ERROR-123", actual.getErrorId());
+        assertEquals(Integer.valueOf(401300), actual.getErrorCode());
+        assertEquals("invalid_client", actual.getError());
+        assertEquals("errorCode: '401300'. Signature mismatch.", actual.getErrorDescription());
+        assertEquals("my-correlation-id", actual.getCorrelationId());
+    }
+
+    @Test
+    public void test_jsonNull() {
+        assertNull(serializer.jsonToPojo(stream(" null "), AccessTokenResponse.class));
+    }
+
+    @Test
+    public void test_malformed() {
+        String[] malformed = {
+                "",
+                "[]",
+                "{\"access_token\": \"unterminated",
+                "{\"access_token\" \"my-token\"}",
+                "{\"access_token\": \"my-token\" \"token_type\": \"bearer\"}",
+                "{\"expires_in\": tru}",
+                "{\"expires_in\": \"soon\"}",
+                "{\"access_token\": {\"nested\": true}}",
+                "{\"unknown\": [1, 2"
+        };
+        for (String json : malformed) {
+            try {
+                serializer.jsonToPojo(stream(json), AccessTokenResponse.class);
+                fail("expected trouble deserializing " + json);
+            } catch (RuntimeException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void test_otherTypes_fallback() {
+        Serializer fallback = Mockito.mock(Serializer.class);
+        Map<String, Object> map = Collections.singletonMap("key", "value");
+        InputStream inputStream = stream("{\"key\":\"value\"}");
+        Mockito.when(fallback.jsonToPojo(inputStream, Map.class)).thenReturn(map);
+        Mockito.when(fallback.objectToJson(map)).thenReturn("{\"key\":\"value\"}");
+
+        StreamingTokenSerializer streamingTokenSerializer = new StreamingTokenSerializer(fallback);
+        assertSame(map, streamingTokenSerializer.jsonToPojo(inputStream, Map.class));
+        assertEquals("{\"key\":\"value\"}", streamingTokenSerializer.objectToJson(map));
+    }
+}
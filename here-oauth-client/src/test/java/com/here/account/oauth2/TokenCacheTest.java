@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.here.account.http.HttpException;
+import com.here.account.http.HttpProvider;
+import com.here.account.util.TestClock;
+
+public class TokenCacheTest {
+
+    private static final String TOKEN_ENDPOINT_URL = "https://www.example.com/oauth2/token";
+
+    private HttpProvider mockHttpProvider;
+    private AtomicInteger requestCount;
+    private AtomicReference<CountDownLatch> blockRequests;
+    private AtomicInteger inFlightCount;
+    private AtomicInteger maxInFlightCount;
+    private volatile long requestDelayMillis;
+    private TestClock testClock;
+    private TokenCache tokenCache;
+
+    @Before
+    public void setUp() throws IOException, HttpException {
+        requestCount = new AtomicInteger();
+        blockRequests = new AtomicReference<CountDownLatch>();
+        inFlightCount = new AtomicInteger();
+        maxInFlightCount = new AtomicInteger();
+        testClock = new TestClock();
+        mockHttpProvider = Mockito.mock(HttpProvider.class);
+        Mockito.when(mockHttpProvider.execute(Mockito.any(HttpProvider.HttpRequest.class)))
+                .thenAnswer(invocation -> {
+                    maxInFlightCount.accumulateAndGet(inFlightCount.incrementAndGet(), Math::max);
+                    try {
+                        CountDownLatch block = blockRequests.get();
+                        if (null != block) {
+                            block.await(5, TimeUnit.SECONDS);
+                        } else if (requestDelayMillis > 0) {
+                            Thread.sleep(requestDelayMillis);
+                        }
+                    } finally {
+                        inFlightCount.decrementAndGet();
+                    }
+                    HttpProvider.HttpResponse httpResponse = Mockito.mock(HttpProvider.HttpResponse.class);
+                    String responseBody = HereAccountTest.getResponseBody(
+                            "ey789.token" + requestCount.incrementAndGet() + ".878", null);
+                    Mockito.when(httpResponse.getStatusCode()).thenReturn(200);
+                    Mockito.when(httpResponse.getResponseBody()).thenReturn(
+                            new ByteArrayInputStream(responseBody.getBytes(StandardCharsets.UTF_8)));
+                    return httpResponse;
+                });
+        Mockito.when(mockHttpProvider.executeAsync(Mockito.any(HttpProvider.HttpRequest.class),
+                Mockito.any(Executor.class)))
+                .thenAnswer(invocation -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return mockHttpProvider.execute(invocation.getArgumentAt(0, HttpProvider.HttpRequest.class));
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, invocation.getArgumentAt(1, Executor.class)));
+        tokenCache = TokenCache.builder()
+                .setHttpProvider(mockHttpProvider)
+                .setClock(testClock)
+                .setMaximumSize(2)
+                .setExpireAfterAccessMillis(TimeUnit.MINUTES.toMillis(10))
+                .setMaintenanceIntervalMillis(TimeUnit.HOURS.toMillis(1))
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        tokenCache.close();
+    }
+
+    private String getAccessToken(String accessKeyId, String scope) {
+        return getAccessToken(tokenCache, accessKeyId, scope);
+    }
+
+    private static String getAccessToken(TokenCache tokenCache, String accessKeyId, String scope) {
+        return tokenCache.getAccessToken(TOKEN_ENDPOINT_URL, accessKeyId, "secret", scope);
+    }
+
+    @Test
+    public void test_hit() {
+        String token = getAccessToken("id1", null);
+        assertEquals(token, getAccessToken("id1", null));
+        assertEquals(1, requestCount.get());
+        assertEquals(1, tokenCache.getMissCount());
+        assertEquals(1, tokenCache.getHitCount());
+    }
+
+    @Test
+    public void test_scope_separateEntries() {
+        String token1 = getAccessToken("id1", "scope1");
+        String token2 = getAccessToken("id1", "scope2");
+        assertNotEquals(token1, token2);
+        assertEquals(2, tokenCache.size());
+        assertEquals(2, tokenCache.getMissCount());
+    }
+
+    @Test
+    public void test_maximumSize_evictsLeastRecentlyAccessed() {
+        getAccessToken("id1", null);
+        testClock.setCurrentTimeMillis(testClock.currentTimeMillis() + 1000L);
+        getAccessToken("id2", null);
+        testClock.setCurrentTimeMillis(testClock.currentTimeMillis() + 1000L);
+        // id1 becomes the most recently accessed
+        getAccessToken("id1", null);
+        testClock.setCurrentTimeMillis(testClock.currentTimeMillis() + 1000L);
+        getAccessToken("id3", null);
+
+        assertEquals(2, tokenCache.size());
+        assertEquals(1, tokenCache.getEvictionCount());
+        assertEquals(3, requestCount.get());
+
+        // id1 is still cached, id2 was evicted
+        getAccessToken("id1", null);
+        assertEquals(3, requestCount.get());
+        getAccessToken("id2", null);
+        assertEquals(4, requestCount.get());
+    }
+
+    @Test
+    public void test_maintenance_evictsIdle() {
+        getAccessToken("id1", null);
+        testClock.setCurrentTimeMillis(testClock.currentTimeMillis() + TimeUnit.MINUTES.toMillis(11));
+        tokenCache.runMaintenance();
+        assertEquals(0, tokenCache.size());
+        assertEquals(1, tokenCache.getEvictionCount());
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    public void test_maintenance_refreshesRecentlyAccessedNearExpiry() {
+        String token = getAccessToken("id1", null);
+        // expires_in is 54321 seconds; move to just before expiry, with a recent access
+        long nearExpiry = testClock.currentTimeMillis() + TimeUnit.SECONDS.toMillis(54321) - 30000L;
+        testClock.setCurrentTimeMillis(nearExpiry - TimeUnit.MINUTES.toMillis(1));
+        assertEquals(token, getAccessToken("id1", null));
+        testClock.setCurrentTimeMillis(nearExpiry);
+        tokenCache.runMaintenance().join();
+        assertEquals(2, requestCount.get());
+
+        String refreshed = getAccessToken("id1", null);
+        assertNotEquals(token, refreshed);
+        assertEquals(2, requestCount.get());
+    }
+
+    /**
+     * Accesses every entry shortly before expiry, then moves to just before expiry,
+     * so that every entry needs a refresh.
+     */
+    private void moveNearExpiry(TokenCache cache, int entryCount) {
+        long nearExpiry = testClock.currentTimeMillis() + TimeUnit.SECONDS.toMillis(54321) - 30000L;
+        testClock.setCurrentTimeMillis(nearExpiry - TimeUnit.MINUTES.toMillis(1));
+        for (int i = 0; i < entryCount; i++) {
+            getAccessToken(cache, "id" + i, null);
+        }
+        testClock.setCurrentTimeMillis(nearExpiry);
+    }
+
+    @Test
+    public void test_maintenance_boundsConcurrentRefreshes() throws InterruptedException {
+        try (TokenCache largerCache = TokenCache.builder()
+                .setHttpProvider(mockHttpProvider)
+                .setClock(testClock)
+                .setMaximumSize(10)
+                .setMaxConcurrentRefreshes(2)
+                .setMaintenanceIntervalMillis(TimeUnit.HOURS.toMillis(1))
+                .build()) {
+            int entryCount = 4;
+            for (int i = 0; i < entryCount; i++) {
+                getAccessToken(largerCache, "id" + i, null);
+            }
+            moveNearExpiry(largerCache, entryCount);
+
+            CountDownLatch block = new CountDownLatch(1);
+            blockRequests.set(block);
+            CompletableFuture<Void> pass = largerCache.runMaintenance();
+            long deadline = System.currentTimeMillis() + 5000L;
+            while (inFlightCount.get() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            // the maintenance pass itself did not wait for the refreshes
+            assertEquals(2, inFlightCount.get());
+            assertEquals(entryCount, requestCount.get());
+            blockRequests.set(null);
+            block.countDown();
+
+            // the queued entries are refreshed as the first ones complete, within the same pass
+            pass.join();
+            assertEquals(2 * entryCount, requestCount.get());
+            assertEquals(2, maxInFlightCount.get());
+        }
+    }
+
+    @Test
+    public void test_maintenance_manyEntriesExpiringTogether() {
+        int entryCount = 50;
+        try (TokenCache largerCache = TokenCache.builder()
+                .setHttpProvider(mockHttpProvider)
+                .setClock(testClock)
+                .setMaximumSize(100)
+                .setMaxConcurrentRefreshes(3)
+                .setMaintenanceIntervalMillis(TimeUnit.HOURS.toMillis(1))
+                .build()) {
+            for (int i = 0; i < entryCount; i++) {
+                getAccessToken(largerCache, "id" + i, null);
+            }
+            moveNearExpiry(largerCache, entryCount);
+            requestDelayMillis = 5L;
+
+            largerCache.runMaintenance().join();
+
+            // one pass refreshes them all, never more than 3 at once
+            assertEquals(2 * entryCount, requestCount.get());
+            assertTrue(maxInFlightCount.get() <= 3);
+            long missCount = largerCache.getMissCount();
+            testClock.setCurrentTimeMillis(testClock.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1));
+            for (int i = 0; i < entryCount; i++) {
+                getAccessToken(largerCache, "id" + i, null);
+            }
+            // after the old tokens expired, every access is still a hit
+            assertEquals(missCount, largerCache.getMissCount());
+            assertEquals(2 * entryCount, requestCount.get());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_maxConcurrentRefreshes_positive() {
+        TokenCache.builder().setHttpProvider(mockHttpProvider).setMaxConcurrentRefreshes(0).build();
+    }
+
+    @Test
+    public void test_maximumSize_evictsInBatches() {
+        try (TokenCache largerCache = TokenCache.builder()
+                .setHttpProvider(mockHttpProvider)
+                .setClock(testClock)
+                .setMaximumSize(20)
+                .setMaintenanceIntervalMillis(TimeUnit.HOURS.toMillis(1))
+                .build()) {
+            for (int i = 0; i < 20; i++) {
+                getAccessToken(largerCache, "id" + i, null);
+                testClock.setCurrentTimeMillis(testClock.currentTimeMillis() + 1000L);
+            }
+            assertEquals(0, largerCache.getEvictionCount());
+
+            getAccessToken(largerCache, "id20", null);
+            // the excess entry plus room for 20 / 10 more inserts
+            assertEquals(3, largerCache.getEvictionCount());
+            assertEquals(18, largerCache.size());
+
+            getAccessToken(largerCache, "id21", null);
+            getAccessToken(largerCache, "id22", null);
+            assertEquals(3, largerCache.getEvictionCount());
+            assertEquals(20, largerCache.size());
+
+            // the least-recently-accessed entries were the ones evicted
+            int requests = requestCount.get();
+            getAccessToken(largerCache, "id3", null);
+            assertEquals(requests, requestCount.get());
+            getAccessToken(largerCache, "id0", null);
+            assertTrue(requestCount.get() > requests);
+        }
+    }
+
+    @Test
+    public void test_expired_requestsNew() {
+        String token = getAccessToken("id1", null);
+        testClock.setCurrentTimeMillis(testClock.currentTimeMillis() + TimeUnit.SECONDS.toMillis(54321));
+        assertNotEquals(token, getAccessToken("id1", null));
+        assertEquals(2, tokenCache.getMissCount());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void test_httpProvider_required() {
+        TokenCache.builder().build();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.Test;
+
+import com.here.account.http.HttpProvider;
+import com.here.account.util.Clock;
+
+public class RetryAfterJitterBackoffPolicyTest {
+
+    private static final int BASE = 100;
+    private static final int MAX = 2000;
+    private static final int MAX_RETRY_AFTER = 30000;
+    private static final long NOW = 1577836800000L;
+
+    private static final Clock FIXED_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return NOW;
+        }
+
+        @Override
+        public void schedule(ScheduledExecutorService scheduledExecutorService, Runnable runnable,
+                long millisecondsInTheFutureToSchedule) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private final RetryAfterJitterBackoffPolicy policy =
+            new RetryAfterJitterBackoffPolicy(3, BASE, MAX, MAX_RETRY_AFTER, FIXED_CLOCK);
+
+    private static RetryContext retryContext(int statusCode, String retryAfter) {
+        HttpProvider.HttpResponse httpResponse = mock(HttpProvider.HttpResponse.class);
+        when(httpResponse.getStatusCode()).thenReturn(statusCode);
+        Map<String, List<String>> headers = null == retryAfter
+                ? Collections.<String, List<String>>emptyMap()
+                : Collections.singletonMap("retry-after", Collections.singletonList(retryAfter));
+        when(httpResponse.getHeaders()).thenReturn(headers);
+        RetryContext retryContext = new RetryContext();
+        retryContext.setLastRetryResponse(httpResponse);
+        return retryContext;
+    }
+
+    @Test
+    public void test_shouldRetry_statusCodes() {
+        assertTrue(policy.shouldRetry(retryContext(429, null)));
+        assertTrue(policy.shouldRetry(retryContext(500, null)));
+        assertTrue(policy.shouldRetry(retryContext(503, "2")));
+        assertFalse(policy.shouldRetry(retryContext(200, null)));
+        assertFalse(policy.shouldRetry(retryContext(401, null)));
+    }
+
+    @Test
+    public void test_shouldRetry_exceptions() {
+        RetryContext retryContext = new RetryContext();
+        retryContext.setLastException(new SocketTimeoutException());
+        assertTrue(policy.shouldRetry(retryContext));
+        retryContext.setLastException(new IOException(new SocketTimeoutException()));
+        assertTrue(policy.shouldRetry(retryContext));
+        retryContext.setLastException(new IOException());
+        assertFalse(policy.shouldRetry(retryContext));
+    }
+
+    @Test
+    public void test_shouldRetry_maxRetries() {
+        RetryContext retryContext = retryContext(503, null);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(policy.shouldRetry(retryContext));
+            retryContext.incrementRetryCount();
+        }
+        assertFalse(policy.shouldRetry(retryContext));
+    }
+
+    @Test
+    public void test_shouldRetry_retryAfterTooLong() {
+        assertFalse(policy.shouldRetry(retryContext(429, "31")));
+        assertTrue(policy.shouldRetry(retryContext(429, "30")));
+    }
+
+    @Test
+    public void test_interval_retryAfterSeconds() {
+        for (int i = 0; i < 100; i++) {
+            int interval = policy.getNextRetryIntervalMillis(retryContext(429, " 3 "));
+            assertTrue("interval " + interval, interval >= 3000 && interval < 3000 + BASE);
+        }
+    }
+
+    @Test
+    public void test_interval_retryAfterHttpDate() {
+        String retryAfter = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                Instant.ofEpochMilli(NOW + 5000L).atOffset(ZoneOffset.UTC));
+        assertEquals(5000L, policy.getRetryAfterMillis(retryContext(503, retryAfter).getLastRetryResponse()));
+        // in the past
+        retryAfter = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                Instant.ofEpochMilli(NOW - 5000L).atOffset(ZoneOffset.UTC));
+        assertEquals(0L, policy.getRetryAfterMillis(retryContext(503, retryAfter).getLastRetryResponse()));
+    }
+
+    @Test
+    public void test_retryAfter_ignored() {
+        // Retry-After is only server-directed backoff for 429 and 503
+        assertEquals(-1L, policy.getRetryAfterMillis(retryContext(500, "3").getLastRetryResponse()));
+        assertEquals(-1L, policy.getRetryAfterMillis(retryContext(503, "soon").getLastRetryResponse()));
+        assertEquals(-1L, policy.getRetryAfterMillis(retryContext(503, null).getLastRetryResponse()));
+    }
+
+    @Test
+    public void test_retryAfter_headersUnsupported() {
+        HttpProvider.HttpResponse httpResponse = mock(HttpProvider.HttpResponse.class);
+        when(httpResponse.getStatusCode()).thenReturn(503);
+        when(httpResponse.getHeaders()).thenThrow(new UnsupportedOperationException());
+        assertEquals(-1L, policy.getRetryAfterMillis(httpResponse));
+    }
+
+    @Test
+    public void test_interval_decorrelatedJitter_floorAndCap() {
+        for (int i = 0; i < 1000; i++) {
+            RetryContext retryContext = retryContext(503, null);
+            int previous = 0;
+            for (int retry = 0; retry < 10; retry++) {
+                retryContext.incrementRetryCount();
+                int interval = policy.getNextRetryIntervalMillis(retryContext);
+                assertTrue("interval " + interval, interval >= BASE);
+                assertTrue("interval " + interval, interval <= MAX);
+                assertTrue("interval " + interval, interval <= Math.max(BASE, previous) * 3);
+                retryContext.setLastRetryIntervalMillis(interval);
+                previous = interval;
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_zeroBase_rejected() {
+        new RetryAfterJitterBackoffPolicy(3, 0, MAX, MAX_RETRY_AFTER);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.here.account.http.HttpProvider;
+import com.here.account.util.Clock;
+
+public class RetryBudgetTest {
+
+    private static final long WINDOW_MILLIS = 10000L;
+
+    private long now;
+    private Clock clock;
+
+    @Before
+    public void setUp() {
+        now = 1000000L;
+        clock = new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return now;
+            }
+
+            @Override
+            public void schedule(ScheduledExecutorService scheduledExecutorService, Runnable runnable,
+                    long millisecondsInTheFutureToSchedule) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Test
+    public void test_minRetries_withoutSuccesses() {
+        // 1 per second over 10 seconds
+        RetryBudget retryBudget = new RetryBudget(clock, 0.1, 1, WINDOW_MILLIS);
+        assertEquals(10, retryBudget.getRemainingRetries());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(retryBudget.tryAcquireRetry());
+        }
+        assertFalse(retryBudget.tryAcquireRetry());
+        assertEquals(0, retryBudget.getRemainingRetries());
+    }
+
+    @Test
+    public void test_successes_deposit() {
+        RetryBudget retryBudget = new RetryBudget(clock, 0.1, 0, WINDOW_MILLIS);
+        assertFalse(retryBudget.tryAcquireRetry());
+        for (int i = 0; i < 25; i++) {
+            retryBudget.recordSuccess();
+        }
+        assertEquals(2, retryBudget.getRemainingRetries());
+        assertTrue(retryBudget.tryAcquireRetry());
+        assertTrue(retryBudget.tryAcquireRetry());
+        assertFalse(retryBudget.tryAcquireRetry());
+    }
+
+    @Test
+    public void test_window_slides() {
+        RetryBudget retryBudget = new RetryBudget(clock, 0.1, 0, WINDOW_MILLIS);
+        for (int i = 0; i < 20; i++) {
+            retryBudget.recordSuccess();
+        }
+        now += WINDOW_MILLIS / 2;
+        for (int i = 0; i < 10; i++) {
+            retryBudget.recordSuccess();
+        }
+        assertEquals(3, retryBudget.getRemainingRetries());
+
+        // the first 20 successes slid out of the window
+        now += WINDOW_MILLIS / 2;
+        assertEquals(1, retryBudget.getRemainingRetries());
+
+        now += WINDOW_MILLIS * 3;
+        assertEquals(0, retryBudget.getRemainingRetries());
+    }
+
+    @Test
+    public void test_forHost_shared() {
+        RetryBudget retryBudget = RetryBudget.forHost("account.api.here.com");
+        assertSame(retryBudget, RetryBudget.forHost("Account.API.here.com"));
+        assertSame(retryBudget, RetryBudget.forUrl("https://account.api.here.com/oauth2/token"));
+        assertNotSame(retryBudget, RetryBudget.forUrl("https://account.api.here.com:8443/oauth2/token"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_forUrl_noHost() {
+        RetryBudget.forUrl("/oauth2/token");
+    }
+
+    private static RetryContext retryContext(int statusCode) {
+        HttpProvider.HttpResponse httpResponse = mock(HttpProvider.HttpResponse.class);
+        when(httpResponse.getStatusCode()).thenReturn(statusCode);
+        RetryContext retryContext = new RetryContext();
+        retryContext.setLastRetryResponse(httpResponse);
+        return retryContext;
+    }
+
+    @Test
+    public void test_policy_capsDelegateRetries() {
+        RetryBudget retryBudget = new RetryBudget(clock, 0.5, 0, WINDOW_MILLIS);
+        RetryBudgetPolicy retryBudgetPolicy = new RetryBudgetPolicy(
+                new Socket5xxExponentialRandomBackoffPolicy(), retryBudget);
+        assertSame(retryBudget, retryBudgetPolicy.getRetryBudget());
+
+        // nothing deposited yet
+        assertFalse(retryBudgetPolicy.shouldRetry(retryContext(503)));
+
+        // successes are deposited, but not retried
+        assertFalse(retryBudgetPolicy.shouldRetry(retryContext(200)));
+        assertFalse(retryBudgetPolicy.shouldRetry(retryContext(200)));
+        assertEquals(1, retryBudget.getRemainingRetries());
+
+        assertTrue(retryBudgetPolicy.shouldRetry(retryContext(503)));
+        assertFalse(retryBudgetPolicy.shouldRetry(retryContext(503)));
+    }
+
+    @Test
+    public void test_policy_clientErrors_notDeposited() {
+        RetryBudget retryBudget = new RetryBudget(clock, 0.5, 0, WINDOW_MILLIS);
+        RetryBudgetPolicy retryBudgetPolicy = new RetryBudgetPolicy(new NoRetryPolicy(), retryBudget);
+        for (int statusCode : new int[] {429, 429, 401, 404, 100, 100}) {
+            retryBudgetPolicy.shouldRetry(retryContext(statusCode));
+        }
+        assertEquals(0, retryBudget.getRemainingRetries());
+
+        retryBudgetPolicy.shouldRetry(retryContext(204));
+        retryBudgetPolicy.shouldRetry(retryContext(302));
+        assertEquals(1, retryBudget.getRemainingRetries());
+    }
+
+    @Test
+    public void test_policy_delegateDeclines_budgetKept() {
+        RetryBudget retryBudget = new RetryBudget(clock, 0.1, 1, WINDOW_MILLIS);
+        RetryBudgetPolicy retryBudgetPolicy = new RetryBudgetPolicy(new NoRetryPolicy(), retryBudget);
+        assertFalse(retryBudgetPolicy.shouldRetry(retryContext(503)));
+        assertEquals(10, retryBudget.getRemainingRetries());
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.oauth2.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.pool.PoolStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.here.account.auth.NoAuthorizer;
+import com.here.account.http.HttpConstants;
+import com.here.account.http.HttpProvider;
+import com.here.account.http.apache.ApacheHttpClientProvider;
+import com.sun.net.httpserver.HttpServer;
+
+public class RetryExecutorTest {
+
+    private static final int RETRIES = 4;
+
+    private HttpServer httpServer;
+    private String url;
+    private AtomicInteger requestCount;
+    private volatile int errorBodyLength;
+    private ApacheHttpClientProvider httpProvider;
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() throws IOException {
+        requestCount = new AtomicInteger();
+        errorBodyLength = 100;
+        httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        httpServer.createContext("/", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                while (in.read() >= 0) {
+                    // drain the request
+                }
+            }
+            // fail all but the last attempt
+            int statusCode = requestCount.incrementAndGet() % (RETRIES + 1) == 0 ? 200 : 503;
+            byte[] body = new byte[statusCode == 200 ? 2 : errorBodyLength];
+            body[0] = '{';
+            body[body.length - 1] = '}';
+            exchange.sendResponseHeaders(statusCode, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        executorService = Executors.newCachedThreadPool();
+        httpServer.setExecutor(executorService);
+        httpServer.start();
+        url = "http://127.0.0.1:" + httpServer.getAddress().getPort() + "/token";
+        httpProvider = (ApacheHttpClientProvider) ApacheHttpClientProvider.builder()
+                .setConnectionTimeoutInMs(1000)
+                .setRequestTimeoutInMs(1000)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        httpProvider.close();
+        httpServer.stop(0);
+        executorService.shutdownNow();
+    }
+
+    private RetryExecutor retryExecutor() {
+        // zero interval, retry every 5xx
+        return new RetryExecutor(new Socket5xxExponentialRandomBackoffPolicy(RETRIES, 0));
+    }
+
+    private HttpProvider.HttpRequest getRequest() {
+        return httpProvider.getRequest(new NoAuthorizer(), "GET", url, (String) null);
+    }
+
+    private void verifyNoLeasedConnections(HttpProvider.HttpResponse httpResponse) throws IOException {
+        assertEquals(200, httpResponse.getStatusCode());
+        httpResponse.discard();
+        PoolStats poolStats = httpProvider.getConnectionPoolStats();
+        assertEquals("leased connections: " + poolStats, 0, poolStats.getLeased());
+        assertEquals(RETRIES + 1, requestCount.get());
+    }
+
+    @Test
+    public void test_execute_smallBodies_drained() throws Exception {
+        HttpProvider.HttpRequest httpRequest = getRequest();
+        HttpProvider.HttpResponse httpResponse = retryExecutor().execute(() -> httpProvider.execute(httpRequest));
+        verifyNoLeasedConnections(httpResponse);
+        // the drained connections went back to the pool for reuse
+        assertEquals(1, httpProvider.getConnectionPoolStats().getAvailable());
+    }
+
+    @Test
+    public void test_execute_largeBodies_closed() throws Exception {
+        errorBodyLength = HttpConstants.MAX_DRAIN_BYTES * 2;
+        HttpProvider.HttpRequest httpRequest = getRequest();
+        HttpProvider.HttpResponse httpResponse = retryExecutor().execute(() -> httpProvider.execute(httpRequest));
+        verifyNoLeasedConnections(httpResponse);
+    }
+
+    @Test
+    public void test_executeAsync_drained() throws Exception {
+        HttpProvider.HttpRequest httpRequest = getRequest();
+        HttpProvider.HttpResponse httpResponse = retryExecutor()
+                .executeAsync(() -> httpProvider.executeAsync(httpRequest, executorService), executorService)
+                .get(10, TimeUnit.SECONDS);
+        verifyNoLeasedConnections(httpResponse);
+    }
+
+    /**
+     * Retries every attempt, waiting waitMillis in between.
+     */
+    private static RetryPolicy retryForever(int waitMillis) {
+        return new RetryPolicy() {
+            @Override
+            public boolean shouldRetry(RetryContext retryContext) {
+                return true;
+            }
+
+            @Override
+            public int getNextRetryIntervalMillis(RetryContext retryContext) {
+                return waitMillis;
+            }
+        };
+    }
+
+    @Test
+    public void test_executeAsync_scheduled_noThreadBlocked() throws Exception {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+        try {
+            AtomicInteger attempts = new AtomicInteger();
+            RetryExecutor retryExecutor = new RetryExecutor(retryForever(60000), scheduler);
+            CompletableFuture<HttpProvider.HttpResponse> future = retryExecutor.executeAsync(() -> {
+                attempts.incrementAndGet();
+                return CompletableFuture.completedFuture(null);
+            }, executorService);
+
+            // the first attempt ran, the retry waits in the scheduler queue, not on a thread
+            assertEquals(1, attempts.get());
+            assertFalse(future.isDone());
+            assertEquals(1, scheduler.getQueue().size());
+
+            assertTrue(future.cancel(true));
+            assertEquals("cancel should remove the scheduled retry", 0, scheduler.getQueue().size());
+            assertEquals(1, attempts.get());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_executeAsync_cancelled_inFlightResponseDiscarded() throws Exception {
+        CompletableFuture<HttpProvider.HttpResponse> attempt = new CompletableFuture<>();
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<HttpProvider.HttpResponse> future = new RetryExecutor(retryForever(0))
+                .executeAsync(() -> {
+                    attempts.incrementAndGet();
+                    return attempt;
+                }, executorService);
+        future.cancel(true);
+        assertFalse(attempt.isDone());
+
+        // the response arriving after the cancel is released, and not retried
+        HttpProvider.HttpResponse httpResponse = httpProvider.execute(getRequest());
+        attempt.complete(httpResponse);
+        assertEquals(0, httpProvider.getConnectionPoolStats().getLeased());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void test_execute_interrupted_stopsRetrying() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        HttpProvider.HttpRequest httpRequest = getRequest();
+        Thread.currentThread().interrupt();
+        try {
+            new RetryExecutor(retryForever(60000)).execute(() -> {
+                attempts.incrementAndGet();
+                return httpProvider.execute(httpRequest);
+            });
+            fail("expected InterruptedException");
+        } catch (InterruptedException e) {
+            assertTrue("interrupt status should be restored", Thread.currentThread().isInterrupted());
+            assertEquals(1, attempts.get());
+            // the rejected response was released before waiting
+            assertEquals(0, httpProvider.getConnectionPoolStats().getLeased());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
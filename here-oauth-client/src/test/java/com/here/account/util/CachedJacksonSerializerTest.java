@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.here.account.oauth2.AccessTokenResponse;
+import com.here.account.oauth2.ErrorResponse;
+
+public class CachedJacksonSerializerTest {
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_jsonToPojo_sameAsJsonSerializer() throws IOException {
+        String accessToken = "at" + UUID.randomUUID();
+        String json = "{\"access_token\":\"" + accessToken + "\",\"expires_in\":123,\"scope\":\"my-scope\","
+                + "\"unknown\":{\"nested\":true}}";
+        CachedJacksonSerializer serializer = CachedJacksonSerializer.builder()
+                .addClass(AccessTokenResponse.class)
+                .build();
+
+        AccessTokenResponse expected = JsonSerializer.toPojo(stream(json), AccessTokenResponse.class);
+        for (int i = 0; i < 2; i++) {
+            AccessTokenResponse actual = serializer.jsonToPojo(stream(json), AccessTokenResponse.class);
+            assertEquals(expected.getAccessToken(), actual.getAccessToken());
+            assertEquals(expected.getExpiresIn(), actual.getExpiresIn());
+            assertEquals(expected.getScope(), actual.getScope());
+        }
+    }
+
+    @Test
+    public void test_unregisteredClass() {
+        CachedJacksonSerializer serializer = CachedJacksonSerializer.builder().build();
+
+        ErrorResponse errorResponse = serializer.jsonToPojo(
+                stream("{\"error\":\"invalid_client\",\"errorCode\":401300}"), ErrorResponse.class);
+        assertEquals("invalid_client", errorResponse.getError());
+        assertEquals(Integer.valueOf(401300), errorResponse.getErrorCode());
+    }
+
+    @Test
+    public void test_jsonToMap() {
+        Map<String, Object> map = CachedJacksonSerializer.builder().build()
+                .jsonToMap(stream("{\"foo\":\"\\/\",\"bar\":1}"));
+        assertEquals("/", map.get("foo"));
+        assertEquals(1, map.get("bar"));
+    }
+
+    @Test
+    public void test_objectToJson_nonNull() {
+        CachedJacksonSerializer serializer = CachedJacksonSerializer.builder()
+                .addClass(AccessTokenResponse.class)
+                .build();
+        AccessTokenResponse accessTokenResponse = new AccessTokenResponse("my-token", "bearer", 3600L,
+                null, null, null);
+
+        String json = serializer.objectToJson(accessTokenResponse);
+        assertTrue(json, json.contains("\"access_token\":\"my-token\""));
+        assertFalse("null properties should be left out: " + json, json.contains("refresh_token"));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        serializer.writeObjectToJson(outputStream, accessTokenResponse);
+        assertEquals(json, new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_jsonFactory_injected() {
+        AtomicInteger parsers = new AtomicInteger();
+        JsonFactory jsonFactory = new JsonFactory() {
+            @Override
+            public JsonParser createParser(InputStream in) throws IOException {
+                parsers.incrementAndGet();
+                return super.createParser(in);
+            }
+        };
+        CachedJacksonSerializer serializer = CachedJacksonSerializer.builder()
+                .setJsonFactory(jsonFactory)
+                .build();
+
+        serializer.jsonToPojo(stream("{\"access_token\":\"my-token\"}"), AccessTokenResponse.class);
+        assertEquals(1, parsers.get());
+    }
+
+    @Test
+    public void test_malformed() {
+        try {
+            CachedJacksonSerializer.builder().build().jsonToPojo(stream("{\"access_token\":"),
+                    AccessTokenResponse.class);
+            fail("expected trouble deserializing");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("trouble deserializing json"));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.net.URLEncoder;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PercentEncoderTest {
+
+    @Test
+    public void test_unreserved_sameInstance() {
+        String s = "AZaz09-._~";
+        assertSame(s, PercentEncoder.encode(s));
+        String empty = "";
+        assertSame(empty, PercentEncoder.encode(empty));
+    }
+
+    @Test
+    public void test_reserved() {
+        assertEquals("a%20b%2Bc%2A%26%3D%25%2F%3A%3F", PercentEncoder.encode("a b+c*&=%/:?"));
+    }
+
+    @Test
+    public void test_multibyte() {
+        // 2-byte, 3-byte, and 4-byte (surrogate pair) UTF-8 sequences
+        assertEquals("%C3%A9%E2%82%AC%F0%9F%98%80", PercentEncoder.encode("é€😀"));
+    }
+
+    @Test
+    public void test_unpairedSurrogate() {
+        String s = "a\ud83db\ude00";
+        assertEquals(percentEncode(new String(s.getBytes(OAuthConstants.UTF_8_CHARSET), OAuthConstants.UTF_8_CHARSET)),
+                PercentEncoder.encode(s));
+        assertEquals("a%3Fb%3F", PercentEncoder.encode(s));
+    }
+
+    @Test
+    public void test_appendsToBuilder() {
+        StringBuilder buf = new StringBuilder("x=");
+        assertSame(buf, PercentEncoder.encode("a b", buf));
+        assertEquals("x=a%20b", buf.toString());
+    }
+
+    @Test
+    public void test_matchesURLEncoder() throws Exception {
+        Random random = new Random(42L);
+        for (int i = 0; i < 1000; i++) {
+            StringBuilder s = new StringBuilder();
+            int length = random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                // BMP characters outside the surrogate range
+                char c = (char) (random.nextBoolean() ? random.nextInt(128) : random.nextInt(0xD000));
+                s.append(c);
+            }
+            assertEquals(percentEncode(s.toString()), PercentEncoder.encode(s.toString()));
+        }
+    }
+
+    /**
+     * The RFC3986 encoding, in terms of URLEncoder.
+     */
+    private static String percentEncode(String s) {
+        try {
+            return URLEncoder.encode(s, OAuthConstants.UTF_8_STRING)
+                    .replace("+", "%20").replace("*", "%2A").replace("%7E", "~");
+        } catch (java.io.UnsupportedEncodingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -8,9 +8,16 @@ import org.junit.Test;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class RefreshableResponseProviderTest {
 
@@ -179,4 +186,150 @@ public class RefreshableResponseProviderTest {
 
 
 
+    /**
+     * A TestClock that never runs the scheduled refreshes, so only caller-triggered 
+     * refreshes happen.
+     */
+    private static class NoScheduleTestClock extends TestClock {
+        @Override
+        public void schedule(ScheduledExecutorService scheduledExecutorService, Runnable runnable,
+                long millisecondsInTheFutureToSchedule) {
+        }
+    }
+
+    private RefreshableResponseProvider<MyExpiringResponse> newProvider(Clock clock, 
+            ResponseRefresher<MyExpiringResponse> refresher, long hardExpiryWaitMillis) {
+        this.refreshableResponseProvider = new RefreshableResponseProvider<MyExpiringResponse>(
+                clock, null, initialToken, refresher, SharedRefreshScheduler.acquire(), hardExpiryWaitMillis);
+        return refreshableResponseProvider;
+    }
+
+    @Test
+    public void test_softExpired_servesStale_oneBackgroundRefresh() throws InterruptedException {
+        TestClock clock = new NoScheduleTestClock();
+        final AtomicInteger refreshCount = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final MyExpiringResponse refreshed = new MyExpiringResponse();
+        newProvider(clock, (MyExpiringResponse previous) -> {
+            refreshCount.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return refreshed;
+        }, 1000L);
+
+        // past the soft expiry of 540 seconds, before the hard expiry of 600 seconds
+        clock.setCurrentTimeMillis(clock.currentTimeMillis() + TimeUnit.SECONDS.toMillis(550));
+        for (int i = 0; i < 10; i++) {
+            assertSame(initialToken, refreshableResponseProvider.getUnexpiredResponse());
+        }
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (refreshableResponseProvider.getUnexpiredResponse() != refreshed
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5L);
+        }
+        assertSame(refreshed, refreshableResponseProvider.getUnexpiredResponse());
+        assertEquals(1, refreshCount.get());
+    }
+
+    @Test
+    public void test_async_nearHardExpiry_neverWaits() throws Exception {
+        final AtomicInteger laterReads = new AtomicInteger(-1);
+        TestClock clock = new NoScheduleTestClock() {
+            @Override
+            public long currentTimeMillis() {
+                // once enabled, every further read is 2 seconds later, past the hard expiry
+                int n = laterReads.get() < 0 ? 0 : laterReads.getAndIncrement();
+                return super.currentTimeMillis() + TimeUnit.SECONDS.toMillis(2) * n;
+            }
+        };
+        final CountDownLatch release = new CountDownLatch(1);
+        newProvider(clock, (MyExpiringResponse previous) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new MyExpiringResponse();
+        }, 5000L);
+
+        // 1 second before the hard expiry of 600 seconds
+        clock.setCurrentTimeMillis(clock.getStartTimeMillis() + TimeUnit.SECONDS.toMillis(599));
+        laterReads.set(0);
+        try {
+            CompletableFuture<MyExpiringResponse> future = refreshableResponseProvider.getUnexpiredResponseAsync();
+            assertTrue("should not wait for the refresh", future.isDone());
+            assertSame(initialToken, future.get());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void test_hardExpired_waitsForRefresh() {
+        TestClock clock = new NoScheduleTestClock();
+        final MyExpiringResponse refreshed = new MyExpiringResponse();
+        newProvider(clock, (MyExpiringResponse previous) -> refreshed, 1000L);
+
+        clock.setCurrentTimeMillis(clock.currentTimeMillis() + TimeUnit.SECONDS.toMillis(601));
+        assertSame(refreshed, refreshableResponseProvider.getUnexpiredResponse());
+    }
+
+    @Test
+    public void test_hardExpired_refreshFails_failsFast() {
+        TestClock clock = new NoScheduleTestClock();
+        final AtomicInteger refreshCount = new AtomicInteger();
+        final RuntimeException failure = new RuntimeException("simulate unable to refresh");
+        newProvider(clock, (MyExpiringResponse previous) -> {
+            refreshCount.incrementAndGet();
+            throw failure;
+        }, 1000L);
+
+        clock.setCurrentTimeMillis(clock.currentTimeMillis() + TimeUnit.SECONDS.toMillis(601));
+        for (int i = 0; i < 3; i++) {
+            try {
+                refreshableResponseProvider.getUnexpiredResponse();
+                fail("expected ResponseExpiredException");
+            } catch (ResponseExpiredException e) {
+                assertSame(failure, e.getCause());
+            }
+        }
+        // no new refresh until the retry interval has passed
+        assertEquals(1, refreshCount.get());
+
+        clock.setCurrentTimeMillis(clock.currentTimeMillis() 
+                + TimeUnit.SECONDS.toMillis(RefreshableResponseProvider.RETRY_FAIL_SECONDS));
+        try {
+            refreshableResponseProvider.getUnexpiredResponse();
+            fail("expected ResponseExpiredException");
+        } catch (ResponseExpiredException e) {
+            assertEquals(2, refreshCount.get());
+        }
+    }
+
+    @Test(expected = ResponseExpiredException.class)
+    public void test_hardExpired_refreshTooSlow() {
+        TestClock clock = new NoScheduleTestClock();
+        final CountDownLatch release = new CountDownLatch(1);
+        newProvider(clock, (MyExpiringResponse previous) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new MyExpiringResponse();
+        }, 50L);
+
+        clock.setCurrentTimeMillis(clock.currentTimeMillis() + TimeUnit.SECONDS.toMillis(601));
+        try {
+            refreshableResponseProvider.getUnexpiredResponse();
+        } finally {
+            release.countDown();
+        }
+    }
+
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.here.account.util.RefreshableResponseProvider.ExpiringResponse;
+
+public class SharedRefreshSchedulerTest {
+
+    private static class MyExpiringResponse implements ExpiringResponse {
+        private final long startTimeMillis = System.currentTimeMillis();
+
+        @Override
+        public Long getExpiresIn() {
+            return 10 * 60L;
+        }
+
+        @Override
+        public Long getStartTimeMilliseconds() {
+            return startTimeMillis;
+        }
+    }
+
+    private static int countRefreshThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("here-auth-refresh-")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void test_manyProviders_constantThreads() throws InterruptedException {
+        int initialLeases = SharedRefreshScheduler.getLeaseCount();
+        List<RefreshableResponseProvider<MyExpiringResponse>> providers = new ArrayList<>();
+        try {
+            for (int i = 0; i < 200; i++) {
+                providers.add(new RefreshableResponseProvider<MyExpiringResponse>(
+                        null,
+                        new MyExpiringResponse(),
+                        (MyExpiringResponse previous) -> new MyExpiringResponse()));
+            }
+            assertEquals(initialLeases + 200, SharedRefreshScheduler.getLeaseCount());
+
+            // make sure every pool thread has been started
+            final CountDownLatch latch = new CountDownLatch(SharedRefreshScheduler.DEFAULT_POOL_SIZE * 2);
+            ScheduledExecutorService lease = SharedRefreshScheduler.acquire();
+            for (int i = 0; i < SharedRefreshScheduler.DEFAULT_POOL_SIZE * 2; i++) {
+                lease.execute(latch::countDown);
+            }
+            assertTrue("tasks didn't run", latch.await(5, TimeUnit.SECONDS));
+            lease.shutdown();
+
+            int threads = countRefreshThreads();
+            assertTrue("expected at most " + SharedRefreshScheduler.DEFAULT_POOL_SIZE
+                    + " refresh threads, actual " + threads,
+                    threads <= SharedRefreshScheduler.DEFAULT_POOL_SIZE);
+        } finally {
+            for (RefreshableResponseProvider<MyExpiringResponse> provider : providers) {
+                provider.shutdown();
+            }
+        }
+        assertEquals(initialLeases, SharedRefreshScheduler.getLeaseCount());
+    }
+
+    @Test
+    public void test_lastLease_releasesThreads() throws InterruptedException {
+        if (SharedRefreshScheduler.getLeaseCount() > 0) {
+            // another provider in this JVM is holding a lease
+            return;
+        }
+        ScheduledExecutorService lease1 = SharedRefreshScheduler.acquire();
+        ScheduledExecutorService lease2 = SharedRefreshScheduler.acquire();
+        assertTrue(SharedRefreshScheduler.isRunning());
+        lease1.shutdown();
+        assertTrue(SharedRefreshScheduler.isRunning());
+        lease2.shutdown();
+        assertFalse(SharedRefreshScheduler.isRunning());
+
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (countRefreshThreads() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertEquals(0, countRefreshThreads());
+    }
+
+    @Test
+    public void test_shutdown_cancelsOnlyOwnTasks() throws InterruptedException {
+        ScheduledExecutorService lease1 = SharedRefreshScheduler.acquire();
+        ScheduledExecutorService lease2 = SharedRefreshScheduler.acquire();
+        try {
+            ScheduledFuture<?> future1 = lease1.schedule(() -> { }, 1, TimeUnit.HOURS);
+            final CountDownLatch latch = new CountDownLatch(1);
+            lease2.schedule(latch::countDown, 50, TimeUnit.MILLISECONDS);
+
+            lease1.shutdown();
+            assertTrue("lease1 task should be cancelled", future1.isCancelled());
+            assertTrue(lease1.isShutdown());
+            assertTrue(lease1.awaitTermination(1, TimeUnit.SECONDS));
+            assertTrue("lease2 task should still run", latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            lease2.shutdown();
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void test_schedule_afterShutdown() {
+        ScheduledExecutorService lease = SharedRefreshScheduler.acquire();
+        lease.shutdown();
+        // idempotent
+        lease.shutdown();
+        lease.schedule(() -> { }, 1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2020 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.here.account.http.java11;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.here.account.http.HttpConstants;
+import com.here.account.http.HttpProvider;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Exercises the java.net.http.HttpClient provider from META-INF/versions/11 of the
+ * multi-release jar, against a local HTTP server.
+ */
+public class Java11HttpClientProviderIT {
+
+    private HttpServer httpServer;
+    private ExecutorService executorService;
+    private HttpProvider httpProvider;
+    private String url;
+
+    private volatile String lastMethod;
+    private volatile String lastContentType;
+    private volatile String lastAuthorization;
+    private volatile String lastCustomHeader;
+    private volatile String lastBody;
+
+    @Before
+    public void setUp() throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        httpServer.createContext("/oauth2/token", this::handle);
+        httpServer.createContext("/slow", this::handleSlow);
+        httpServer.setExecutor(Executors.newCachedThreadPool());
+        httpServer.start();
+        url = "http://127.0.0.1:" + httpServer.getAddress().getPort() + "/oauth2/token";
+
+        executorService = Executors.newCachedThreadPool();
+        httpProvider = Java11HttpClientProvider.builder()
+                .setPreferHttp2(false)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        httpProvider.close();
+        executorService.shutdownNow();
+        httpServer.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        lastMethod = exchange.getRequestMethod();
+        lastContentType = exchange.getRequestHeaders().getFirst(HttpConstants.CONTENT_TYPE_HEADER);
+        lastAuthorization = exchange.getRequestHeaders().getFirst(HttpConstants.AUTHORIZATION_HEADER);
+        lastCustomHeader = exchange.getRequestHeaders().getFirst("X-Custom");
+        try (InputStream inputStream = exchange.getRequestBody()) {
+            lastBody = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        byte[] responseBody = "{\"access_token\":\"ey.token\"}".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("X-Correlation-ID", "abc");
+        exchange.sendResponseHeaders(200, responseBody.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(responseBody);
+        }
+    }
+
+    private final CountDownLatch slowHeadersSent = new CountDownLatch(1);
+    private final CountDownLatch slowConnectionClosed = new CountDownLatch(1);
+
+    /**
+     * Sends the response headers, then keeps streaming the body until the client goes away.
+     */
+    private void handleSlow(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream outputStream = exchange.getResponseBody();
+        try {
+            outputStream.write('{');
+            outputStream.flush();
+            slowHeadersSent.countDown();
+            for (int i = 0; i < 200; i++) {
+                Thread.sleep(50L);
+                outputStream.write(new byte[1024]);
+                outputStream.flush();
+            }
+        } catch (IOException e) {
+            slowConnectionClosed.countDown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static HttpProvider.HttpRequestAuthorizer authorizer() {
+        return (httpRequest, method, url, formParams) -> httpRequest.addAuthorizationHeader("Bearer ey.test");
+    }
+
+    private static String read(HttpProvider.HttpResponse httpResponse) throws IOException {
+        try (InputStream inputStream = httpResponse.getResponseBody()) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void test_isAvailable() {
+        assertTrue("the versions/11 class should be loaded", Java11HttpClientProvider.isAvailable());
+    }
+
+    @Test
+    public void test_execute_formBody() throws Exception {
+        Map<String, List<String>> formParams = new HashMap<String, List<String>>();
+        formParams.put("grant_type", Collections.singletonList("client_credentials"));
+        formParams.put("scope", Arrays.asList("hrn:here:a b"));
+        HttpProvider.HttpRequest httpRequest = httpProvider.getRequest(authorizer(), "POST", url, formParams);
+
+        HttpProvider.HttpResponse httpResponse = httpProvider.execute(httpRequest);
+
+        assertEquals(200, httpResponse.getStatusCode());
+        assertEquals("{\"access_token\":\"ey.token\"}", read(httpResponse));
+        assertEquals("POST", lastMethod);
+        assertEquals(HttpConstants.CONTENT_TYPE_FORM_URLENCODED, lastContentType);
+        assertEquals("Bearer ey.test", lastAuthorization);
+        assertTrue(lastBody, lastBody.contains("grant_type=client_credentials"));
+        assertTrue(lastBody, lastBody.contains("scope=hrn%3Ahere%3Aa%20b"));
+    }
+
+    @Test
+    public void test_execute_jsonBody_headers() throws Exception {
+        HttpProvider.HttpRequest httpRequest = httpProvider.getRequest(authorizer(), "POST", url,
+                "{\"grantType\":\"client_credentials\"}");
+        httpRequest.addHeader("X-Custom", "custom-value");
+
+        HttpProvider.HttpResponse httpResponse = httpProvider.execute(httpRequest);
+
+        assertEquals(200, httpResponse.getStatusCode());
+        assertEquals(HttpConstants.CONTENT_TYPE_JSON, lastContentType);
+        assertEquals("{\"grantType\":\"client_credentials\"}", lastBody);
+        assertEquals("custom-value", lastCustomHeader);
+        // response headers are case-insensitive
+        assertEquals(Collections.singletonList("abc"), httpResponse.getHeaders().get("x-correlation-id"));
+    }
+
+    @Test
+    public void test_execute_requestBodyWriter() throws Exception {
+        byte[] json = "{\"grantType\":\"client_credentials\"}".getBytes(StandardCharsets.UTF_8);
+        HttpProvider.HttpRequest httpRequest = httpProvider.getRequest(authorizer(), "POST", url,
+                (HttpProvider.RequestBodyWriter) outputStream -> outputStream.write(json));
+
+        // the body can be sent more than once, as on a retry
+        assertEquals(200, httpProvider.execute(httpRequest).getStatusCode());
+        assertEquals(200, httpProvider.execute(httpRequest).getStatusCode());
+
+        assertEquals(HttpConstants.CONTENT_TYPE_JSON, lastContentType);
+        assertEquals("Bearer ey.test", lastAuthorization);
+        assertEquals("{\"grantType\":\"client_credentials\"}", lastBody);
+    }
+
+    @Test
+    public void test_executeAsync() throws Exception {
+        HttpProvider.HttpRequest httpRequest = httpProvider.getRequest(authorizer(), "GET", url,
+                (Map<String, List<String>>) null);
+
+        HttpProvider.HttpResponse httpResponse = httpProvider.executeAsync(httpRequest, executorService)
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(200, httpResponse.getStatusCode());
+        assertEquals("{\"access_token\":\"ey.token\"}", read(httpResponse));
+        assertEquals("GET", lastMethod);
+        assertEquals("", lastBody);
+    }
+
+    @Test
+    public void test_abort_closesStreamingResponse() throws Exception {
+        String slowUrl = url.replace("/oauth2/token", "/slow");
+        HttpProvider.HttpRequest httpRequest = httpProvider.getRequest(authorizer(), "GET", slowUrl,
+                (Map<String, List<String>>) null);
+        CompletableFuture<HttpProvider.HttpResponse> future = httpProvider.executeAsync(httpRequest, executorService);
+        assertTrue(slowHeadersSent.await(10, TimeUnit.SECONDS));
+        // let the client subscribe to the body
+        Thread.sleep(200L);
+
+        httpRequest.abort();
+
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("an aborted request should fail");
+        } catch (ExecutionException | java.util.concurrent.CancellationException e) {
+            // expected
+        }
+        // the exchange itself is torn down, not just the future
+        assertTrue("the server should see the connection closed",
+                slowConnectionClosed.await(5, TimeUnit.SECONDS));
+    }
+}